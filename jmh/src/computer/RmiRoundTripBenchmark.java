@@ -0,0 +1,108 @@
+package computer;
+
+import java.rmi.server.RemoteObject;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tasks.CompactMandelbrotSetTask;
+import tasks.EuclideanTspTask;
+import tasks.MandelbrotSetResult;
+import tasks.MandelbrotSetTask;
+import api.Computer;
+
+/**
+ * This class benchmarks a remote call to a ComputerImpl over the loopback interface.
+ * The calls go through the RMI stub of the computer, so they pay for the connection, the serialization of the task and the result, and the hand-off to a worker; the result cache is disabled so that every call executes its task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RmiRoundTripBenchmark {
+
+	/** The computer. */
+	private ComputerImpl computerImpl;
+
+	/** The RMI stub of the computer. */
+	private Computer computer;
+
+	/** A task that takes almost no time, so the round trip dominates. */
+	private EuclideanTspTask smallTask;
+
+	/** A Mandelbrot set task with an int[][] result. */
+	private MandelbrotSetTask mandelbrotSetTask;
+
+	/** The same Mandelbrot set task with a compact result. */
+	private CompactMandelbrotSetTask compactTask;
+
+	/**
+	 * Exports the computer and gets its stub.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Setup
+	public void setUp() throws Exception{
+		computerImpl = new ComputerImpl(Runtime.getRuntime().availableProcessors(), 256, 0);
+		computer = (Computer) RemoteObject.toStub(computerImpl);
+		smallTask = new EuclideanTspTask(new double[][]{{0, 0}, {1, 0}, {1, 1}, {0, 1}});
+		mandelbrotSetTask = new MandelbrotSetTask(new double[]{-2, -2}, 4, 256, 64);
+		compactTask = new CompactMandelbrotSetTask(mandelbrotSetTask);
+	}
+
+	/**
+	 * Unexports the computer.
+	 *
+	 * @throws Exception the exception
+	 */
+	@TearDown
+	public void tearDown() throws Exception{
+		UnicastRemoteObject.unexportObject(computerImpl, true);
+	}
+
+	/**
+	 * The round trip of a task that does almost nothing.
+	 *
+	 * @return the tour
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public int[] smallTask() throws Exception{
+		return computer.execute(smallTask);
+	}
+
+	/**
+	 * The round trip of a 256 x 256 Mandelbrot set task with an int[][] result.
+	 *
+	 * @return the counts
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public int[][] mandelbrotSetTask() throws Exception{
+		return computer.execute(mandelbrotSetTask);
+	}
+
+	/**
+	 * The round trip of a 256 x 256 Mandelbrot set task with a compact result.
+	 *
+	 * @return the counts
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public MandelbrotSetResult compactMandelbrotSetTask() throws Exception{
+		return computer.execute(compactTask);
+	}
+}
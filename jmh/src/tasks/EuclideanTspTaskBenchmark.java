@@ -0,0 +1,126 @@
+package tasks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks the solvers of the Euclidean TSP task per number of cities.
+ * Brute force is only measured on the small instances that it can finish; the exact solvers are measured on larger ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EuclideanTspTaskBenchmark {
+
+	/**
+	 * Creates cities at random points of the square [0, 100) x [0, 100); the seed is fixed so that every run solves the same instance.
+	 *
+	 * @param n the number of cities
+	 * @return the cities
+	 */
+	static double[][] randomCities(int n){
+		Random random = new Random(n);
+		double[][] cities = new double[n][2];
+		for(double[] city : cities){
+			city[0] = random.nextDouble() * 100;
+			city[1] = random.nextDouble() * 100;
+		}
+		return cities;
+	}
+
+	/**
+	 * The instances that brute force is measured on.
+	 */
+	@State(Scope.Benchmark)
+	public static class SmallInstance {
+
+		/** The number of cities. */
+		@Param({"7", "8", "9", "10"})
+		public int numCities;
+
+		/** The task. */
+		EuclideanTspTask task;
+
+		/**
+		 * Creates the task.
+		 */
+		@Setup
+		public void setUp(){
+			task = new EuclideanTspTask(randomCities(numCities), EuclideanTspTask.Solver.BRUTE_FORCE);
+		}
+	}
+
+	/**
+	 * The instances that the exact solvers are measured on.
+	 */
+	@State(Scope.Benchmark)
+	public static class LargeInstance {
+
+		/** The number of cities. */
+		@Param({"10", "13", "16", "19"})
+		public int numCities;
+
+		/** The task solved with branch-and-bound. */
+		EuclideanTspTask branchAndBound;
+
+		/** The task solved with Held-Karp. */
+		EuclideanTspTask heldKarp;
+
+		/**
+		 * Creates the tasks.
+		 */
+		@Setup
+		public void setUp(){
+			double[][] cities = randomCities(numCities);
+			branchAndBound = new EuclideanTspTask(cities, EuclideanTspTask.Solver.BRANCH_AND_BOUND);
+			heldKarp = new EuclideanTspTask(cities, EuclideanTspTask.Solver.HELD_KARP);
+		}
+	}
+
+	/**
+	 * Brute force over all the permutations.
+	 *
+	 * @param instance the instance
+	 * @return the tour
+	 */
+	@Benchmark
+	public int[] bruteForce(SmallInstance instance){
+		return instance.task.execute();
+	}
+
+	/**
+	 * Parallel branch-and-bound.
+	 *
+	 * @param instance the instance
+	 * @return the tour
+	 */
+	@Benchmark
+	public int[] branchAndBound(LargeInstance instance){
+		return instance.branchAndBound.execute();
+	}
+
+	/**
+	 * Held-Karp dynamic programming.
+	 *
+	 * @param instance the instance
+	 * @return the tour
+	 */
+	@Benchmark
+	public int[] heldKarp(LargeInstance instance){
+		return instance.heldKarp.execute();
+	}
+}
@@ -0,0 +1,138 @@
+package tasks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks the Mandelbrot set task: the escape loop of a single point and the whole grid, sequentially and in tiles, with each kernel.
+ * It is in the tasks package so that it can call the package-private getK.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MandelbrotSetTaskBenchmark {
+
+	/** The number of pixels along one edge of the region. */
+	@Param({"64", "256", "1024"})
+	public int numSquares;
+
+	/** The iteration limit. */
+	@Param({"64", "1024", "10000"})
+	public int iterationLimit;
+
+	/** The kernel that computes the grid. */
+	@Param({"SCALAR", "FAST"})
+	public MandelbrotSetTask.Kernel kernel;
+
+	/** The task that computes the pixels sequentially. */
+	private MandelbrotSetTask sequential;
+
+	/** The task that computes the pixels in square tiles. */
+	private MandelbrotSetTask tiled;
+
+	/** The task that fills the uniform rectangles of the grid. */
+	private MandelbrotSetTask adaptive;
+
+	/** The pixel of the point -1 + 0i, which is in the set and runs to the iteration limit. */
+	private int inside;
+
+	/** The pixel of the point -0.75 + 0.1i, which is close to the boundary of the set. */
+	private int boundaryI, boundaryJ;
+
+	/**
+	 * Creates the tasks for the region [-2, 2] x [-2, 2].
+	 */
+	@Setup
+	public void setUp(){
+		sequential = new MandelbrotSetTask(new double[]{-2, -2}, 4, numSquares, iterationLimit, MandelbrotSetTask.Tiling.NONE, numSquares, kernel);
+		tiled = new MandelbrotSetTask(new double[]{-2, -2}, 4, numSquares, iterationLimit, MandelbrotSetTask.Tiling.SQUARES, 32, kernel);
+		adaptive = new MandelbrotSetTask(new double[]{-2, -2}, 4, numSquares, iterationLimit, MandelbrotSetTask.Tiling.ADAPTIVE, 16, kernel);
+		inside = numSquares / 4;
+		boundaryI = (int) (1.25 * numSquares / 4);
+		boundaryJ = (int) (2.1 * numSquares / 4);
+	}
+
+	/**
+	 * The escape loop of a point in the set.
+	 *
+	 * @return k
+	 */
+	@Benchmark
+	public int getKInside(){
+		return sequential.getK(inside, numSquares / 2);
+	}
+
+	/**
+	 * The escape loop of a point close to the boundary of the set.
+	 *
+	 * @return k
+	 */
+	@Benchmark
+	public int getKBoundary(){
+		return sequential.getK(boundaryI, boundaryJ);
+	}
+
+	/**
+	 * The escape loop of a point far outside the set.
+	 *
+	 * @return k
+	 */
+	@Benchmark
+	public int getKOutside(){
+		return sequential.getK(0, 0);
+	}
+
+	/**
+	 * The whole grid on the calling thread.
+	 *
+	 * @return the counts
+	 */
+	@Benchmark
+	public int[][] executeSequential(){
+		return sequential.execute();
+	}
+
+	/**
+	 * The whole grid in tiles on the shared fork-join pool.
+	 *
+	 * @return the counts
+	 */
+	@Benchmark
+	public int[][] executeTiled(){
+		return tiled.execute();
+	}
+
+	/**
+	 * The whole grid by the subdivision into rectangles on the shared fork-join pool.
+	 *
+	 * @return the counts
+	 */
+	@Benchmark
+	public int[][] executeAdaptive(){
+		return adaptive.execute();
+	}
+
+	/**
+	 * The whole grid into the compact result.
+	 *
+	 * @return the counts
+	 */
+	@Benchmark
+	public MandelbrotSetResult executeCompact(){
+		return sequential.executeCompact();
+	}
+}
@@ -0,0 +1,153 @@
+package tasks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import api.InputBlob;
+import api.InputRef;
+
+/**
+ * This class benchmarks the Java serialization that RMI applies to the tasks and their results: a round trip through a byte array, which is what a remote call pays on both ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	/** The number of pixels along one edge of the Mandelbrot set region. */
+	@Param({"256", "1024"})
+	public int numSquares;
+
+	/** The Mandelbrot set task. */
+	private MandelbrotSetTask mandelbrotSetTask;
+
+	/** The Euclidean TSP task of 1000 cities. */
+	private EuclideanTspTask euclideanTspTask;
+
+	/** The Euclidean TSP task of the same cities, which refers to them by the hash of their input blob. */
+	private EuclideanTspTask euclideanTspTaskByReference;
+
+	/** The input blob of the cities, which is what a client uploads once. */
+	private InputBlob cityBlob;
+
+	/** The counts as returned by MandelbrotSetTask. */
+	private int[][] counts;
+
+	/** The counts as returned by CompactMandelbrotSetTask. */
+	private MandelbrotSetResult result;
+
+	/**
+	 * Creates the tasks and computes the results.
+	 */
+	@Setup
+	public void setUp(){
+		mandelbrotSetTask = new MandelbrotSetTask(new double[]{-2, -2}, 4, numSquares, 64);
+		double[][] cities = EuclideanTspTaskBenchmark.randomCities(1000);
+		euclideanTspTask = new EuclideanTspTask(cities);
+		cityBlob = InputBlob.of(cities);
+		euclideanTspTaskByReference = new EuclideanTspTask(new InputRef(cityBlob), EuclideanTspTask.Solver.AUTO, EuclideanTspTask.DEFAULT_TIME_BUDGET_MILLIS);
+		counts = mandelbrotSetTask.execute();
+		result = mandelbrotSetTask.executeCompact();
+	}
+
+	/**
+	 * Serializes an object and deserializes it again.
+	 *
+	 * @param object the object
+	 * @return the copy of the object
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	static Object roundTrip(Object object) throws IOException, ClassNotFoundException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+	}
+
+	/**
+	 * The Mandelbrot set task.
+	 *
+	 * @return the copy
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public Object mandelbrotSetTask() throws Exception{
+		return roundTrip(mandelbrotSetTask);
+	}
+
+	/**
+	 * The Euclidean TSP task.
+	 *
+	 * @return the copy
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public Object euclideanTspTask() throws Exception{
+		return roundTrip(euclideanTspTask);
+	}
+
+	/**
+	 * The Euclidean TSP task that refers to its cities, as it is sent after the cities were uploaded.
+	 *
+	 * @return the copy
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public Object euclideanTspTaskByReference() throws Exception{
+		return roundTrip(euclideanTspTaskByReference);
+	}
+
+	/**
+	 * The input blob of the cities, as it is uploaded once; the copy computes the hash of the cities again.
+	 *
+	 * @return the copy
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public Object cityBlob() throws Exception{
+		return roundTrip(cityBlob);
+	}
+
+	/**
+	 * The counts as an int[][].
+	 *
+	 * @return the copy
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public Object intArrayResult() throws Exception{
+		return roundTrip(counts);
+	}
+
+	/**
+	 * The counts as a compact, deflated result.
+	 *
+	 * @return the copy
+	 * @throws Exception the exception
+	 */
+	@Benchmark
+	public Object compactResult() throws Exception{
+		return roundTrip(result);
+	}
+}
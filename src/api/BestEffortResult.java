@@ -0,0 +1,50 @@
+package api;
+
+import java.io.Serializable;
+
+/**
+ * This class is the result of a task that may have been stopped before it was done, by its deadline or by a cancellation.
+ * A task that was stopped returns the best result it had found so far, such as the shortest TSP tour searched so far, which is then not known to be optimal.
+ *
+ * @param <T> the type of the result of the task
+ */
+public final class BestEffortResult<T> implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The result. */
+	private final T value;
+
+	/** Whether the task ran to completion. */
+	private final boolean complete;
+
+	/**
+	 * Instantiates a new best effort result.
+	 *
+	 * @param value the result of the task
+	 * @param complete whether the task ran to completion
+	 */
+	public BestEffortResult(T value, boolean complete){
+		this.value = value;
+		this.complete = complete;
+	}
+
+	/**
+	 * Gets the result of the task.
+	 *
+	 * @return the result, which is the best one found before the task stopped if it is not complete
+	 */
+	public T getValue(){
+		return value;
+	}
+
+	/**
+	 * Tells whether the task ran to completion, so that its result is the one it returns when it is not stopped, such as a minimal TSP tour.
+	 *
+	 * @return true if the task was not stopped
+	 */
+	public boolean isComplete(){
+		return complete;
+	}
+}
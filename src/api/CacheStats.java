@@ -0,0 +1,144 @@
+package api;
+
+import java.io.Serializable;
+
+/**
+ * This class is a snapshot of the counters of the result cache of a Computer, which are used to size the cache.
+ */
+public final class CacheStats implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of tasks whose result was found in the cache. */
+	private final long hits;
+
+	/** The number of tasks whose result was not in the cache and that were executed. */
+	private final long misses;
+
+	/** The number of tasks that waited for an identical task that was already executing. */
+	private final long coalesced;
+
+	/** The number of results that were evicted to stay within the capacity. */
+	private final long evictions;
+
+	/** The number of results in the cache. */
+	private final int entries;
+
+	/** The estimated size of the results in the cache, in bytes. */
+	private final long bytes;
+
+	/** The capacity of the cache, in bytes. */
+	private final long capacityBytes;
+
+	/**
+	 * Instantiates a new cache stats snapshot.
+	 *
+	 * @param hits the number of tasks whose result was found in the cache
+	 * @param misses the number of tasks whose result was not in the cache
+	 * @param coalesced the number of tasks that waited for an identical task that was already executing
+	 * @param evictions the number of results that were evicted
+	 * @param entries the number of results in the cache
+	 * @param bytes the estimated size of the results in the cache, in bytes
+	 * @param capacityBytes the capacity of the cache, in bytes
+	 */
+	public CacheStats(long hits, long misses, long coalesced, long evictions, int entries, long bytes, long capacityBytes){
+		this.hits = hits;
+		this.misses = misses;
+		this.coalesced = coalesced;
+		this.evictions = evictions;
+		this.entries = entries;
+		this.bytes = bytes;
+		this.capacityBytes = capacityBytes;
+	}
+
+	/**
+	 * Gets the number of tasks whose result was found in the cache.
+	 *
+	 * @return the hits
+	 */
+	public long getHits(){
+		return hits;
+	}
+
+	/**
+	 * Gets the number of tasks whose result was not in the cache and that were executed.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses(){
+		return misses;
+	}
+
+	/**
+	 * Gets the number of tasks that waited for an identical task that was already executing.
+	 *
+	 * @return the coalesced tasks
+	 */
+	public long getCoalesced(){
+		return coalesced;
+	}
+
+	/**
+	 * Gets the number of results that were evicted to stay within the capacity.
+	 *
+	 * @return the evictions
+	 */
+	public long getEvictions(){
+		return evictions;
+	}
+
+	/**
+	 * Gets the number of results in the cache.
+	 *
+	 * @return the entries
+	 */
+	public int getEntries(){
+		return entries;
+	}
+
+	/**
+	 * Gets the estimated size of the results in the cache.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getBytes(){
+		return bytes;
+	}
+
+	/**
+	 * Gets the capacity of the cache.
+	 *
+	 * @return the capacity in bytes
+	 */
+	public long getCapacityBytes(){
+		return capacityBytes;
+	}
+
+	/**
+	 * Gets the fraction of the tasks that did not have to be executed because their result was cached or computed by an identical task.
+	 *
+	 * @return the hit ratio, between 0 and 1
+	 */
+	public double getHitRatio(){
+		long total = hits + misses + coalesced;
+		return total == 0 ? 0 : (double) (hits + coalesced) / total;
+	}
+
+	/**
+	 * Adds up the counters of this cache and of the cache of another computer, to describe the caches of several computers as one.
+	 *
+	 * @param other the cache stats of the other computer
+	 * @return the merged cache stats
+	 */
+	public CacheStats merge(CacheStats other){
+		return new CacheStats(hits + other.hits, misses + other.misses, coalesced + other.coalesced, evictions + other.evictions,
+				entries + other.entries, bytes + other.bytes, capacityBytes + other.capacityBytes);
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + hits + ", misses=" + misses + ", coalesced=" + coalesced + ", evictions=" + evictions
+				+ ", entries=" + entries + ", bytes=" + bytes + "/" + capacityBytes + String.format(", hitRatio=%.3f", getHitRatio());
+	}
+}
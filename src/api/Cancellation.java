@@ -0,0 +1,159 @@
+package api;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is the token through which a running task is asked to stop: a computer cancels the token of a task when the client cancels the task or its deadline passes, and the task checks the token in its loops.
+ * The token of the task that a thread is executing is found with current(), so the tasks do not have to be given it; a task that runs its work on other threads, such as on a fork-join pool, captures the token first and checks the captured one.
+ * Checking a token is only a few volatile reads, since a deadline cancels the token from a timer thread instead of the task looking at the clock.
+ * A task that stops because of its token returns the best result it has so far, or throws a TaskCancelledException if it has none.
+ */
+public final class Cancellation {
+
+	/** The token of the threads that are not executing a task for a computer; it is never cancelled. */
+	private static final Cancellation NONE = new Cancellation(null);
+
+	/** The token of the task that each thread is executing. */
+	private static final ThreadLocal<Cancellation> CURRENT = new ThreadLocal<Cancellation>() {
+		@Override
+		protected Cancellation initialValue() {
+			return NONE;
+		}
+	};
+
+	/** The token that cancels this one too, or null. */
+	private final Cancellation parent;
+
+	/** Whether the token was cancelled. */
+	private volatile boolean cancelled;
+
+	/** Whether a task found the token cancelled, and so may have stopped before its result was complete. */
+	private volatile boolean observed;
+
+	/** The timer that cancels the token at its deadline, or null if it has none. */
+	private ScheduledFuture<?> alarm;
+
+	/**
+	 * Instantiates a new token that is cancelled only by cancel.
+	 */
+	public Cancellation(){
+		this(null);
+	}
+
+	/**
+	 * Instantiates a new token that is also cancelled with its parent.
+	 *
+	 * @param parent the parent token, or null
+	 */
+	private Cancellation(Cancellation parent){
+		this.parent = parent;
+	}
+
+	/**
+	 * Gets the token of the task that the current thread is executing.
+	 *
+	 * @return the token, which is never cancelled if the thread is not executing a task for a computer
+	 */
+	public static Cancellation current(){
+		return CURRENT.get();
+	}
+
+	/**
+	 * Tells whether the task should stop. A task that is told so is expected to stop soon, and its token remembers that it was told.
+	 *
+	 * @return true if the token or its parent was cancelled
+	 */
+	public boolean isCancelled(){
+		if(cancelled || (parent != null && parent.isCancelled())){
+			observed = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Cancels the token. The token of the threads that are not executing a task for a computer cannot be cancelled.
+	 */
+	public void cancel(){
+		if(this != NONE){
+			cancelled = true;
+		}
+	}
+
+	/**
+	 * Tells whether a task found the token cancelled, in which case its result may be the best one found before it stopped.
+	 *
+	 * @return true if isCancelled returned true
+	 */
+	public boolean wasObserved(){
+		return observed;
+	}
+
+	/**
+	 * Executes a task on the current thread with this token as the current token.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @return the result of the task
+	 */
+	public <T> T execute(Task<T> task){
+		Cancellation previous = CURRENT.get();
+		CURRENT.set(this);
+		try{
+			return task.execute();
+		}
+		finally{
+			CURRENT.set(previous);
+		}
+	}
+
+	/**
+	 * Creates a token that is cancelled with this one or when the timeout has elapsed, whichever comes first.
+	 * The timer of the token is stopped with disarm once the token is no longer used.
+	 *
+	 * @param timeoutMillis the timeout, in milliseconds
+	 * @return the token
+	 */
+	Cancellation withTimeout(long timeoutMillis){
+		final Cancellation child = new Cancellation(this);
+		child.alarm = Alarms.TIMER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				child.cancel();
+			}
+		}, Math.max(0, timeoutMillis), TimeUnit.MILLISECONDS);
+		return child;
+	}
+
+	/**
+	 * Stops the timer of the token, if it has one.
+	 */
+	void disarm(){
+		if(alarm != null){
+			alarm.cancel(false);
+		}
+	}
+
+	/**
+	 * The holder of the timer of the deadlines, which is only started when a token with a timeout is created.
+	 */
+	private static final class Alarms {
+
+		/** The timer, whose single daemon thread cancels the tokens whose deadlines have passed. */
+		static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "cancellation-timer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		static{
+			TIMER.setRemoveOnCancelPolicy(true); // the timers of the tasks that finish in time do not pile up
+		}
+	}
+}
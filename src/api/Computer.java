@@ -2,6 +2,8 @@ package api;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This is the remote interface through which different tasks can be submitted and executed.
@@ -20,7 +22,112 @@ public interface Computer extends Remote{
 	 * @param <T> the generic type
 	 * @param t the Task object
 	 * @return Object the return value of the Task object's execute method
+	 * @throws RejectedTaskException if the computer is too busy to accept the task
 	 * @throws RemoteException the remote exception
 	 */
 	<T> T execute(Task<T> t) throws RemoteException;
+	
+	/**
+	 * Executes a streaming task, sending the parts of its result to the listener in batches while the task is executing.
+	 * This method returns once the task has completed and all of its parts have been delivered. The results of streaming tasks are not cached.
+	 *
+	 * @param <T> the type of the result of the task
+	 * @param <P> the type of the parts
+	 * @param task the task
+	 * @param listener the remote listener that receives the parts
+	 * @return the part of the result that the task did not stream
+	 * @throws RejectedTaskException if the computer is too busy to accept the task
+	 * @throws RemoteException the remote exception, which is also thrown if the listener cannot be called
+	 */
+	<T, P> T executeStreaming(StreamingTask<T, P> task, PartialResultListener<P> listener) throws RemoteException;
+	
+	/**
+	 * Submits a batch of tasks in a single remote call. The tasks are executed concurrently and this method returns without waiting for them.
+	 * Each task is identified by a ticket, which is used to collect its result with poll or take.
+	 *
+	 * @param tasks the tasks
+	 * @return the tickets of the tasks, in the order of the tasks
+	 * @throws RejectedTaskException if the computer is too busy to accept the whole batch
+	 * @throws RemoteException the remote exception
+	 */
+	long[] submit(List<? extends Task<?>> tasks) throws RemoteException;
+	
+	/**
+	 * Collects the results of the given tickets whose tasks have completed, without waiting for the others.
+	 * A result is returned only once; the ticket is forgotten after its result has been collected.
+	 * If a task threw an exception, its result is a TaskException.
+	 *
+	 * @param tickets the tickets
+	 * @return the results of the completed tasks, by ticket
+	 * @throws RemoteException the remote exception
+	 */
+	Map<Long, Object> poll(long[] tickets) throws RemoteException;
+	
+	/**
+	 * Collects the results of the given tickets, waiting until all of their tasks have completed or the timeout has elapsed.
+	 * A result is returned only once; the ticket is forgotten after its result has been collected.
+	 * If a task threw an exception, its result is a TaskException.
+	 *
+	 * @param tickets the tickets
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return the results of the completed tasks, by ticket
+	 * @throws RemoteException the remote exception
+	 */
+	Map<Long, Object> take(long[] tickets, long timeoutMillis) throws RemoteException;
+
+	/**
+	 * Asks the tasks of the given tickets to stop, without waiting for them. A task that is waiting for a worker is not executed, and a running task stops at its next check of its Cancellation.
+	 * The results are still collected with poll or take: the result of a task that was stopped is a BestEffortResult holding the best result it found, marked as not complete, or a TaskException if it had none.
+	 * A task whose result an identical task of another client is also waiting for is not stopped.
+	 *
+	 * @param tickets the tickets
+	 * @throws RemoteException the remote exception
+	 */
+	void cancel(long[] tickets) throws RemoteException;
+
+	/**
+	 * Reads a chunk of a file that a task wrote into the result directory of the computer, so that a large result can be copied to the client without being held whole in memory on either side.
+	 *
+	 * @param name the name of the result file, as given by its ResultFile
+	 * @param offset the offset of the chunk in the file
+	 * @param length the largest number of bytes to read
+	 * @return the bytes read, which are fewer than length at the end of the file and none past it
+	 * @throws RemoteException if there is no such result file or it cannot be read
+	 */
+	byte[] fetch(String name, long offset, int length) throws RemoteException;
+	
+	/**
+	 * Finds the input blobs that are not in the input store of the computer, so that a client uploads only those.
+	 *
+	 * @param hashes the hashes of the blobs
+	 * @return the hashes of the blobs that are not in the store
+	 * @throws RemoteException the remote exception
+	 */
+	String[] findMissingInputs(String[] hashes) throws RemoteException;
+	
+	/**
+	 * Stores input blobs in the input store of the computer, where the tasks that refer to them by an InputRef find them.
+	 *
+	 * @param inputs the blobs
+	 * @throws RemoteException the remote exception
+	 */
+	void storeInputs(List<InputBlob> inputs) throws RemoteException;
+	
+	/**
+	 * Gets a snapshot of the counters of the cache in which the computer keeps the results of the tasks it has executed.
+	 * Identical tasks, that is tasks of the same class with the same serialized fields, are executed only once while their result stays in the cache.
+	 *
+	 * @return the cache stats
+	 * @throws RemoteException the remote exception
+	 */
+	CacheStats getCacheStats() throws RemoteException;
+	
+	/**
+	 * Gets a snapshot of the metrics of the computer: for each class of tasks, the number of tasks submitted, completed, failed, rejected and in flight, and histograms of the time they waited for a worker, the time they took to execute and the serialized size of their results.
+	 * The snapshot also holds the state of the queue of waiting tasks and the counters of the result cache.
+	 *
+	 * @return the server stats
+	 * @throws RemoteException the remote exception
+	 */
+	ServerStats getStats() throws RemoteException;
 }
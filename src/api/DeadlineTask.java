@@ -0,0 +1,89 @@
+package api;
+
+import java.io.Serializable;
+
+/**
+ * This class attaches a deadline to a task: once the task has executed for the given time, it is asked to stop and return the best result it has found so far.
+ * The time is counted from when the task starts executing, not from when it is submitted, so the time it waits for a worker does not cut it short.
+ * The result tells whether the task ran to completion. A task that has no result to return when it is stopped throws a TaskCancelledException instead.
+ * Whether the deadline passes depends on the load of the computer, so the result is never cached.
+ *
+ * @param <T> the type of the result of the task
+ */
+public final class DeadlineTask<T> implements TimeDependentTask<BestEffortResult<T>>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task. */
+	private final Task<T> task;
+
+	/** The time the task may execute for, in milliseconds. */
+	private final long timeoutMillis;
+
+	/**
+	 * Instantiates a new deadline task.
+	 *
+	 * @param task the task; it must be serializable
+	 * @param timeoutMillis the time the task may execute for, in milliseconds
+	 */
+	public DeadlineTask(Task<T> task, long timeoutMillis){
+		this.task = task;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Executes the task until it is done or its deadline passes.
+	 *
+	 * @return the result of the task, and whether it ran to completion
+	 */
+	@Override
+	public BestEffortResult<T> execute() {
+		return execute(task);
+	}
+
+	/**
+	 * Executes another task in place of the task, under the deadline of the task; a computer uses it to execute the task in its own way, such as split into parts.
+	 *
+	 * @param runner the task that computes the result of the task
+	 * @return the result, and whether it ran to completion
+	 */
+	public BestEffortResult<T> execute(Task<T> runner){
+		Cancellation cancellation = Cancellation.current().withTimeout(timeoutMillis);
+		try{
+			T value = cancellation.execute(runner);
+			return new BestEffortResult<T>(value, !cancellation.wasObserved());
+		}
+		finally{
+			cancellation.disarm();
+		}
+	}
+
+	/**
+	 * Tells that the result depends on how long the task executes, since the deadline may stop it.
+	 *
+	 * @return true
+	 */
+	@Override
+	public boolean isTimeDependent() {
+		return true;
+	}
+
+	/**
+	 * Gets the task that the deadline is attached to.
+	 *
+	 * @return the task
+	 */
+	public Task<T> getTask(){
+		return task;
+	}
+
+	/**
+	 * Gets the time the task may execute for.
+	 *
+	 * @return the timeout, in milliseconds
+	 */
+	public long getTimeoutMillis(){
+		return timeoutMillis;
+	}
+}
@@ -0,0 +1,157 @@
+package api;
+
+import java.io.Serializable;
+
+/**
+ * This class is a snapshot of a log-linear histogram, in the style of an HDR histogram: values below 32 have a bucket each, and every larger power of two is split into 16 buckets of equal width.
+ * The buckets are thus never wider than about 6% of the values they hold, which keeps the percentiles accurate over the whole range of the values without storing them.
+ */
+public final class HistogramSnapshot implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of values below which every value has a bucket of its own. */
+	public static final int SUB_BUCKETS = 32;
+
+	/** The number of buckets that each larger power of two is split into. */
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+	/** The number of buckets needed to cover all the non-negative long values. */
+	public static final int NUM_BUCKETS = SUB_BUCKETS + (63 - Integer.numberOfTrailingZeros(SUB_BUCKETS)) * HALF_SUB_BUCKETS;
+
+	/** The number of values in each bucket. */
+	private final long[] counts;
+
+	/** The number of values. */
+	private final long count;
+
+	/** The sum of the values. */
+	private final long sum;
+
+	/** The largest value. */
+	private final long max;
+
+	/**
+	 * Instantiates a new histogram snapshot.
+	 *
+	 * @param counts the number of values in each bucket
+	 * @param count the number of values
+	 * @param sum the sum of the values
+	 * @param max the largest value
+	 */
+	public HistogramSnapshot(long[] counts, long count, long sum, long max){
+		this.counts = counts;
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * Gets the bucket that a value falls into.
+	 *
+	 * @param value the value; negative values are counted as 0
+	 * @return the index of the bucket
+	 */
+	public static int bucketOf(long value){
+		if(value < SUB_BUCKETS){
+			return value < 0 ? 0 : (int) value;
+		}
+		// the shift that brings the value into [HALF_SUB_BUCKETS, SUB_BUCKETS)
+		int shift = 63 - Long.numberOfLeadingZeros(value) - Integer.numberOfTrailingZeros(HALF_SUB_BUCKETS);
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+	}
+
+	/**
+	 * Gets the smallest value that falls into a bucket.
+	 *
+	 * @param bucket the index of the bucket
+	 * @return the lower bound of the bucket
+	 */
+	public static long lowerBoundOf(int bucket){
+		if(bucket < SUB_BUCKETS){
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long subBucket = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return subBucket << shift;
+	}
+
+	/**
+	 * Gets the largest value that falls into a bucket.
+	 *
+	 * @param bucket the index of the bucket
+	 * @return the upper bound of the bucket
+	 */
+	public static long upperBoundOf(int bucket){
+		return bucket + 1 < NUM_BUCKETS ? lowerBoundOf(bucket + 1) - 1 : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the number of values.
+	 *
+	 * @return the count
+	 */
+	public long getCount(){
+		return count;
+	}
+
+	/**
+	 * Gets the largest value.
+	 *
+	 * @return the max
+	 */
+	public long getMax(){
+		return max;
+	}
+
+	/**
+	 * Gets the mean of the values.
+	 *
+	 * @return the mean, or 0 if there are no values
+	 */
+	public double getMean(){
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Gets the value below which the given percentage of the values fall, to the precision of the buckets.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the upper bound of the bucket that holds the percentile, but no more than the largest value; 0 if there are no values
+	 */
+	public long getPercentile(double percentile){
+		if(count == 0){
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for(int bucket = 0; bucket < counts.length; bucket++){
+			seen += counts[bucket];
+			if(seen >= rank){
+				return Math.min(upperBoundOf(bucket), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Merges this histogram with another one, as if all the values had been recorded into one histogram; the buckets are the same, so no precision is lost.
+	 *
+	 * @param other the other histogram
+	 * @return the merged histogram
+	 */
+	public HistogramSnapshot merge(HistogramSnapshot other){
+		long[] merged = new long[Math.max(counts.length, other.counts.length)];
+		for(int bucket = 0; bucket < merged.length; bucket++){
+			merged[bucket] = (bucket < counts.length ? counts[bucket] : 0) + (bucket < other.counts.length ? other.counts[bucket] : 0);
+		}
+		return new HistogramSnapshot(merged, count + other.count, sum + other.sum, Math.max(max, other.max));
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + count + ", mean=" + String.format("%.1f", getMean()) + ", p50=" + getPercentile(50) + ", p99=" + getPercentile(99)
+				+ ", p999=" + getPercentile(99.9) + ", max=" + max;
+	}
+}
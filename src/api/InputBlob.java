@@ -0,0 +1,169 @@
+package api;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * This class is a large input of tasks, such as the cities of a TSP instance, that a client uploads to a computer once and that the tasks then refer to by the hash of its content.
+ * The values are kept as one flat array of doubles in rows of equal width, which is smaller on the wire and on the heap than an array per row.
+ * The hash is the SHA-256 digest of the width and the values; it is computed again when an input is deserialized, so the input store can trust it.
+ */
+public final class InputBlob implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of values per row. */
+	private final int columns;
+
+	/** The values, row by row. */
+	private final double[] values;
+
+	/** The hash of the content, as a hex string. */
+	private transient String hash;
+
+	/**
+	 * Instantiates a new input blob.
+	 *
+	 * @param columns the number of values per row
+	 * @param values the values, row by row; the array is not copied and must not be changed
+	 */
+	public InputBlob(int columns, double[] values){
+		if(columns <= 0 || values.length % columns != 0){
+			throw new IllegalArgumentException("The " + values.length + " values do not fill rows of " + columns + " values");
+		}
+		this.columns = columns;
+		this.values = values;
+		this.hash = digest(columns, values);
+	}
+
+	/**
+	 * Creates an input blob from the rows of a two dimensional array, such as the coordinates of points.
+	 *
+	 * @param rows the rows, which all have the same length
+	 * @return the input blob
+	 */
+	public static InputBlob of(double[][] rows){
+		int columns = rows.length == 0 ? 1 : rows[0].length;
+		double[] values = new double[rows.length * columns];
+		for(int i = 0; i < rows.length; i++){
+			if(rows[i].length != columns){
+				throw new IllegalArgumentException("Row " + i + " has " + rows[i].length + " values instead of " + columns);
+			}
+			System.arraycopy(rows[i], 0, values, i * columns, columns);
+		}
+		return new InputBlob(columns, values);
+	}
+
+	/**
+	 * Computes the hash of the content of an input blob.
+	 *
+	 * @param columns the number of values per row
+	 * @param values the values
+	 * @return the SHA-256 digest as a hex string
+	 */
+	private static String digest(int columns, double[] values){
+		MessageDigest digest;
+		try{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e){ // every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		buffer.putInt(columns);
+		for(double value : values){
+			if(buffer.remaining() < 8){
+				digest.update(buffer.array(), 0, buffer.position());
+				buffer.clear();
+			}
+			buffer.putDouble(value);
+		}
+		digest.update(buffer.array(), 0, buffer.position());
+		StringBuilder hex = new StringBuilder();
+		for(byte b : digest.digest()){
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Gets the hash of the content.
+	 *
+	 * @return the SHA-256 digest as a hex string
+	 */
+	public String getHash(){
+		return hash;
+	}
+
+	/**
+	 * Gets the number of rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int getRows(){
+		return values.length / columns;
+	}
+
+	/**
+	 * Gets the number of values per row.
+	 *
+	 * @return the number of columns
+	 */
+	public int getColumns(){
+		return columns;
+	}
+
+	/**
+	 * Gets a value.
+	 *
+	 * @param row the row
+	 * @param column the column
+	 * @return the value
+	 */
+	public double get(int row, int column){
+		return values[row * columns + column];
+	}
+
+	/**
+	 * Copies the values into a two dimensional array.
+	 *
+	 * @return the rows
+	 */
+	public double[][] toArray(){
+		double[][] rows = new double[getRows()][columns];
+		for(int i = 0; i < rows.length; i++){
+			System.arraycopy(values, i * columns, rows[i], 0, columns);
+		}
+		return rows;
+	}
+
+	/**
+	 * Estimates the heap size of the input blob.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long estimateSize(){
+		return 8L * values.length + 128;
+	}
+
+	/**
+	 * Reads the input blob and computes its hash.
+	 *
+	 * @param in the input stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException{
+		in.defaultReadObject();
+		if(columns <= 0 || values == null || values.length % columns != 0){
+			throw new InvalidObjectException("The values do not fill rows of " + columns + " values");
+		}
+		hash = digest(columns, values);
+	}
+}
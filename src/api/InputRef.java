@@ -0,0 +1,67 @@
+package api;
+
+import java.io.Serializable;
+
+/**
+ * This class is the reference of a task to an input blob: only the hash of the blob is serialized, and the task gets the blob from the input store of the computer that executes it.
+ * On the client, the reference holds the blob it was made from, so the task can also be executed locally.
+ * The client uploads the blob with InputStore.upload before it submits the tasks that refer to it.
+ */
+public final class InputRef implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The hash of the blob. */
+	private final String hash;
+
+	/** The blob, once it is known in this JVM. */
+	private transient InputBlob blob;
+
+	/**
+	 * Instantiates a new reference to a blob.
+	 *
+	 * @param blob the blob
+	 */
+	public InputRef(InputBlob blob){
+		this.hash = blob.getHash();
+		this.blob = blob;
+	}
+
+	/**
+	 * Gets the hash of the blob.
+	 *
+	 * @return the hash
+	 */
+	public String getHash(){
+		return hash;
+	}
+
+	/**
+	 * Gets the blob, from the input store if the reference was deserialized.
+	 *
+	 * @return the blob
+	 * @throws MissingInputException if the blob is not in the input store of this JVM
+	 */
+	public InputBlob get(){
+		InputBlob known = blob;
+		if(known == null){
+			known = InputStore.get(hash);
+			if(known == null){
+				throw new MissingInputException(hash);
+			}
+			blob = known;
+		}
+		return known;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof InputRef && hash.equals(((InputRef) obj).hash);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash.hashCode();
+	}
+}
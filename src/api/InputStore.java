@@ -0,0 +1,106 @@
+package api;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * This class keeps the input blobs that the clients uploaded to this JVM, by hash, so that the tasks that refer to them do not carry them.
+ * Like the result directory, the store belongs to the JVM of the computer; it is bounded by the estimated size of the blobs and evicts the least recently used blobs first.
+ * Its capacity in bytes is set by the system property computer.inputStoreBytes; 0 disables the store.
+ */
+public final class InputStore {
+
+	/** The system property that sets the capacity of the store in bytes. */
+	public static final String CAPACITY_PROPERTY = "computer.inputStoreBytes";
+
+	/** The default capacity of the store, in bytes. */
+	private static final long DEFAULT_CAPACITY_BYTES = 64L << 20;
+
+	/** The capacity of the store, in bytes. */
+	private static final long capacityBytes = Long.getLong(CAPACITY_PROPERTY, DEFAULT_CAPACITY_BYTES);
+
+	/** The blobs by hash, in the order from least to most recently used. */
+	private static final LinkedHashMap<String, InputBlob> blobs = new LinkedHashMap<String, InputBlob>(16, 0.75f, true);
+
+	/** The estimated size of the blobs, in bytes. */
+	private static long bytes;
+
+	/**
+	 * Instantiates a new input store; it is never instantiated.
+	 */
+	private InputStore(){
+	}
+
+	/**
+	 * Gets a blob.
+	 *
+	 * @param hash the hash of the blob
+	 * @return the blob, or null if it was not uploaded or was evicted
+	 */
+	public static synchronized InputBlob get(String hash){
+		return blobs.get(hash);
+	}
+
+	/**
+	 * Stores a blob and evicts the least recently used blobs until the store is within its capacity; a blob larger than the capacity is not stored.
+	 *
+	 * @param blob the blob
+	 */
+	public static synchronized void put(InputBlob blob){
+		long size = blob.estimateSize();
+		if(size > capacityBytes || blobs.get(blob.getHash()) != null){
+			return;
+		}
+		blobs.put(blob.getHash(), blob);
+		bytes += size;
+		Iterator<InputBlob> iterator = blobs.values().iterator();
+		while(bytes > capacityBytes && iterator.hasNext()){
+			bytes -= iterator.next().estimateSize();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Finds the hashes of the blobs that are not in the store.
+	 *
+	 * @param hashes the hashes
+	 * @return the hashes that are not in the store, in their order
+	 */
+	public static synchronized String[] missing(String[] hashes){
+		List<String> missing = new ArrayList<String>();
+		for(String hash : hashes){
+			if(!blobs.containsKey(hash)){
+				missing.add(hash);
+			}
+		}
+		return missing.toArray(new String[missing.size()]);
+	}
+
+	/**
+	 * Uploads the blobs that a computer does not hold yet.
+	 *
+	 * @param computer the computer
+	 * @param inputs the blobs
+	 * @throws RemoteException the remote exception
+	 */
+	public static void upload(Computer computer, InputBlob... inputs) throws RemoteException{
+		String[] hashes = new String[inputs.length];
+		for(int i = 0; i < inputs.length; i++){
+			hashes[i] = inputs[i].getHash();
+		}
+		List<String> missing = Arrays.asList(computer.findMissingInputs(hashes));
+		List<InputBlob> uploads = new ArrayList<InputBlob>();
+		for(InputBlob blob : inputs){
+			if(missing.contains(blob.getHash())){
+				uploads.add(blob);
+			}
+		}
+		if(!uploads.isEmpty()){
+			computer.storeInputs(uploads);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package api;
+
+/**
+ * This exception is thrown by a task whose input blob is not in the input store of the computer, because it was never uploaded or was evicted.
+ * The client uploads the blob again with InputStore.upload and resubmits the task.
+ */
+public class MissingInputException extends RuntimeException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The hash of the missing blob. */
+	private final String hash;
+
+	/**
+	 * Instantiates a new missing input exception.
+	 *
+	 * @param hash the hash of the missing blob
+	 */
+	public MissingInputException(String hash){
+		super("The input " + hash + " is not in the input store of the computer");
+		this.hash = hash;
+	}
+
+	/**
+	 * Gets the hash of the missing blob.
+	 *
+	 * @return the hash
+	 */
+	public String getHash(){
+		return hash;
+	}
+}
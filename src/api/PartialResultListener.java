@@ -0,0 +1,22 @@
+package api;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * This is the remote interface through which a computer calls a client back with the parts of the result of a streaming task.
+ * The client exports an object that implements this interface and passes it to Computer.executeStreaming.
+ *
+ * @param <P> the type of the parts
+ */
+public interface PartialResultListener<P> extends Remote {
+
+	/**
+	 * Receives a batch of parts, in the order they were completed. The batches of a task are delivered one at a time.
+	 *
+	 * @param parts the parts
+	 * @throws RemoteException the remote exception
+	 */
+	void partialResults(List<P> parts) throws RemoteException;
+}
@@ -0,0 +1,16 @@
+package api;
+
+/**
+ * This defines the sink that a streaming task hands the parts of its result to, on the computer that executes it.
+ *
+ * @param <P> the type of the parts
+ */
+public interface PartialResultSink<P> {
+
+	/**
+	 * Takes a part of the result. It may block while the parts that were taken before are being sent, so that the parts do not pile up faster than they are sent.
+	 *
+	 * @param part the part
+	 */
+	void accept(P part);
+}
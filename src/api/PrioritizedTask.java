@@ -0,0 +1,73 @@
+package api;
+
+import java.io.Serializable;
+
+/**
+ * This class attaches a priority to a task. A Computer that queues its tasks executes the waiting tasks with the highest priority first, and the tasks of equal priority in the order they were submitted.
+ * Tasks that are submitted without a priority have priority 0.
+ *
+ * @param <T> the generic type
+ */
+public final class PrioritizedTask<T> implements Task<T>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The priority of a task that is submitted without one. */
+	public static final int DEFAULT_PRIORITY = 0;
+
+	/** The task. */
+	private final Task<T> task;
+
+	/** The priority; higher values are executed first. */
+	private final int priority;
+
+	/**
+	 * Instantiates a new prioritized task.
+	 *
+	 * @param task the task; it must be serializable
+	 * @param priority the priority; higher values are executed first
+	 */
+	public PrioritizedTask(Task<T> task, int priority){
+		this.task = task;
+		this.priority = priority;
+	}
+
+	/**
+	 * Executes the task.
+	 *
+	 * @return the result of the task
+	 */
+	@Override
+	public T execute() {
+		return task.execute();
+	}
+
+	/**
+	 * Gets the task that the priority is attached to.
+	 *
+	 * @return the task
+	 */
+	public Task<T> getTask(){
+		return task;
+	}
+
+	/**
+	 * Gets the priority.
+	 *
+	 * @return the priority
+	 */
+	public int getPriority(){
+		return priority;
+	}
+
+	/**
+	 * Gets the priority of any task.
+	 *
+	 * @param task the task
+	 * @return the priority of the task if it is a prioritized task, otherwise the default priority
+	 */
+	public static int getPriority(Task<?> task){
+		return task instanceof PrioritizedTask ? ((PrioritizedTask<?>) task).getPriority() : DEFAULT_PRIORITY;
+	}
+}
@@ -0,0 +1,22 @@
+package api;
+
+import java.rmi.RemoteException;
+
+/**
+ * This exception is thrown by a Computer that cannot accept a task because its queue of waiting tasks is full.
+ * It is thrown right away instead of after a timeout, so that the client can back off and submit the task again later.
+ */
+public class RejectedTaskException extends RemoteException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new rejected task exception.
+	 *
+	 * @param message the detail message
+	 */
+	public RejectedTaskException(String message){
+		super(message);
+	}
+}
@@ -0,0 +1,79 @@
+package api;
+
+import java.io.File;
+import java.io.Serializable;
+
+/**
+ * This class identifies a file that a task wrote into the result directory of the computer that executed it, for results that are too large to be returned whole.
+ * The client reads the file in chunks with Computer.fetch.
+ * The result directory is set by the system property computer.resultDir on the computer; it defaults to the directory compute-server-results in the temporary directory.
+ */
+public final class ResultFile implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The system property that sets the result directory. */
+	public static final String DIRECTORY_PROPERTY = "computer.resultDir";
+
+	/** The name of the file in the result directory. */
+	private final String name;
+
+	/** The length of the file, in bytes. */
+	private final long length;
+
+	/**
+	 * Instantiates a new result file.
+	 *
+	 * @param name the name of the file in the result directory
+	 * @param length the length of the file, in bytes
+	 */
+	public ResultFile(String name, long length){
+		this.name = name;
+		this.length = length;
+	}
+
+	/**
+	 * Gets the name of the file in the result directory.
+	 *
+	 * @return the name
+	 */
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Gets the length of the file.
+	 *
+	 * @return the length in bytes
+	 */
+	public long getLength(){
+		return length;
+	}
+
+	/**
+	 * Gets the result directory of this JVM, creating it if it does not exist.
+	 *
+	 * @return the result directory
+	 */
+	public static File getDirectory(){
+		File directory = new File(System.getProperty(DIRECTORY_PROPERTY, new File(System.getProperty("java.io.tmpdir"), "compute-server-results").getPath()));
+		directory.mkdirs();
+		return directory;
+	}
+
+	/**
+	 * Tells whether a name can be the name of a result file; it cannot name a file outside of the result directory.
+	 *
+	 * @param name the name
+	 * @return true if it is made only of letters, digits, '.', '-' and '_', and does not start with '.'
+	 */
+	public static boolean isValidName(String name){
+		return name != null && name.matches("[A-Za-z0-9_\\-][A-Za-z0-9._\\-]*");
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + length + " bytes)";
+	}
+}
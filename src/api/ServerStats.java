@@ -0,0 +1,130 @@
+package api;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * This class is a snapshot of the metrics of a Computer: the metrics of each class of tasks it has executed, the state of its queue and the counters of its result cache.
+ */
+public final class ServerStats implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The time the computer has been up, in milliseconds. */
+	private final long uptimeMillis;
+
+	/** The number of worker threads. */
+	private final int workers;
+
+	/** The number of workers that are executing a task. */
+	private final int activeWorkers;
+
+	/** The number of tasks that are waiting for a worker. */
+	private final int queueSize;
+
+	/** The largest number of tasks that can wait for a worker. */
+	private final int queueCapacity;
+
+	/** The metrics of each class of tasks, by class name. */
+	private final Map<String, TaskTypeStats> taskTypes;
+
+	/** The counters of the result cache. */
+	private final CacheStats cache;
+
+	/**
+	 * Instantiates a new server stats snapshot.
+	 *
+	 * @param uptimeMillis the time the computer has been up, in milliseconds
+	 * @param workers the number of worker threads
+	 * @param activeWorkers the number of workers that are executing a task
+	 * @param queueSize the number of tasks that are waiting for a worker
+	 * @param queueCapacity the largest number of tasks that can wait for a worker
+	 * @param taskTypes the metrics of each class of tasks, by class name
+	 * @param cache the counters of the result cache
+	 */
+	public ServerStats(long uptimeMillis, int workers, int activeWorkers, int queueSize, int queueCapacity, Map<String, TaskTypeStats> taskTypes, CacheStats cache){
+		this.uptimeMillis = uptimeMillis;
+		this.workers = workers;
+		this.activeWorkers = activeWorkers;
+		this.queueSize = queueSize;
+		this.queueCapacity = queueCapacity;
+		this.taskTypes = taskTypes;
+		this.cache = cache;
+	}
+
+	/**
+	 * Gets the time the computer has been up.
+	 *
+	 * @return the uptime in milliseconds
+	 */
+	public long getUptimeMillis(){
+		return uptimeMillis;
+	}
+
+	/**
+	 * Gets the number of worker threads.
+	 *
+	 * @return the workers
+	 */
+	public int getWorkers(){
+		return workers;
+	}
+
+	/**
+	 * Gets the number of workers that are executing a task.
+	 *
+	 * @return the active workers
+	 */
+	public int getActiveWorkers(){
+		return activeWorkers;
+	}
+
+	/**
+	 * Gets the number of tasks that are waiting for a worker.
+	 *
+	 * @return the queue size
+	 */
+	public int getQueueSize(){
+		return queueSize;
+	}
+
+	/**
+	 * Gets the largest number of tasks that can wait for a worker.
+	 *
+	 * @return the queue capacity
+	 */
+	public int getQueueCapacity(){
+		return queueCapacity;
+	}
+
+	/**
+	 * Gets the metrics of each class of tasks.
+	 *
+	 * @return the task type stats, by class name
+	 */
+	public Map<String, TaskTypeStats> getTaskTypes(){
+		return taskTypes;
+	}
+
+	/**
+	 * Gets the counters of the result cache.
+	 *
+	 * @return the cache stats
+	 */
+	public CacheStats getCache(){
+		return cache;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("uptime=").append(uptimeMillis / 1000).append(" s, workers=").append(activeWorkers).append('/').append(workers)
+				.append(", queue=").append(queueSize).append('/').append(queueCapacity).append(String.format("%n"));
+		for(TaskTypeStats stats : taskTypes.values()){
+			builder.append(stats).append(String.format("%n"));
+		}
+		builder.append("cache: ").append(cache);
+		return builder.toString();
+	}
+}
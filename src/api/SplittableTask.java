@@ -0,0 +1,34 @@
+package api;
+
+import java.util.List;
+
+/**
+ * This defines a task that a Computer can split into smaller tasks, execute on several workers or computers and merge the results of, instead of executing it as a whole.
+ * A splittable task is still a task: executed with execute(), it does all of its work itself. The Computer decides how far to split it, using the size estimates to split the largest tasks first.
+ *
+ * @param <T> the type of the result of the task
+ */
+public interface SplittableTask<T> extends Task<T> {
+
+	/**
+	 * Estimates the amount of work of the task, in units of the task's own choosing; only the ratios between the estimates of a task and of the tasks split from it matter.
+	 *
+	 * @return the size estimate, which is positive
+	 */
+	long estimateSize();
+
+	/**
+	 * Splits the task into smaller tasks that together do the work of the task. The smaller tasks may be splittable themselves.
+	 *
+	 * @return the smaller tasks, or an empty list if the task cannot be split
+	 */
+	List<? extends Task<T>> split();
+
+	/**
+	 * Merges the results of the tasks returned by split into the result of this task.
+	 *
+	 * @param results the results of the smaller tasks, in the order in which split returned the tasks
+	 * @return the result of this task
+	 */
+	T merge(List<T> results);
+}
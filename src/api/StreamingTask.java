@@ -0,0 +1,20 @@
+package api;
+
+/**
+ * This defines a task that can hand over its result in parts while it is executing, so that a client sees the first parts long before the task completes.
+ * A streaming task is still a task: executed with execute(), it returns its whole result at once.
+ *
+ * @param <T> the type of the result of the task
+ * @param <P> the type of the parts
+ */
+public interface StreamingTask<T, P> extends Task<T> {
+
+	/**
+	 * Executes the task, handing each part of its result to the sink as soon as it is complete.
+	 * The sink may be called from several threads at once.
+	 *
+	 * @param sink the sink that takes the parts
+	 * @return the part of the result that was not handed to the sink, or null if the parts are the whole result
+	 */
+	T execute(PartialResultSink<P> sink);
+}
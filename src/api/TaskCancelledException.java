@@ -0,0 +1,20 @@
+package api;
+
+/**
+ * This exception is thrown by a task that was cancelled, or whose deadline passed, before it had any result to return, such as a Mandelbrot set whose pixels are not all computed.
+ * It is also thrown in place of a task that was cancelled while it was waiting for a worker.
+ */
+public class TaskCancelledException extends RuntimeException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new task cancelled exception.
+	 *
+	 * @param message the detail message
+	 */
+	public TaskCancelledException(String message){
+		super(message);
+	}
+}
@@ -0,0 +1,21 @@
+package api;
+
+/**
+ * This exception is returned in place of the result of a task that was submitted in a batch and threw an exception while it was executed.
+ * The cause is the exception thrown by the task's execute method.
+ */
+public class TaskException extends Exception {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Instantiates a new task exception.
+	 *
+	 * @param message the detail message
+	 * @param cause the exception thrown by the task
+	 */
+	public TaskException(String message, Throwable cause){
+		super(message, cause);
+	}
+}
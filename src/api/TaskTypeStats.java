@@ -0,0 +1,171 @@
+package api;
+
+import java.io.Serializable;
+
+/**
+ * This class is a snapshot of the metrics that a Computer records for one class of tasks.
+ * The times are in nanoseconds and the sizes in bytes.
+ */
+public final class TaskTypeStats implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The name of the class of the tasks. */
+	private final String taskType;
+
+	/** The number of tasks that were accepted for execution. */
+	private final long submitted;
+
+	/** The number of tasks that returned a result. */
+	private final long completed;
+
+	/** The number of tasks that threw an exception. */
+	private final long failed;
+
+	/** The number of tasks that were rejected because the queue was full. */
+	private final long rejected;
+
+	/** The number of tasks that are waiting for a worker or executing. */
+	private final long inFlight;
+
+	/** The time that the tasks waited for a worker. */
+	private final HistogramSnapshot queueWait;
+
+	/** The time that the tasks took to execute. */
+	private final HistogramSnapshot executeTime;
+
+	/** The serialized size of a sample of the results. */
+	private final HistogramSnapshot resultSize;
+
+	/**
+	 * Instantiates a new task type stats snapshot.
+	 *
+	 * @param taskType the name of the class of the tasks
+	 * @param submitted the number of tasks that were accepted for execution
+	 * @param completed the number of tasks that returned a result
+	 * @param failed the number of tasks that threw an exception
+	 * @param rejected the number of tasks that were rejected
+	 * @param inFlight the number of tasks that are waiting for a worker or executing
+	 * @param queueWait the time that the tasks waited for a worker
+	 * @param executeTime the time that the tasks took to execute
+	 * @param resultSize the serialized size of a sample of the results
+	 */
+	public TaskTypeStats(String taskType, long submitted, long completed, long failed, long rejected, long inFlight,
+			HistogramSnapshot queueWait, HistogramSnapshot executeTime, HistogramSnapshot resultSize){
+		this.taskType = taskType;
+		this.submitted = submitted;
+		this.completed = completed;
+		this.failed = failed;
+		this.rejected = rejected;
+		this.inFlight = inFlight;
+		this.queueWait = queueWait;
+		this.executeTime = executeTime;
+		this.resultSize = resultSize;
+	}
+
+	/**
+	 * Gets the name of the class of the tasks.
+	 *
+	 * @return the task type
+	 */
+	public String getTaskType(){
+		return taskType;
+	}
+
+	/**
+	 * Gets the number of tasks that were accepted for execution.
+	 *
+	 * @return the submitted tasks
+	 */
+	public long getSubmitted(){
+		return submitted;
+	}
+
+	/**
+	 * Gets the number of tasks that returned a result.
+	 *
+	 * @return the completed tasks
+	 */
+	public long getCompleted(){
+		return completed;
+	}
+
+	/**
+	 * Gets the number of tasks that threw an exception.
+	 *
+	 * @return the failed tasks
+	 */
+	public long getFailed(){
+		return failed;
+	}
+
+	/**
+	 * Gets the number of tasks that were rejected because the queue was full.
+	 *
+	 * @return the rejected tasks
+	 */
+	public long getRejected(){
+		return rejected;
+	}
+
+	/**
+	 * Gets the number of tasks that are waiting for a worker or executing.
+	 *
+	 * @return the tasks in flight
+	 */
+	public long getInFlight(){
+		return inFlight;
+	}
+
+	/**
+	 * Gets the time that the tasks waited for a worker, in nanoseconds.
+	 *
+	 * @return the queue wait histogram
+	 */
+	public HistogramSnapshot getQueueWait(){
+		return queueWait;
+	}
+
+	/**
+	 * Gets the time that the tasks took to execute, in nanoseconds.
+	 *
+	 * @return the execute time histogram
+	 */
+	public HistogramSnapshot getExecuteTime(){
+		return executeTime;
+	}
+
+	/**
+	 * Gets the serialized size of a sample of the results, in bytes.
+	 *
+	 * @return the result size histogram
+	 */
+	public HistogramSnapshot getResultSize(){
+		return resultSize;
+	}
+
+	/**
+	 * Adds up the metrics of this class of tasks on this computer and on another computer.
+	 *
+	 * @param other the metrics of the same class of tasks on the other computer
+	 * @return the merged task type stats
+	 */
+	public TaskTypeStats merge(TaskTypeStats other){
+		return new TaskTypeStats(taskType, submitted + other.submitted, completed + other.completed, failed + other.failed,
+				rejected + other.rejected, inFlight + other.inFlight, queueWait.merge(other.queueWait),
+				executeTime.merge(other.executeTime), resultSize.merge(other.resultSize));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: submitted=%d, completed=%d, failed=%d, rejected=%d, inFlight=%d%n"
+				+ "  queue wait (ms):   p50=%.3f, p99=%.3f, max=%.3f%n"
+				+ "  execute time (ms): p50=%.3f, p99=%.3f, max=%.3f%n"
+				+ "  result size (B):   %s",
+				taskType, submitted, completed, failed, rejected, inFlight,
+				queueWait.getPercentile(50) / 1e6, queueWait.getPercentile(99) / 1e6, queueWait.getMax() / 1e6,
+				executeTime.getPercentile(50) / 1e6, executeTime.getPercentile(99) / 1e6, executeTime.getMax() / 1e6,
+				resultSize);
+	}
+}
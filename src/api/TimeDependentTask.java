@@ -0,0 +1,17 @@
+package api;
+
+/**
+ * This defines a task whose result may depend on how long it executes, such as a search that returns the best result it finds within a time budget.
+ * A Computer does not cache the result of such a task, since an identical task executed later may find a different result.
+ *
+ * @param <T> the type of the result of the task
+ */
+public interface TimeDependentTask<T> extends Task<T> {
+
+	/**
+	 * Tells whether the result of this task depends on how long it executes; a task of a class that is only sometimes time dependent answers for itself.
+	 *
+	 * @return true if the result depends on the time the task executes for
+	 */
+	boolean isTimeDependent();
+}
@@ -0,0 +1,301 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tasks.CompactMandelbrotSetTask;
+import tasks.EuclideanTspTask;
+import tasks.MandelbrotSetTask;
+import api.Computer;
+import api.Task;
+import computer.ComputerImpl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class measures the latency of the first call of a client to a freshly started computer, with and without the warm-up of ComputerImpl.main.
+ * Each computer runs in a JVM of its own whose class path holds no task classes, so it downloads them from an HTTP codebase served by this JVM, as it does from the codebase of a client in build.xml.
+ * The tasks are those of Client.runTask: a compact Mandelbrot set of 256 x 256 pixels and a TSP of 10 cities. The computer does not cache results, so the later calls show the steady state.
+ */
+public class FirstCallLatency {
+
+	/** The packages of the computer's class path. */
+	private static final String[] COMPUTER_PACKAGES = { "api", "computer", "transport" };
+
+	/** The number of calls of each task after the first one, whose median is the steady state. */
+	private static final int STEADY_CALLS = 10;
+
+	/** The longest time to wait for a computer to start, in milliseconds. */
+	private static final long STARTUP_TIMEOUT_MILLIS = 60000;
+
+	/** The number of requests served by the codebase. */
+	private static final AtomicInteger downloads = new AtomicInteger();
+
+	/**
+	 * The main method.
+	 * Usage: FirstCallLatency [runs]; each mode starts 3 computers by default. The policy file is read from the working directory.
+	 *
+	 * @param args the arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		File classes = new File(FirstCallLatency.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		File policy = new File("policy").getAbsoluteFile();
+		if(!policy.isFile()){
+			throw new IllegalStateException("The policy file is not in " + policy.getParent());
+		}
+		HttpServer codebaseServer = serveCodebase(classes);
+		String codebase = "http://localhost:" + codebaseServer.getAddress().getPort() + "/";
+		System.setProperty("java.rmi.server.codebase", codebase);
+		File computerPath = Files.createTempDirectory("computer-classpath").toFile();
+		double[][] cities = { { 6, 3 }, { 2, 2 }, { 5, 8 }, { 1, 5 }, { 1, 6 }, { 2, 7 }, { 2, 8 }, { 6, 5 }, { 1, 3 }, { 6, 6 } };
+		Task<?> mandelbrot = new CompactMandelbrotSetTask(new MandelbrotSetTask(new double[] { -2, -2 }, 4, 256, 64));
+		Task<?> tsp = new EuclideanTspTask(cities);
+		try{
+			for(String name : COMPUTER_PACKAGES){
+				copy(new File(classes, name), new File(computerPath, name));
+			}
+			System.out.println("First call latency, median of " + runs + " computers");
+			System.out.println("--------------------------------------------------------------------------------");
+			System.out.println("       startup   Mandelbrot: first / steady   TSP: first / steady   downloads");
+			for(boolean warm : new boolean[] { false, true }){
+				List<long[]> samples = new ArrayList<long[]>();
+				for(int run = 0; run < runs; run++){
+					samples.add(measure(computerPath, policy, codebase, warm, mandelbrot, tsp));
+				}
+				long[] median = new long[samples.get(0).length];
+				for(int k = 0; k < median.length; k++){
+					long[] values = new long[runs];
+					for(int run = 0; run < runs; run++){
+						values[run] = samples.get(run)[k];
+					}
+					Arrays.sort(values);
+					median[k] = values[runs / 2];
+				}
+				System.out.printf("%-5s %7d ms   %9.1f / %6.2f ms          %7.1f / %6.2f ms   %9d%n", warm ? "warm" : "cold",
+						median[0], median[1] / 1e3, median[2] / 1e3, median[3] / 1e3, median[4] / 1e3, median[5]);
+			}
+			System.out.println("--------------------------------------------------------------------------------");
+			System.out.println("downloads: the classes the computer fetched from the codebase during the first calls");
+		}
+		finally{
+			codebaseServer.stop(0);
+			delete(computerPath); // the computers have exited by now
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Starts a computer, calls it and stops it.
+	 *
+	 * @param computerPath the class path of the computer
+	 * @param policy the policy file
+	 * @param codebase the codebase of the task classes
+	 * @param warm whether the computer warms up before it binds itself
+	 * @param mandelbrot the Mandelbrot set task
+	 * @param tsp the TSP task
+	 * @return the startup time in milliseconds, the first and the median steady call of each task in microseconds, and the number of classes downloaded during the first calls
+	 * @throws Exception if the computer cannot be started or called
+	 */
+	private static long[] measure(File computerPath, File policy, String codebase, boolean warm, Task<?> mandelbrot, Task<?> tsp) throws Exception {
+		int port = freePort();
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(computerPath.getPath());
+		if(!System.getProperty("java.specification.version").startsWith("1.")
+				&& Integer.parseInt(System.getProperty("java.specification.version")) >= 12){
+			command.add("-Djava.security.manager=allow"); // ComputerImpl.main sets a security manager, which later JDKs refuse by default
+		}
+		command.add("-Djava.security.policy=" + policy.getPath());
+		command.add("-Djava.rmi.server.useCodebaseOnly=false");
+		command.add("-D" + ComputerImpl.PORT_PROPERTY + "=" + port);
+		command.add("-D" + ComputerImpl.CACHE_BYTES_PROPERTY + "=0");
+		command.add("-D" + ComputerImpl.STATS_INTERVAL_PROPERTY + "=0");
+		if(warm){
+			command.add("-D" + ComputerImpl.WARMUP_PROPERTY + "=true");
+			command.add("-D" + ComputerImpl.PRELOAD_CODEBASE_PROPERTY + "=" + codebase);
+		}
+		command.add(ComputerImpl.class.getName());
+		long startTime = System.nanoTime();
+		Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		try{
+			awaitReady(process);
+			long startup = (System.nanoTime() - startTime) / 1000000;
+			Computer computer = (Computer) LocateRegistry.getRegistry("localhost", port).lookup(Computer.SERVICE_NAME);
+			int downloadsBefore = downloads.get();
+			long mandelbrotFirst = time(computer, mandelbrot);
+			long tspFirst = time(computer, tsp);
+			int downloaded = downloads.get() - downloadsBefore;
+			return new long[] { startup, mandelbrotFirst, steady(computer, mandelbrot), tspFirst, steady(computer, tsp), downloaded };
+		}
+		finally{
+			process.destroy();
+			process.waitFor();
+		}
+	}
+
+	/**
+	 * Waits until a computer prints that it is ready, and drains the rest of its output in the background.
+	 *
+	 * @param process the process of the computer
+	 * @throws IOException if the computer exits before it is ready
+	 */
+	private static void awaitReady(Process process) throws IOException{
+		final BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+		String line;
+		while((line = out.readLine()) != null && !line.contains("ready")){
+			if(System.currentTimeMillis() > deadline){
+				throw new IOException("The computer did not start in " + STARTUP_TIMEOUT_MILLIS + " ms");
+			}
+		}
+		if(line == null){
+			throw new IOException("The computer exited before it was ready");
+		}
+		Thread drain = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try{
+					while(out.readLine() != null){
+						// discarded
+					}
+				}
+				catch(IOException e){
+					// the computer was stopped
+				}
+			}
+		});
+		drain.setDaemon(true);
+		drain.start();
+	}
+
+	/**
+	 * Times one call of a task.
+	 *
+	 * @param computer the computer
+	 * @param task the task
+	 * @return the time of the call, in microseconds
+	 * @throws Exception if the call fails
+	 */
+	private static long time(Computer computer, Task<?> task) throws Exception{
+		long startTime = System.nanoTime();
+		computer.execute(task);
+		return (System.nanoTime() - startTime) / 1000;
+	}
+
+	/**
+	 * Times the calls of a task after the first one.
+	 *
+	 * @param computer the computer
+	 * @param task the task
+	 * @return the median time of a call, in microseconds
+	 * @throws Exception if a call fails
+	 */
+	private static long steady(Computer computer, Task<?> task) throws Exception{
+		long[] micros = new long[STEADY_CALLS];
+		for(int i = 0; i < micros.length; i++){
+			micros[i] = time(computer, task);
+		}
+		Arrays.sort(micros);
+		return micros[micros.length / 2];
+	}
+
+	/**
+	 * Serves the class files of a directory over HTTP, counting the requests.
+	 *
+	 * @param root the directory
+	 * @return the server
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static HttpServer serveCodebase(final File root) throws IOException{
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				downloads.incrementAndGet();
+				File file = new File(root, exchange.getRequestURI().getPath());
+				if(!file.isFile()){
+					exchange.sendResponseHeaders(404, -1);
+					exchange.close();
+					return;
+				}
+				byte[] bytes = Files.readAllBytes(file.toPath());
+				exchange.sendResponseHeaders(200, bytes.length);
+				OutputStream body = exchange.getResponseBody();
+				body.write(bytes);
+				body.close();
+			}
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Copies a directory tree.
+	 *
+	 * @param from the directory
+	 * @param to the copy, which is created
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void copy(File from, File to) throws IOException{
+		to.mkdirs();
+		File[] files = from.listFiles();
+		if(files == null){
+			return;
+		}
+		for(File file : files){
+			if(file.isDirectory()){
+				copy(file, new File(to, file.getName()));
+			}
+			else{
+				Files.copy(file.toPath(), new File(to, file.getName()).toPath());
+			}
+		}
+	}
+
+	/**
+	 * Deletes a directory tree.
+	 *
+	 * @param file the directory or file
+	 */
+	private static void delete(File file){
+		File[] files = file.listFiles();
+		if(files != null){
+			for(File child : files){
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Finds a free port for the registry of a computer.
+	 *
+	 * @return the port
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static int freePort() throws IOException{
+		ServerSocket socket = new ServerSocket(0);
+		try{
+			return socket.getLocalPort();
+		}
+		finally{
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import tasks.DeepZoomMandelbrotSetTask;
+import tasks.MandelbrotSetTask;
+
+/**
+ * This class measures the deep zoom Mandelbrot set renderer on views of the Seahorse Valley whose edge lengths are far below the resolution of doubles.
+ * For each view it times the perturbation render, renders the same view with the double arithmetic of MandelbrotSetTask, whose pixels collapse into a few distinct points, and compares a sample of pixels with the counts of a direct iteration in BigDecimal arithmetic, whose time per pixel gives the time of a direct BigDecimal render of the whole view.
+ */
+public class MandelbrotDeepZoom {
+
+	/** The real part of the center of the views. */
+	private static final BigDecimal CENTER_REAL = new BigDecimal("-0.743643887037158704752191506114774");
+
+	/** The imaginary part of the center of the views. */
+	private static final BigDecimal CENTER_IMAG = new BigDecimal("0.131825904205311970493132056385139");
+
+	/** The number of pixels that are compared with the direct iteration. */
+	private static final int SAMPLES = 16;
+
+	/**
+	 * The main method.
+	 * Usage: MandelbrotDeepZoom [numSquares] [iterationLimit]
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		int numSquares = args.length > 0 ? Integer.parseInt(args[0]) : 128;
+		int iterationLimit = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		new DeepZoomMandelbrotSetTask(CENTER_REAL.subtract(new BigDecimal("1e-6")), CENTER_IMAG.subtract(new BigDecimal("1e-6")), 2e-6, numSquares, iterationLimit).execute();
+		System.out.println("Grid: " + numSquares + " x " + numSquares + ", limit " + iterationLimit + ", center " + CENTER_REAL + " + " + CENTER_IMAG + "i");
+		System.out.println("----------------------------------");
+		for(double edgeLength : new double[] { 1e-10, 1e-20, 1e-30 }){
+			zoom(edgeLength, numSquares, iterationLimit);
+		}
+		System.out.println("----------------------------------");
+	}
+
+	/**
+	 * Renders the view of the given edge length around the center and prints the measurements.
+	 *
+	 * @param edgeLength the edge length of the view
+	 * @param numSquares the number of pixels along one edge of the view
+	 * @param iterationLimit the iteration limit
+	 */
+	private static void zoom(double edgeLength, int numSquares, int iterationLimit){
+		BigDecimal half = new BigDecimal(edgeLength / 2);
+		BigDecimal cornerReal = CENTER_REAL.subtract(half);
+		BigDecimal cornerImag = CENTER_IMAG.subtract(half);
+		DeepZoomMandelbrotSetTask task = new DeepZoomMandelbrotSetTask(cornerReal, cornerImag, edgeLength, numSquares, iterationLimit);
+		long startTime = System.nanoTime();
+		int[][] count = task.execute();
+		double perturbationMillis = (System.nanoTime() - startTime) / 1e6;
+		startTime = System.nanoTime();
+		int[][] doubleCount = new MandelbrotSetTask(new double[] { cornerReal.doubleValue(), cornerImag.doubleValue() }, edgeLength, numSquares, iterationLimit).execute();
+		double doubleMillis = (System.nanoTime() - startTime) / 1e6;
+
+		MathContext mathContext = new MathContext((int) Math.ceil(-Math.log10(edgeLength / numSquares)) + 20);
+		Random random = new Random(1);
+		int agreeing = 0;
+		startTime = System.nanoTime();
+		for(int s = 0; s < SAMPLES; s++){
+			int i = random.nextInt(numSquares);
+			int j = random.nextInt(numSquares);
+			BigDecimal real = cornerReal.add(new BigDecimal(i * edgeLength / numSquares), mathContext);
+			BigDecimal imag = cornerImag.add(new BigDecimal(j * edgeLength / numSquares), mathContext);
+			if(getK(real, imag, iterationLimit, mathContext) == count[i][j]){
+				agreeing++;
+			}
+		}
+		double directMillisPerPixel = (System.nanoTime() - startTime) / 1e6 / SAMPLES;
+		System.out.printf("Edge: %.0e  Perturbation: %8.1f ms (%d distinct counts, %d rebases)  Double: %8.1f ms (%d distinct counts)  BigDecimal: %d/%d sampled pixels agree, ~%.0f s for the view%n",
+				edgeLength, perturbationMillis, distinct(count), task.getRebases(), doubleMillis, distinct(doubleCount),
+				agreeing, SAMPLES, directMillisPerPixel * numSquares * numSquares / 1e3);
+	}
+
+	/**
+	 * Computes the count of a point by iterating its orbit directly in BigDecimal arithmetic, which is exact up to the precision of the math context.
+	 *
+	 * @param cReal the real part of the point
+	 * @param cImag the imaginary part of the point
+	 * @param iterationLimit the iteration limit
+	 * @param mathContext the math context
+	 * @return k
+	 */
+	private static int getK(BigDecimal cReal, BigDecimal cImag, int iterationLimit, MathContext mathContext){
+		BigDecimal real = BigDecimal.ZERO, imag = BigDecimal.ZERO;
+		BigDecimal two = BigDecimal.valueOf(2);
+		int k = 1;
+		while(k < iterationLimit){
+			double r = real.doubleValue(), i = imag.doubleValue();
+			if(!(r * r + i * i < 4)){
+				break;
+			}
+			BigDecimal temp = real.multiply(real, mathContext).subtract(imag.multiply(imag, mathContext), mathContext).add(cReal, mathContext);
+			imag = two.multiply(real, mathContext).multiply(imag, mathContext).add(cImag, mathContext);
+			real = temp;
+			k++;
+		}
+		return k;
+	}
+
+	/**
+	 * Counts the distinct counts of a render.
+	 *
+	 * @param count the counts
+	 * @return the number of distinct counts
+	 */
+	private static int distinct(int[][] count){
+		Set<Integer> values = new HashSet<Integer>();
+		for(int[] row : count){
+			for(int k : row){
+				values.add(k);
+			}
+		}
+		return values.size();
+	}
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.Arrays;
+
+import tasks.MandelbrotSetTask;
+import tasks.MandelbrotSetTask.Kernel;
+import tasks.MandelbrotSetTask.Tiling;
+
+/**
+ * This class measures the speedup of the fast Mandelbrot set kernel over the scalar one at the iteration limits 64, 1024 and 10 000, on one thread.
+ * Every run of the fast kernel is checked against the counts of the scalar kernel.
+ */
+public class MandelbrotKernelSpeedup {
+
+	/** The iteration limits that are measured. */
+	private static final int[] ITERATION_LIMITS = { 64, 1024, 10000 };
+
+	/** The number of untimed runs for each configuration. */
+	private static final int WARMUP_RUNS = 2;
+
+	/** The number of timed runs for each configuration. */
+	private static final int TIMED_RUNS = 3;
+
+	/**
+	 * The main method.
+	 * Usage: MandelbrotKernelSpeedup [numSquares]
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		int numSquares = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+		double[] corner = { -2, -2 };
+		System.out.println("Grid: " + numSquares + " x " + numSquares + " of the region [-2, 2] x [-2, 2]");
+		System.out.println("----------------------------------");
+		for(int iterationLimit : ITERATION_LIMITS){
+			MandelbrotSetTask scalar = new MandelbrotSetTask(corner, 4, numSquares, iterationLimit, Tiling.NONE, numSquares, Kernel.SCALAR);
+			MandelbrotSetTask fast = new MandelbrotSetTask(corner, 4, numSquares, iterationLimit, Tiling.NONE, numSquares, Kernel.FAST);
+			int[][] expected = scalar.execute();
+			double scalarMillis = time(scalar, expected);
+			double fastMillis = time(fast, expected);
+			System.out.printf("Limit: %6d  Scalar: %10.2f ms  Fast: %10.2f ms  Speedup: %6.2f%n", iterationLimit, scalarMillis, fastMillis, scalarMillis / fastMillis);
+		}
+		System.out.println("----------------------------------");
+	}
+
+	/**
+	 * Times a task, checking its counts.
+	 *
+	 * @param task the task
+	 * @param expected the expected counts
+	 * @return the average time in milliseconds
+	 */
+	private static double time(MandelbrotSetTask task, int[][] expected){
+		for(int i = 0; i < WARMUP_RUNS; i++){
+			task.execute();
+		}
+		long totalTime = 0;
+		for(int i = 0; i < TIMED_RUNS; i++){
+			long startTime = System.nanoTime();
+			int[][] count = task.execute();
+			totalTime += System.nanoTime() - startTime;
+			if(!Arrays.deepEquals(expected, count)){
+				throw new IllegalStateException("The counts of the fast kernel differ from the counts of the scalar kernel");
+			}
+		}
+		return totalTime / 1e6 / TIMED_RUNS;
+	}
+}
@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.Arrays;
+
+import tasks.MandelbrotSetResult;
+import tasks.MandelbrotSetTask;
+import tasks.MandelbrotSetTask.Kernel;
+import tasks.MandelbrotSetTask.Tiling;
+
+/**
+ * This class measures the incremental rendering of a viewport of the Mandelbrot set whose iteration limit is doubled step by step.
+ * At each step it times the incremental render, which continues the unresolved orbits of the previous step, and the renders from the start with the scalar and the fast kernel, and checks that their counts are the same.
+ * The whole sequence is first run on a nearby viewport, so that the code is compiled before it is timed.
+ */
+public class MandelbrotRefinement {
+
+	/**
+	 * The main method.
+	 * Usage: MandelbrotRefinement [numSquares] [firstLimit] [lastLimit]
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		int numSquares = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+		int firstLimit = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		int lastLimit = args.length > 2 ? Integer.parseInt(args[2]) : 16384;
+		double edgeLength = 0.04;
+		refine(new double[] { -0.75, 0.05 }, edgeLength, numSquares, firstLimit, lastLimit, false);
+		double[] corner = { -0.76, 0.05 };
+		System.out.println("Grid: " + numSquares + " x " + numSquares + ", corner " + corner[0] + " + " + corner[1] + "i, edge " + edgeLength);
+		System.out.println("----------------------------------");
+		refine(corner, edgeLength, numSquares, firstLimit, lastLimit, true);
+		System.out.println("----------------------------------");
+	}
+
+	/**
+	 * Renders a viewport at the limits from the first to the last, doubling the limit at each step.
+	 *
+	 * @param corner the left corner coordinates of the viewport
+	 * @param edgeLength the edge length of the viewport
+	 * @param numSquares the number of pixels along one edge of the viewport
+	 * @param firstLimit the first limit
+	 * @param lastLimit the last limit
+	 * @param print whether the times are printed
+	 */
+	private static void refine(double[] corner, double edgeLength, int numSquares, int firstLimit, int lastLimit, boolean print){
+		for(int limit = firstLimit; limit <= lastLimit; limit *= 2){
+			MandelbrotSetTask task = new MandelbrotSetTask(corner, edgeLength, numSquares, limit);
+			long startTime = System.nanoTime();
+			MandelbrotSetResult incremental = task.executeIncremental();
+			double incrementalMillis = (System.nanoTime() - startTime) / 1e6;
+			long iterated = task.getIteratedPixels();
+			startTime = System.nanoTime();
+			int[][] expected = new MandelbrotSetTask(corner, edgeLength, numSquares, limit, Tiling.NONE, numSquares, Kernel.SCALAR).execute();
+			double scalarMillis = (System.nanoTime() - startTime) / 1e6;
+			startTime = System.nanoTime();
+			task.execute();
+			double fastMillis = (System.nanoTime() - startTime) / 1e6;
+			if(!Arrays.deepEquals(expected, incremental.toArray())){
+				throw new IllegalStateException("The incremental render differs from the full render at the limit " + limit);
+			}
+			if(print){
+				System.out.printf("Limit: %6d  Incremental: %9.2f ms  Full, scalar: %9.2f ms (x%.1f)  Full, fast: %9.2f ms (x%.1f)  Iterated: %6.2f %%%n",
+						limit, incrementalMillis, scalarMillis, scalarMillis / incrementalMillis, fastMillis, fastMillis / incrementalMillis,
+						100.0 * iterated / ((long) numSquares * numSquares));
+			}
+		}
+	}
+}
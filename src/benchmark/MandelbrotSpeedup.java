@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import tasks.MandelbrotSetTask;
+import tasks.MandelbrotSetTask.Tiling;
+
+/**
+ * This class measures the speedup of the tiled Mandelbrot set renderer as the number of workers in the fork-join pool grows from 1 to the number of available cores.
+ * Each configuration is warmed up before it is timed, and the result of every run is checked against the sequential render.
+ */
+public class MandelbrotSpeedup {
+
+	/** The number of untimed runs for each configuration. */
+	private static final int WARMUP_RUNS = 3;
+
+	/** The number of timed runs for each configuration. */
+	private static final int TIMED_RUNS = 5;
+
+	/**
+	 * The main method.
+	 * Usage: MandelbrotSpeedup [numSquares] [iterationLimit] [tileSize] [ROWS|SQUARES]
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		int numSquares = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int iterationLimit = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+		int tileSize = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+		Tiling tiling = args.length > 3 ? Tiling.valueOf(args[3]) : Tiling.SQUARES;
+		int maxWorkers = Runtime.getRuntime().availableProcessors();
+
+		MandelbrotSetTask sequential = new MandelbrotSetTask(new double[]{-2, -2}, 4, numSquares, iterationLimit);
+		MandelbrotSetTask tiled = new MandelbrotSetTask(new double[]{-2, -2}, 4, numSquares, iterationLimit, tiling, tileSize);
+		int[][] expected = sequential.execute();
+
+		System.out.println("Grid: " + numSquares + " x " + numSquares + ", iteration limit: " + iterationLimit + ", tiles: " + tiling + " of " + tileSize);
+		System.out.println("----------------------------------");
+		double baseline = 0;
+		for(int workers = 1; workers <= maxWorkers; workers = nextWorkerCount(workers, maxWorkers)){
+			ForkJoinPool pool = new ForkJoinPool(workers);
+			try{
+				for(int i = 0; i < WARMUP_RUNS; i++){
+					tiled.execute(pool);
+				}
+				long totalTime = 0;
+				for(int i = 0; i < TIMED_RUNS; i++){
+					long startTime = System.nanoTime();
+					int[][] count = tiled.execute(pool);
+					totalTime += System.nanoTime() - startTime;
+					if(!Arrays.deepEquals(expected, count)){
+						throw new IllegalStateException("Tiled render differs from the sequential render with " + workers + " workers");
+					}
+				}
+				double avgMillis = totalTime / 1e6 / TIMED_RUNS;
+				if(workers == 1){
+					baseline = avgMillis;
+				}
+				System.out.printf("Workers: %3d  Avg. Time: %10.2f ms  Speedup: %6.2f%n", workers, avgMillis, baseline / avgMillis);
+			}
+			finally{
+				pool.shutdown();
+			}
+		}
+		System.out.println("----------------------------------");
+	}
+
+	/**
+	 * Gets the next number of workers to measure; the counts double until the number of cores, which is always measured.
+	 *
+	 * @param workers the current number of workers
+	 * @param maxWorkers the number of available cores
+	 * @return the next number of workers
+	 */
+	private static int nextWorkerCount(int workers, int maxWorkers){
+		if(workers == maxWorkers){
+			return maxWorkers + 1;
+		}
+		return Math.min(workers * 2, maxWorkers);
+	}
+}
@@ -0,0 +1,98 @@
+package benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+
+import tasks.MandelbrotSetTask;
+import tasks.MandelbrotSetTask.Tiling;
+
+/**
+ * This class compares the adaptive rendering of the Mandelbrot set with the exhaustive one over a few views, for several minimum rectangle sizes.
+ * For each configuration it prints the time, the fraction of the pixels whose orbit was iterated and the number of pixels whose count differs from the exhaustive render.
+ * A pixel can only differ where a detail of the set narrower than a pixel crosses the border of a rectangle between two of its pixels; larger minimum sizes make this rarer, but no minimum size rules it out.
+ * Both renders use the FAST kernel, which already skips most of the inside of the set, so the adaptive render iterates far fewer pixels without being much faster; with the SCALAR kernel it is several times faster.
+ */
+public class MandelbrotSubdivision {
+
+	/** The views, as the left corner and the edge length of the region. */
+	private static final double[][] VIEWS = {
+		{ -2, -2, 4 },
+		{ -0.8, -0.2, 0.3 },
+		{ -0.76, 0.05, 0.04 },
+		{ -0.7454, 0.113, 0.0002 }
+	};
+
+	/** The minimum rectangle sizes that are measured. */
+	private static final int[] MIN_SIZES = { 8, 16, 32 };
+
+	/** The number of timed runs for each configuration. */
+	private static final int TIMED_RUNS = 3;
+
+	/**
+	 * The main method.
+	 * Usage: MandelbrotSubdivision [numSquares] [iterationLimit]
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		int numSquares = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int iterationLimit = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+		ForkJoinPool pool = new ForkJoinPool();
+		try{
+			System.out.println("Grid: " + numSquares + " x " + numSquares + ", iteration limit: " + iterationLimit + ", workers: " + pool.getParallelism());
+			for(double[] view : VIEWS){
+				double[] corner = { view[0], view[1] };
+				MandelbrotSetTask exhaustive = new MandelbrotSetTask(corner, view[2], numSquares, iterationLimit, Tiling.SQUARES, 32);
+				System.out.println("----------------------------------");
+				System.out.println("View: corner " + view[0] + " + " + view[1] + "i, edge " + view[2]);
+				int[][] expected = exhaustive.execute(pool);
+				System.out.printf("Exhaustive       Avg. Time: %10.2f ms%n", time(exhaustive, pool));
+				for(int minSize : MIN_SIZES){
+					MandelbrotSetTask adaptive = new MandelbrotSetTask(corner, view[2], numSquares, iterationLimit, Tiling.ADAPTIVE, minSize);
+					double avgMillis = time(adaptive, pool);
+					int[][] count = adaptive.execute(pool);
+					System.out.printf("Adaptive, min %2d  Avg. Time: %10.2f ms  Iterated: %6.2f %%  Differing pixels: %d%n",
+							minSize, avgMillis, 100.0 * adaptive.getIteratedPixels() / ((long) numSquares * numSquares), countDifferences(expected, count));
+				}
+			}
+			System.out.println("----------------------------------");
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Times a task on a pool, after one untimed run.
+	 *
+	 * @param task the task
+	 * @param pool the pool
+	 * @return the average time in milliseconds
+	 */
+	private static double time(MandelbrotSetTask task, ForkJoinPool pool){
+		task.execute(pool);
+		long startTime = System.nanoTime();
+		for(int i = 0; i < TIMED_RUNS; i++){
+			task.execute(pool);
+		}
+		return (System.nanoTime() - startTime) / 1e6 / TIMED_RUNS;
+	}
+
+	/**
+	 * Counts the pixels whose counts differ.
+	 *
+	 * @param expected the expected counts
+	 * @param count the counts
+	 * @return the number of differing pixels
+	 */
+	private static int countDifferences(int[][] expected, int[][] count){
+		int differences = 0;
+		for(int i = 0; i < expected.length; i++){
+			for(int j = 0; j < expected[i].length; j++){
+				if(expected[i][j] != count[i][j]){
+					differences++;
+				}
+			}
+		}
+		return differences;
+	}
+}
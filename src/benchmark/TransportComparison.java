@@ -0,0 +1,155 @@
+package benchmark;
+
+import java.rmi.RemoteException;
+import java.rmi.server.RemoteObject;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tasks.EuclideanTspTask;
+import tasks.MandelbrotSetTask;
+import transport.NioComputer;
+import transport.NioComputerServer;
+import api.Computer;
+import computer.ComputerImpl;
+
+/**
+ * This class compares the NIO transport with RMI on loopback, with one computer that is served over both.
+ * The throughput of small tasks, a TSP of 4 cities whose execution takes microseconds, is measured with 8 and 64 client threads that share one stub, so it is mostly the cost of a remote call.
+ * The latency of large results is measured with Mandelbrot sets whose iteration limit is 1, so it is mostly the cost of moving their counts, 4 bytes per pixel.
+ * The computer does not cache results, so every call executes its task.
+ */
+public class TransportComparison {
+
+	/** The numbers of client threads of the small tasks; RMI opens a connection per thread that has a call in flight, while NIO shares one. */
+	private static final int[] THREADS = { 8, 64 };
+
+	/** The time the small tasks are run before they are measured, in milliseconds. */
+	private static final long WARMUP_MILLIS = 2000;
+
+	/** The time the small tasks are measured, in milliseconds. */
+	private static final long MEASURE_MILLIS = 5000;
+
+	/** The number of large results that are fetched before they are measured. */
+	private static final int WARMUP_CALLS = 10;
+
+	/** The number of large results that are measured. */
+	private static final int MEASURED_CALLS = 30;
+
+	/**
+	 * The main method.
+	 * Usage: TransportComparison [numSquares...]; the edges of the large results are 512, 1024 and 2048 pixels by default.
+	 *
+	 * @param args the arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int[] edges = { 512, 1024, 2048 };
+		if(args.length > 0){
+			edges = new int[args.length];
+			for(int i = 0; i < args.length; i++){
+				edges[i] = Integer.parseInt(args[i]);
+			}
+		}
+		ComputerImpl computer = new ComputerImpl(Runtime.getRuntime().availableProcessors(), 256, 0);
+		NioComputerServer server = new NioComputerServer(computer, 0);
+		Computer rmi = (Computer) RemoteObject.toStub(computer);
+		NioComputer nio = new NioComputer("localhost", server.getPort());
+		try{
+			System.out.println("Small tasks, throughput");
+			System.out.println("----------------------------------");
+			for(int threads : THREADS){
+				System.out.printf("%3d threads  RMI: %8.0f calls/s  NIO: %8.0f calls/s%n", threads, throughput(rmi, threads), throughput(nio, threads));
+			}
+			System.out.println("----------------------------------");
+			System.out.println("Large results, median / mean latency");
+			System.out.println("----------------------------------");
+			for(int edge : edges){
+				MandelbrotSetTask task = new MandelbrotSetTask(new double[] { -2, -2 }, 4, edge, 1);
+				double[] rmiMillis = latencies(rmi, task);
+				double[] nioMillis = latencies(nio, task);
+				System.out.printf("%5d x %-5d (%5.1f MB)  RMI: %7.1f / %7.1f ms  NIO: %7.1f / %7.1f ms%n",
+						edge, edge, 4.0 * edge * edge / (1 << 20), rmiMillis[0], rmiMillis[1], nioMillis[0], nioMillis[1]);
+			}
+			System.out.println("----------------------------------");
+		}
+		finally{
+			nio.close();
+			server.close();
+			UnicastRemoteObject.unexportObject(computer, true);
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Measures the throughput of small tasks through a stub.
+	 *
+	 * @param computer the stub
+	 * @param numThreads the number of client threads
+	 * @return the number of calls per second
+	 * @throws Exception if a call fails
+	 */
+	private static double throughput(final Computer computer, int numThreads) throws Exception{
+		final EuclideanTspTask task = new EuclideanTspTask(new double[][] { { 0, 0 }, { 1, 0 }, { 1, 1 }, { 0, 1 } });
+		final long warmupEnd = System.nanoTime() + WARMUP_MILLIS * 1000000;
+		final long end = warmupEnd + MEASURE_MILLIS * 1000000;
+		final AtomicLong calls = new AtomicLong();
+		final Exception[] failure = new Exception[1];
+		Thread[] threads = new Thread[numThreads];
+		for(int i = 0; i < threads.length; i++){
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try{
+						long now;
+						while((now = System.nanoTime()) < end){
+							computer.execute(task);
+							if(now >= warmupEnd){
+								calls.incrementAndGet();
+							}
+						}
+					}
+					catch(RemoteException e){
+						synchronized(failure){
+							failure[0] = e;
+						}
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for(Thread thread : threads){
+			thread.join();
+		}
+		synchronized(failure){
+			if(failure[0] != null){
+				throw failure[0];
+			}
+		}
+		return calls.get() * 1000.0 / MEASURE_MILLIS;
+	}
+
+	/**
+	 * Measures the latency of a task with a large result through a stub.
+	 *
+	 * @param computer the stub
+	 * @param task the task
+	 * @return the median and the mean latency, in milliseconds
+	 * @throws RemoteException if a call fails
+	 */
+	private static double[] latencies(Computer computer, MandelbrotSetTask task) throws RemoteException{
+		for(int i = 0; i < WARMUP_CALLS; i++){
+			computer.execute(task);
+		}
+		double[] millis = new double[MEASURED_CALLS];
+		double sum = 0;
+		for(int i = 0; i < millis.length; i++){
+			long startTime = System.nanoTime();
+			computer.execute(task);
+			millis[i] = (System.nanoTime() - startTime) / 1e6;
+			sum += millis[i];
+		}
+		Arrays.sort(millis);
+		return new double[] { millis[millis.length / 2], sum / millis.length };
+	}
+}
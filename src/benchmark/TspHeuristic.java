@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.Random;
+
+import tasks.EuclideanTspTask;
+import tasks.EuclideanTspTask.Solver;
+
+/**
+ * This class measures the heuristic TSP solver on random instances of 1000 to 100000 cities in the unit square, with growing time budgets.
+ * A tour through n random cities in the unit square has an expected minimal length of about 0.7124 sqrt(n) for large n, so the ratio of the length of a tour to it is about how far the tour is from minimal.
+ * It also checks that every tour visits every city once and starts with city 0.
+ */
+public class TspHeuristic {
+
+	/**
+	 * The main method.
+	 * Usage: TspHeuristic [budgetMillis...]
+	 *
+	 * @param args the arguments
+	 */
+	public static void main(String[] args) {
+		long[] budgets = { 100, 1000, 5000 };
+		if(args.length > 0){
+			budgets = new long[args.length];
+			for(int i = 0; i < args.length; i++){
+				budgets[i] = Long.parseLong(args[i]);
+			}
+		}
+		Random random = new Random(1);
+		new EuclideanTspTask(randomCities(random, 1000), Solver.HEURISTIC, 1000).execute();
+		System.out.println("----------------------------------");
+		for(int numCities : new int[] { 1000, 10000, 100000 }){
+			double[][] cities = randomCities(random, numCities);
+			for(long budget : budgets){
+				long startTime = System.nanoTime();
+				int[] tour = new EuclideanTspTask(cities, Solver.HEURISTIC, budget).execute();
+				double millis = (System.nanoTime() - startTime) / 1e6;
+				check(tour, numCities);
+				System.out.printf("Cities: %6d  Budget: %5d ms  Time: %8.1f ms  Length / 0.7124 sqrt(n): %.4f%n",
+						numCities, budget, millis, length(cities, tour) / (0.7124 * Math.sqrt(numCities)));
+			}
+		}
+		System.out.println("----------------------------------");
+	}
+
+	/**
+	 * Creates cities at random points of the unit square.
+	 *
+	 * @param random the random number generator
+	 * @param numCities the number of cities
+	 * @return the cities
+	 */
+	private static double[][] randomCities(Random random, int numCities){
+		double[][] cities = new double[numCities][2];
+		for(double[] city : cities){
+			city[0] = random.nextDouble();
+			city[1] = random.nextDouble();
+		}
+		return cities;
+	}
+
+	/**
+	 * Computes the length of a tour.
+	 *
+	 * @param cities the cities
+	 * @param tour the tour
+	 * @return the length of the tour
+	 */
+	private static double length(double[][] cities, int[] tour){
+		double sum = 0;
+		for(int i = 0; i < tour.length; i++){
+			double[] a = cities[tour[i]];
+			double[] b = cities[tour[(i + 1) % tour.length]];
+			sum += Math.sqrt((a[0] - b[0]) * (a[0] - b[0]) + (a[1] - b[1]) * (a[1] - b[1]));
+		}
+		return sum;
+	}
+
+	/**
+	 * Checks that a tour starts with city 0 and visits every city once.
+	 *
+	 * @param tour the tour
+	 * @param numCities the number of cities
+	 */
+	private static void check(int[] tour, int numCities){
+		boolean[] visited = new boolean[numCities];
+		for(int city : tour){
+			if(visited[city]){
+				throw new IllegalStateException("City " + city + " is visited twice");
+			}
+			visited[city] = true;
+		}
+		if(tour.length != numCities || tour[0] != 0){
+			throw new IllegalStateException("The tour does not visit every city or does not start with city 0");
+		}
+	}
+}
@@ -1,16 +1,35 @@
 package client;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RMISecurityManager;
 import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
+import javax.imageio.ImageIO;
+
+import tasks.CompactMandelbrotSetTask;
 import tasks.EuclideanTspTask;
+import tasks.MandelbrotSetResult;
+import tasks.MandelbrotPosterTask;
 import tasks.MandelbrotSetTask;
+import tasks.StreamingMandelbrotSetTask;
+import transport.NioComputer;
 
 import api.Computer;
+import api.RejectedTaskException;
+import api.ResultFile;
 import api.Task;
+import api.TaskException;
 
 /**
  * This class represents an RMI client that can execute tasks on a remote computer.
@@ -19,11 +38,38 @@ import api.Task;
  */
 public class Client {
 	
+	/** The system property that sets the port of the NIO server of the computer; if it is set, the client uses the NIO transport instead of RMI. */
+	public static final String NIO_PORT_PROPERTY = "client.nioPort";
+	
 	/** The remote server url. */
 	private static String serverURL;
 	
+	/** The domain name of the server. */
+	private static String serverDomainName;
+	
+	/** The stub of the NIO transport, which is shared by all the calls of the client. */
+	private static NioComputer nioComputer;
+	
+	/** The number of times each task is run. */
+	private static final int NUM_TRIALS = 5;
+	
+	/** The first back-off delay after the computer rejects a task, in milliseconds; it doubles with every rejection. */
+	private static final long INITIAL_BACKOFF_MILLIS = 10;
+	
+	/** The longest back-off delay, in milliseconds. */
+	private static final long MAX_BACKOFF_MILLIS = 1000;
+	
+	/** The number of bytes of a result file that are fetched in one remote call. */
+	private static final int FETCH_CHUNK_BYTES = 4 << 20;
+	
 	/**
 	 * The main method.
+	 * Usage: Client serverDomainName [batch | load [name=value ...] | stream [numSquares] | poster [numSquares [file]] | png [numSquares [file]]]; with batch, all the trials of both tasks are submitted to the computer in a single remote call.
+	 * With load, the client drives the computer with a concurrent load of both tasks and reports the throughput and the latency percentiles; see LoadGenerator for the options.
+	 * With stream, the client renders a Mandelbrot set of numSquares x numSquares pixels (1024 by default) whose tiles are painted as the computer streams them back.
+	 * With poster, the computer renders a Mandelbrot set of numSquares x numSquares pixels (8192 by default) into a PNG file without holding it on the heap, and the client copies it in chunks into the given file (mandelbrot.png by default).
+	 * With png, the client renders a Mandelbrot set of numSquares x numSquares pixels (8192 by default) from the counts returned by the computer and writes it into the given PNG file (mandelbrot.png by default) without showing it.
+	 * If the system property client.nioPort is set, the client calls the computer over the NIO transport on that port instead of RMI.
 	 *
 	 * @param args the arguments
 	 * @throws Exception the exception
@@ -31,25 +77,73 @@ public class Client {
 	public static void main(String[] args) throws Exception {
 		// Construct & set a security manager to allow downloading of classes from a remote codebase
 		System.setSecurityManager(new RMISecurityManager());
-		String serverDomainName = args[0];
+		serverDomainName = args[0];
 		serverURL = "//" + serverDomainName + "/" + Computer.SERVICE_NAME;
+		if(args.length > 1 && args[1].equals("load")){
+			String[] options = new String[args.length - 2];
+			System.arraycopy(args, 2, options, 0, options.length);
+			LoadGenerator.fromOptions(connect(), options).run();
+			System.out.println(connect().getStats());
+			return;
+		}
+		if(args.length > 1 && args[1].equals("poster")){
+			runPoster(args.length > 2 ? Integer.parseInt(args[2]) : 8192, new File(args.length > 3 ? args[3] : "mandelbrot.png"));
+			return;
+		}
+		if(args.length > 1 && args[1].equals("png")){
+			runPng(args.length > 2 ? Integer.parseInt(args[2]) : 8192, new File(args.length > 3 ? args[3] : "mandelbrot.png"));
+			return;
+		}
+		if(args.length > 1 && args[1].equals("stream")){
+			runStreaming(args.length > 2 ? Integer.parseInt(args[2]) : 1024);
+			return;
+		}
 		
-		// t1 is an instance of the MandelbrotSetTask
-		Task<int[][]> t1 = new MandelbrotSetTask(new double[] { -2, -2 }, 4,
-				256, 64);
+		// t1 is an instance of the MandelbrotSetTask, whose counts are returned in compact form
+		Task<MandelbrotSetResult> t1 = new CompactMandelbrotSetTask(new MandelbrotSetTask(new double[] { -2, -2 }, 4,
+				256, 64));
 		double[][] cities = { { 6, 3 }, { 2, 2 }, { 5, 8 }, { 1, 5 }, { 1, 6 },
 				{ 2, 7 }, { 2, 8 }, { 6, 5 }, { 1, 3 }, { 6, 6 } };
 		// t2 is an instance of the EuclideanTspTask
 		Task<int[]> t2 = new EuclideanTspTask(cities);
 		
 		
-		int[][] counts = (int[][]) runTask(t1);
-		int[] tour = (int[]) runTask(t2);
+		MandelbrotSetResult counts;
+		int[] tour;
+		if(args.length > 1 && args[1].equals("batch")){
+			Object[] results = runBatch(t1, t2);
+			counts = (MandelbrotSetResult) results[0];
+			tour = (int[]) results[1];
+		}
+		else{
+			counts = (MandelbrotSetResult) runTask(t1);
+			tour = (int[]) runTask(t2);
+		}
 		// Visualize the results using Java graphics
 		Visualizer.visualize(counts, 256, tour, cities);
 
 	}
 	
+	/**
+	 * Gets the remote reference of the computer: the stub of the NIO transport if its port is set, and the RMI stub from the registry otherwise.
+	 *
+	 * @return the computer
+	 * @throws RemoteException the remote exception
+	 * @throws MalformedURLException the malformed url exception
+	 * @throws NotBoundException the not bound exception
+	 */
+	private static Computer connect() throws RemoteException, MalformedURLException, NotBoundException
+	{
+		int nioPort = Integer.getInteger(NIO_PORT_PROPERTY, 0);
+		if (nioPort > 0) {
+			if (nioComputer == null) {
+				nioComputer = new NioComputer(serverDomainName, nioPort);
+			}
+			return nioComputer;
+		}
+		return (Computer) Naming.lookup(serverURL);
+	}
+	
 	/**
 	 * Runs the given task by calling the execute method on the remote server.
 	 * The execution is repeated five times and the round trip time involved in the remote execution is calculated.
@@ -63,7 +157,7 @@ public class Client {
 	private static Object runTask(Task task) throws RemoteException, MalformedURLException, NotBoundException
 	{
 		// The RMI client requests a reference to a named remote object. The reference (the remote object's stub instance) is what the client will use to make remote method calls to the remote object.
-		Computer computer = (Computer) Naming.lookup(serverURL);
+		Computer computer = connect();
 		/* print task class name;
 		* run task 5 times
 		* collect/print the execution times
@@ -77,16 +171,195 @@ public class Client {
 		Object obj = null;
 		System.out.println("Elapsed Time:");
 		System.out.println("----------------------------------");
-		for (int i = 0; i < 5; i++) {
+		for (int i = 0; i < NUM_TRIALS; i++) {
 			startTime = System.currentTimeMillis();
-			obj = computer.execute(task);
+			obj = executeWithBackoff(computer, task);
 			endTime = System.currentTimeMillis();
 			elapsedTime = endTime - startTime;
 			System.out.println("Trial " + (i + 1) + ": " + elapsedTime + " ms");
 			totalElapsedTime += elapsedTime;
 		}
-		System.out.println("Avg. Elapsed Time: " + totalElapsedTime / 5 + " ms");
+		System.out.println("Avg. Elapsed Time: " + totalElapsedTime / NUM_TRIALS + " ms");
+		System.out.println("Cache: " + computer.getCacheStats());
 		System.out.println("----------------------------------");
 		return obj;
 	}
+	
+	/**
+	 * Renders a Mandelbrot set on the remote computer as a streaming task, painting its tiles as they arrive.
+	 * The time to the first batch of tiles and the time to the whole image are printed.
+	 *
+	 * @param numSquares the number of pixels along one edge of the image
+	 * @throws RemoteException the remote exception
+	 * @throws MalformedURLException the malformed url exception
+	 * @throws NotBoundException the not bound exception
+	 */
+	private static void runStreaming(int numSquares) throws RemoteException, MalformedURLException, NotBoundException
+	{
+		Computer computer = connect();
+		int iterationLimit = 64;
+		StreamingMandelbrotSetTask task = new StreamingMandelbrotSetTask(new MandelbrotSetTask(new double[] { -2, -2 }, 4,
+				numSquares, iterationLimit, MandelbrotSetTask.Tiling.SQUARES, 64));
+		System.out.println("Task: " + task.getClass().getName());
+		System.out.println("----------------------------------");
+		MandelbrotTilePainter painter = new MandelbrotTilePainter(numSquares, iterationLimit);
+		Visualizer.showStreaming(painter);
+		try {
+			long startTime = System.nanoTime();
+			computer.executeStreaming(task, painter);
+			long elapsedTime = (System.nanoTime() - startTime) / 1000000;
+			System.out.println("Time to First Tiles: " + (painter.getFirstBatchTime() - startTime) / 1000000 + " ms");
+			System.out.println("Elapsed Time: " + elapsedTime + " ms");
+			System.out.println("Tiles: " + painter.getTiles() + " in " + painter.getBatches() + " batches");
+		} finally {
+			UnicastRemoteObject.unexportObject(painter, true);
+		}
+		System.out.println("----------------------------------");
+	}
+	
+	/**
+	 * Renders a Mandelbrot set into a PNG file on the remote computer and copies the file in chunks.
+	 * The time to render and the time to copy are printed.
+	 *
+	 * @param numSquares the number of pixels along one edge of the image
+	 * @param file the local file that the image is copied to
+	 * @throws IOException Signals that an I/O exception has occurred, including the remote exception.
+	 * @throws NotBoundException the not bound exception
+	 */
+	private static void runPoster(int numSquares, File file) throws IOException, NotBoundException
+	{
+		Computer computer = connect();
+		MandelbrotPosterTask task = new MandelbrotPosterTask(new MandelbrotSetTask(new double[] { -2, -2 }, 4,
+				numSquares, 256, MandelbrotSetTask.Tiling.SQUARES, 256));
+		System.out.println("Task: " + task.getClass().getName());
+		System.out.println("----------------------------------");
+		long startTime = System.currentTimeMillis();
+		ResultFile result = executeWithBackoff(computer, task);
+		System.out.println("Render Time: " + (System.currentTimeMillis() - startTime) + " ms");
+		startTime = System.currentTimeMillis();
+		fetch(computer, result, file);
+		System.out.println("Fetch Time: " + (System.currentTimeMillis() - startTime) + " ms");
+		System.out.println("Image: " + file.getAbsolutePath() + " (" + result.getLength() + " bytes)");
+		System.out.println("----------------------------------");
+	}
+	
+	/**
+	 * Executes a Mandelbrot set task on the remote computer and writes the image of its counts into a PNG file, without a display.
+	 * The time to execute the task, the time to render the image and the time to encode it are printed.
+	 *
+	 * @param numSquares the number of pixels along one edge of the image
+	 * @param file the PNG file
+	 * @throws IOException Signals that an I/O exception has occurred, including the remote exception.
+	 * @throws NotBoundException the not bound exception
+	 */
+	private static void runPng(int numSquares, File file) throws IOException, NotBoundException
+	{
+		Computer computer = connect();
+		CompactMandelbrotSetTask task = new CompactMandelbrotSetTask(new MandelbrotSetTask(new double[] { -2, -2 }, 4,
+				numSquares, 64, MandelbrotSetTask.Tiling.SQUARES, 256));
+		System.out.println("Task: " + task.getClass().getName());
+		System.out.println("----------------------------------");
+		long startTime = System.currentTimeMillis();
+		MandelbrotSetResult result = executeWithBackoff(computer, task);
+		System.out.println("Elapsed Time: " + (System.currentTimeMillis() - startTime) + " ms");
+		startTime = System.currentTimeMillis();
+		BufferedImage image = Visualizer.renderMandelbrotSet(result);
+		System.out.println("Render Time: " + (System.currentTimeMillis() - startTime) + " ms");
+		startTime = System.currentTimeMillis();
+		ImageIO.write(image, "png", file);
+		System.out.println("Encode Time: " + (System.currentTimeMillis() - startTime) + " ms");
+		System.out.println("Image: " + file.getAbsolutePath() + " (" + file.length() + " bytes)");
+		System.out.println("----------------------------------");
+	}
+	
+	/**
+	 * Copies a result file of the remote computer into a local file, one chunk at a time.
+	 *
+	 * @param computer the remote computer
+	 * @param result the result file
+	 * @param file the local file
+	 * @throws IOException Signals that an I/O exception has occurred, including the remote exception.
+	 */
+	static void fetch(Computer computer, ResultFile result, File file) throws IOException
+	{
+		OutputStream out = new FileOutputStream(file);
+		try {
+			for (long offset = 0; offset < result.getLength(); ) {
+				byte[] chunk = computer.fetch(result.getName(), offset, FETCH_CHUNK_BYTES);
+				if (chunk.length == 0) {
+					throw new IOException("The result file " + result + " ends at " + offset + " bytes");
+				}
+				out.write(chunk);
+				offset += chunk.length;
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Executes a task on the remote computer, backing off and trying again for as long as the computer rejects the task because it is too busy.
+	 *
+	 * @param <T> the generic type
+	 * @param computer the remote computer
+	 * @param task the task
+	 * @return the result of the task
+	 * @throws RemoteException the remote exception
+	 */
+	static <T> T executeWithBackoff(Computer computer, Task<T> task) throws RemoteException
+	{
+		long backoff = INITIAL_BACKOFF_MILLIS;
+		while (true) {
+			try {
+				return computer.execute(task);
+			} catch (RejectedTaskException e) {
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+			}
+		}
+	}
+	
+	/**
+	 * Runs all the trials of the given tasks as one batch: the tasks are submitted in a single remote call and their results are collected in a single remote call.
+	 * The round trip time of the whole batch is calculated.
+	 *
+	 * @param tasks the tasks
+	 * @return the results of the tasks, in the order of the tasks
+	 * @throws RemoteException the remote exception
+	 * @throws MalformedURLException the malformed url exception
+	 * @throws NotBoundException the not bound exception
+	 * @throws TaskException the exception thrown by a task on the remote computer
+	 */
+	private static Object[] runBatch(Task<?>... tasks) throws RemoteException, MalformedURLException, NotBoundException, TaskException
+	{
+		Computer computer = connect();
+		List<Task<?>> batch = new ArrayList<Task<?>>();
+		for (int i = 0; i < NUM_TRIALS; i++) {
+			for (Task<?> task : tasks) {
+				batch.add(task);
+			}
+		}
+		System.out.println("Batch: " + batch.size() + " tasks");
+		System.out.println("----------------------------------");
+		long startTime = System.currentTimeMillis();
+		long[] tickets = computer.submit(batch);
+		Map<Long, Object> results = computer.take(tickets, Long.MAX_VALUE);
+		long elapsedTime = System.currentTimeMillis() - startTime;
+		System.out.println("Elapsed Time: " + elapsedTime + " ms");
+		System.out.println("----------------------------------");
+		Object[] objs = new Object[tasks.length];
+		for (int i = 0; i < tasks.length; i++) {
+			Object obj = results.get(tickets[i]);
+			if (obj instanceof TaskException) {
+				throw (TaskException) obj;
+			}
+			objs[i] = obj;
+		}
+		return objs;
+	}
 }
@@ -0,0 +1,333 @@
+package client;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import tasks.CompactMandelbrotSetTask;
+import tasks.EuclideanTspTask;
+import tasks.MandelbrotSetTask;
+
+import api.Computer;
+import api.HistogramSnapshot;
+import api.RejectedTaskException;
+import api.Task;
+
+/**
+ * This class drives a remote computer with a concurrent load of tasks, to find the throughput at which it saturates and to compare changes to the server.
+ * Each client thread cycles through the task types. In closed-loop mode a thread submits its next task as soon as the previous one returns; with a target rate, the threads submit tasks on a fixed schedule whether or not the computer keeps up, and the latency of a task is measured from the time it was scheduled, so that a stalled computer is not hidden by the client waiting for it.
+ * Every thread first runs a number of untimed warm-up tasks of each type, so that the class loading and compilation on both ends are not part of the measurement.
+ * The latencies are measured with System.nanoTime and recorded per thread into the log-linear buckets of a HistogramSnapshot, which are merged at the end.
+ */
+class LoadGenerator {
+
+	/** The remote computer. */
+	private final Computer computer;
+
+	/** The number of client threads. */
+	private final int threads;
+
+	/** The target rate over all the threads, in tasks per second; 0 runs the threads in a closed loop. */
+	private final double rate;
+
+	/** The number of warm-up tasks of each type per thread. */
+	private final int warmup;
+
+	/** The length of the measurement, in seconds. */
+	private final double durationSeconds;
+
+	/** Whether every task is made different from the others, so that the result cache of the computer does not answer it. */
+	private final boolean distinct;
+
+	/** The names of the task types. */
+	private final String[] typeNames = { "MandelbrotSetTask", "EuclideanTspTask" };
+
+	/**
+	 * Instantiates a new load generator.
+	 *
+	 * @param computer the remote computer
+	 * @param threads the number of client threads
+	 * @param rate the target rate over all the threads, in tasks per second; 0 runs the threads in a closed loop
+	 * @param warmup the number of warm-up tasks of each type per thread
+	 * @param durationSeconds the length of the measurement, in seconds
+	 * @param distinct whether every task is made different from the others
+	 */
+	LoadGenerator(Computer computer, int threads, double rate, int warmup, double durationSeconds, boolean distinct)
+	{
+		this.computer = computer;
+		this.threads = threads;
+		this.rate = rate;
+		this.warmup = warmup;
+		this.durationSeconds = durationSeconds;
+		this.distinct = distinct;
+	}
+
+	/**
+	 * Creates a load generator from options of the form name=value: threads (default 4), rate (tasks per second, default 0 for closed loop), warmup (default 20), duration (seconds, default 30) and distinct (default true).
+	 *
+	 * @param computer the remote computer
+	 * @param options the options
+	 * @return the load generator
+	 */
+	static LoadGenerator fromOptions(Computer computer, String[] options)
+	{
+		int threads = 4;
+		double rate = 0;
+		int warmup = 20;
+		double duration = 30;
+		boolean distinct = true;
+		for ( String option : options )
+		{
+			String[] pair = option.split("=", 2);
+			if ( pair.length != 2 )
+			{
+				throw new IllegalArgumentException("Options are of the form name=value: " + option);
+			}
+			if ( pair[0].equals("threads") ) threads = Integer.parseInt(pair[1]);
+			else if ( pair[0].equals("rate") ) rate = Double.parseDouble(pair[1]);
+			else if ( pair[0].equals("warmup") ) warmup = Integer.parseInt(pair[1]);
+			else if ( pair[0].equals("duration") ) duration = Double.parseDouble(pair[1]);
+			else if ( pair[0].equals("distinct") ) distinct = Boolean.parseBoolean(pair[1]);
+			else throw new IllegalArgumentException("Unknown option: " + pair[0]);
+		}
+		return new LoadGenerator(computer, threads, rate, warmup, duration, distinct);
+	}
+
+	/**
+	 * Creates the task of the given type for the given request.
+	 *
+	 * @param type the index of the task type
+	 * @param request the number of the request, which makes the task distinct
+	 * @return the task
+	 */
+	private Task<?> createTask(int type, long request)
+	{
+		// a shift far below the size of a pixel or a city keeps the work the same but changes the serialized task
+		double shift = distinct ? request * 1e-14 : 0;
+		if ( type == 0 )
+		{
+			return new CompactMandelbrotSetTask(new MandelbrotSetTask(new double[] { -2 + shift, -2 }, 4, 256, 64));
+		}
+		double[][] cities = { { 6, 3 }, { 2, 2 }, { 5, 8 }, { 1, 5 }, { 1, 6 },
+				{ 2, 7 }, { 2, 8 }, { 6, 5 }, { 1, 3 }, { 6, 6 } };
+		for ( double[] city : cities )
+		{
+			city[0] += shift;
+		}
+		return new EuclideanTspTask(cities);
+	}
+
+	/**
+	 * Runs the load and prints the throughput and the latency percentiles of each task type.
+	 *
+	 * @throws InterruptedException the interrupted exception
+	 */
+	void run() throws InterruptedException
+	{
+		System.out.println("Load: " + threads + " threads, " + (rate > 0 ? rate + " tasks/s" : "closed loop") + ", "
+				+ warmup + " warm-up tasks per type and thread, " + durationSeconds + " s" + (distinct ? ", distinct tasks" : ""));
+		final CountDownLatch warmedUp = new CountDownLatch(threads);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Worker> workers = new ArrayList<Worker>();
+		for ( int i = 0; i < threads; i++ )
+		{
+			Worker worker = new Worker(i, warmedUp, start);
+			workers.add(worker);
+			worker.start();
+		}
+		warmedUp.await();
+		long startTime = System.nanoTime();
+		long endTime = startTime + (long) (durationSeconds * 1e9);
+		for ( Worker worker : workers )
+		{
+			worker.startTime = startTime;
+			worker.endTime = endTime;
+		}
+		start.countDown();
+		for ( Worker worker : workers )
+		{
+			worker.join();
+		}
+		double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+		report(workers, elapsedSeconds);
+	}
+
+	/**
+	 * Merges the recordings of the workers and prints them.
+	 *
+	 * @param workers the workers
+	 * @param elapsedSeconds the length of the measurement, in seconds
+	 */
+	private void report(List<Worker> workers, double elapsedSeconds)
+	{
+		System.out.println("----------------------------------");
+		long total = 0;
+		for ( int type = 0; type < typeNames.length; type++ )
+		{
+			long[] counts = new long[HistogramSnapshot.NUM_BUCKETS];
+			long count = 0, sum = 0, max = 0, rejected = 0, failed = 0;
+			for ( Worker worker : workers )
+			{
+				for ( int b = 0; b < counts.length; b++ )
+				{
+					counts[b] += worker.counts[type][b];
+				}
+				count += worker.count[type];
+				sum += worker.sum[type];
+				max = Math.max(max, worker.max[type]);
+				rejected += worker.rejected[type];
+				failed += worker.failed[type];
+			}
+			total += count;
+			HistogramSnapshot latency = new HistogramSnapshot(counts, count, sum, max);
+			System.out.printf("%s: %d tasks, %.1f tasks/s, %d rejected, %d failed%n", typeNames[type], count, count / elapsedSeconds, rejected, failed);
+			System.out.printf("  latency (ms): mean=%.3f, p50=%.3f, p99=%.3f, p999=%.3f, max=%.3f%n",
+					latency.getMean() / 1e6, latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6,
+					latency.getPercentile(99.9) / 1e6, max / 1e6);
+		}
+		System.out.printf("Throughput: %.1f tasks/s%n", total / elapsedSeconds);
+		System.out.println("----------------------------------");
+	}
+
+	/**
+	 * A client thread, which records the latencies of its own tasks.
+	 */
+	private final class Worker extends Thread
+	{
+		/** The index of the thread. */
+		private final int index;
+
+		/** The latch that the thread counts down once it has warmed up. */
+		private final CountDownLatch warmedUp;
+
+		/** The latch that starts the measurement. */
+		private final CountDownLatch start;
+
+		/** The start of the measurement, in nanoseconds. */
+		volatile long startTime;
+
+		/** The end of the measurement, in nanoseconds. */
+		volatile long endTime;
+
+		/** The latency buckets per task type. */
+		final long[][] counts = new long[typeNames.length][HistogramSnapshot.NUM_BUCKETS];
+
+		/** The number of completed tasks per task type. */
+		final long[] count = new long[typeNames.length];
+
+		/** The sum of the latencies per task type. */
+		final long[] sum = new long[typeNames.length];
+
+		/** The largest latency per task type. */
+		final long[] max = new long[typeNames.length];
+
+		/** The number of rejected tasks per task type. */
+		final long[] rejected = new long[typeNames.length];
+
+		/** The number of failed tasks per task type. */
+		final long[] failed = new long[typeNames.length];
+
+		/**
+		 * Instantiates a new worker.
+		 *
+		 * @param index the index of the thread
+		 * @param warmedUp the latch that the thread counts down once it has warmed up
+		 * @param start the latch that starts the measurement
+		 */
+		Worker(int index, CountDownLatch warmedUp, CountDownLatch start)
+		{
+			super("load-" + index);
+			this.index = index;
+			this.warmedUp = warmedUp;
+			this.start = start;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run()
+		{
+			long request = index * 100000000L; // keeps the requests of the threads apart
+			try
+			{
+				for ( int i = 0; i < warmup; i++ )
+				{
+					for ( int type = 0; type < typeNames.length; type++ )
+					{
+						try
+						{
+							computer.execute(createTask(type, request++));
+						}
+						catch ( RemoteException e )
+						{
+							// the warm-up only has to reach the computer
+						}
+					}
+				}
+			}
+			finally
+			{
+				warmedUp.countDown();
+			}
+			try
+			{
+				start.await();
+			}
+			catch ( InterruptedException e )
+			{
+				return;
+			}
+			// each thread takes its share of the rate, offset so that the threads do not submit together
+			long interval = rate > 0 ? (long) (1e9 * threads / rate) : 0;
+			long scheduled = startTime + interval * index / Math.max(1, threads);
+			for ( long n = 0; ; n++ )
+			{
+				if ( interval > 0 )
+				{
+					long wait = scheduled - System.nanoTime();
+					if ( wait > 0 )
+					{
+						try
+						{
+							TimeUnit.NANOSECONDS.sleep(wait);
+						}
+						catch ( InterruptedException e )
+						{
+							return;
+						}
+					}
+				}
+				long sendTime = interval > 0 ? scheduled : System.nanoTime();
+				if ( sendTime >= endTime )
+				{
+					return;
+				}
+				int type = (int) (n % typeNames.length);
+				Task<?> task = createTask(type, request++);
+				try
+				{
+					computer.execute(task);
+					long latency = System.nanoTime() - sendTime;
+					counts[type][HistogramSnapshot.bucketOf(latency)]++;
+					count[type]++;
+					sum[type] += latency;
+					max[type] = Math.max(max[type], latency);
+				}
+				catch ( RejectedTaskException e )
+				{
+					rejected[type]++;
+				}
+				catch ( RemoteException e )
+				{
+					failed[type]++;
+				}
+				catch ( RuntimeException e )
+				{
+					failed[type]++;
+				}
+				scheduled += interval;
+			}
+		}
+	}
+}
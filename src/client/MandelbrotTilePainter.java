@@ -0,0 +1,124 @@
+package client;
+
+import java.awt.image.BufferedImage;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+
+import tasks.MandelbrotTile;
+
+import api.PartialResultListener;
+
+/**
+ * This class is the remote listener that receives the tiles of a streaming Mandelbrot set task, and paints each batch of tiles into the image of the visualization as soon as it arrives.
+ */
+class MandelbrotTilePainter extends UnicastRemoteObject implements PartialResultListener<MandelbrotTile>
+{
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The image that the tiles are painted into. */
+	private final BufferedImage image;
+
+	/** The pixels of the image, row by row. */
+	private final int[] pixels;
+
+	/** The colors by count. */
+	private final int[] palette;
+
+	/** The label that shows the image. */
+	private final JLabel label;
+
+	/** The time the first batch arrived, in nanoseconds, or 0 if none has arrived. */
+	private volatile long firstBatchTime;
+
+	/** The number of tiles that have arrived. */
+	private volatile int tiles;
+
+	/** The number of batches that have arrived. */
+	private volatile int batches;
+
+	/**
+	 * Instantiates a new painter and exports it, so that the computer can call it.
+	 *
+	 * @param numPixels the number of pixels along one edge of the image
+	 * @param iterationLimit the iteration limit of the task
+	 * @throws RemoteException the remote exception
+	 */
+	MandelbrotTilePainter( int numPixels, int iterationLimit ) throws RemoteException
+	{
+		image = new BufferedImage( numPixels, numPixels, BufferedImage.TYPE_INT_RGB );
+		pixels = Visualizer.pixels( image );
+		palette = Visualizer.createPalette( iterationLimit );
+		label = new JLabel( new ImageIcon( image ) );
+	}
+
+	/**
+	 * Paints a batch of tiles and repaints the label.
+	 *
+	 * @param parts the tiles
+	 */
+	@Override
+	public synchronized void partialResults( List<MandelbrotTile> parts )
+	{
+		if ( firstBatchTime == 0 )
+		{
+			firstBatchTime = System.nanoTime();
+		}
+		int width = image.getWidth();
+		for ( MandelbrotTile tile : parts )
+		{
+			for ( int j = tile.getJStart(); j < tile.getJStart() + tile.getWidth(); j++ )
+			for ( int i = tile.getIStart(); i < tile.getIStart() + tile.getHeight(); i++ )
+			{
+				pixels[ j * width + i ] = palette[ Math.min( tile.getCount( i, j ), palette.length - 1 ) ];
+			}
+		}
+		tiles += parts.size();
+		batches++;
+		label.repaint();
+	}
+
+	/**
+	 * Gets the label that shows the image.
+	 *
+	 * @return the label
+	 */
+	JLabel getLabel()
+	{
+		return label;
+	}
+
+	/**
+	 * Gets the time the first batch arrived, as given by System.nanoTime.
+	 *
+	 * @return the time in nanoseconds, or 0 if no batch has arrived
+	 */
+	long getFirstBatchTime()
+	{
+		return firstBatchTime;
+	}
+
+	/**
+	 * Gets the number of tiles that have arrived.
+	 *
+	 * @return the number of tiles
+	 */
+	int getTiles()
+	{
+		return tiles;
+	}
+
+	/**
+	 * Gets the number of batches that have arrived.
+	 *
+	 * @return the number of batches
+	 */
+	int getBatches()
+	{
+		return batches;
+	}
+}
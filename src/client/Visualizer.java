@@ -6,33 +6,70 @@ import java.awt.Container;
 import java.awt.Graphics;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
-import java.util.Map;
+import java.awt.image.DataBufferInt;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JScrollPane;
 
+import tasks.MandelbrotSetResult;
+
 /**
- * This class helps to produce a visualization of the different tasks
+ * This class helps to produce a visualization of the different tasks.
+ * The Mandelbrot set images are rendered with a palette of one color per count, which is written straight into the pixels of the image, a band of columns per fork-join task.
  */
 class Visualizer {
 	
 	
 	private static int N_PIXELS;
-	// A Map to store the Color object for each value of k that is computed in MandelbrotSet task
-	private static Map<Integer, Color> colorMap = new HashMap<Integer, Color>();	
 	
-	public static void visualize(int[][] counts, int numPixels, int[] tour, double[][] cities)
+	/** The seed of the random colors of the counts, so that the same counts always get the same colors. */
+	private static final long PALETTE_SEED = 64;
+	
+	/** The number of columns of the image that a fork-join task fills; the band is filled row by row, so that the pixels are written in runs while the counts of its columns stay in the cache. */
+	private static final int BAND_COLUMNS = 64;
+	
+	/** The pool on which the images are rendered, created the first time an image is rendered. */
+	private static ForkJoinPool pool;
+	
+	public static void visualize(int[][] counts, int iterationLimit, int numPixels, int[] tour, double[][] cities)
+	{ 		
+		N_PIXELS = numPixels;
+		
+	    JLabel euclideanTspLabel = displayEuclideanTspTaskReturnValue( cities, tour );
+	    
+	    JLabel mandelbrotLabel = new JLabel( new ImageIcon( renderMandelbrotSet( counts, iterationLimit ) ) );
+
+	    show( euclideanTspLabel, mandelbrotLabel );
+	}
+	
+	public static void visualize(MandelbrotSetResult result, int numPixels, int[] tour, double[][] cities)
 	{ 		
 		N_PIXELS = numPixels;
 		
 	    JLabel euclideanTspLabel = displayEuclideanTspTaskReturnValue( cities, tour );
 	    
-	    JLabel mandelbrotLabel = displayMandelbrotSetTaskReturnValue( counts );
+	    JLabel mandelbrotLabel = new JLabel( new ImageIcon( renderMandelbrotSet( result ) ) );
 
+	    show( euclideanTspLabel, mandelbrotLabel );
+	}
+	
+	static void showStreaming( MandelbrotTilePainter painter )
+	{
+	    // the label is repainted by the painter as the tiles arrive
+	    JFrame frame = new JFrame( "Streaming Mandelbrot Set" );
+	    frame.setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
+	    frame.getContentPane().add( new JScrollPane( painter.getLabel() ) );
+	    frame.pack();
+	    frame.setVisible( true );
+	}
+	
+	private static void show( JLabel euclideanTspLabel, JLabel mandelbrotLabel )
+	{
 	    // display JLabels: graphic images
 	    JFrame frame = new JFrame( "Result Visualizations" );
 	    frame.setDefaultCloseOperation( JFrame.EXIT_ON_CLOSE );
@@ -116,34 +153,156 @@ class Visualizer {
 	}
 	
 	
-	private static JLabel displayMandelbrotSetTaskReturnValue( int[][] counts )
+	/**
+	 * Renders the image of a Mandelbrot set, where the count of region[i][j] is the color of the pixel in column i and row j.
+	 *
+	 * @param counts the counts
+	 * @param iterationLimit the iteration limit, whose count is black
+	 * @return the image
+	 */
+	static BufferedImage renderMandelbrotSet( int[][] counts, int iterationLimit )
 	{
-	    Image image = new BufferedImage( N_PIXELS, N_PIXELS, BufferedImage.TYPE_INT_ARGB );
-	    Graphics graphics = image.getGraphics();
-	    for ( int i = 0; i < counts.length; i++ )
-	    for ( int j = 0; j < counts.length; j++ )
+	    BufferedImage image = new BufferedImage( counts.length, counts.length, BufferedImage.TYPE_INT_RGB );
+	    getPool().invoke( new RasterBand( counts, null, createPalette( iterationLimit ), pixels( image ), 0, counts.length ) );
+	    return image;
+	}
+	
+	/**
+	 * Renders the image of a Mandelbrot set, where the count of region[i][j] is the color of the pixel in column i and row j.
+	 *
+	 * @param result the counts
+	 * @return the image
+	 */
+	static BufferedImage renderMandelbrotSet( MandelbrotSetResult result )
+	{
+	    int numSquares = result.getNumSquares();
+	    BufferedImage image = new BufferedImage( numSquares, numSquares, BufferedImage.TYPE_INT_RGB );
+	    getPool().invoke( new RasterBand( null, result, createPalette( result.getIterationLimit() ), pixels( image ), 0, numSquares ) );
+	    return image;
+	}
+	
+	/**
+	 * Gets the pixels of an image of the type TYPE_INT_RGB, row by row.
+	 *
+	 * @param image the image
+	 * @return the array that backs the image
+	 */
+	static int[] pixels( BufferedImage image )
+	{
+	    return ( (DataBufferInt) image.getRaster().getDataBuffer() ).getData();
+	}
+	
+	/**
+	 * Creates the palette of the counts of a Mandelbrot set: a random color for every count below the iteration limit, and black for the iteration limit, which is the count of the points in the set.
+	 *
+	 * @param iterationLimit the iteration limit
+	 * @return the RGB colors by count
+	 */
+	static int[] createPalette( int iterationLimit )
+	{
+	    int[] palette = new int[ iterationLimit + 1 ];
+	    Random random = new Random( PALETTE_SEED );
+	    for ( int k = 0; k < iterationLimit; k++ )
 	    {
-	        graphics.setColor( getColor( counts[i][j] ) );
-	        graphics.fillRect(i, j, 1, 1);
+	        palette[ k ] = random.nextInt( 1 << 24 );
 	    }
-	    ImageIcon imageIcon = new ImageIcon( image );
-	    return new JLabel( imageIcon );
+	    palette[ iterationLimit ] = Color.BLACK.getRGB() & 0xFFFFFF;
+	    return palette;
 	}
-
-	private static Color getColor( int i )
-	{		
-	    if ( i == 64 ){
-	    	return Color.BLACK;
+	
+	/**
+	 * Gets the pool on which the images are rendered.
+	 *
+	 * @return the pool
+	 */
+	private static synchronized ForkJoinPool getPool()
+	{
+	    if ( pool == null )
+	    {
+	        pool = new ForkJoinPool( Runtime.getRuntime().availableProcessors() );
 	    }
-	    Random rand = new Random();
-	    Color color = colorMap.get(i);
-	    if(color == null){
-	    	color = new Color(rand.nextFloat(), rand.nextFloat(), rand.nextFloat());
-		    colorMap.put(i, color);		    
+	    return pool;
+	}
+	
+	/**
+	 * The rendering of a band of columns of the image of a Mandelbrot set; the bands are split in halves until they are BAND_COLUMNS wide.
+	 * A band reads the counts of its columns row by row of the counts and writes each row of the image as one run of pixels.
+	 */
+	private static final class RasterBand extends RecursiveAction
+	{
+	    /** The Constant serialVersionUID. */
+	    private static final long serialVersionUID = 1L;
+
+	    /** The counts as an array, or null if they are a result. */
+	    private final int[][] counts;
+
+	    /** The counts as a result, or null if they are an array. */
+	    private final MandelbrotSetResult result;
+
+	    /** The colors by count. */
+	    private final int[] palette;
+
+	    /** The pixels of the image, row by row. */
+	    private final int[] pixels;
+
+	    /** The first column of the band. */
+	    private final int from;
+
+	    /** The column after the last column of the band. */
+	    private final int to;
+
+	    /**
+	     * Instantiates a new band.
+	     *
+	     * @param counts the counts as an array, or null
+	     * @param result the counts as a result, or null
+	     * @param palette the colors by count
+	     * @param pixels the pixels of the image
+	     * @param from the first column of the band
+	     * @param to the column after the last column of the band
+	     */
+	    RasterBand( int[][] counts, MandelbrotSetResult result, int[] palette, int[] pixels, int from, int to )
+	    {
+	        this.counts = counts;
+	        this.result = result;
+	        this.palette = palette;
+	        this.pixels = pixels;
+	        this.from = from;
+	        this.to = to;
 	    }
-	    return color;
 
+	    @Override
+	    protected void compute()
+	    {
+	        if ( to - from > BAND_COLUMNS )
+	        {
+	            int mid = ( from + to ) >>> 1;
+	            invokeAll( new RasterBand( counts, result, palette, pixels, from, mid ), new RasterBand( counts, result, palette, pixels, mid, to ) );
+	            return;
+	        }
+	        int numSquares = result != null ? result.getNumSquares() : counts.length;
+	        int limit = palette.length - 1;
+	        int[][] columns = new int[ to - from ][];
+	        for ( int i = from; i < to; i++ )
+	        {
+	            if ( result != null )
+	            {
+	                columns[ i - from ] = new int[ numSquares ];
+	                result.getRow( i, columns[ i - from ] );
+	            }
+	            else
+	            {
+	                columns[ i - from ] = counts[ i ];
+	            }
+	        }
+	        for ( int j = 0; j < numSquares; j++ )
+	        {
+	            int row = j * numSquares;
+	            for ( int i = from; i < to; i++ )
+	            {
+	                pixels[ row + i ] = palette[ Math.min( columns[ i - from ][ j ], limit ) ];
+	            }
+	        }
+	    }
 	}
-	
-	
 }
@@ -1,13 +1,33 @@
 package computer;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.rmi.RMISecurityManager;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import api.CacheStats;
 import api.Computer;
+import api.InputBlob;
+import api.InputStore;
+import api.PartialResultListener;
+import api.RejectedTaskException;
+import api.ResultFile;
+import api.ServerStats;
+import api.StreamingTask;
 import api.Task;
+import transport.NioComputerServer;
 
 /**
  * This class enables different tasks to be submitted by the remote clients using its remote reference
@@ -19,31 +39,409 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
+	
+	/** The system property that sets the number of worker threads; it defaults to the number of available processors. */
+	public static final String WORKERS_PROPERTY = "computer.workers";
+	
+	/** The system property that sets the largest number of tasks that can wait for a worker. */
+	public static final String QUEUE_CAPACITY_PROPERTY = "computer.queueCapacity";
+	
+	/** The system property that sets the capacity of the result cache in bytes; 0 disables the cache. */
+	public static final String CACHE_BYTES_PROPERTY = "computer.cacheBytes";
+	
+	/** The system property that sets the number of results per measured result size; 0 disables the measurement. */
+	public static final String SIZE_SAMPLING_PROPERTY = "computer.sizeSamplingInterval";
+	
+	/** The system property that sets the interval in seconds at which main prints the stats of the computer; 0 disables the printing. */
+	public static final String STATS_INTERVAL_PROPERTY = "computer.statsIntervalSeconds";
+	
+	/** The system property that sets the number of parts of a streaming task that are sent to the client in one batch. */
+	public static final String STREAM_BATCH_SIZE_PROPERTY = "computer.streamBatchSize";
+	
+	/** The system property that sets the longest time in milliseconds that a part of a streaming task waits for its batch to fill up. */
+	public static final String STREAM_FLUSH_MILLIS_PROPERTY = "computer.streamFlushMillis";
+	
+	/** The system property that sets the number of parts a splittable task is split into per worker thread; 0, the default, leaves the splitting to the dispatcher. */
+	public static final String LEAVES_PER_WORKER_PROPERTY = "computer.leavesPerWorker";
+	
+	/** The system property that sets the number of minutes after its last use that main deletes a file of the result directory; 0 keeps the files. */
+	public static final String RESULT_RETENTION_MINUTES_PROPERTY = "computer.resultRetentionMinutes";
+	
+	/** The system property that sets the port of the RMI registry that main creates. */
+	public static final String PORT_PROPERTY = "computer.port";
+	
+	/** The default port of the RMI registry. */
+	public static final int DEFAULT_PORT = 1099;
+	
+	/** The system property that sets the port on which main also serves the computer over the binary NIO transport; 0 serves it over RMI only. */
+	public static final String NIO_PORT_PROPERTY = "computer.nioPort";
+	
+	/** The system property that makes main preload the task classes and warm them up before it binds the computer in the registry. */
+	public static final String WARMUP_PROPERTY = "computer.warmup";
+	
+	/** The system property that sets the comma-separated names of the task classes that the warm-up preloads. */
+	public static final String PRELOAD_CLASSES_PROPERTY = "computer.preloadClasses";
+	
+	/** The system property that sets the codebase that the warm-up preloads the task classes from; it defaults to java.rmi.server.codebase. */
+	public static final String PRELOAD_CODEBASE_PROPERTY = "computer.preloadCodebase";
+	
+	/** The system property that sets the longest time in milliseconds that the warm-up executes synthetic tasks for. */
+	public static final String WARMUP_MILLIS_PROPERTY = "computer.warmupMillis";
+	
+	/** The default task classes that the warm-up preloads; the Mandelbrot set and TSP tasks are also executed. */
+	private static final String DEFAULT_PRELOAD_CLASSES = "tasks.MandelbrotSetTask,tasks.CompactMandelbrotSetTask,tasks.EuclideanTspTask";
+	
+	/** The default longest time of the warm-up, in milliseconds. */
+	private static final long DEFAULT_WARMUP_MILLIS = 10000;
+	
+	/** The largest chunk of a result file that is read by a single fetch, in bytes. */
+	private static final int MAX_FETCH_BYTES = 16 << 20;
+	
+	/** The default number of minutes after its last use that a result file is kept. */
+	private static final int DEFAULT_RESULT_RETENTION_MINUTES = 60;
+	
+	/** The default number of results per measured result size. */
+	private static final int DEFAULT_SIZE_SAMPLING_INTERVAL = 16;
+	
+	/** The default interval at which main prints the stats, in seconds. */
+	private static final int DEFAULT_STATS_INTERVAL = 60;
+	
+	/** The default largest number of tasks that can wait for a worker. */
+	private static final int DEFAULT_QUEUE_CAPACITY = 256;
+	
+	/** The default capacity of the result cache, in bytes. */
+	private static final long DEFAULT_CACHE_BYTES = 64L << 20;
+	
+	/** The default number of parts a splittable task is split into per worker thread: none, since the tasks that are split are parallel already. */
+	private static final int DEFAULT_LEAVES_PER_WORKER = 0;
+	
+	/** The default number of parts of a streaming task in a batch. */
+	private static final int DEFAULT_STREAM_BATCH_SIZE = 16;
+	
+	/** The default longest time that a part of a streaming task waits for its batch, in milliseconds. */
+	private static final long DEFAULT_STREAM_FLUSH_MILLIS = 100;
+	
+	/** The time the computer was created, in milliseconds. */
+	private final long startTime = System.currentTimeMillis();
+	
+	/** The metrics of the classes of tasks that the computer executes. */
+	private final ServerMetrics metrics;
+	
+	/** The executor on which all the tasks are executed. */
+	private final TaskExecutor executor;
+	
+	/** The cache of the results of the executed tasks, through which all the tasks are submitted. */
+	private final ResultCache cache;
+	
+	/** The tickets of the tasks submitted in batches whose results have not been collected yet. */
+	private final TicketTable tickets;
+	
+	/** The number of parts of a streaming task in a batch. */
+	private final int streamBatchSize;
+	
+	/** The longest time that a part of a streaming task waits for its batch, in milliseconds. */
+	private final long streamFlushMillis;
 
 	/**
-	 * Instantiates a new implementation object for the Computer Interface
+	 * Instantiates a new implementation object for the Computer Interface, which is configured by the system properties computer.workers, computer.queueCapacity and computer.cacheBytes.
+	 *
+	 * @throws RemoteException the remote exception
+	 */
+	public ComputerImpl() throws RemoteException{
+		this(Integer.getInteger(WORKERS_PROPERTY, Runtime.getRuntime().availableProcessors()), Integer.getInteger(QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY), Long.getLong(CACHE_BYTES_PROPERTY, DEFAULT_CACHE_BYTES));
+	}
+	
+	/**
+	 * Instantiates a new implementation object for the Computer Interface.
+	 * The tasks are executed on a fixed number of worker threads; the tasks that arrive while all of them are busy wait in a bounded queue, highest priority first.
+	 *
+	 * The results are cached, so identical tasks are executed only once while their result stays in the cache.
+	 * A splittable task is executed whole, as it parallelizes itself; with the system property computer.leavesPerWorker, it is split into parts that are executed on all the workers.
 	 *
+	 * @param workers the number of worker threads
+	 * @param queueCapacity the largest number of tasks that can wait for a worker
+	 * @param cacheBytes the capacity of the result cache in bytes; 0 disables the cache
 	 * @throws RemoteException the remote exception
 	 */
-	public ComputerImpl() throws RemoteException{		
+	public ComputerImpl(int workers, int queueCapacity, long cacheBytes) throws RemoteException{
+		metrics = new ServerMetrics(Integer.getInteger(SIZE_SAMPLING_PROPERTY, DEFAULT_SIZE_SAMPLING_INTERVAL));
+		executor = new TaskExecutor(workers, queueCapacity, metrics, Integer.getInteger(LEAVES_PER_WORKER_PROPERTY, DEFAULT_LEAVES_PER_WORKER));
+		cache = new ResultCache(executor, cacheBytes);
+		tickets = new TicketTable(executor, cache);
+		streamBatchSize = Integer.getInteger(STREAM_BATCH_SIZE_PROPERTY, DEFAULT_STREAM_BATCH_SIZE);
+		streamFlushMillis = Long.getLong(STREAM_FLUSH_MILLIS_PROPERTY, DEFAULT_STREAM_FLUSH_MILLIS);
 	}
 
 	/**
 	 * Different tasks can be submitted to this method
 	 * These tasks are run using the task's implementation of the execute method and the results are returned to the remote client.
+	 * The task is executed by a worker thread of the computer rather than by the thread of the remote call, which waits for the result.
 	 *
 	 * @param <T> the generic type
 	 * @param t the Task object
 	 * @return Object the return value of the Task object's execute method
+	 * @throws RejectedTaskException if the queue of waiting tasks is full
 	 * @throws RemoteException the remote exception
 	 */
 	@Override
 	public <T> T execute(Task<T> t) throws RemoteException {
-		return t.execute();
+		Future<T> future = cache.submit(t);
+		try{
+			return future.get();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted while waiting for the task", e);
+		}
+		catch(ExecutionException e){
+			throw unwrap(e);
+		}
+	}
+	
+	/**
+	 * Executes a streaming task on a worker thread, while the thread of the remote call sends the parts of its result to the listener in batches.
+	 * The task bypasses the result cache, since its parts have to be sent to every client that asks for them.
+	 *
+	 * @param <T> the type of the result of the task
+	 * @param <P> the type of the parts
+	 * @param task the task
+	 * @param listener the remote listener that receives the parts
+	 * @return the part of the result that the task did not stream
+	 * @throws RejectedTaskException if the queue of waiting tasks is full
+	 * @throws RemoteException the remote exception, which is also thrown if the listener cannot be called
+	 */
+	@Override
+	public <T, P> T executeStreaming(StreamingTask<T, P> task, PartialResultListener<P> listener) throws RemoteException {
+		StreamingSession<P> session = new StreamingSession<P>(listener, streamBatchSize, streamFlushMillis);
+		Future<T> future = executor.submit(new StreamingSession.StreamingExecution<T, P>(task, session), task);
+		try{
+			return session.deliver(future);
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted while streaming the task", e);
+		}
+		catch(ExecutionException e){
+			throw unwrap(e);
+		}
+	}
+	
+	/**
+	 * Rethrows what a task threw, as if it had run on the thread of the remote call.
+	 *
+	 * @param e the exception of the future of the task
+	 * @return the remote exception that wraps a checked exception
+	 */
+	private static RemoteException unwrap(ExecutionException e){
+		Throwable cause = e.getCause();
+		if(cause instanceof RuntimeException){
+			throw (RuntimeException) cause;
+		}
+		if(cause instanceof Error){
+			throw (Error) cause;
+		}
+		return new RemoteException("The task failed", cause);
+	}
+	
+	/**
+	 * Submits a batch of tasks, which are executed concurrently on the executor of the computer.
+	 *
+	 * @param tasks the tasks
+	 * @return the tickets of the tasks, in the order of the tasks
+	 * @throws RejectedTaskException if the queue of waiting tasks cannot take the batch
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public long[] submit(List<? extends Task<?>> tasks) throws RemoteException {
+		return tickets.submit(tasks);
+	}
+	
+	/**
+	 * Collects the results of the given tickets whose tasks have completed.
+	 *
+	 * @param tickets the tickets
+	 * @return the results of the completed tasks, by ticket
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public Map<Long, Object> poll(long[] tickets) throws RemoteException {
+		return this.tickets.poll(tickets);
+	}
+	
+	/**
+	 * Collects the results of the given tickets, waiting until all of their tasks have completed or the timeout has elapsed.
+	 *
+	 * @param tickets the tickets
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return the results of the completed tasks, by ticket
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public Map<Long, Object> take(long[] tickets, long timeoutMillis) throws RemoteException {
+		return this.tickets.take(tickets, timeoutMillis);
+	}
+	
+	/**
+	 * Asks the tasks of the given tickets to stop; their results are still collected with poll or take.
+	 *
+	 * @param tickets the tickets
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public void cancel(long[] tickets) throws RemoteException {
+		this.tickets.cancel(tickets);
+	}
+	
+	/**
+	 * Reads a chunk of a file in the result directory.
+	 *
+	 * @param name the name of the result file
+	 * @param offset the offset of the chunk in the file
+	 * @param length the largest number of bytes to read; at most 16 MB are read at a time
+	 * @return the bytes read
+	 * @throws RemoteException if there is no such result file or it cannot be read
+	 */
+	@Override
+	public byte[] fetch(String name, long offset, int length) throws RemoteException {
+		if(!ResultFile.isValidName(name) || offset < 0 || length < 0){
+			throw new RemoteException("Invalid chunk of result file " + name + ": offset " + offset + ", length " + length);
+		}
+		File file = new File(ResultFile.getDirectory(), name);
+		if(!file.isFile()){
+			throw new RemoteException("No result file " + name);
+		}
+		file.setLastModified(System.currentTimeMillis()); // a file that is being fetched is in use
+		try{
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try{
+				int size = (int) Math.max(0, Math.min(Math.min(length, MAX_FETCH_BYTES), in.length() - offset));
+				byte[] chunk = new byte[size];
+				in.seek(offset);
+				in.readFully(chunk);
+				return chunk;
+			}
+			finally{
+				in.close();
+			}
+		}
+		catch(IOException e){
+			throw new RemoteException("Cannot read result file " + name, e);
+		}
+	}
+	
+	/**
+	 * Finds the input blobs that are not in the input store of this JVM.
+	 *
+	 * @param hashes the hashes of the blobs
+	 * @return the hashes of the blobs that are not in the store
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public String[] findMissingInputs(String[] hashes) throws RemoteException {
+		return InputStore.missing(hashes);
+	}
+	
+	/**
+	 * Stores input blobs in the input store of this JVM; their hashes were computed again when they were deserialized.
+	 *
+	 * @param inputs the blobs
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public void storeInputs(List<InputBlob> inputs) throws RemoteException {
+		for(InputBlob input : inputs){
+			InputStore.put(input);
+		}
+	}
+	
+	/**
+	 * Gets a snapshot of the counters of the result cache.
+	 *
+	 * @return the cache stats
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public CacheStats getCacheStats() throws RemoteException {
+		return cache.getStats();
+	}
+	
+	/**
+	 * Gets a snapshot of the metrics of the computer.
+	 * The metrics are recorded for each class of tasks that is executed; the tasks answered from the result cache are only counted by the cache.
+	 *
+	 * @return the server stats
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public ServerStats getStats() throws RemoteException {
+		return new ServerStats(System.currentTimeMillis() - startTime, executor.getMaximumPoolSize(), executor.getActiveCount(),
+				executor.getQueue().size(), executor.getQueueCapacity(), metrics.snapshot(), cache.getStats());
+	}
+	
+	/**
+	 * Prints the stats of the computer at a fixed interval, on a daemon thread.
+	 *
+	 * @param intervalSeconds the interval in seconds
+	 */
+	void printStatsEvery(long intervalSeconds){
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "computer-stats");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try{
+					System.out.println("Stats:");
+					System.out.println(getStats());
+				}
+				catch(RemoteException e){
+					// not thrown by a local call
+				}
+			}
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Deletes the files of the result directory that have not been used for some time, at once and every minute after that, on a daemon thread.
+	 * A file is used when it is written, fetched or returned from the result cache.
+	 *
+	 * @param retentionMinutes the number of minutes after its last use that a file is deleted
+	 */
+	void deleteResultFilesAfter(long retentionMinutes){
+		final long retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "computer-results");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				File[] files = ResultFile.getDirectory().listFiles();
+				if(files == null){
+					return;
+				}
+				long cutoff = System.currentTimeMillis() - retentionMillis;
+				for(File file : files){
+					if(file.isFile() && file.lastModified() < cutoff){
+						file.delete();
+					}
+				}
+			}
+		}, 0, 1, TimeUnit.MINUTES);
 	}
 	
 	/**
 	 * The main method.
+	 * With the system property computer.warmup set to true, the task classes are preloaded and warmed up before the computer is bound in the registry.
 	 *
 	 * @param args the arguments
 	 * @throws Exception the exception
@@ -52,11 +450,31 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 		// Construct & set a security manager to allow downloading of classes from a remote codebase
 		System.setSecurityManager(new RMISecurityManager());
 		// instantiate a server object
-		Computer computer = new ComputerImpl(); // can throw RemoteException
-		// construct an rmiregistry within this JVM using the default port
-		Registry registry = LocateRegistry.createRegistry(1099);
+		ComputerImpl computer = new ComputerImpl(); // can throw RemoteException
+		int statsInterval = Integer.getInteger(STATS_INTERVAL_PROPERTY, DEFAULT_STATS_INTERVAL);
+		if(statsInterval > 0){
+			computer.printStatsEvery(statsInterval);
+		}
+		int resultRetention = Integer.getInteger(RESULT_RETENTION_MINUTES_PROPERTY, DEFAULT_RESULT_RETENTION_MINUTES);
+		if(resultRetention > 0){
+			computer.deleteResultFilesAfter(resultRetention);
+		}
+		if(Boolean.getBoolean(WARMUP_PROPERTY)){
+			// the clients can only reach the computer once its first tasks no longer pay for class loading and interpretation
+			TaskWarmer warmer = new TaskWarmer(computer.executor);
+			warmer.preload(System.getProperty(PRELOAD_CODEBASE_PROPERTY, System.getProperty("java.rmi.server.codebase")), System.getProperty(PRELOAD_CLASSES_PROPERTY, DEFAULT_PRELOAD_CLASSES).split(","));
+			warmer.warmUp(Long.getLong(WARMUP_MILLIS_PROPERTY, DEFAULT_WARMUP_MILLIS));
+			System.out.println("Computer " + warmer + ".");
+		}
+		// construct an rmiregistry within this JVM using the default port, unless another one is set
+		Registry registry = LocateRegistry.createRegistry(Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT));
 		// bind server in rmiregistry. 
 		registry.rebind(Computer.SERVICE_NAME, computer);
+		int nioPort = Integer.getInteger(NIO_PORT_PROPERTY, 0);
+		if(nioPort > 0){
+			new NioComputerServer(computer, nioPort);
+			System.out.println("Computer is also served over NIO on port " + nioPort + ".");
+		}
 		System.out.println("Computer is ready to execute tasks.");
 	}
 	
@@ -0,0 +1,22 @@
+package computer;
+
+import java.io.OutputStream;
+
+/**
+ * This class is an output stream that only counts the bytes written to it; it is used to measure the serialized size of objects without keeping their bytes.
+ */
+final class CountingOutputStream extends OutputStream {
+
+	/** The number of bytes written. */
+	long count;
+
+	@Override
+	public void write(int b) {
+		count++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		count += len;
+	}
+}
@@ -0,0 +1,873 @@
+package computer;
+
+import java.io.ObjectStreamException;
+import java.rmi.ConnectException;
+import java.rmi.ConnectIOException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.RMISecurityManager;
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.CacheStats;
+import api.Computer;
+import api.InputBlob;
+import api.InputStore;
+import api.PartialResultListener;
+import api.PrioritizedTask;
+import api.RejectedTaskException;
+import api.ResultFile;
+import api.ServerStats;
+import api.StreamingTask;
+import api.Task;
+import api.TaskException;
+import api.TaskTypeStats;
+
+/**
+ * This class is a computer that executes no tasks itself but dispatches them to several other computers, so that the clients see the capacity of all of them behind a single remote reference.
+ * <ul>
+ * <li>Each task goes to the computer with the least expected wait: the number of tasks it is executing for the dispatcher, plus one, times the moving average of the time it took to execute a task.</li>
+ * <li>A splittable task is split into two parts per computer, which are dispatched like separate tasks and whose results are merged by the dispatcher.</li>
+ * <li>A task that a computer rejects because its queue is full is tried on the next computer. A computer that cannot be reached is left out for a few seconds and its task is executed on another computer; the tasks are expected to have no side effects, so executing one twice is harmless.</li>
+ * <li>A batch is split across the computers in proportion to their expected wait, and its tickets are mapped to the tickets of the computers.</li>
+ * <li>The result files are fetched from the computer that wrote them.</li>
+ * <li>The input blobs are stored on the dispatcher, which splits the tasks that refer to them, and on every computer that misses them.</li>
+ * </ul>
+ * A streaming task is tried on another computer only if the first one could not be reached at all, since its listener may already have received parts.
+ */
+public final class Dispatcher extends UnicastRemoteObject implements Computer{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The time for which a computer that could not be reached is left out, in milliseconds. */
+	private static final long RETRY_AFTER_MILLIS = 5000;
+
+	/** The weight of the latest execution time in the moving average of a computer. */
+	private static final double LATENCY_WEIGHT = 0.2;
+
+	/** The largest number of result files whose computer is remembered. */
+	private static final int MAX_RESULT_FILES = 1024;
+
+	/** The number of parts a splittable task is split into per computer, so that a slow computer can be made up for by the others. */
+	private static final int LEAVES_PER_COMPUTER = 2;
+
+	/** The time the dispatcher was created, in milliseconds. */
+	private final long startTime = System.currentTimeMillis();
+
+	/** The computers. */
+	private final Node[] nodes;
+
+	/** The index from which the next search for the least loaded computer starts, so that ties are spread over the computers. */
+	private final AtomicInteger nextNode = new AtomicInteger();
+
+	/** The computer and the ticket on that computer of every dispatched ticket whose result has not been collected yet. */
+	private final Map<Long, Placement> placements = new ConcurrentHashMap<Long, Placement>();
+
+	/** The last ticket that was handed out. */
+	private final AtomicLong lastTicket = new AtomicLong();
+
+	/** The threads that wait for the parts of the split tasks. */
+	private final ExecutorService splitter = Executors.newCachedThreadPool(new ThreadFactory() {
+
+		/** The number of threads created so far. */
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "dispatcher-splitter-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** The computers that wrote the most recent result files, by file name. */
+	private final Map<String, Node> resultFiles = new LinkedHashMap<String, Node>(16, 0.75f, true){
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Node> eldest) {
+			return size() > MAX_RESULT_FILES;
+		}
+	};
+
+	/**
+	 * Instantiates a new dispatcher.
+	 *
+	 * @param computers the remote references of the computers
+	 * @param names the names of the computers, such as their addresses, which are used in the messages
+	 * @throws RemoteException the remote exception
+	 */
+	public Dispatcher(List<Computer> computers, List<String> names) throws RemoteException{
+		if(computers.isEmpty()){
+			throw new IllegalArgumentException("A dispatcher needs at least one computer");
+		}
+		nodes = new Node[computers.size()];
+		for(int i = 0; i < nodes.length; i++){
+			nodes[i] = new Node(i, computers.get(i), names.get(i));
+		}
+	}
+
+	/**
+	 * Looks up the computer bound in the RMI registry at the given address.
+	 *
+	 * @param address the address of the registry, as host:port or host for the default port
+	 * @return the remote reference of the computer
+	 * @throws RemoteException the remote exception
+	 * @throws NotBoundException if no computer is bound in the registry
+	 */
+	public static Computer lookup(String address) throws RemoteException, NotBoundException{
+		int colon = address.lastIndexOf(':');
+		String host = colon < 0 ? address : address.substring(0, colon);
+		int port = colon < 0 ? ComputerImpl.DEFAULT_PORT : Integer.parseInt(address.substring(colon + 1));
+		return (Computer) LocateRegistry.getRegistry(host, port).lookup(Computer.SERVICE_NAME);
+	}
+
+	/**
+	 * Executes a task on the least loaded computer, or splits it over the computers if it is a splittable task.
+	 *
+	 * @param <T> the generic type
+	 * @param t the Task object
+	 * @return Object the return value of the Task object's execute method
+	 * @throws RejectedTaskException if every computer rejected the task or a part of it
+	 * @throws RemoteException the remote exception of the task, or of the last computer if none could be reached
+	 */
+	@Override
+	public <T> T execute(Task<T> t) throws RemoteException {
+		if(nodes.length > 1){
+			TaskDecomposer.Piece<T> tree = TaskDecomposer.plan(TaskDecomposer.unwrap(t), nodes.length * LEAVES_PER_COMPUTER);
+			if(tree.children != null){
+				return evaluate(tree, PrioritizedTask.getPriority(t));
+			}
+		}
+		return dispatch(t);
+	}
+
+	/**
+	 * Executes a piece of a split task: a leaf is dispatched with the priority of the task, and the results of the children of the other pieces are merged.
+	 * The first child is evaluated by the current thread and the others by the splitter threads.
+	 *
+	 * @param <T> the generic type
+	 * @param piece the piece
+	 * @param priority the priority of the task
+	 * @return the result of the piece
+	 * @throws RemoteException the remote exception of the first part that failed
+	 */
+	private <T> T evaluate(TaskDecomposer.Piece<T> piece, final int priority) throws RemoteException {
+		if(piece.children == null){
+			return dispatch(priority == PrioritizedTask.DEFAULT_PRIORITY ? piece.task : new PrioritizedTask<T>(piece.task, priority));
+		}
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		try{
+			for(final TaskDecomposer.Piece<T> child : piece.children.subList(1, piece.children.size())){
+				futures.add(splitter.submit(new Callable<T>() {
+					@Override
+					public T call() throws RemoteException {
+						return evaluate(child, priority);
+					}
+				}));
+			}
+			List<T> results = new ArrayList<T>(piece.children.size());
+			results.add(evaluate(piece.children.get(0), priority));
+			for(Future<T> future : futures){
+				results.add(future.get());
+			}
+			return piece.merge(results);
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted while waiting for the parts of a task", e);
+		}
+		catch(ExecutionException e){
+			Throwable cause = e.getCause();
+			if(cause instanceof RemoteException){
+				throw (RemoteException) cause;
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new RemoteException("A part of the task failed", cause);
+		}
+		finally{
+			for(Future<T> future : futures){
+				future.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Executes a task as a whole on the least loaded computer, trying the others if it is rejected or the computer cannot be reached.
+	 *
+	 * @param <T> the generic type
+	 * @param t the task
+	 * @return the result of the task
+	 * @throws RejectedTaskException if every computer rejected the task
+	 * @throws RemoteException the remote exception of the task, or of the last computer if none could be reached
+	 */
+	private <T> T dispatch(Task<T> t) throws RemoteException {
+		boolean[] tried = new boolean[nodes.length];
+		RemoteException failure = null;
+		for(int attempt = 0; attempt < nodes.length; attempt++){
+			Node node = choose(tried);
+			tried[node.index] = true;
+			long start = System.nanoTime();
+			node.inFlight.incrementAndGet();
+			try{
+				T result = node.computer.execute(t);
+				node.executed(System.nanoTime() - start);
+				if(result instanceof ResultFile){
+					rememberResultFile((ResultFile) result, node);
+				}
+				return result;
+			}
+			catch(RemoteException e){
+				failure = handle(node, e, false);
+			}
+			finally{
+				node.inFlight.decrementAndGet();
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * Executes a streaming task on the least loaded computer, which sends the parts straight to the listener.
+	 *
+	 * @param <T> the type of the result of the task
+	 * @param <P> the type of the parts
+	 * @param task the task
+	 * @param listener the remote listener that receives the parts
+	 * @return the part of the result that the task did not stream
+	 * @throws RejectedTaskException if every computer rejected the task
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public <T, P> T executeStreaming(StreamingTask<T, P> task, PartialResultListener<P> listener) throws RemoteException {
+		boolean[] tried = new boolean[nodes.length];
+		RemoteException failure = null;
+		for(int attempt = 0; attempt < nodes.length; attempt++){
+			Node node = choose(tried);
+			tried[node.index] = true;
+			long start = System.nanoTime();
+			node.inFlight.incrementAndGet();
+			try{
+				T result = node.computer.executeStreaming(task, listener);
+				node.executed(System.nanoTime() - start);
+				return result;
+			}
+			catch(RemoteException e){
+				failure = handle(node, e, true);
+			}
+			finally{
+				node.inFlight.decrementAndGet();
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * Decides what to do about a computer that threw an exception: a rejection or a failure to reach the computer is returned so that the task is tried on the next computer, and any other exception is thrown on to the client.
+	 *
+	 * @param node the computer
+	 * @param e the exception
+	 * @param onlyUnreached whether the task may be tried again only if it never reached the computer
+	 * @return the exception to throw if no other computer executes the task
+	 * @throws RemoteException the exception of the task, as the computer would have thrown it to the client
+	 */
+	private RemoteException handle(Node node, RemoteException e, boolean onlyUnreached) throws RemoteException{
+		Throwable cause = e.getCause();
+		if(e instanceof ServerException){ // the computer threw the remote exception itself
+			if(cause instanceof RejectedTaskException){
+				return new RejectedTaskException("All " + nodes.length + " computers are busy: " + cause.getMessage());
+			}
+			throw cause instanceof RemoteException ? (RemoteException) cause : e;
+		}
+		if(cause instanceof ObjectStreamException || cause instanceof ClassNotFoundException){
+			throw e; // the task or its result cannot be serialized, which no other computer would change
+		}
+		boolean unreached = e instanceof ConnectException || e instanceof ConnectIOException || e instanceof NoSuchObjectException;
+		if(onlyUnreached && !unreached){
+			throw e;
+		}
+		node.failed();
+		return e;
+	}
+
+	/**
+	 * Chooses the computer with the least expected wait among the ones that were not tried yet, preferring the ones that were not left out after a failure.
+	 *
+	 * @param tried whether each computer was tried already
+	 * @return the computer
+	 */
+	private Node choose(boolean[] tried){
+		long now = System.currentTimeMillis();
+		int start = (nextNode.getAndIncrement() & Integer.MAX_VALUE) % nodes.length;
+		Node best = null;
+		double bestWait = Double.MAX_VALUE;
+		boolean bestUp = false;
+		for(int i = 0; i < nodes.length; i++){
+			Node node = nodes[(start + i) % nodes.length];
+			if(tried[node.index]){
+				continue;
+			}
+			boolean up = node.downUntil <= now;
+			double wait = node.expectedWait(0);
+			if(best == null || (up && !bestUp) || (up == bestUp && wait < bestWait)){
+				best = node;
+				bestWait = wait;
+				bestUp = up;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Remembers the computer that wrote a result file.
+	 *
+	 * @param file the result file
+	 * @param node the computer
+	 */
+	private void rememberResultFile(ResultFile file, Node node){
+		synchronized(resultFiles){
+			resultFiles.put(file.getName(), node);
+		}
+	}
+
+	/**
+	 * Splits a batch across the computers, assigning each task to the computer with the least expected wait counting the tasks of the batch already assigned to it.
+	 * A part of the batch that its computer rejects or that cannot be delivered is tried on the other computers; if none takes it, the batch is rejected and the tickets of the parts already submitted are dropped.
+	 *
+	 * @param tasks the tasks
+	 * @return the tickets of the tasks, in the order of the tasks
+	 * @throws RejectedTaskException if the computers cannot take the batch
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public long[] submit(List<? extends Task<?>> tasks) throws RemoteException {
+		int[] assigned = new int[nodes.length];
+		List<List<Task<?>>> parts = new ArrayList<List<Task<?>>>();
+		List<List<Integer>> indices = new ArrayList<List<Integer>>();
+		for(int i = 0; i < nodes.length; i++){
+			parts.add(new ArrayList<Task<?>>());
+			indices.add(new ArrayList<Integer>());
+		}
+		long now = System.currentTimeMillis();
+		for(int t = 0; t < tasks.size(); t++){
+			int best = -1;
+			double bestWait = Double.MAX_VALUE;
+			for(int i = 0; i < nodes.length; i++){
+				double wait = nodes[i].expectedWait(assigned[i]);
+				if(nodes[i].downUntil > now){
+					wait += Double.MAX_VALUE / 2;
+				}
+				if(wait < bestWait){
+					best = i;
+					bestWait = wait;
+				}
+			}
+			assigned[best]++;
+			parts.get(best).add(tasks.get(t));
+			indices.get(best).add(t);
+		}
+		long[] tickets = new long[tasks.size()];
+		List<Long> submitted = new ArrayList<Long>();
+		for(int i = 0; i < nodes.length; i++){
+			if(parts.get(i).isEmpty()){
+				continue;
+			}
+			boolean[] tried = new boolean[nodes.length];
+			Node node = nodes[i];
+			RemoteException failure = null;
+			for(int attempt = 0; attempt < nodes.length; attempt++){
+				tried[node.index] = true;
+				try{
+					long[] nodeTickets = node.computer.submit(parts.get(i));
+					node.inFlight.addAndGet(nodeTickets.length);
+					for(int j = 0; j < nodeTickets.length; j++){
+						long ticket = lastTicket.incrementAndGet();
+						placements.put(ticket, new Placement(node, nodeTickets[j]));
+						tickets[indices.get(i).get(j)] = ticket;
+						submitted.add(ticket);
+					}
+					failure = null;
+					break;
+				}
+				catch(RemoteException e){
+					try{
+						failure = handle(node, e, false);
+					}
+					catch(RemoteException thrown){
+						failure = thrown;
+						break;
+					}
+				}
+				node = choose(tried);
+			}
+			if(failure != null){
+				for(Long ticket : submitted){
+					abandon(ticket);
+				}
+				throw failure;
+			}
+		}
+		return tickets;
+	}
+
+	/**
+	 * Drops a ticket whose result will not be collected; its computer is asked for the result with the next poll or take that goes to it, so that the computer can forget the ticket.
+	 *
+	 * @param ticket the ticket
+	 */
+	private void abandon(long ticket){
+		Placement placement = placements.remove(ticket);
+		if(placement != null){
+			placement.node.abandoned.add(placement.ticket);
+		}
+	}
+
+	/**
+	 * Collects the results of the given tickets whose tasks have completed, asking each computer for the results of its tickets.
+	 * If a computer cannot be reached, the results of its tickets are TaskExceptions.
+	 *
+	 * @param tickets the tickets
+	 * @return the results of the completed tasks, by ticket
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public Map<Long, Object> poll(long[] tickets) throws RemoteException {
+		return collect(tickets, -1);
+	}
+
+	/**
+	 * Collects the results of the given tickets, waiting until all of their tasks have completed or the timeout has elapsed.
+	 * The computers are asked one after the other, each for as long as is left of the timeout.
+	 *
+	 * @param tickets the tickets
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return the results of the completed tasks, by ticket
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public Map<Long, Object> take(long[] tickets, long timeoutMillis) throws RemoteException {
+		return collect(tickets, Math.max(0, timeoutMillis));
+	}
+
+	/**
+	 * Collects the results of the given tickets from their computers.
+	 *
+	 * @param tickets the tickets
+	 * @param timeoutMillis the longest time to wait, in milliseconds, or -1 to poll
+	 * @return the results of the completed tasks, by ticket
+	 * @throws RemoteException the remote exception
+	 */
+	private Map<Long, Object> collect(long[] tickets, long timeoutMillis) throws RemoteException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		Map<Node, Map<Long, Long>> byNode = new LinkedHashMap<Node, Map<Long, Long>>();
+		for(long ticket : tickets){
+			Placement placement = placements.get(ticket);
+			if(placement == null){
+				continue;
+			}
+			Map<Long, Long> nodeTickets = byNode.get(placement.node);
+			if(nodeTickets == null){
+				nodeTickets = new HashMap<Long, Long>();
+				byNode.put(placement.node, nodeTickets);
+			}
+			nodeTickets.put(placement.ticket, ticket);
+		}
+		Map<Long, Object> results = new HashMap<Long, Object>();
+		for(Map.Entry<Node, Map<Long, Long>> entry : byNode.entrySet()){
+			Node node = entry.getKey();
+			Map<Long, Long> nodeTickets = entry.getValue();
+			long[] ids = new long[nodeTickets.size()];
+			int n = 0;
+			for(Long id : nodeTickets.keySet()){
+				ids[n++] = id;
+			}
+			Map<Long, Object> nodeResults;
+			try{
+				nodeResults = timeoutMillis < 0 ? node.computer.poll(ids) : node.computer.take(ids, Math.max(0, deadline - System.currentTimeMillis()));
+			}
+			catch(RemoteException e){
+				if(e instanceof ServerException){
+					throw e;
+				}
+				node.failed();
+				nodeResults = new HashMap<Long, Object>();
+				for(long id : ids){
+					nodeResults.put(id, new TaskException("The computer " + node.name + " cannot be reached", e));
+				}
+			}
+			for(Map.Entry<Long, Object> result : nodeResults.entrySet()){
+				Long ticket = nodeTickets.get(result.getKey());
+				if(ticket != null && placements.remove(ticket) != null){
+					node.inFlight.decrementAndGet();
+					results.put(ticket, result.getValue());
+				}
+			}
+			collectAbandoned(node);
+		}
+		return results;
+	}
+
+	/**
+	 * Asks the tasks of the given tickets to stop, asking each computer to cancel its tickets.
+	 * The computers that cannot be reached are skipped, since the results of their tickets are lost anyway.
+	 *
+	 * @param tickets the tickets
+	 * @throws RemoteException the remote exception
+	 */
+	@Override
+	public void cancel(long[] tickets) throws RemoteException {
+		Map<Node, List<Long>> byNode = new LinkedHashMap<Node, List<Long>>();
+		for(long ticket : tickets){
+			Placement placement = placements.get(ticket);
+			if(placement == null){
+				continue;
+			}
+			List<Long> nodeTickets = byNode.get(placement.node);
+			if(nodeTickets == null){
+				nodeTickets = new ArrayList<Long>();
+				byNode.put(placement.node, nodeTickets);
+			}
+			nodeTickets.add(placement.ticket);
+		}
+		for(Map.Entry<Node, List<Long>> entry : byNode.entrySet()){
+			Node node = entry.getKey();
+			long[] ids = new long[entry.getValue().size()];
+			for(int i = 0; i < ids.length; i++){
+				ids[i] = entry.getValue().get(i);
+			}
+			try{
+				node.computer.cancel(ids);
+			}
+			catch(RemoteException e){
+				if(e instanceof ServerException){
+					throw e;
+				}
+				node.failed();
+			}
+		}
+	}
+
+	/**
+	 * Polls a computer for the results of its abandoned tickets and drops them, so that the computer forgets the tickets whose tasks have completed.
+	 *
+	 * @param node the computer
+	 */
+	private void collectAbandoned(Node node){
+		List<Long> abandoned = new ArrayList<Long>();
+		for(Long ticket; (ticket = node.abandoned.poll()) != null; ){
+			abandoned.add(ticket);
+		}
+		if(abandoned.isEmpty()){
+			return;
+		}
+		long[] ids = new long[abandoned.size()];
+		for(int i = 0; i < ids.length; i++){
+			ids[i] = abandoned.get(i);
+		}
+		try{
+			Map<Long, Object> collected = node.computer.poll(ids);
+			node.inFlight.addAndGet(-collected.size());
+			for(long id : ids){
+				if(!collected.containsKey(id)){
+					node.abandoned.add(id);
+				}
+			}
+		}
+		catch(RemoteException e){
+			// the computer has failed; its tickets are lost with it
+		}
+	}
+
+	/**
+	 * Reads a chunk of a result file from the computer that wrote it, or from the first computer that has it if the file is not remembered.
+	 *
+	 * @param name the name of the result file
+	 * @param offset the offset of the chunk in the file
+	 * @param length the largest number of bytes to read
+	 * @return the bytes read
+	 * @throws RemoteException if no computer has the result file or it cannot be read
+	 */
+	@Override
+	public byte[] fetch(String name, long offset, int length) throws RemoteException {
+		Node owner;
+		synchronized(resultFiles){
+			owner = resultFiles.get(name);
+		}
+		if(owner != null){
+			return owner.computer.fetch(name, offset, length);
+		}
+		for(Node node : nodes){
+			try{
+				byte[] chunk = node.computer.fetch(name, offset, length);
+				synchronized(resultFiles){
+					resultFiles.put(name, node);
+				}
+				return chunk;
+			}
+			catch(RemoteException e){
+				// another computer may have it
+			}
+		}
+		throw new RemoteException("No result file " + name + " on any of the " + nodes.length + " computers");
+	}
+
+	/**
+	 * Finds the input blobs that are missing on the dispatcher or on any of the computers that can be reached.
+	 *
+	 * @param hashes the hashes of the blobs
+	 * @return the hashes of the blobs that are missing somewhere
+	 * @throws RemoteException the remote exception of the last computer, if none could be reached
+	 */
+	@Override
+	public String[] findMissingInputs(String[] hashes) throws RemoteException {
+		Set<String> missing = new LinkedHashSet<String>(Arrays.asList(InputStore.missing(hashes)));
+		RemoteException failure = null;
+		boolean reached = false;
+		for(Node node : nodes){
+			try{
+				missing.addAll(Arrays.asList(node.computer.findMissingInputs(hashes)));
+				reached = true;
+			}
+			catch(RemoteException e){
+				failure = e;
+			}
+		}
+		if(!reached){
+			throw failure;
+		}
+		return missing.toArray(new String[missing.size()]);
+	}
+
+	/**
+	 * Stores input blobs on the dispatcher and uploads them to the computers that miss them.
+	 * A computer that cannot be reached is skipped; its tasks will fail with a MissingInputException until the client uploads the blobs again.
+	 *
+	 * @param inputs the blobs
+	 * @throws RemoteException the remote exception of the last computer, if none could be reached
+	 */
+	@Override
+	public void storeInputs(List<InputBlob> inputs) throws RemoteException {
+		for(InputBlob input : inputs){
+			InputStore.put(input);
+		}
+		InputBlob[] blobs = inputs.toArray(new InputBlob[inputs.size()]);
+		RemoteException failure = null;
+		boolean reached = false;
+		for(Node node : nodes){
+			try{
+				InputStore.upload(node.computer, blobs);
+				reached = true;
+			}
+			catch(RemoteException e){
+				failure = e;
+			}
+		}
+		if(!reached){
+			throw failure;
+		}
+	}
+
+	/**
+	 * Gets the counters of the caches of the computers that can be reached, added up.
+	 *
+	 * @return the cache stats
+	 * @throws RemoteException if no computer can be reached
+	 */
+	@Override
+	public CacheStats getCacheStats() throws RemoteException {
+		CacheStats merged = null;
+		RemoteException failure = null;
+		for(Node node : nodes){
+			try{
+				CacheStats stats = node.computer.getCacheStats();
+				merged = merged == null ? stats : merged.merge(stats);
+			}
+			catch(RemoteException e){
+				failure = e;
+			}
+		}
+		if(merged == null){
+			throw failure;
+		}
+		return merged;
+	}
+
+	/**
+	 * Gets the metrics of the computers that can be reached, added up as if they were one computer with all of their workers; the uptime is that of the dispatcher.
+	 *
+	 * @return the server stats
+	 * @throws RemoteException if no computer can be reached
+	 */
+	@Override
+	public ServerStats getStats() throws RemoteException {
+		int workers = 0, activeWorkers = 0, queueSize = 0, queueCapacity = 0;
+		Map<String, TaskTypeStats> taskTypes = new LinkedHashMap<String, TaskTypeStats>();
+		CacheStats cache = null;
+		RemoteException failure = null;
+		for(Node node : nodes){
+			ServerStats stats;
+			try{
+				stats = node.computer.getStats();
+			}
+			catch(RemoteException e){
+				failure = e;
+				continue;
+			}
+			workers += stats.getWorkers();
+			activeWorkers += stats.getActiveWorkers();
+			queueSize += stats.getQueueSize();
+			queueCapacity += stats.getQueueCapacity();
+			for(TaskTypeStats type : stats.getTaskTypes().values()){
+				TaskTypeStats merged = taskTypes.get(type.getTaskType());
+				taskTypes.put(type.getTaskType(), merged == null ? type : merged.merge(type));
+			}
+			cache = cache == null ? stats.getCache() : cache.merge(stats.getCache());
+		}
+		if(cache == null){
+			throw failure;
+		}
+		return new ServerStats(System.currentTimeMillis() - startTime, workers, activeWorkers, queueSize, queueCapacity, taskTypes, cache);
+	}
+
+	/**
+	 * A computer behind the dispatcher, with the load that the dispatcher has put on it.
+	 */
+	private static final class Node {
+
+		/** The index of the computer. */
+		final int index;
+
+		/** The remote reference of the computer. */
+		final Computer computer;
+
+		/** The name of the computer. */
+		final String name;
+
+		/** The number of tasks of the dispatcher that the computer is executing or holding the results of. */
+		final AtomicInteger inFlight = new AtomicInteger();
+
+		/** The tickets on the computer whose results will not be collected. */
+		final ConcurrentLinkedQueue<Long> abandoned = new ConcurrentLinkedQueue<Long>();
+
+		/** The moving average of the time the computer took to execute a task, in nanoseconds; 0 until it has executed one. */
+		volatile double latency;
+
+		/** The time until which the computer is left out after a failure, in milliseconds. */
+		volatile long downUntil;
+
+		/**
+		 * Instantiates a new node.
+		 *
+		 * @param index the index of the computer
+		 * @param computer the remote reference of the computer
+		 * @param name the name of the computer
+		 */
+		Node(int index, Computer computer, String name){
+			this.index = index;
+			this.computer = computer;
+			this.name = name;
+		}
+
+		/**
+		 * Gets the expected wait of one more task on the computer; a computer that has not executed a task yet is expected to be fast, so that it is tried.
+		 *
+		 * @param extra the number of tasks that are about to be given to the computer, besides the ones in flight
+		 * @return the expected wait, in nanoseconds
+		 */
+		double expectedWait(int extra){
+			return (inFlight.get() + extra + 1) * Math.max(latency, 1);
+		}
+
+		/**
+		 * Records the time the computer took to execute a task.
+		 *
+		 * @param nanos the time, in nanoseconds
+		 */
+		void executed(long nanos){
+			double previous = latency;
+			latency = previous == 0 ? nanos : previous + LATENCY_WEIGHT * (nanos - previous);
+			downUntil = 0;
+		}
+
+		/**
+		 * Leaves the computer out for a while after it could not be reached.
+		 */
+		void failed(){
+			downUntil = System.currentTimeMillis() + RETRY_AFTER_MILLIS;
+		}
+	}
+
+	/**
+	 * The computer and the ticket on that computer of a dispatched ticket.
+	 */
+	private static final class Placement {
+
+		/** The computer. */
+		final Node node;
+
+		/** The ticket on the computer. */
+		final long ticket;
+
+		/**
+		 * Instantiates a new placement.
+		 *
+		 * @param node the computer
+		 * @param ticket the ticket on the computer
+		 */
+		Placement(Node node, long ticket){
+			this.node = node;
+			this.ticket = ticket;
+		}
+	}
+
+	/**
+	 * The main method.
+	 * Usage: Dispatcher host:port ...; the dispatcher binds itself in an RMI registry that it creates on the port set by the system property computer.port (1099 by default).
+	 *
+	 * @param args the addresses of the registries of the computers
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		// Construct & set a security manager to allow downloading of classes from a remote codebase
+		System.setSecurityManager(new RMISecurityManager());
+		List<Computer> computers = new ArrayList<Computer>();
+		List<String> names = new ArrayList<String>();
+		for(String address : args){
+			computers.add(lookup(address));
+			names.add(address);
+		}
+		Dispatcher dispatcher = new Dispatcher(computers, names);
+		Registry registry = LocateRegistry.createRegistry(Integer.getInteger(ComputerImpl.PORT_PROPERTY, ComputerImpl.DEFAULT_PORT));
+		registry.rebind(Computer.SERVICE_NAME, dispatcher);
+		System.out.println("Dispatcher is ready to execute tasks on " + computers.size() + " computers.");
+	}
+}
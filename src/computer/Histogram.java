@@ -0,0 +1,53 @@
+package computer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import api.HistogramSnapshot;
+
+/**
+ * This class records values into the log-linear buckets of a HistogramSnapshot.
+ * Recording a value only updates a few atomic counters, so it does not allocate and does not lock; the snapshot is taken without stopping the recording, so it may be off by the values recorded while it is taken.
+ */
+final class Histogram {
+
+	/** The number of values in each bucket. */
+	private final AtomicLongArray counts = new AtomicLongArray(HistogramSnapshot.NUM_BUCKETS);
+
+	/** The number of values. */
+	private final AtomicLong count = new AtomicLong();
+
+	/** The sum of the values. */
+	private final AtomicLong sum = new AtomicLong();
+
+	/** The largest value. */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value the value
+	 */
+	void record(long value){
+		counts.incrementAndGet(HistogramSnapshot.bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current;
+		while(value > (current = max.get()) && !max.compareAndSet(current, value));
+	}
+
+	/**
+	 * Takes a snapshot of the histogram.
+	 *
+	 * @return the snapshot
+	 */
+	HistogramSnapshot snapshot(){
+		long[] copy = new long[counts.length()];
+		long total = 0;
+		for(int i = 0; i < copy.length; i++){
+			copy[i] = counts.get(i);
+			total += copy[i];
+		}
+		return new HistogramSnapshot(copy, total, sum.get(), max.get());
+	}
+}
@@ -0,0 +1,150 @@
+package computer;
+
+import java.io.File;
+import java.rmi.NotBoundException;
+import java.rmi.RMISecurityManager;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
+
+import api.Computer;
+import transport.NioComputerServer;
+
+/**
+ * This class starts several computers on this machine, each in a JVM of its own with a registry on its own port, and a dispatcher in front of them, so that the scaling of the dispatcher can be tested on one machine.
+ * The computers run with the class path of this JVM and get the system properties of this JVM that configure computers and RMI; the dispatcher binds itself on the usual port, so the clients do not change.
+ * The NIO port of ComputerImpl is not passed on: if it is set, the dispatcher is served on it.
+ * The computers are stopped when this JVM exits.
+ */
+public final class LocalCluster {
+
+	/** The system property that sets the port of the registry of the first computer; the others follow it. */
+	public static final String FIRST_PORT_PROPERTY = "cluster.firstPort";
+
+	/** The default port of the registry of the first computer. */
+	private static final int DEFAULT_FIRST_PORT = 1100;
+
+	/** The longest time to wait for a computer to bind itself, in milliseconds. */
+	private static final long STARTUP_TIMEOUT_MILLIS = 30000;
+
+	/** The prefixes of the system properties that are passed on to the computers. */
+	private static final String[] PASSED_PROPERTIES = { "computer.", "java.rmi.", "java.security.", "tasks." };
+
+	/**
+	 * Instantiates a new local cluster; it is never instantiated.
+	 */
+	private LocalCluster(){
+	}
+
+	/**
+	 * Starts a computer in a new JVM.
+	 *
+	 * @param port the port of the registry of the computer
+	 * @return the process of the JVM
+	 * @throws Exception if the JVM cannot be started
+	 */
+	private static Process startComputer(int port) throws Exception {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		for(String name : System.getProperties().stringPropertyNames()){
+			for(String prefix : PASSED_PROPERTIES){
+				if(name.startsWith(prefix) && !name.equals(ComputerImpl.PORT_PROPERTY) && !name.equals(ComputerImpl.NIO_PORT_PROPERTY)){
+					command.add("-D" + name + "=" + System.getProperty(name));
+				}
+			}
+		}
+		command.add("-D" + ComputerImpl.PORT_PROPERTY + "=" + port);
+		command.add(ComputerImpl.class.getName());
+		return new ProcessBuilder(command).inheritIO().start();
+	}
+
+	/**
+	 * Waits until a computer has bound itself in its registry.
+	 *
+	 * @param port the port of the registry of the computer
+	 * @param process the process of the computer
+	 * @return the remote reference of the computer
+	 * @throws Exception if the computer exits or does not bind itself in time
+	 */
+	private static Computer awaitComputer(int port, Process process) throws Exception {
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+		while(true){
+			try{
+				return Dispatcher.lookup("localhost:" + port);
+			}
+			catch(RemoteException e){
+				// the registry is not up yet
+			}
+			catch(NotBoundException e){
+				// the computer is not bound yet
+			}
+			if(hasExited(process)){
+				throw new IllegalStateException("The computer on port " + port + " exited with status " + process.exitValue());
+			}
+			if(System.currentTimeMillis() > deadline){
+				throw new IllegalStateException("The computer on port " + port + " did not start in " + STARTUP_TIMEOUT_MILLIS + " ms");
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	/**
+	 * Tells whether a process has exited.
+	 *
+	 * @param process the process
+	 * @return true if the process has exited
+	 */
+	private static boolean hasExited(Process process){
+		try{
+			process.exitValue();
+			return true;
+		}
+		catch(IllegalThreadStateException e){
+			return false;
+		}
+	}
+
+	/**
+	 * The main method.
+	 * Usage: LocalCluster [numComputers]; numComputers is 2 by default.
+	 *
+	 * @param args the arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		// Construct & set a security manager to allow downloading of classes from a remote codebase
+		System.setSecurityManager(new RMISecurityManager());
+		int numComputers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		int firstPort = Integer.getInteger(FIRST_PORT_PROPERTY, DEFAULT_FIRST_PORT);
+		final List<Process> processes = new ArrayList<Process>();
+		Runtime.getRuntime().addShutdownHook(new Thread("cluster-shutdown") {
+			@Override
+			public void run() {
+				for(Process process : processes){
+					process.destroy();
+				}
+			}
+		});
+		for(int i = 0; i < numComputers; i++){
+			processes.add(startComputer(firstPort + i));
+		}
+		List<Computer> computers = new ArrayList<Computer>();
+		List<String> names = new ArrayList<String>();
+		for(int i = 0; i < numComputers; i++){
+			computers.add(awaitComputer(firstPort + i, processes.get(i)));
+			names.add("localhost:" + (firstPort + i));
+		}
+		Dispatcher dispatcher = new Dispatcher(computers, names);
+		Registry registry = LocateRegistry.createRegistry(Integer.getInteger(ComputerImpl.PORT_PROPERTY, ComputerImpl.DEFAULT_PORT));
+		registry.rebind(Computer.SERVICE_NAME, dispatcher);
+		int nioPort = Integer.getInteger(ComputerImpl.NIO_PORT_PROPERTY, 0);
+		if(nioPort > 0){
+			new NioComputerServer(dispatcher, nioPort);
+		}
+		System.out.println("Dispatcher is ready to execute tasks on " + numComputers + " local computers.");
+	}
+}
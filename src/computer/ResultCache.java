@@ -0,0 +1,441 @@
+package computer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.BestEffortResult;
+import api.CacheStats;
+import api.Cancellation;
+import api.PrioritizedTask;
+import api.RejectedTaskException;
+import api.ResultFile;
+import api.Task;
+import api.TimeDependentTask;
+
+/**
+ * This class caches the results of the tasks executed by the computer, so that identical tasks are executed only once.
+ * A task is identified by the SHA-256 digest of its serialized form, so two tasks are identical when they are of the same class and have the same fields.
+ * The cache is bounded by the estimated size of the results and evicts the least recently used results first.
+ * An identical task that arrives while the first one is still executing waits for the result of the first one instead of being executed again.
+ * A cached result file whose file has been deleted from the result directory is dropped, and the task is executed again.
+ * The results of the tasks that depend on how long they execute, such as a DeadlineTask or a heuristic search with a time budget, are neither cached nor shared with identical tasks.
+ * A task that is executing is only stopped by a cancellation once every task that waits for it has been cancelled, and the results of the tasks that were stopped are not cached.
+ */
+final class ResultCache {
+
+	/** The number of references that are followed from a result when its size is estimated. */
+	private static final int MAX_DEPTH = 4;
+
+	/** The executor on which the tasks that miss the cache are executed. */
+	private final TaskExecutor executor;
+
+	/** The capacity of the cache, in bytes. */
+	private final long capacityBytes;
+
+	/** The cached results by task key, in the order from least to most recently used. */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+	/** The tasks that are executing, by task key. */
+	private final Map<Key, Execution> inFlight = new HashMap<Key, Execution>();
+
+	/** The estimated size of the cached results, in bytes. */
+	private long bytes;
+
+	/** The number of tasks whose result was found in the cache. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** The number of tasks whose result was not in the cache. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** The number of tasks that waited for an identical task. */
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/** The number of evicted results. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new result cache.
+	 *
+	 * @param executor the executor on which the tasks that miss the cache are executed
+	 * @param capacityBytes the capacity of the cache, in bytes; 0 disables caching
+	 */
+	ResultCache(TaskExecutor executor, long capacityBytes){
+		this.executor = executor;
+		this.capacityBytes = capacityBytes;
+	}
+
+	/**
+	 * Submits a task for execution, unless its result is cached or an identical task is executing.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @return the future of the result of the task
+	 * @throws RejectedTaskException if the task has to be executed and the queue of waiting tasks is full
+	 */
+	@SuppressWarnings("unchecked")
+	<T> Future<T> submit(Task<T> task) throws RejectedTaskException{
+		Key key = capacityBytes > 0 ? Key.of(task) : null;
+		if(key == null){ // caching is disabled or the task cannot be serialized
+			return executor.submit(task);
+		}
+		synchronized(this){
+			Entry entry = entries.get(key);
+			if(entry != null && !isAvailable(entry.result)){ // the computer has deleted the file of the result since
+				entries.remove(key);
+				bytes -= entry.size;
+				evictions.incrementAndGet();
+				entry = null;
+			}
+			if(entry != null){
+				hits.incrementAndGet();
+				return (Future<T>) completed(entry.result);
+			}
+			Execution execution = inFlight.get(key);
+			if(execution != null){
+				coalesced.incrementAndGet();
+				execution.waiters++;
+				return (Future<T>) execution.future;
+			}
+			execution = new Execution();
+			Future<T> submitted = executor.submit(new PrioritizedTask<T>(new CachingTask<T>(task, key, execution), PrioritizedTask.getPriority(task)), task);
+			misses.incrementAndGet();
+			execution.future = submitted;
+			inFlight.put(key, execution);
+			return submitted;
+		}
+	}
+
+	/**
+	 * Cancels a task that was submitted through the cache, unless other identical tasks are waiting for its result.
+	 * The task is forgotten as soon as it is stopped, so that an identical task that arrives later is executed again.
+	 *
+	 * @param future the future returned by submit
+	 */
+	void cancel(Future<?> future){
+		synchronized(this){
+			// there are at most as many tasks in flight as the workers and the queue of the executor hold
+			for(Iterator<Execution> iterator = inFlight.values().iterator(); iterator.hasNext(); ){
+				Execution execution = iterator.next();
+				if(execution.future == future){
+					if(--execution.waiters > 0){
+						return;
+					}
+					iterator.remove();
+					break;
+				}
+			}
+		}
+		TaskExecutor.cancel(future);
+	}
+
+	/**
+	 * Gets a snapshot of the counters of the cache.
+	 *
+	 * @return the cache stats
+	 */
+	synchronized CacheStats getStats(){
+		return new CacheStats(hits.get(), misses.get(), coalesced.get(), evictions.get(), entries.size(), bytes, capacityBytes);
+	}
+
+	/**
+	 * Stores the result of an executed task and evicts the least recently used results until the cache is within its capacity.
+	 * The result of a task that was stopped by a cancellation is not stored, since it may not be the result of the task, and neither is a best-effort result, which depends on when the task was stopped.
+	 *
+	 * @param key the key of the task
+	 * @param execution the execution of the task
+	 * @param result the result of the task, or null if the task failed
+	 */
+	private void complete(Key key, Execution execution, Object result){
+		if(Cancellation.current().wasObserved() || result instanceof BestEffortResult){
+			result = null;
+		}
+		long size = result == null ? 0 : estimateSize(result); // measured outside of the lock
+		synchronized(this){
+			if(inFlight.get(key) == execution){ // a cancelled execution was replaced by a new one
+				inFlight.remove(key);
+			}
+			if(result == null || size > capacityBytes){ // a result larger than the cache would evict everything else and still not fit
+				return;
+			}
+			entries.put(key, new Entry(result, size));
+			bytes += size;
+			Iterator<Entry> iterator = entries.values().iterator();
+			while(bytes > capacityBytes && iterator.hasNext()){
+				bytes -= iterator.next().size;
+				iterator.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Tells whether a cached result can still be returned; a result file can only be returned while it is in the result directory, and returning it counts as a use of the file.
+	 *
+	 * @param result the result
+	 * @return true if the result is not a result file or its file exists
+	 */
+	private static boolean isAvailable(Object result){
+		if(!(result instanceof ResultFile)){
+			return true;
+		}
+		File file = new File(ResultFile.getDirectory(), ((ResultFile) result).getName());
+		return file.setLastModified(System.currentTimeMillis()); // false if the file does not exist
+	}
+
+	/**
+	 * Creates a future that is already completed with the given result.
+	 *
+	 * @param result the result
+	 * @return the completed future
+	 */
+	private static Future<Object> completed(final Object result){
+		FutureTask<Object> future = new FutureTask<Object>(new Callable<Object>() {
+			@Override
+			public Object call() {
+				return result;
+			}
+		});
+		future.run();
+		return future;
+	}
+
+	/**
+	 * Estimates the heap size of a result.
+	 * Arrays are measured directly and the fields of the other objects are measured one by one, since the serialized form of a result may be compressed and far smaller than the result itself.
+	 * The classes of the JDK are measured by the length of their serialized form.
+	 *
+	 * @param result the result
+	 * @return the estimated size in bytes
+	 */
+	static long estimateSize(Object result){
+		return estimateSize(result, 0);
+	}
+
+	/**
+	 * Estimates the heap size of an object that is reachable from a result.
+	 *
+	 * @param object the object
+	 * @param depth the number of references followed from the result
+	 * @return the estimated size in bytes
+	 */
+	private static long estimateSize(Object object, int depth){
+		final int header = 16;
+		Class<?> type = object.getClass();
+		if(type.isArray()){
+			int length = Array.getLength(object);
+			Class<?> component = type.getComponentType();
+			if(!component.isPrimitive()){
+				long size = header + 8L * length;
+				for(int i = 0; i < length; i++){
+					Object element = Array.get(object, i);
+					if(element != null){
+						size += estimateSize(element, depth + 1);
+					}
+				}
+				return size;
+			}
+			return header + (long) primitiveWidth(component) * length;
+		}
+		if(depth < MAX_DEPTH && !type.getName().startsWith("java.")){
+			try{
+				long size = header;
+				for(Class<?> c = type; c != null; c = c.getSuperclass()){
+					for(Field field : c.getDeclaredFields()){
+						if(Modifier.isStatic(field.getModifiers())){
+							continue;
+						}
+						if(field.getType().isPrimitive()){
+							size += primitiveWidth(field.getType());
+							continue;
+						}
+						field.setAccessible(true);
+						Object value = field.get(object);
+						size += 8 + (value == null ? 0 : estimateSize(value, depth + 1));
+					}
+				}
+				return size;
+			}
+			catch(Exception e){
+				// measured by its serialized form below
+			}
+		}
+		CountingOutputStream counter = new CountingOutputStream();
+		try{
+			ObjectOutputStream out = new ObjectOutputStream(counter);
+			out.writeObject(object);
+			out.close();
+		}
+		catch(IOException e){
+			return Long.MAX_VALUE / 2; // never cached
+		}
+		return header + counter.count;
+	}
+
+	/**
+	 * Gets the number of bytes taken by a value of a primitive type.
+	 *
+	 * @param type the primitive type
+	 * @return the width in bytes
+	 */
+	private static int primitiveWidth(Class<?> type){
+		if(type == long.class || type == double.class){
+			return 8;
+		}
+		if(type == int.class || type == float.class){
+			return 4;
+		}
+		return type == short.class || type == char.class ? 2 : 1;
+	}
+
+	/**
+	 * A cached result with its estimated size.
+	 */
+	private static final class Entry {
+
+		/** The result. */
+		final Object result;
+
+		/** The estimated size of the result, in bytes. */
+		final long size;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param result the result
+		 * @param size the estimated size of the result, in bytes
+		 */
+		Entry(Object result, long size){
+			this.result = result;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * A task that is executing, with the number of submitted tasks that wait for its result.
+	 */
+	private static final class Execution {
+
+		/** The future of the task. */
+		Future<?> future;
+
+		/** The number of submitted tasks that wait for the result, including the first one. */
+		int waiters = 1;
+	}
+
+	/**
+	 * The key of a task: the SHA-256 digest of its serialized form.
+	 */
+	static final class Key {
+
+		/** The digest. */
+		private final byte[] digest;
+
+		/** The hash code, taken from the digest. */
+		private final int hash;
+
+		/**
+		 * Instantiates a new key.
+		 *
+		 * @param digest the digest
+		 */
+		private Key(byte[] digest){
+			this.digest = digest;
+			this.hash = Arrays.hashCode(digest);
+		}
+
+		/**
+		 * Computes the key of a task. A prioritized task has the key of the task it wraps, since the priority does not change the result.
+		 *
+		 * @param task the task
+		 * @return the key, or null if the task cannot be serialized or its result depends on how long it executes
+		 */
+		static Key of(Task<?> task){
+			Object target = task instanceof PrioritizedTask ? ((PrioritizedTask<?>) task).getTask() : task;
+			if(!(target instanceof Serializable) || (target instanceof TimeDependentTask && ((TimeDependentTask<?>) target).isTimeDependent())){
+				return null;
+			}
+			try{
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				ObjectOutputStream out = new ObjectOutputStream(bytes);
+				out.writeObject(target);
+				out.close();
+				return new Key(MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray()));
+			}
+			catch(IOException e){
+				return null;
+			}
+			catch(NoSuchAlgorithmException e){
+				throw new IllegalStateException("SHA-256 is not available", e);
+			}
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(digest, ((Key) obj).digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * A task that stores its result in the cache once it has been executed.
+	 *
+	 * @param <T> the generic type
+	 */
+	private final class CachingTask<T> implements Task<T> {
+
+		/** The task. */
+		private final Task<T> task;
+
+		/** The key of the task. */
+		private final Key key;
+
+		/** The execution of the task. */
+		private final Execution execution;
+
+		/**
+		 * Instantiates a new caching task.
+		 *
+		 * @param task the task
+		 * @param key the key of the task
+		 * @param execution the execution of the task
+		 */
+		CachingTask(Task<T> task, Key key, Execution execution){
+			this.task = task;
+			this.key = key;
+			this.execution = execution;
+		}
+
+		@Override
+		public T execute() {
+			T result = null;
+			try{
+				result = executor.run(task);
+				return result;
+			}
+			finally{
+				complete(key, execution, result);
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package computer;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import api.DeadlineTask;
+import api.PrioritizedTask;
+import api.Task;
+import api.TaskTypeStats;
+
+/**
+ * This class holds the metrics of the computer for each class of tasks it executes.
+ * The metrics of a class are created the first time a task of that class is submitted; after that, looking them up and recording into them does not allocate.
+ * Measuring the serialized size of a result does allocate, so only one in every sampling interval of the results is measured, after the waiting caller has been handed the result.
+ */
+final class ServerMetrics {
+
+	/** The metrics of each class of tasks. */
+	private final ConcurrentMap<Class<?>, TaskTypeMetrics> taskTypes = new ConcurrentHashMap<Class<?>, TaskTypeMetrics>();
+
+	/** The number of results per measured result size; 0 disables the measurement. */
+	private final int sizeSamplingInterval;
+
+	/**
+	 * Instantiates new server metrics.
+	 *
+	 * @param sizeSamplingInterval the number of results per measured result size; 0 disables the measurement
+	 */
+	ServerMetrics(int sizeSamplingInterval){
+		this.sizeSamplingInterval = sizeSamplingInterval;
+	}
+
+	/**
+	 * Gets the metrics of the class of a task. A prioritized task or a task with a deadline is counted as the task it wraps.
+	 *
+	 * @param task the task
+	 * @return the metrics of its class
+	 */
+	TaskTypeMetrics of(Task<?> task){
+		Task<?> target = task instanceof PrioritizedTask ? ((PrioritizedTask<?>) task).getTask() : task;
+		Class<?> type = (target instanceof DeadlineTask ? ((DeadlineTask<?>) target).getTask() : target).getClass();
+		TaskTypeMetrics metrics = taskTypes.get(type);
+		if(metrics == null){
+			TaskTypeMetrics created = new TaskTypeMetrics(type.getName());
+			metrics = taskTypes.putIfAbsent(type, created);
+			if(metrics == null){
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Tells whether the size of the given completed result should be measured.
+	 *
+	 * @param metrics the metrics of the class of the task
+	 * @return true for one in every sampling interval of the results
+	 */
+	boolean shouldMeasureSize(TaskTypeMetrics metrics){
+		return sizeSamplingInterval > 0 && metrics.completed.get() % sizeSamplingInterval == 1 % sizeSamplingInterval;
+	}
+
+	/**
+	 * Measures the serialized size of a result and records it.
+	 *
+	 * @param metrics the metrics of the class of the task
+	 * @param result the result
+	 */
+	void recordResultSize(TaskTypeMetrics metrics, Object result){
+		CountingOutputStream counter = new CountingOutputStream();
+		try{
+			ObjectOutputStream out = new ObjectOutputStream(counter);
+			out.writeObject(result);
+			out.close();
+			metrics.resultSize.record(counter.count);
+		}
+		catch(IOException e){
+			// the result is not serializable, and its remote call fails on its own
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the metrics of all the classes of tasks.
+	 *
+	 * @return the snapshots, by class name
+	 */
+	Map<String, TaskTypeStats> snapshot(){
+		Map<String, TaskTypeStats> stats = new TreeMap<String, TaskTypeStats>();
+		for(TaskTypeMetrics metrics : taskTypes.values()){
+			TaskTypeStats snapshot = metrics.snapshot();
+			stats.put(snapshot.getTaskType(), snapshot);
+		}
+		return stats;
+	}
+}
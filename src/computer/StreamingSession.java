@@ -0,0 +1,232 @@
+package computer;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import api.PartialResultListener;
+import api.PartialResultSink;
+import api.StreamingTask;
+import api.Task;
+
+/**
+ * This class delivers the parts of the result of a streaming task to the remote listener of the client while the task is executing.
+ * The workers that execute the task add the parts to a batch; a batch is handed over once it is full, or once its first part has waited for the flush interval, so that a slow task still shows progress.
+ * The batches are sent by the thread of the remote call, which would otherwise only wait for the task, one at a time and in order.
+ * At most a few batches wait to be sent; a worker that completes a batch while they are all waiting blocks until one has been sent, so a slow client slows the task down instead of the parts piling up on the computer.
+ * If the client fails, the task is cancelled.
+ *
+ * @param <P> the type of the parts
+ */
+final class StreamingSession<P> implements PartialResultSink<P> {
+
+	/** The largest number of full batches that wait to be sent. */
+	private static final int MAX_PENDING_BATCHES = 4;
+
+	/** The remote listener that receives the batches. */
+	private final PartialResultListener<P> listener;
+
+	/** The number of parts in a full batch. */
+	private final int batchSize;
+
+	/** The longest time the first part of a batch waits before the batch is sent, in nanoseconds. */
+	private final long flushIntervalNanos;
+
+	/** The full batches that wait to be sent. */
+	private final BlockingQueue<List<P>> batches = new ArrayBlockingQueue<List<P>>(MAX_PENDING_BATCHES);
+
+	/** The batch that the parts are added to. */
+	private List<P> batch;
+
+	/** The time the first part of the batch was added, in nanoseconds. */
+	private long batchStartNanos;
+
+	/** Whether the listener failed, after which the parts are dropped. */
+	private volatile boolean closed;
+
+	/**
+	 * Instantiates a new streaming session.
+	 *
+	 * @param listener the remote listener that receives the batches
+	 * @param batchSize the number of parts in a full batch
+	 * @param flushIntervalMillis the longest time the first part of a batch waits before the batch is sent, in milliseconds
+	 */
+	StreamingSession(PartialResultListener<P> listener, int batchSize, long flushIntervalMillis){
+		this.listener = listener;
+		this.batchSize = Math.max(1, batchSize);
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+		this.batch = new ArrayList<P>(this.batchSize);
+	}
+
+	/**
+	 * Adds a part to the batch, and hands the batch over to be sent once it is full.
+	 *
+	 * @param part the part
+	 */
+	@Override
+	public void accept(P part) {
+		List<P> full = null;
+		synchronized(this){
+			if(closed){
+				return;
+			}
+			if(batch.isEmpty()){
+				batchStartNanos = System.nanoTime();
+			}
+			batch.add(part);
+			if(batch.size() >= batchSize){
+				full = batch;
+				batch = new ArrayList<P>(batchSize);
+			}
+		}
+		if(full != null){
+			enqueue(full);
+		}
+	}
+
+	/**
+	 * Waits until there is room for a full batch and hands it over, unless the listener fails in the meantime.
+	 * The tasks add their parts from the workers of a fork-join pool that is shared by all the tasks of the JVM, so the wait is a managed block: the pool starts a spare worker for each worker that waits, and a slow client does not stall the other tasks.
+	 * The wait is not interrupted, since the part has to reach the client; the interrupt is restored afterwards.
+	 *
+	 * @param full the full batch
+	 */
+	private void enqueue(final List<P> full){
+		ForkJoinPool.ManagedBlocker handOver = new ForkJoinPool.ManagedBlocker() {
+			private boolean done;
+			@Override
+			public boolean block() throws InterruptedException {
+				done = closed || batches.offer(full, flushIntervalNanos, TimeUnit.NANOSECONDS);
+				return done;
+			}
+			@Override
+			public boolean isReleasable() {
+				return done || (done = closed || batches.offer(full));
+			}
+		};
+		boolean interrupted = false;
+		try{
+			while(!handOver.isReleasable()){
+				try{
+					ForkJoinPool.managedBlock(handOver);
+				}
+				catch(InterruptedException e){
+					interrupted = true;
+				}
+			}
+		}
+		finally{
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Takes the batch that the parts are being added to, if it is not empty and it is due.
+	 *
+	 * @param force whether the batch is taken even if its first part has not waited for the flush interval
+	 * @return the batch, or null if there is none to send
+	 */
+	private synchronized List<P> takeDueBatch(boolean force){
+		if(batch.isEmpty() || (!force && System.nanoTime() - batchStartNanos < flushIntervalNanos)){
+			return null;
+		}
+		List<P> due = batch;
+		batch = new ArrayList<P>(batchSize);
+		return due;
+	}
+
+	/**
+	 * Gets the time until the batch that the parts are being added to is due.
+	 *
+	 * @return the time in nanoseconds; the flush interval if the batch is empty
+	 */
+	private synchronized long nanosUntilDue(){
+		return batch.isEmpty() ? flushIntervalNanos : Math.max(0, batchStartNanos + flushIntervalNanos - System.nanoTime());
+	}
+
+	/**
+	 * Sends the batches to the listener until the task has completed and its last batch has been sent.
+	 * If the listener fails, the parts that follow are dropped and the task is cancelled, so that it stops at its next check of its cancellation instead of computing parts for nobody.
+	 *
+	 * @param <T> the type of the result
+	 * @param future the future of the task
+	 * @return the result of the task
+	 * @throws RemoteException if the listener cannot be called
+	 * @throws InterruptedException if the thread is interrupted while waiting for a batch
+	 * @throws ExecutionException if the task threw an exception
+	 */
+	<T> T deliver(Future<T> future) throws RemoteException, InterruptedException, ExecutionException{
+		try{
+			while(true){
+				boolean done = future.isDone(); // no part is added once the task is done
+				List<P> next = done ? batches.poll() : batches.poll(nanosUntilDue(), TimeUnit.NANOSECONDS);
+				if(next == null){
+					next = takeDueBatch(done);
+				}
+				if(next != null){
+					listener.partialResults(next);
+				}
+				else if(done){
+					return future.get();
+				}
+			}
+		}
+		catch(RemoteException e){
+			close();
+			TaskExecutor.cancel(future);
+			throw e;
+		}
+		catch(InterruptedException e){
+			close();
+			TaskExecutor.cancel(future);
+			throw e;
+		}
+	}
+
+	/**
+	 * Drops the pending batches and the parts that follow, and releases the workers that wait to hand over a batch.
+	 */
+	private void close(){
+		closed = true;
+		batches.clear();
+	}
+
+	/**
+	 * A task that executes a streaming task into a session.
+	 *
+	 * @param <T> the type of the result
+	 * @param <P> the type of the parts
+	 */
+	static final class StreamingExecution<T, P> implements Task<T> {
+
+		/** The streaming task. */
+		private final StreamingTask<T, P> task;
+
+		/** The session that takes the parts. */
+		private final StreamingSession<P> session;
+
+		/**
+		 * Instantiates a new streaming execution.
+		 *
+		 * @param task the streaming task
+		 * @param session the session that takes the parts
+		 */
+		StreamingExecution(StreamingTask<T, P> task, StreamingSession<P> session){
+			this.task = task;
+			this.session = session;
+		}
+
+		@Override
+		public T execute() {
+			return task.execute(session);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package computer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import api.BestEffortResult;
+import api.Cancellation;
+import api.DeadlineTask;
+import api.PrioritizedTask;
+import api.SplittableTask;
+import api.Task;
+
+/**
+ * This class decomposes the splittable tasks into trees of smaller tasks, executes the leaves in parallel and merges their results back up the tree.
+ * A task is split until the tree has a given number of leaves or no leaf can be split any more, always splitting the leaf with the largest size estimate, so that the leaves are of similar size whatever the units of the estimates.
+ * The dispatcher uses the trees to spread the leaves over its computers. A computer splits a task only if it is set to, and then executes the leaves on a fork-join pool of its own; by default it executes the tasks whole, since the tasks that can be split already spread their work over the shared pool of the tasks, and leaves on another pool would only add threads.
+ * The leaves are executed with the cancellation of the task as their current token, so a cancelled task stops in all of its leaves.
+ */
+final class TaskDecomposer {
+
+	/** The orders of the splittable pieces by size estimate, largest first. */
+	private static final Comparator<Piece<?>> LARGEST_FIRST = new Comparator<Piece<?>>() {
+		@Override
+		public int compare(Piece<?> a, Piece<?> b) {
+			return Long.compare(b.estimate, a.estimate);
+		}
+	};
+
+	/** The pool on which the leaves are executed, or null if the tasks are not split. */
+	private final ForkJoinPool pool;
+
+	/** The number of leaves a task is split into per worker. */
+	private final int leavesPerWorker;
+
+	/**
+	 * Instantiates a new task decomposer.
+	 *
+	 * @param workers the number of workers of the pool on which the leaves are executed
+	 * @param leavesPerWorker the number of leaves a task is split into per worker; 0 disables the splitting
+	 */
+	TaskDecomposer(int workers, int leavesPerWorker){
+		this.pool = leavesPerWorker > 0 ? new ForkJoinPool(workers) : null;
+		this.leavesPerWorker = leavesPerWorker;
+	}
+
+	/**
+	 * Executes a task, splitting it first if it is a splittable task; the task of a deadline task is split under the deadline.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task, which may be a prioritized task
+	 * @return the result of the task
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T execute(Task<T> task){
+		if(unwrap(task) instanceof DeadlineTask){
+			return (T) executeWithDeadline((DeadlineTask<?>) unwrap(task));
+		}
+		Piece<T> tree = pool == null ? null : plan(unwrap(task), pool.getParallelism() * leavesPerWorker);
+		if(tree == null || tree.children == null){
+			return task.execute();
+		}
+		return pool.invoke(new Evaluation<T>(tree, Cancellation.current()));
+	}
+
+	/**
+	 * Executes a deadline task, splitting its task if it is a splittable task.
+	 *
+	 * @param <T> the generic type
+	 * @param task the deadline task
+	 * @return the result of the deadline task
+	 */
+	private <T> BestEffortResult<T> executeWithDeadline(final DeadlineTask<T> task){
+		return task.execute(new Task<T>() {
+			@Override
+			public T execute() {
+				return TaskDecomposer.this.execute(task.getTask());
+			}
+		});
+	}
+
+	/**
+	 * Gets the task that a priority is attached to.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @return the task itself, or the task of a prioritized task
+	 */
+	static <T> Task<T> unwrap(Task<T> task){
+		return task instanceof PrioritizedTask ? ((PrioritizedTask<T>) task).getTask() : task;
+	}
+
+	/**
+	 * Splits a task into a tree of smaller tasks by splitting the largest leaf until the tree has the given number of leaves or no leaf can be split.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @param leaves the number of leaves to aim for
+	 * @return the root of the tree, which is a leaf if the task is not split
+	 */
+	static <T> Piece<T> plan(Task<T> task, int leaves){
+		Piece<T> root = new Piece<T>(task);
+		PriorityQueue<Piece<T>> splittable = new PriorityQueue<Piece<T>>(16, LARGEST_FIRST);
+		if(task instanceof SplittableTask){
+			splittable.add(root);
+		}
+		int count = 1;
+		while(count < leaves && !splittable.isEmpty()){
+			Piece<T> piece = splittable.poll();
+			List<? extends Task<T>> parts = ((SplittableTask<T>) piece.task).split();
+			if(parts.isEmpty()){
+				continue;
+			}
+			piece.children = new ArrayList<Piece<T>>(parts.size());
+			for(Task<T> part : parts){
+				Piece<T> child = new Piece<T>(part);
+				piece.children.add(child);
+				if(part instanceof SplittableTask){
+					splittable.add(child);
+				}
+			}
+			count += parts.size() - 1;
+		}
+		return root;
+	}
+
+	/**
+	 * A task in the tree of a split task.
+	 *
+	 * @param <T> the generic type
+	 */
+	static final class Piece<T> {
+
+		/** The task. */
+		final Task<T> task;
+
+		/** The size estimate of the task, or 0 if the task is not splittable. */
+		final long estimate;
+
+		/** The tasks that the task was split into, or null if it is a leaf. */
+		List<Piece<T>> children;
+
+		/**
+		 * Instantiates a new piece.
+		 *
+		 * @param task the task
+		 */
+		Piece(Task<T> task){
+			this.task = task;
+			this.estimate = task instanceof SplittableTask ? ((SplittableTask<T>) task).estimateSize() : 0;
+		}
+
+		/**
+		 * Merges the results of the children into the result of the task.
+		 *
+		 * @param results the results of the children, in their order
+		 * @return the result of the task
+		 */
+		T merge(List<T> results){
+			return ((SplittableTask<T>) task).merge(results);
+		}
+	}
+
+	/**
+	 * The evaluation of a piece on the pool: the children are forked, except for the first one which is evaluated by the current worker, and their results are merged.
+	 *
+	 * @param <T> the generic type
+	 */
+	private static final class Evaluation<T> extends RecursiveTask<T> {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The piece. */
+		private final Piece<T> piece;
+
+		/** The cancellation of the task that the piece is part of. */
+		private final Cancellation cancellation;
+
+		/**
+		 * Instantiates a new evaluation.
+		 *
+		 * @param piece the piece
+		 * @param cancellation the cancellation of the task that the piece is part of
+		 */
+		Evaluation(Piece<T> piece, Cancellation cancellation){
+			this.piece = piece;
+			this.cancellation = cancellation;
+		}
+
+		@Override
+		protected T compute() {
+			if(piece.children == null){
+				return cancellation.execute(piece.task);
+			}
+			List<Evaluation<T>> forked = new ArrayList<Evaluation<T>>();
+			for(int k = 1; k < piece.children.size(); k++){
+				Evaluation<T> evaluation = new Evaluation<T>(piece.children.get(k), cancellation);
+				evaluation.fork();
+				forked.add(evaluation);
+			}
+			List<T> results = new ArrayList<T>(piece.children.size());
+			results.add(new Evaluation<T>(piece.children.get(0), cancellation).compute());
+			for(Evaluation<T> evaluation : forked){
+				results.add(evaluation.join());
+			}
+			return piece.merge(results);
+		}
+	}
+}
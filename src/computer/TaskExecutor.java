@@ -0,0 +1,330 @@
+package computer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.Cancellation;
+import api.PrioritizedTask;
+import api.RejectedTaskException;
+import api.Task;
+import api.TaskCancelledException;
+
+/**
+ * This class executes the tasks of the computer on a fixed number of worker threads.
+ * The tasks that arrive while all the workers are busy wait in a bounded queue, highest priority first and in the order of their arrival within a priority.
+ * When the queue is full, a task is rejected right away with a RejectedTaskException.
+ * The executor records the metrics of each class of tasks: the time a task waits in the queue is recorded when a worker takes it, and the time it executes when the worker is done with it.
+ * A splittable task is split by the worker that takes it and its parts are executed on a fork-join pool with as many workers as the executor; it is still counted as one task.
+ * Every task is executed with a Cancellation of its own as the current token, which is cancelled through cancel; a task that is cancelled while it waits in the queue is not executed.
+ */
+final class TaskExecutor extends ThreadPoolExecutor {
+
+	/** The number of tasks that were submitted, used to order the tasks of equal priority. */
+	private final AtomicLong sequence = new AtomicLong();
+
+	/** The metrics of the classes of tasks. */
+	private final ServerMetrics metrics;
+
+	/** The decomposer of the splittable tasks. */
+	private final TaskDecomposer decomposer;
+
+	/**
+	 * Instantiates a new task executor.
+	 *
+	 * @param workers the number of worker threads
+	 * @param queueCapacity the largest number of tasks that can wait for a worker
+	 * @param metrics the metrics of the classes of tasks
+	 * @param leavesPerWorker the number of parts a splittable task is split into per worker; 0 disables the splitting
+	 */
+	TaskExecutor(int workers, int queueCapacity, ServerMetrics metrics, int leavesPerWorker){
+		super(workers, workers, 0L, TimeUnit.MILLISECONDS, new BoundedPriorityQueue(queueCapacity), new WorkerFactory(), new AbortPolicy());
+		this.metrics = metrics;
+		this.decomposer = new TaskDecomposer(workers, leavesPerWorker);
+		prestartAllCoreThreads();
+	}
+
+	/**
+	 * Submits a task for execution.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @return the future of the result of the task
+	 * @throws RejectedTaskException if the queue of waiting tasks is full
+	 */
+	<T> Future<T> submit(Task<T> task) throws RejectedTaskException{
+		return submit(task, task);
+	}
+
+	/**
+	 * Submits a task for execution, recording its metrics under the class of another task; it is used for the tasks that wrap a submitted task.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @param countedAs the task whose class the metrics are recorded under
+	 * @return the future of the result of the task
+	 * @throws RejectedTaskException if the queue of waiting tasks is full
+	 */
+	<T> Future<T> submit(final Task<T> task, Task<?> countedAs) throws RejectedTaskException{
+		TaskTypeMetrics taskMetrics = metrics.of(countedAs);
+		final Cancellation cancellation = new Cancellation();
+		PrioritizedFuture<T> future = new PrioritizedFuture<T>(new Callable<T>() {
+			@Override
+			public T call() {
+				if(cancellation.isCancelled()){ // still counted as failed, so that the metrics and the cache see it finish
+					throw new TaskCancelledException("The task was cancelled before it started");
+				}
+				return cancellation.execute(new Task<T>() {
+					@Override
+					public T execute() {
+						return run(task);
+					}
+				});
+			}
+		}, PrioritizedTask.getPriority(task), sequence.getAndIncrement(), taskMetrics, cancellation);
+		taskMetrics.inFlight.incrementAndGet();
+		try{
+			execute(future);
+		}
+		catch(RejectedExecutionException e){
+			taskMetrics.inFlight.decrementAndGet();
+			taskMetrics.rejected.incrementAndGet();
+			throw new RejectedTaskException("The queue of " + getQueueCapacity() + " waiting tasks is full");
+		}
+		taskMetrics.submitted.incrementAndGet();
+		return future;
+	}
+
+	/**
+	 * Executes a task on the current thread, splitting it if it is a splittable task.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @return the result of the task
+	 */
+	<T> T run(Task<T> task){
+		return decomposer.execute(task);
+	}
+
+	/**
+	 * Asks the task of a future to stop: the task is not executed if it is still waiting for a worker, and otherwise stops at its next check of its cancellation.
+	 * The future still completes, with the result the task returns when it stops.
+	 *
+	 * @param future the future returned by submit
+	 */
+	static void cancel(Future<?> future){
+		if(future instanceof PrioritizedFuture && ((PrioritizedFuture<?>) future).cancellation != null){
+			((PrioritizedFuture<?>) future).cancellation.cancel();
+		}
+	}
+
+	/**
+	 * Tells whether the task of a future found its cancellation cancelled, so that its result may be the best one it had when it stopped.
+	 *
+	 * @param future the future returned by submit
+	 * @return true if the task was stopped by a cancellation
+	 */
+	static boolean wasStopped(Future<?> future){
+		return future instanceof PrioritizedFuture && ((PrioritizedFuture<?>) future).cancellation != null && ((PrioritizedFuture<?>) future).cancellation.wasObserved();
+	}
+
+	/**
+	 * Records the time that a task waited for a worker.
+	 *
+	 * @param thread the worker thread
+	 * @param runnable the future of the task
+	 */
+	@Override
+	protected void beforeExecute(Thread thread, Runnable runnable) {
+		if(runnable instanceof PrioritizedFuture){
+			PrioritizedFuture<?> future = (PrioritizedFuture<?>) runnable;
+			future.startNanos = System.nanoTime();
+			if(future.metrics != null){
+				future.metrics.queueWait.record(future.startNanos - future.submitNanos);
+			}
+		}
+	}
+
+	/**
+	 * Records the time that a task took to execute and its outcome; for a sample of the results, it also records their serialized size.
+	 * The future is already done at this point, so the caller of the task is not delayed by the measurement.
+	 *
+	 * @param runnable the future of the task
+	 * @param thrown the exception thrown by the future, which is always null since a future catches the exceptions of its task
+	 */
+	@Override
+	protected void afterExecute(Runnable runnable, Throwable thrown) {
+		if(!(runnable instanceof PrioritizedFuture) || ((PrioritizedFuture<?>) runnable).metrics == null){
+			return;
+		}
+		PrioritizedFuture<?> future = (PrioritizedFuture<?>) runnable;
+		TaskTypeMetrics taskMetrics = future.metrics;
+		taskMetrics.executeTime.record(System.nanoTime() - future.startNanos);
+		taskMetrics.inFlight.decrementAndGet();
+		Object result;
+		try{
+			result = future.get();
+		}
+		catch(Exception e){ // the task threw or was cancelled
+			taskMetrics.failed.incrementAndGet();
+			return;
+		}
+		taskMetrics.completed.incrementAndGet();
+		if(result != null && metrics.shouldMeasureSize(taskMetrics)){
+			metrics.recordResultSize(taskMetrics, result);
+		}
+	}
+
+	/**
+	 * Wraps the callables that are submitted through the ExecutorService methods, so that they can be ordered in the queue with the default priority.
+	 *
+	 * @param <T> the generic type
+	 * @param callable the callable
+	 * @return the future of the callable
+	 */
+	@Override
+	protected <T> FutureTask<T> newTaskFor(Callable<T> callable) {
+		return new PrioritizedFuture<T>(callable, PrioritizedTask.DEFAULT_PRIORITY, sequence.getAndIncrement(), null, null);
+	}
+
+	/**
+	 * Wraps the runnables that are submitted through the ExecutorService methods, so that they can be ordered in the queue with the default priority.
+	 *
+	 * @param <T> the generic type
+	 * @param runnable the runnable
+	 * @param value the result of the future
+	 * @return the future of the runnable
+	 */
+	@Override
+	protected <T> FutureTask<T> newTaskFor(Runnable runnable, T value) {
+		return newTaskFor(Executors.callable(runnable, value));
+	}
+
+	/**
+	 * Gets the largest number of tasks that can wait for a worker.
+	 *
+	 * @return the queue capacity
+	 */
+	int getQueueCapacity(){
+		return ((BoundedPriorityQueue) getQueue()).capacity;
+	}
+
+	/**
+	 * Gets the number of tasks that can still be queued before tasks are rejected.
+	 *
+	 * @return the remaining capacity of the queue
+	 */
+	int getRemainingCapacity(){
+		return getQueue().remainingCapacity();
+	}
+
+	/**
+	 * The future of a queued task, ordered by priority and then by arrival.
+	 *
+	 * @param <T> the generic type
+	 */
+	private static final class PrioritizedFuture<T> extends FutureTask<T> implements Comparable<PrioritizedFuture<?>> {
+
+		/** The priority; higher values are executed first. */
+		private final int priority;
+
+		/** The arrival order of the task. */
+		private final long sequence;
+
+		/** The metrics of the class of the task, or null for the callables that are not tasks. */
+		final TaskTypeMetrics metrics;
+
+		/** The cancellation of the task, or null for the callables that are not tasks. */
+		final Cancellation cancellation;
+
+		/** The time the task was submitted, in nanoseconds. */
+		final long submitNanos;
+
+		/** The time a worker started the task, in nanoseconds; it is only used by that worker. */
+		long startNanos;
+
+		/**
+		 * Instantiates a new prioritized future.
+		 *
+		 * @param callable the callable
+		 * @param priority the priority
+		 * @param sequence the arrival order of the task
+		 * @param metrics the metrics of the class of the task, or null
+		 * @param cancellation the cancellation of the task, or null
+		 */
+		PrioritizedFuture(Callable<T> callable, int priority, long sequence, TaskTypeMetrics metrics, Cancellation cancellation){
+			super(callable);
+			this.priority = priority;
+			this.sequence = sequence;
+			this.metrics = metrics;
+			this.cancellation = cancellation;
+			this.submitNanos = System.nanoTime();
+		}
+
+		@Override
+		public int compareTo(PrioritizedFuture<?> other) {
+			if(priority != other.priority){
+				return priority > other.priority ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * A priority queue that refuses new elements once it holds its capacity, which makes the executor reject the task.
+	 */
+	private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The largest number of elements in the queue. */
+		private final int capacity;
+
+		/**
+		 * Instantiates a new bounded priority queue.
+		 *
+		 * @param capacity the largest number of elements in the queue
+		 */
+		BoundedPriorityQueue(int capacity){
+			this.capacity = capacity;
+		}
+
+		@Override
+		public synchronized boolean offer(Runnable runnable) {
+			if(size() >= capacity){
+				return false;
+			}
+			return super.offer(runnable);
+		}
+
+		@Override
+		public int remainingCapacity() {
+			return Math.max(0, capacity - size());
+		}
+	}
+
+	/**
+	 * Creates the daemon worker threads of the executor.
+	 */
+	private static final class WorkerFactory implements ThreadFactory {
+
+		/** The number of workers created so far. */
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "computer-worker-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
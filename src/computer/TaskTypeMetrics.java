@@ -0,0 +1,57 @@
+package computer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.TaskTypeStats;
+
+/**
+ * This class records the metrics of one class of tasks: how many are submitted, complete, fail, are rejected and are in flight, how long they wait for a worker and execute, and how large their serialized results are.
+ */
+final class TaskTypeMetrics {
+
+	/** The name of the class of the tasks. */
+	private final String taskType;
+
+	/** The number of tasks that were accepted for execution. */
+	final AtomicLong submitted = new AtomicLong();
+
+	/** The number of tasks that returned a result. */
+	final AtomicLong completed = new AtomicLong();
+
+	/** The number of tasks that threw an exception. */
+	final AtomicLong failed = new AtomicLong();
+
+	/** The number of tasks that were rejected because the queue was full. */
+	final AtomicLong rejected = new AtomicLong();
+
+	/** The number of tasks that are waiting for a worker or executing. */
+	final AtomicLong inFlight = new AtomicLong();
+
+	/** The time that the tasks waited for a worker, in nanoseconds. */
+	final Histogram queueWait = new Histogram();
+
+	/** The time that the tasks took to execute, in nanoseconds. */
+	final Histogram executeTime = new Histogram();
+
+	/** The serialized size of a sample of the results, in bytes. */
+	final Histogram resultSize = new Histogram();
+
+	/**
+	 * Instantiates new task type metrics.
+	 *
+	 * @param taskType the name of the class of the tasks
+	 */
+	TaskTypeMetrics(String taskType){
+		this.taskType = taskType;
+	}
+
+	/**
+	 * Takes a snapshot of the metrics.
+	 *
+	 * @return the snapshot
+	 */
+	TaskTypeStats snapshot(){
+		return new TaskTypeStats(taskType, submitted.get(), completed.get(), failed.get(), rejected.get(), inFlight.get(),
+				queueWait.snapshot(), executeTime.snapshot(), resultSize.snapshot());
+	}
+}
@@ -0,0 +1,191 @@
+package computer;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.rmi.server.RMIClassLoader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import api.Task;
+
+/**
+ * This class prepares a computer for its first tasks before the computer is bound in the registry, so that the first call of a client is not slowed down by class loading and interpretation.
+ * <ul>
+ * <li>The task classes are preloaded from the codebase that the clients' tasks are loaded from. RMI keeps one class loader per codebase, so the tasks of the clients find the classes already downloaded and defined.</li>
+ * <li>Synthetic Mandelbrot set and TSP tasks are executed on the executor's decomposer, as the tasks of the clients are, and serialized with their results, until the JIT compiler has compiled nothing new for a while, or the time budget runs out.</li>
+ * </ul>
+ * The computer does not have the task classes on its class path, so the synthetic tasks are created reflectively from the preloaded classes; only the classes that are known here are executed, the others are only loaded.
+ */
+final class TaskWarmer {
+
+	/** The time without new JIT compilations after which the hot methods are taken to be compiled, in milliseconds. */
+	private static final long QUIET_MILLIS = 500;
+
+	/** The number of rounds of synthetic tasks when the JIT compilation time cannot be monitored. */
+	private static final int FIXED_ROUNDS = 50;
+
+	/** The numbers of cities of the synthetic TSP tasks, which AUTO solves by brute force, branch-and-bound and Held-Karp. */
+	private static final int[] TSP_CITIES = { 8, 11, 16 };
+
+	/** The executor on which the tasks of the computer are executed. */
+	private final TaskExecutor executor;
+
+	/** The preloaded classes, by name. */
+	private final Map<String, Class<?>> classes = new LinkedHashMap<String, Class<?>>();
+
+	/** The number of rounds of synthetic tasks that were executed. */
+	private int rounds;
+
+	/** The time the warm-up took, in milliseconds. */
+	private long warmupMillis;
+
+	/** The time the JIT compiler spent during the warm-up, in milliseconds, or -1 if it cannot be monitored. */
+	private long compileMillis = -1;
+
+	/**
+	 * Instantiates a new task warmer.
+	 *
+	 * @param executor the executor on which the tasks of the computer are executed
+	 */
+	TaskWarmer(TaskExecutor executor){
+		this.executor = executor;
+	}
+
+	/**
+	 * Loads task classes from a codebase, as RMI would load them for the first task of a client that is annotated with that codebase.
+	 * A class that cannot be loaded is reported and skipped.
+	 *
+	 * @param codebase the codebase, as a space-separated list of URLs, or null for the codebase of this JVM
+	 * @param classNames the names of the classes
+	 */
+	void preload(String codebase, String[] classNames){
+		for(String name : classNames){
+			name = name.trim();
+			if(name.isEmpty()){
+				continue;
+			}
+			try{
+				classes.put(name, RMIClassLoader.loadClass(codebase, name));
+			}
+			catch(MalformedURLException e){
+				System.err.println("Cannot preload " + name + ": " + e);
+			}
+			catch(ClassNotFoundException e){
+				System.err.println("Cannot preload " + name + ": " + e);
+			}
+		}
+	}
+
+	/**
+	 * Executes rounds of synthetic tasks until the JIT compiler has compiled nothing new for half a second or the time budget runs out.
+	 *
+	 * @param budgetMillis the longest time to warm up for, in milliseconds
+	 */
+	void warmUp(long budgetMillis){
+		List<Task<?>> tasks = syntheticTasks();
+		if(tasks.isEmpty()){
+			return;
+		}
+		CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+		boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+		long startTime = System.nanoTime();
+		long deadline = startTime + budgetMillis * 1000000L;
+		long startCompile = monitored ? compiler.getTotalCompilationTime() : 0;
+		long lastCompile = startCompile;
+		long lastChange = startTime;
+		while(System.nanoTime() - deadline < 0){
+			for(Task<?> task : tasks){
+				execute(task);
+			}
+			rounds++;
+			long now = System.nanoTime();
+			if(!monitored){
+				if(rounds >= FIXED_ROUNDS){
+					break;
+				}
+				continue;
+			}
+			long compile = compiler.getTotalCompilationTime();
+			if(compile != lastCompile){
+				lastCompile = compile;
+				lastChange = now;
+			}
+			else if(now - lastChange >= QUIET_MILLIS * 1000000L){
+				break;
+			}
+		}
+		warmupMillis = (System.nanoTime() - startTime) / 1000000;
+		compileMillis = monitored ? lastCompile - startCompile : -1;
+	}
+
+	/**
+	 * Executes a synthetic task and serializes it and its result, as a remote call would.
+	 *
+	 * @param task the task
+	 */
+	private void execute(Task<?> task){
+		try{
+			Object result = executor.run(task);
+			ObjectOutputStream out = new ObjectOutputStream(new CountingOutputStream());
+			out.writeObject(task);
+			out.writeObject(result);
+			out.close();
+		}
+		catch(IOException e){
+			throw new IllegalStateException("A synthetic task cannot be serialized", e);
+		}
+	}
+
+	/**
+	 * Creates the synthetic tasks of the preloaded classes: a Mandelbrot set of 256 x 256 pixels, also in compact form, and TSP instances of random cities.
+	 *
+	 * @return the tasks
+	 */
+	private List<Task<?>> syntheticTasks(){
+		List<Task<?>> tasks = new ArrayList<Task<?>>();
+		try{
+			Class<?> mandelbrot = classes.get("tasks.MandelbrotSetTask");
+			if(mandelbrot != null){
+				Object task = mandelbrot.getConstructor(double[].class, double.class, int.class, int.class).newInstance(new double[] { -2, -2 }, 4, 256, 256);
+				tasks.add((Task<?>) task);
+				Class<?> compact = classes.get("tasks.CompactMandelbrotSetTask");
+				if(compact != null){
+					tasks.add((Task<?>) compact.getConstructor(mandelbrot).newInstance(task));
+				}
+			}
+			Class<?> tsp = classes.get("tasks.EuclideanTspTask");
+			if(tsp != null){
+				Random random = new Random(0);
+				for(int n : TSP_CITIES){
+					double[][] cities = new double[n][2];
+					for(double[] city : cities){
+						city[0] = random.nextDouble() * 10;
+						city[1] = random.nextDouble() * 10;
+					}
+					tasks.add((Task<?>) tsp.getConstructor(double[][].class).newInstance((Object) cities));
+				}
+			}
+		}
+		catch(ReflectiveOperationException e){
+			System.err.println("Cannot create the synthetic tasks: " + e);
+		}
+		return tasks;
+	}
+
+	/**
+	 * Describes what the warm-up did.
+	 *
+	 * @return the description
+	 */
+	@Override
+	public String toString() {
+		return "preloaded " + classes.size() + " task classes, warmed up in " + warmupMillis + " ms (" + rounds + " rounds"
+				+ (compileMillis < 0 ? "" : ", " + compileMillis + " ms of JIT compilation") + ")";
+	}
+}
@@ -0,0 +1,170 @@
+package computer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.BestEffortResult;
+import api.RejectedTaskException;
+import api.Task;
+import api.TaskException;
+
+/**
+ * This class keeps track of the tasks that were submitted in batches, from the time they are submitted until their results are collected.
+ * Each task is given a ticket and is executed on the executor of the computer; the ticket maps to the future of the task until the result is collected.
+ */
+final class TicketTable {
+
+	/** The executor on which the submitted tasks are executed. */
+	private final TaskExecutor executor;
+
+	/** The cache through which the tasks are submitted to the executor. */
+	private final ResultCache cache;
+
+	/** The futures of the tasks whose results have not been collected yet, by ticket. */
+	private final Map<Long, Future<?>> futures = new ConcurrentHashMap<Long, Future<?>>();
+
+	/** The tickets whose tasks were cancelled and whose results have not been collected yet. */
+	private final Set<Long> cancelled = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	/** The last ticket that was handed out. */
+	private final AtomicLong lastTicket = new AtomicLong();
+
+	/**
+	 * Instantiates a new ticket table.
+	 *
+	 * @param executor the executor on which the submitted tasks are executed
+	 * @param cache the cache through which the tasks are submitted to the executor
+	 */
+	TicketTable(TaskExecutor executor, ResultCache cache){
+		this.executor = executor;
+		this.cache = cache;
+	}
+
+	/**
+	 * Submits the tasks for execution.
+	 * The batch is accepted or rejected as a whole: if the queue of the executor fills up part way through, the tasks of the batch that were already accepted are cancelled and their tickets are dropped.
+	 * The cache does not stop those that an identical task of another client is waiting for.
+	 *
+	 * @param tasks the tasks
+	 * @return the tickets of the tasks, in the order of the tasks
+	 * @throws RejectedTaskException if the queue of the executor cannot take the batch
+	 */
+	long[] submit(List<? extends Task<?>> tasks) throws RejectedTaskException{
+		if(tasks.size() > executor.getRemainingCapacity() + executor.getMaximumPoolSize() - executor.getActiveCount()){
+			throw new RejectedTaskException("The queue of " + executor.getQueueCapacity() + " waiting tasks cannot take a batch of " + tasks.size() + " tasks");
+		}
+		long[] tickets = new long[tasks.size()];
+		for(int i = 0; i < tickets.length; i++){
+			tickets[i] = lastTicket.incrementAndGet();
+			try{
+				futures.put(tickets[i], cache.submit(tasks.get(i)));
+			}
+			catch(RejectedTaskException e){
+				for(int j = 0; j < i; j++){
+					cache.cancel(futures.remove(tickets[j]));
+				}
+				throw e;
+			}
+		}
+		return tickets;
+	}
+
+	/**
+	 * Collects the results of the given tickets whose tasks have completed.
+	 *
+	 * @param tickets the tickets
+	 * @return the results of the completed tasks, by ticket
+	 */
+	Map<Long, Object> poll(long[] tickets){
+		Map<Long, Object> results = new HashMap<Long, Object>();
+		for(long ticket : tickets){
+			Future<?> future = futures.get(ticket);
+			if(future != null && future.isDone()){
+				collect(ticket, future, results);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Collects the results of the given tickets, waiting until all of their tasks have completed or the timeout has elapsed.
+	 *
+	 * @param tickets the tickets
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return the results of the completed tasks, by ticket
+	 */
+	Map<Long, Object> take(long[] tickets, long timeoutMillis){
+		long timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		long startTime = System.nanoTime();
+		Map<Long, Object> results = new HashMap<Long, Object>();
+		for(long ticket : tickets){
+			Future<?> future = futures.get(ticket);
+			if(future == null){
+				continue;
+			}
+			try{
+				future.get(Math.max(0, timeout - (System.nanoTime() - startTime)), TimeUnit.NANOSECONDS);
+			}
+			catch(TimeoutException e){
+				continue;
+			}
+			catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch(ExecutionException e){
+				// collected below
+			}
+			collect(ticket, future, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Asks the tasks of the given tickets to stop; their results are collected as usual once they have stopped.
+	 *
+	 * @param tickets the tickets
+	 */
+	void cancel(long[] tickets){
+		for(long ticket : tickets){
+			Future<?> future = futures.get(ticket);
+			if(future != null && cancelled.add(ticket)){
+				cache.cancel(future);
+			}
+		}
+	}
+
+	/**
+	 * Removes the ticket of a completed task and adds its result to the results.
+	 * The result of a cancelled task that was stopped before it ran to completion is wrapped in a BestEffortResult that is not complete, unless the task returned one itself.
+	 *
+	 * @param ticket the ticket
+	 * @param future the completed future of the task
+	 * @param results the results
+	 */
+	private void collect(long ticket, Future<?> future, Map<Long, Object> results){
+		if(futures.remove(ticket) == null){ // collected by a concurrent call
+			return;
+		}
+		boolean stopped = cancelled.remove(ticket) && TaskExecutor.wasStopped(future);
+		try{
+			Object result = future.get();
+			results.put(ticket, stopped && !(result instanceof BestEffortResult) ? new BestEffortResult<Object>(result, false) : result);
+		}
+		catch(ExecutionException e){
+			results.put(ticket, new TaskException("Task " + ticket + " failed", e.getCause()));
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
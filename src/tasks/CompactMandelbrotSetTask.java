@@ -0,0 +1,37 @@
+package tasks;
+
+import java.io.Serializable;
+
+import api.Task;
+
+/**
+ * This class is a Mandelbrot set task whose counts are returned as a compact MandelbrotSetResult instead of an int[][].
+ * The result is compressed when it is sent back to the client, which makes it a small fraction of the size of the int[][] of the same task.
+ */
+public final class CompactMandelbrotSetTask implements Task<MandelbrotSetResult>, Serializable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task that computes the counts. */
+	private MandelbrotSetTask task;
+
+	/**
+	 * Instantiates a new compact Mandelbrot set task.
+	 *
+	 * @param task the task that computes the counts
+	 */
+	public CompactMandelbrotSetTask(MandelbrotSetTask task){
+		this.task = task;
+	}
+
+	/**
+	 * Executes the Mandelbrot set task into a compact result.
+	 *
+	 * @return the counts, where getCount(i, j) = k for the representative point in the region[i][j]
+	 */
+	@Override
+	public MandelbrotSetResult execute() {
+		return task.executeCompact();
+	}
+}
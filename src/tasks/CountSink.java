@@ -0,0 +1,25 @@
+package tasks;
+
+/**
+ * This interface is implemented by the grids that the Mandelbrot set renderers write their counts into.
+ */
+interface CountSink {
+
+	/**
+	 * Gets the count of the representative point in the region[i][j], which has been set before.
+	 *
+	 * @param i the i
+	 * @param j the j
+	 * @return k
+	 */
+	int getCount(int i, int j);
+
+	/**
+	 * Sets the count of the representative point in the region[i][j].
+	 *
+	 * @param i the i
+	 * @param j the j
+	 * @param k the count
+	 */
+	void setCount(int i, int j, int k);
+}
@@ -0,0 +1,87 @@
+package tasks;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import api.Task;
+
+/**
+ * This class is a Mandelbrot set task for deep zooms, whose pixels are too small to be told apart by the double arithmetic of MandelbrotSetTask, below an edge length of about 1e-13.
+ * The left corner is given with as many digits as the zoom needs. One reference orbit is computed in BigDecimal arithmetic, and the orbits of all the pixels are computed in double arithmetic as perturbations of it, so a deep zoom costs about as much as a shallow render at the same iteration limit.
+ * The counts have the same meaning as those of MandelbrotSetTask.
+ */
+public final class DeepZoomMandelbrotSetTask implements Task<int [][]>, Serializable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The real part of the left corner of the square in the complex plane. */
+	private BigDecimal leftCornerReal;
+
+	/** The imaginary part of the left corner of the square in the complex plane. */
+	private BigDecimal leftCornerImag;
+
+	/** The edge length of the square in the complex plane. */
+	private double edgeLength;
+
+	/** The number of pixels along one edge of the square. */
+	private int numSquares;
+
+	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
+	private int iterationLimit;
+
+	/** The number of rebased orbits of the last execution on this instance. */
+	private transient volatile long rebases;
+
+	/** The length of the reference orbit of the last execution on this instance. */
+	private transient volatile int referenceLength;
+
+	/**
+	 * Instantiates a new deep zoom Mandelbrot set task.
+	 *
+	 * @param leftCornerReal the real part of the left corner of the square in the complex plane
+	 * @param leftCornerImag the imaginary part of the left corner of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane; the edge length of a pixel must be above about 1e-300
+	 * @param numSquares the number of pixels along one edge of the square
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 */
+	public DeepZoomMandelbrotSetTask(BigDecimal leftCornerReal, BigDecimal leftCornerImag, double edgeLength, int numSquares, int iterationLimit){
+		this.leftCornerReal = leftCornerReal;
+		this.leftCornerImag = leftCornerImag;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+	}
+
+	/**
+	 * Computes the counts of the pixels by perturbation of a reference orbit, on the shared fork-join pool.
+	 *
+	 * @return count array, where count[i][j] = k for the representative point in the region[i][j]
+	 */
+	@Override
+	public int[][] execute() {
+		PerturbationRenderer renderer = new PerturbationRenderer(leftCornerReal, leftCornerImag, edgeLength, numSquares, iterationLimit);
+		int[][] count = renderer.render(SharedPool.get());
+		rebases = renderer.getRebases();
+		referenceLength = renderer.getReferenceLength();
+		return count;
+	}
+
+	/**
+	 * Gets the number of times that the orbits of the pixels were rebased onto the start of the reference orbit by the last execution of this task in this JVM, after a glitch or at the end of the reference orbit.
+	 *
+	 * @return the number of rebases
+	 */
+	public long getRebases() {
+		return rebases;
+	}
+
+	/**
+	 * Gets the number of points of the reference orbit of the last execution of this task in this JVM.
+	 *
+	 * @return the length of the reference orbit
+	 */
+	public int getReferenceLength() {
+		return referenceLength;
+	}
+}
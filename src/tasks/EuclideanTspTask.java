@@ -2,36 +2,197 @@ package tasks;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import api.Cancellation;
+import api.InputBlob;
+import api.InputRef;
+import api.SplittableTask;
 import api.Task;
+import api.TimeDependentTask;
 
 /**
  * This class solves a Traveling Salesman Problem (TSP), where the cities are points in the 2D Euclidean plane.
+ * With the branch-and-bound solver, a computer can split the task into the searches of the tours that start with city 0 and each of the other cities.
+ * The cities are either carried by the task or referred to by an InputRef, so that a large instance is uploaded to a computer once and solved by several tasks, such as with several solvers or time budgets.
  */
-public final class EuclideanTspTask implements Task<int[]>, Serializable{
+public final class EuclideanTspTask implements SplittableTask<int[]>, TimeDependentTask<int[]>, Serializable{
 
 	/** The Constant serialVersionUID. */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 	
-	/** The cities in 2D Euclidean plance that are part of the TSP. */
+	/**
+	 * The algorithm that is used to find a minimal distance tour.
+	 */
+	public enum Solver {
+		/** Iterates over all the permutations of the cities. */
+		BRUTE_FORCE,
+		/** Searches the tours that start at city 0 in parallel, pruning the partial tours that cannot beat the best tour found so far. */
+		BRANCH_AND_BOUND,
+		/** Fills the Held-Karp dynamic programming table over the subsets of the cities; limited to 21 cities. */
+		HELD_KARP,
+		/** Improves tours with 2-opt and Or-opt moves between near cities until the time budget runs out or the tours stop improving; the tour is short but not necessarily minimal. */
+		HEURISTIC,
+		/** Picks one of the exact solvers based on the number of cities; the tour is always minimal, so a large instance needs HEURISTIC, or a DeadlineTask to bound the search. */
+		AUTO
+	}
+	
+	/** The largest number of cities for which AUTO iterates over all the permutations. */
+	private static final int MAX_BRUTE_FORCE_CITIES = 8;
+	
+	/** The smallest number of cities for which AUTO fills the Held-Karp table. */
+	private static final int MIN_HELD_KARP_CITIES = 15;
+	
+	/** The smallest number of cities for which the branch-and-bound search is split; smaller instances are solved faster than the heuristic search for the bound of the prefix tasks. */
+	private static final int MIN_SPLIT_CITIES = 16;
+	
+	/** The time budget of the heuristic search for the bound of the prefix tasks when the task is split, in milliseconds. */
+	private static final long SPLIT_BOUND_MILLIS = 100;
+	
+	/** The relative amount by which the bound of the prefix tasks exceeds the heuristic tour, so that a tour of the same length is not pruned because of rounding. */
+	private static final double SPLIT_BOUND_SLACK = 1e-9;
+	
+	/** The mask of the permutation numbers at which the brute force search checks whether it was cancelled, every 1024 permutations. */
+	private static final int CANCELLATION_CHECK_MASK = (1 << 10) - 1;
+	
+	/** The time budget of the heuristic solver when none is given, in milliseconds. */
+	public static final long DEFAULT_TIME_BUDGET_MILLIS = 2000;
+	
+	/** The cities in 2D Euclidean plance that are part of the TSP, or null if the task refers to them. */
 	private double[][] cities;
 	
+	/** The reference to the input blob of the cities, with a row of x and y per city, or null if the task carries the cities. */
+	private InputRef cityRef;
+	
+	/** The cities of the input blob, once the task has read them in this JVM. */
+	private transient double[][] resolvedCities;
+	
+	/** The algorithm that is used to find a minimal distance tour. */
+	private Solver solver;
+	
+	/** The time budget of the heuristic solver, in milliseconds. */
+	private long timeBudgetMillis;
+	
 	/**
 	 * Instantiates a new Euclidean TSP task.
 	 *
 	 * @param cities the cities in 2D Euclidean plance that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
 	 */
 	public EuclideanTspTask(double[][] cities){
-		this.cities = cities;		
+		this(cities, Solver.AUTO);
 	}
 	
 	/**
-	 * Executes the Euclidean TSP Task.
-	 * The method of finding the minimal distance tour is not efficient; the program will iterate over all permutations of the cities, and return a permutation of least cost. 
-	 * @return tour that lists the order of the cities of a minimal distance tour. 	
+	 * Instantiates a new Euclidean TSP task that uses the given solver.
+	 *
+	 * @param cities the cities in 2D Euclidean plance that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
+	 * @param solver the algorithm that is used to find a minimal distance tour
+	 */
+	public EuclideanTspTask(double[][] cities, Solver solver){
+		this(cities, solver, DEFAULT_TIME_BUDGET_MILLIS);
+	}
+	
+	/**
+	 * Instantiates a new Euclidean TSP task that uses the given solver and, if the solver is heuristic, returns the shortest tour found within the given time.
+	 *
+	 * @param cities the cities in 2D Euclidean plance that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
+	 * @param solver the algorithm that is used to find a minimal distance tour
+	 * @param timeBudgetMillis the time budget of the heuristic solver, in milliseconds
+	 */
+	public EuclideanTspTask(double[][] cities, Solver solver, long timeBudgetMillis){
+		this.cities = cities;
+		this.solver = solver;
+		this.timeBudgetMillis = timeBudgetMillis;
+	}
+	
+	/**
+	 * Instantiates a new Euclidean TSP task whose cities are an input blob that is uploaded to the computer before the task is submitted; only the hash of the blob is sent with the task.
+	 *
+	 * @param cityRef the reference to the input blob of the cities, with a row of x and y per city
+	 * @param solver the algorithm that is used to find a minimal distance tour
+	 * @param timeBudgetMillis the time budget of the heuristic solver, in milliseconds
+	 */
+	public EuclideanTspTask(InputRef cityRef, Solver solver, long timeBudgetMillis){
+		this.cityRef = cityRef;
+		this.solver = solver;
+		this.timeBudgetMillis = timeBudgetMillis;
+	}
+	
+	/**
+	 * Gets the cities, reading them from the input store if the task refers to them.
+	 *
+	 * @return the cities
+	 * @throws api.MissingInputException if the input blob of the cities is not in the input store
+	 */
+	double[][] getCities(){
+		if(cities != null){
+			return cities;
+		}
+		double[][] known = resolvedCities;
+		if(known == null){
+			InputBlob blob = cityRef.get();
+			if(blob.getColumns() != 2){
+				throw new IllegalArgumentException("The input " + blob.getHash() + " has " + blob.getColumns() + " values per city instead of 2");
+			}
+			known = blob.toArray();
+			resolvedCities = known;
+		}
+		return known;
+	}
+	
+	/**
+	 * Executes the Euclidean TSP Task with the solver of the task.
+	 * With AUTO, instances of up to 8 cities are solved by brute force, instances of 15 to 21 cities with the Held-Karp table and all the others with branch-and-bound; only HEURISTIC, which is never picked by AUTO, may return a tour that is not minimal.
+	 * The solvers check the Cancellation of the task as they search: a cancelled task returns the shortest tour it has found so far, which is a nearest neighbour tour if the search found none shorter, or the tour found so far by the heuristic solver.
+	 * @return tour that lists the order of the cities of a minimal distance tour; with the heuristic solver, the tour is the shortest one found within the time budget. 	
 	 */
 	@Override
 	public int[] execute() {
+		double[][] cities = getCities();
+		switch(getEffectiveSolver()){
+		case BRANCH_AND_BOUND:
+			return execute(SharedPool.get());
+		case HELD_KARP:
+			int[] tour = new TspHeldKarp(distanceMatrix(cities), cities.length).solve(SharedPool.get());
+			// a cancelled table holds no tour; the branch-and-bound search returns its nearest neighbour tour right away
+			return tour != null ? tour : execute(SharedPool.get());
+		case HEURISTIC:
+			return new TspLocalSearch(cities).solve(SharedPool.get(), timeBudgetMillis);
+		default:
+			return executeBruteForce(cities);
+		}
+	}
+	
+	/**
+	 * Gets the solver that is used for the cities of this task, resolving AUTO by the number of cities.
+	 *
+	 * @return the solver
+	 */
+	Solver getEffectiveSolver(){
+		if(solver != Solver.AUTO){
+			return solver;
+		}
+		double[][] cities = getCities();
+		if(cities.length <= MAX_BRUTE_FORCE_CITIES){
+			return Solver.BRUTE_FORCE;
+		}
+		if(cities.length >= MIN_HELD_KARP_CITIES && cities.length <= TspHeldKarp.MAX_CITIES){
+			return Solver.HELD_KARP;
+		}
+		return Solver.BRANCH_AND_BOUND;
+	}
+	
+	/**
+	 * Finds the minimal distance tour by brute force.
+	 * The method of finding the minimal distance tour is not efficient; the program will iterate over all permutations of the cities, and return a permutation of least cost. 
+	 * If the task is cancelled, the search stops and the shortest tour of the permutations searched so far is returned.
+	 * @param cities the cities
+	 * @return tour that lists the order of the cities of a minimal distance tour. 	
+	 */
+	private int[] executeBruteForce(double[][] cities) {
+		Cancellation cancellation = Cancellation.current();
 		// tour lists the order of the cities of a minimal distance tour.
 		int[] tour = null;
 		// Variable to hold the minimum distance between all the cities.
@@ -47,6 +208,9 @@ public final class EuclideanTspTask implements Task<int[]>, Serializable{
 			if(permutation == null){ // All the permutations have been computed. No more left.
 				break;
 			}
+			if((n & CANCELLATION_CHECK_MASK) == 0 && tour != null && cancellation.isCancelled()){
+				break;
+			}
 			for(int j = 0; j < permutation.length; j++){
 				currentDistance += calculateDistance(cities[permutation[j]], cities[permutation[(j + 1) % permutation.length]]);				
 			}
@@ -60,6 +224,87 @@ public final class EuclideanTspTask implements Task<int[]>, Serializable{
 		return tour;
 	}
 	
+	/**
+	 * Executes the Euclidean TSP Task with a branch-and-bound search on the given fork-join pool.
+	 * The tour is exact; it starts at city 0 and has the same shape as the tour of the brute force search.
+	 *
+	 * @param pool the fork-join pool on which the subtrees of the search are executed
+	 * @return tour that lists the order of the cities of a minimal distance tour.
+	 */
+	public int[] execute(ForkJoinPool pool) {
+		double[][] cities = getCities();
+		return new TspBranchAndBound(distanceMatrix(cities), cities.length).solve(pool);
+	}
+	
+	/**
+	 * Tells whether the tour depends on how long the task executes, which is the case for the heuristic solver: it returns the shortest tour found within its time budget.
+	 *
+	 * @return true if the task uses the heuristic solver
+	 */
+	@Override
+	public boolean isTimeDependent() {
+		return solver == Solver.HEURISTIC;
+	}
+	
+	/**
+	 * Estimates the work of the task by the number of orders of the cities other than city 0.
+	 *
+	 * @return the number of orders, or Long.MAX_VALUE if it does not fit into a long
+	 */
+	@Override
+	public long estimateSize() {
+		return TspPrefixTask.orders(getCities().length - 1);
+	}
+	
+	/**
+	 * Splits the search by the city that follows city 0.
+	 * Only the branch-and-bound search is split, since the other solvers do not search the tours by their prefixes. The prefix tasks only search the tours that are shorter than a tour found by the heuristic solver, which is usually minimal already, because they cannot share the best tour found so far.
+	 *
+	 * @return a prefix task for every city other than city 0, or none if the task does not use branch-and-bound or has fewer than 16 cities
+	 */
+	@Override
+	public List<? extends Task<int[]>> split() {
+		double[][] cities = getCities();
+		if(getEffectiveSolver() != Solver.BRANCH_AND_BOUND || cities.length < MIN_SPLIT_CITIES){
+			return Collections.emptyList();
+		}
+		TspLocalSearch search = new TspLocalSearch(cities);
+		search.solve(SharedPool.get(), SPLIT_BOUND_MILLIS);
+		return TspPrefixTask.extensions(this, new int[] { 0 }, search.getLength() * (1 + SPLIT_BOUND_SLACK));
+	}
+	
+	/**
+	 * Picks the shortest of the tours of the prefix tasks.
+	 *
+	 * @param results the tours of the prefix tasks
+	 * @return the shortest tour
+	 */
+	@Override
+	public int[] merge(List<int[]> results) {
+		return TspPrefixTask.shortest(getCities(), results);
+	}
+	
+	/**
+	 * Computes the distances between all the pairs of cities once, so that the solvers do not have to recompute them for every edge of every tour.
+	 *
+	 * @param cities the cities
+	 * @return the distance matrix as a flat array, where matrix[i * n + j] is the distance between city i and city j
+	 */
+	static double[] distanceMatrix(double[][] cities){
+		int n = cities.length;
+		double[] matrix = new double[n * n];
+		for(int i = 0; i < n; i++){
+			for(int j = i + 1; j < n; j++){
+				double dx = cities[i][0] - cities[j][0];
+				double dy = cities[i][1] - cities[j][1];
+				double distance = Math.sqrt(dx * dx + dy * dy);
+				matrix[i * n + j] = distance;
+				matrix[j * n + i] = distance;
+			}
+		}
+		return matrix;
+	}
+	
 	/**
 	 * Generate the nth permutations in lexicographic order.
 	 *
@@ -147,11 +392,13 @@ public final class EuclideanTspTask implements Task<int[]>, Serializable{
 				{1, 3},
 				{6, 6}
 				}; 
-		EuclideanTspTask task = new EuclideanTspTask(cities);
-		long startTime = System.currentTimeMillis();
-		int[] tour = task.execute();
-		System.out.println("Time: " + (System.currentTimeMillis() - startTime));
-		System.out.println("Tour");
-		task.printArray(tour);		
+		for(Solver solver : Solver.values()){
+			EuclideanTspTask task = new EuclideanTspTask(cities, solver);
+			long startTime = System.currentTimeMillis();
+			int[] tour = task.execute();
+			System.out.println(solver + " Time: " + (System.currentTimeMillis() - startTime));
+			System.out.println("Tour");
+			task.printArray(tour);
+		}
 	}
 }
@@ -0,0 +1,38 @@
+package tasks;
+
+import java.io.Serializable;
+
+import api.Task;
+
+/**
+ * This class is a Mandelbrot set task that is rendered incrementally: a task of a viewport that was rendered before at a lower iteration limit only continues the orbits of the pixels that had not escaped.
+ * A client that zooms into a viewport and then raises its iteration limit step by step pays for each step only the iterations between the two limits, of the pixels that are still unresolved.
+ * The counts are returned as a compact MandelbrotSetResult.
+ */
+public final class IncrementalMandelbrotSetTask implements Task<MandelbrotSetResult>, Serializable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task that computes the counts. */
+	private MandelbrotSetTask task;
+
+	/**
+	 * Instantiates a new incremental Mandelbrot set task.
+	 *
+	 * @param task the task that computes the counts; its tiling and kernel are not used
+	 */
+	public IncrementalMandelbrotSetTask(MandelbrotSetTask task){
+		this.task = task;
+	}
+
+	/**
+	 * Executes the Mandelbrot set task incrementally into a compact result.
+	 *
+	 * @return the counts, where getCount(i, j) = k for the representative point in the region[i][j]
+	 */
+	@Override
+	public MandelbrotSetResult execute() {
+		return task.executeIncremental();
+	}
+}
@@ -0,0 +1,113 @@
+package tasks;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import api.SplittableTask;
+import api.Task;
+
+/**
+ * This class is a band of whole rows of a Mandelbrot set task, which is what the task is split into.
+ * The band computes its rows with the tiling and the kernel of the task, so its counts are exactly those of the rows of the task; a band is split in halves.
+ */
+final class MandelbrotBandTask implements SplittableTask<int[][]>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task whose rows the band holds. */
+	private final MandelbrotSetTask task;
+
+	/** The number of pixels along one edge of the task. */
+	private final int numSquares;
+
+	/** The first row of the band. */
+	private final int from;
+
+	/** The row after the last row of the band. */
+	private final int to;
+
+	/**
+	 * Instantiates a new band.
+	 *
+	 * @param task the task whose rows the band holds
+	 * @param numSquares the number of pixels along one edge of the task
+	 * @param from the first row of the band
+	 * @param to the row after the last row of the band
+	 */
+	MandelbrotBandTask(MandelbrotSetTask task, int numSquares, int from, int to){
+		this.task = task;
+		this.numSquares = numSquares;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Splits a range of rows of a task into two bands.
+	 *
+	 * @param task the task
+	 * @param numSquares the number of pixels along one edge of the task
+	 * @param from the first row of the range
+	 * @param to the row after the last row of the range
+	 * @return the two bands, or no band if the range has a single row
+	 */
+	static List<MandelbrotBandTask> halves(MandelbrotSetTask task, int numSquares, int from, int to){
+		if(to - from < 2){
+			return Collections.emptyList();
+		}
+		int mid = (from + to) >>> 1;
+		return Arrays.asList(new MandelbrotBandTask(task, numSquares, from, mid), new MandelbrotBandTask(task, numSquares, mid, to));
+	}
+
+	/**
+	 * Concatenates the rows of consecutive bands.
+	 *
+	 * @param bands the counts of the bands, in the order of their rows
+	 * @return the counts of all the rows
+	 */
+	static int[][] concatenate(List<int[][]> bands){
+		int rows = 0;
+		for(int[][] band : bands){
+			rows += band.length;
+		}
+		int[][] count = new int[rows][];
+		int row = 0;
+		for(int[][] band : bands){
+			System.arraycopy(band, 0, count, row, band.length);
+			row += band.length;
+		}
+		return count;
+	}
+
+	/**
+	 * Computes the counts of the rows of the band.
+	 *
+	 * @return count array, where count[i - from][j] = k for the representative point in the region[i][j]
+	 */
+	@Override
+	public int[][] execute() {
+		return task.executeRows(from, to);
+	}
+
+	/**
+	 * Estimates the work of the band by its number of pixels.
+	 *
+	 * @return the number of pixels of the band
+	 */
+	@Override
+	public long estimateSize() {
+		return (long) (to - from) * numSquares;
+	}
+
+	@Override
+	public List<? extends Task<int[][]>> split() {
+		return halves(task, numSquares, from, to);
+	}
+
+	@Override
+	public int[][] merge(List<int[][]> results) {
+		return concatenate(results);
+	}
+}
@@ -0,0 +1,170 @@
+package tasks;
+
+/**
+ * This class computes the counts of a run of pixels of a Mandelbrot set task faster than one getK call per pixel, with exactly the same counts.
+ * <ul>
+ * <li>The pixels are iterated four at a time, in lock step; the four orbits are independent, so the processor overlaps their multiplications instead of waiting on the latency of a single orbit.</li>
+ * <li>The points in the main cardioid and in the period-2 bulb are in the set, so their count is the iteration limit without iterating.</li>
+ * <li>The orbit of a point in the set usually settles on a cycle. Every orbit is compared with a copy saved at iterations 2, 4, 8, ...; once an orbit returns exactly to the saved point, it repeats forever without escaping, so its count is the iteration limit.</li>
+ * </ul>
+ * Since the orbits are computed with the same floating-point operations in the same order as getK, an orbit escapes at the same iteration.
+ */
+final class MandelbrotKernel {
+
+	/** The number of pixels that are iterated in lock step. */
+	static final int LANES = 4;
+
+	/**
+	 * Instantiates a new kernel; it is never instantiated.
+	 */
+	private MandelbrotKernel(){
+	}
+
+	/**
+	 * Computes the counts of the pixels (i, jStart) to (i, jEnd - 1).
+	 *
+	 * @param cReal the real part of the representative points of column i
+	 * @param imagCorner the imaginary part of the left corner of the region
+	 * @param edgeLength the edge length of the region
+	 * @param numSquares the number of pixels along one edge of the region
+	 * @param jStart the first pixel of the run
+	 * @param jEnd the pixel after the last pixel of the run
+	 * @param iterationLimit the iteration limit
+	 * @param counts the array that receives the count of pixel (i, j) at j - jStart
+	 */
+	static void compute(double cReal, double imagCorner, double edgeLength, int numSquares, int jStart, int jEnd, int iterationLimit, int[] counts){
+		int j = jStart;
+		for(; j + LANES <= jEnd; j += LANES){
+			computeLanes(cReal,
+					imagCorner + (j * edgeLength / numSquares),
+					imagCorner + ((j + 1) * edgeLength / numSquares),
+					imagCorner + ((j + 2) * edgeLength / numSquares),
+					imagCorner + ((j + 3) * edgeLength / numSquares),
+					iterationLimit, counts, j - jStart);
+		}
+		for(; j < jEnd; j++){
+			counts[j - jStart] = computeOne(cReal, imagCorner + (j * edgeLength / numSquares), iterationLimit);
+		}
+	}
+
+	/**
+	 * Tells whether a point is in the main cardioid or in the period-2 bulb of the Mandelbrot set.
+	 *
+	 * @param x the real part of the point
+	 * @param y the imaginary part of the point
+	 * @return true if the point is in one of them
+	 */
+	static boolean inCardioidOrBulb(double x, double y){
+		double xq = x - 0.25;
+		double y2 = y * y;
+		double q = xq * xq + y2;
+		if(q * (q + xq) < 0.25 * y2){
+			return true;
+		}
+		double x1 = x + 1;
+		return x1 * x1 + y2 < 0.0625;
+	}
+
+	/**
+	 * Computes the count of a single point.
+	 *
+	 * @param cReal the real part of the point
+	 * @param cImag the imaginary part of the point
+	 * @param iterationLimit the iteration limit
+	 * @return k
+	 */
+	static int computeOne(double cReal, double cImag, int iterationLimit){
+		if(iterationLimit <= 1){
+			return 1;
+		}
+		if(inCardioidOrBulb(cReal, cImag)){
+			return iterationLimit;
+		}
+		double real = 0, imag = 0;
+		double savedReal = 0, savedImag = 0;
+		int nextCheckpoint = 2;
+		int k = 1;
+		while( (real * real + imag * imag < 4) && k < iterationLimit){
+			double temp = real * real - imag * imag + cReal;
+			imag = 2 * real * imag + cImag;
+			real = temp;
+			k++;
+			if(real == savedReal && imag == savedImag){ // the orbit is periodic
+				return iterationLimit;
+			}
+			if(k == nextCheckpoint){
+				savedReal = real;
+				savedImag = imag;
+				nextCheckpoint <<= 1;
+			}
+		}
+		return k;
+	}
+
+	/**
+	 * Computes the counts of four points that share the real part, in lock step.
+	 * All four orbits are advanced on every step, including the ones that are done, which keeps the loop free of branches around the arithmetic; the orbits that are done are only excluded from the checks.
+	 *
+	 * @param cReal the real part of the points
+	 * @param cImag0 the imaginary part of the first point
+	 * @param cImag1 the imaginary part of the second point
+	 * @param cImag2 the imaginary part of the third point
+	 * @param cImag3 the imaginary part of the fourth point
+	 * @param iterationLimit the iteration limit
+	 * @param counts the array that receives the counts
+	 * @param offset the index of the count of the first point
+	 */
+	private static void computeLanes(double cReal, double cImag0, double cImag1, double cImag2, double cImag3, int iterationLimit, int[] counts, int offset){
+		if(iterationLimit <= 1){
+			counts[offset] = counts[offset + 1] = counts[offset + 2] = counts[offset + 3] = 1;
+			return;
+		}
+		int k0 = iterationLimit, k1 = iterationLimit, k2 = iterationLimit, k3 = iterationLimit;
+		boolean active0 = !inCardioidOrBulb(cReal, cImag0);
+		boolean active1 = !inCardioidOrBulb(cReal, cImag1);
+		boolean active2 = !inCardioidOrBulb(cReal, cImag2);
+		boolean active3 = !inCardioidOrBulb(cReal, cImag3);
+		double r0 = 0, i0 = 0, r1 = 0, i1 = 0, r2 = 0, i2 = 0, r3 = 0, i3 = 0;
+		double sr0 = 0, si0 = 0, sr1 = 0, si1 = 0, sr2 = 0, si2 = 0, sr3 = 0, si3 = 0;
+		int nextCheckpoint = 2;
+		int k = 1;
+		while(true){
+			// the escape test of each orbit, as at the head of the loop of getK
+			if(active0 && !(r0 * r0 + i0 * i0 < 4)){ active0 = false; k0 = k; }
+			if(active1 && !(r1 * r1 + i1 * i1 < 4)){ active1 = false; k1 = k; }
+			if(active2 && !(r2 * r2 + i2 * i2 < 4)){ active2 = false; k2 = k; }
+			if(active3 && !(r3 * r3 + i3 * i3 < 4)){ active3 = false; k3 = k; }
+			if(!(active0 | active1 | active2 | active3) || k >= iterationLimit){
+				break; // the orbits that are still active reached the limit, which is their count
+			}
+			double t0 = r0 * r0 - i0 * i0 + cReal;
+			double t1 = r1 * r1 - i1 * i1 + cReal;
+			double t2 = r2 * r2 - i2 * i2 + cReal;
+			double t3 = r3 * r3 - i3 * i3 + cReal;
+			i0 = 2 * r0 * i0 + cImag0;
+			i1 = 2 * r1 * i1 + cImag1;
+			i2 = 2 * r2 * i2 + cImag2;
+			i3 = 2 * r3 * i3 + cImag3;
+			r0 = t0;
+			r1 = t1;
+			r2 = t2;
+			r3 = t3;
+			k++;
+			if(active0 && r0 == sr0 && i0 == si0){ active0 = false; }
+			if(active1 && r1 == sr1 && i1 == si1){ active1 = false; }
+			if(active2 && r2 == sr2 && i2 == si2){ active2 = false; }
+			if(active3 && r3 == sr3 && i3 == si3){ active3 = false; }
+			if(k == nextCheckpoint){
+				sr0 = r0; si0 = i0;
+				sr1 = r1; si1 = i1;
+				sr2 = r2; si2 = i2;
+				sr3 = r3; si3 = i3;
+				nextCheckpoint <<= 1;
+			}
+		}
+		counts[offset] = k0;
+		counts[offset + 1] = k1;
+		counts[offset + 2] = k2;
+		counts[offset + 3] = k3;
+	}
+}
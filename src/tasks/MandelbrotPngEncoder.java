@@ -0,0 +1,187 @@
+package tasks;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * This class encodes the counts of a tile file as a PNG image, one row at a time, so that the image is never held whole in memory.
+ * The image has a palette of 256 colors: the pixels in the set are black, and the other counts cycle through 255 hues.
+ * As in the Visualizer, the pixel (i, j) is drawn at x = i and y = j, so the rows of the image are the lines of constant j of the tile file.
+ */
+final class MandelbrotPngEncoder {
+
+	/** The signature that starts every PNG file. */
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+	/** The largest number of bytes of an IDAT chunk. */
+	private static final int CHUNK_BYTES = 1 << 16;
+
+	/**
+	 * Instantiates a new encoder; it is never instantiated.
+	 */
+	private MandelbrotPngEncoder(){
+	}
+
+	/**
+	 * Encodes a tile file as a PNG file.
+	 *
+	 * @param tiles the tile file
+	 * @param file the PNG file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static void encode(MandelbrotTileFile tiles, File file) throws IOException{
+		int size = tiles.getNumSquares();
+		int limit = tiles.getIterationLimit();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), CHUNK_BYTES));
+		try{
+			out.write(SIGNATURE);
+			ChunkWriter header = new ChunkWriter(out, "IHDR");
+			DataOutputStream headerData = new DataOutputStream(header);
+			headerData.writeInt(size);
+			headerData.writeInt(size);
+			headerData.write(new byte[] { 8, 3, 0, 0, 0 }); // 8 bits, palette, deflate, no filters, no interlace
+			header.close();
+			ChunkWriter palette = new ChunkWriter(out, "PLTE");
+			palette.write(createPalette());
+			palette.close();
+			ChunkWriter data = new ChunkWriter(out, "IDAT");
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			DeflaterOutputStream compressed = new DeflaterOutputStream(data, deflater, CHUNK_BYTES);
+			int[] counts = new int[size];
+			byte[] row = new byte[size + 1]; // starts with the filter type 0
+			for(int j = 0; j < size; j++){
+				tiles.readLine(j, counts);
+				for(int i = 0; i < size; i++){
+					row[i + 1] = (byte) colorIndex(counts[i], limit);
+				}
+				compressed.write(row);
+			}
+			compressed.finish();
+			deflater.end();
+			data.close();
+			new ChunkWriter(out, "IEND").close();
+		}
+		finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * Gets the index in the palette of the color of a count.
+	 *
+	 * @param k the count
+	 * @param iterationLimit the iteration limit
+	 * @return the index of the color
+	 */
+	static int colorIndex(int k, int iterationLimit){
+		return k >= iterationLimit ? 0 : 1 + (k - 1) % 255;
+	}
+
+	/**
+	 * Creates the palette: black, followed by 255 hues.
+	 *
+	 * @return the red, green and blue of the 256 colors
+	 */
+	private static byte[] createPalette(){
+		byte[] palette = new byte[256 * 3];
+		for(int index = 1; index < 256; index++){
+			int rgb = Color.HSBtoRGB((index - 1) / 255f, 0.85f, 1f);
+			palette[3 * index] = (byte) (rgb >> 16);
+			palette[3 * index + 1] = (byte) (rgb >> 8);
+			palette[3 * index + 2] = (byte) rgb;
+		}
+		return palette;
+	}
+
+	/**
+	 * An output stream that writes the bytes written to it as PNG chunks of one type, with their lengths and CRCs.
+	 * The bytes are buffered, and a chunk is written each time the buffer is full and when the stream is closed.
+	 */
+	private static final class ChunkWriter extends OutputStream {
+
+		/** The output of the PNG file. */
+		private final DataOutputStream out;
+
+		/** The type of the chunks. */
+		private final byte[] type;
+
+		/** The data of the next chunk. */
+		private final byte[] buffer = new byte[CHUNK_BYTES];
+
+		/** The number of bytes in the buffer. */
+		private int length;
+
+		/** Whether a chunk has been written. */
+		private boolean written;
+
+		/**
+		 * Instantiates a new chunk writer.
+		 *
+		 * @param out the output of the PNG file
+		 * @param type the type of the chunks
+		 */
+		ChunkWriter(DataOutputStream out, String type){
+			this.out = out;
+			this.type = type.getBytes();
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if(length == buffer.length){
+				flushChunk();
+			}
+			buffer[length++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while(len > 0){
+				if(length == buffer.length){
+					flushChunk();
+				}
+				int n = Math.min(len, buffer.length - length);
+				System.arraycopy(b, off, buffer, length, n);
+				length += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		/**
+		 * Writes the buffer as a chunk.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private void flushChunk() throws IOException{
+			CRC32 crc = new CRC32();
+			crc.update(type);
+			crc.update(buffer, 0, length);
+			out.writeInt(length);
+			out.write(type);
+			out.write(buffer, 0, length);
+			out.writeInt((int) crc.getValue());
+			length = 0;
+			written = true;
+		}
+
+		/**
+		 * Writes the last chunk; a chunk is always written, even if it is empty.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		@Override
+		public void close() throws IOException {
+			if(length > 0 || !written){
+				flushChunk();
+			}
+		}
+	}
+}
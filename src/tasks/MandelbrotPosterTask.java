@@ -0,0 +1,71 @@
+package tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+import api.ResultFile;
+import api.Task;
+
+/**
+ * This class is a Mandelbrot set task for grids that are too large to be held on the heap or returned in a single response, such as a poster of 32768 x 32768 pixels.
+ * The counts are written in tiles into a memory-mapped tile file in the result directory of the computer, which is then encoded, one row at a time, into a PNG image next to it.
+ * The task returns the PNG file, which the client reads in chunks with Computer.fetch.
+ */
+public final class MandelbrotPosterTask implements Task<ResultFile>, Serializable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task that computes the counts. */
+	private MandelbrotSetTask task;
+
+	/** Whether the tile file is kept next to the image. */
+	private boolean keepTiles;
+
+	/**
+	 * Instantiates a new poster task, which deletes its tile file once the image is encoded.
+	 *
+	 * @param task the task that computes the counts; with square tiles, its tile size is the tile size of the tile file
+	 */
+	public MandelbrotPosterTask(MandelbrotSetTask task){
+		this(task, false);
+	}
+
+	/**
+	 * Instantiates a new poster task.
+	 *
+	 * @param task the task that computes the counts; with square tiles, its tile size is the tile size of the tile file
+	 * @param keepTiles whether the tile file is kept next to the image
+	 */
+	public MandelbrotPosterTask(MandelbrotSetTask task, boolean keepTiles){
+		this.task = task;
+		this.keepTiles = keepTiles;
+	}
+
+	/**
+	 * Renders the counts into a tile file and encodes them into a PNG file.
+	 *
+	 * @return the PNG file in the result directory
+	 */
+	@Override
+	public ResultFile execute() {
+		try{
+			File directory = ResultFile.getDirectory();
+			File tiles = File.createTempFile("mandelbrot-", ".tiles", directory);
+			try{
+				File image = new File(directory, tiles.getName().replace(".tiles", ".png"));
+				MandelbrotPngEncoder.encode(task.executeToFile(tiles), image);
+				return new ResultFile(image.getName(), image.length());
+			}
+			finally{
+				if(!keepTiles){
+					tiles.delete();
+				}
+			}
+		}
+		catch(IOException e){
+			throw new IllegalStateException("The poster could not be written to the result directory", e);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package tasks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import api.Cancellation;
+import api.TaskCancelledException;
+
+/**
+ * This class renders a viewport of the Mandelbrot set incrementally: it continues the orbits that the last render of the viewport left unresolved, from where they stopped, up to the new iteration limit.
+ * The orbit of a pixel is the same sequence of points whether it is computed in one go or resumed, so the counts are the same as the counts of getK.
+ * A pixel that escaped keeps its count at any higher limit, and at a lower limit its count is the smaller of its count and the limit; only the pixels that reached the last limit are iterated again.
+ * The orbits that are known never to escape, those of the points in the main cardioid or the period-2 bulb and those that return exactly to an earlier point, are not iterated again either.
+ * A render that is cancelled throws a TaskCancelledException and leaves the stored state of the viewport as it was.
+ */
+final class MandelbrotRefiner {
+
+	/** The number of orbits that are iterated by a single fork-join task. */
+	private static final int CHUNK_SIZE = 4096;
+
+	/** The viewport of the render. */
+	private final OrbitStore.Viewport viewport;
+
+	/** The left corner coordinates of the square in the complex plane. */
+	private final double[] leftCornerCoordinates;
+
+	/** The edge length of the square in the complex plane. */
+	private final double edgeLength;
+
+	/** The number of pixels along one edge of the region. */
+	private final int numSquares;
+
+	/** The iteration limit of the render. */
+	private final int iterationLimit;
+
+	/** The number of orbits that were iterated by the last render, including the ones that were found to be in the set without iterating. */
+	private long iteratedPixels;
+
+	/** The cancellation of the task that created the refiner, which the workers of the pool check. */
+	private final Cancellation cancellation = Cancellation.current();
+
+	/**
+	 * Instantiates a new refiner.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number of pixels along one edge of the region
+	 * @param iterationLimit the iteration limit of the render
+	 */
+	MandelbrotRefiner(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit){
+		this.viewport = new OrbitStore.Viewport(leftCornerCoordinates, edgeLength, numSquares);
+		this.leftCornerCoordinates = leftCornerCoordinates;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+	}
+
+	/**
+	 * Renders the viewport into the sink, continuing from the stored state of the viewport if there is one, and stores the new state.
+	 *
+	 * @param pool the fork-join pool on which the orbits are iterated
+	 * @param sink the grid that the counts are written into
+	 */
+	void render(ForkJoinPool pool, CountSink sink){
+		OrbitStore.State state = OrbitStore.get(viewport);
+		if(state == null || state.iterationLimit < iterationLimit){
+			state = refine(pool, state);
+			OrbitStore.put(viewport, state);
+		}
+		else{
+			iteratedPixels = 0;
+		}
+		for(int i = 0; i < numSquares; i++){
+			for(int j = 0; j < numSquares; j++){
+				int count = state.counts.get(i * numSquares + j);
+				sink.setCount(i, j, count == 0 ? iterationLimit : Math.min(count, iterationLimit));
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of orbits that were iterated by the last render.
+	 *
+	 * @return the number of iterated pixels
+	 */
+	long getIteratedPixels(){
+		return iteratedPixels;
+	}
+
+	/**
+	 * Iterates the unresolved orbits of a state up to the iteration limit, or all the orbits from the start if there is no state.
+	 *
+	 * @param pool the fork-join pool
+	 * @param previous the state of the last render at a lower limit, or null
+	 * @return the new state
+	 */
+	private OrbitStore.State refine(ForkJoinPool pool, OrbitStore.State previous){
+		int size = numSquares * numSquares;
+		MandelbrotSetResult counts = previous == null ? new MandelbrotSetResult(numSquares, iterationLimit) : new MandelbrotSetResult(previous.counts, iterationLimit);
+		int[] pixels = previous == null ? null : previous.unresolved;
+		int orbits = previous == null ? size : pixels.length;
+		double[] real = new double[orbits];
+		double[] imag = new double[orbits];
+		if(previous != null){
+			System.arraycopy(previous.real, 0, real, 0, orbits);
+			System.arraycopy(previous.imag, 0, imag, 0, orbits);
+		}
+		int startK = previous == null ? 1 : previous.iterationLimit;
+		iteratedPixels = orbits;
+		pool.invoke(new OrbitRange(pixels, startK, counts, real, imag, 0, orbits));
+		if(cancellation.isCancelled()){
+			throw new TaskCancelledException("The Mandelbrot set was cancelled before all of its orbits were iterated");
+		}
+		int unresolved = 0;
+		for(int q = 0; q < orbits; q++){
+			int p = pixels == null ? q : pixels[q];
+			if(Double.isNaN(real[q])){
+				counts.set(p, 0); // known never to escape, so it needs no orbit at any iteration limit
+			}
+			else if(counts.get(p) >= iterationLimit){
+				unresolved++;
+			}
+		}
+		int[] nextPixels = new int[unresolved];
+		double[] nextReal = new double[unresolved];
+		double[] nextImag = new double[unresolved];
+		int next = 0;
+		for(int q = 0; q < orbits; q++){
+			int p = pixels == null ? q : pixels[q];
+			if(counts.get(p) >= iterationLimit){
+				nextPixels[next] = p;
+				nextReal[next] = real[q];
+				nextImag[next] = imag[q];
+				next++;
+			}
+		}
+		return new OrbitStore.State(iterationLimit, counts, nextPixels, nextReal, nextImag);
+	}
+
+	/**
+	 * Continues the orbit of a pixel up to the iteration limit, with the same operations as getK.
+	 * The orbit is compared with a copy of itself that is saved after 1, 2, 4, ... steps; once it returns exactly to the saved point, it repeats forever without escaping.
+	 *
+	 * @param p the index of the pixel
+	 * @param k the number of the point of the orbit that the orbit continues from
+	 * @param real the real parts of the points of the orbits, which receives the last point of the orbit; NaN if the orbit is known never to escape
+	 * @param imag the imaginary parts of the points of the orbits
+	 * @param q the index of the orbit in the arrays of points
+	 * @return the count of the pixel
+	 */
+	private int iterate(int p, int k, double[] real, double[] imag, int q){
+		double zReal = real[q], zImag = imag[q];
+		if(Double.isNaN(zReal)){
+			return iterationLimit;
+		}
+		int i = p / numSquares, j = p % numSquares;
+		double c_real = leftCornerCoordinates[0] + (i * edgeLength / numSquares);
+		double c_imag = leftCornerCoordinates[1] + (j * edgeLength / numSquares);
+		if(k == 1 && iterationLimit > 1 && MandelbrotKernel.inCardioidOrBulb(c_real, c_imag)){
+			real[q] = Double.NaN;
+			return iterationLimit;
+		}
+		double savedReal = zReal, savedImag = zImag;
+		int steps = 0, nextCheckpoint = 1;
+		while( (zReal * zReal + zImag * zImag < 4) && k < iterationLimit){
+			double temp = zReal * zReal - zImag * zImag + c_real;
+			zImag = 2 * zReal * zImag + c_imag;
+			zReal = temp;
+			k++;
+			if(zReal == savedReal && zImag == savedImag){ // the orbit is periodic
+				real[q] = Double.NaN;
+				return iterationLimit;
+			}
+			if(++steps == nextCheckpoint){
+				savedReal = zReal;
+				savedImag = zImag;
+				nextCheckpoint <<= 1;
+			}
+		}
+		real[q] = zReal;
+		imag[q] = zImag;
+		return k;
+	}
+
+	/**
+	 * A range of orbits that is split in halves until it is no larger than a chunk.
+	 */
+	private final class OrbitRange extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The indexes of the pixels of the orbits, or null if the orbits are those of all the pixels in order. */
+		private final int[] pixels;
+
+		/** The number of the point of the orbits that they continue from. */
+		private final int startK;
+
+		/** The counts of all the pixels. */
+		private final MandelbrotSetResult counts;
+
+		/** The real parts of the points of the orbits. */
+		private final double[] real;
+
+		/** The imaginary parts of the points of the orbits. */
+		private final double[] imag;
+
+		/** The first orbit of the range. */
+		private final int from;
+
+		/** The orbit after the last orbit of the range. */
+		private final int to;
+
+		/**
+		 * Instantiates a new orbit range.
+		 *
+		 * @param pixels the indexes of the pixels of the orbits, or null for all the pixels
+		 * @param startK the number of the point of the orbits that they continue from
+		 * @param counts the counts of all the pixels
+		 * @param real the real parts of the points of the orbits
+		 * @param imag the imaginary parts of the points of the orbits
+		 * @param from the first orbit of the range
+		 * @param to the orbit after the last orbit of the range
+		 */
+		OrbitRange(int[] pixels, int startK, MandelbrotSetResult counts, double[] real, double[] imag, int from, int to){
+			this.pixels = pixels;
+			this.startK = startK;
+			this.counts = counts;
+			this.real = real;
+			this.imag = imag;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= CHUNK_SIZE){
+				if(cancellation.isCancelled()){
+					return;
+				}
+				for(int q = from; q < to; q++){
+					int p = pixels == null ? q : pixels[q];
+					counts.set(p, iterate(p, startK, real, imag, q));
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new OrbitRange(pixels, startK, counts, real, imag, from, mid), new OrbitRange(pixels, startK, counts, real, imag, mid, to));
+		}
+	}
+}
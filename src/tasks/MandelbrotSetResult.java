@@ -0,0 +1,355 @@
+package tasks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class holds the counts of a Mandelbrot set task in a compact form.
+ * Since no count exceeds the iteration limit, the counts are kept in one flat array of the narrowest primitive type that fits the limit: bytes up to 255, shorts up to 65535 and ints beyond.
+ * On the wire, each count is replaced by its difference from the previous count, which is 0 across the large uniform regions of the image, and the differences are compressed with deflate.
+ */
+public final class MandelbrotSetResult implements Externalizable, CountSink {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of counts that are encoded or decoded at a time. */
+	private static final int CHUNK_SIZE = 1 << 14;
+
+	/** The number of pixels along one edge of the square region. */
+	private int numSquares;
+
+	/** The iteration limit of the task. */
+	private int iterationLimit;
+
+	/** The number of bytes used by a count: 1, 2 or 4. */
+	private int width;
+
+	/** The counts when the width is 1; the count of pixel (i, j) is at i * numSquares + j. */
+	private byte[] byteCounts;
+
+	/** The counts when the width is 2. */
+	private short[] shortCounts;
+
+	/** The counts when the width is 4. */
+	private int[] intCounts;
+
+	/**
+	 * Instantiates an empty result; it is used by the deserialization.
+	 */
+	public MandelbrotSetResult(){
+	}
+
+	/**
+	 * Instantiates a new result in which all the counts are 0.
+	 *
+	 * @param numSquares the number of pixels along one edge of the square region
+	 * @param iterationLimit the iteration limit of the task, which is the largest possible count
+	 */
+	public MandelbrotSetResult(int numSquares, int iterationLimit){
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		this.width = iterationLimit <= 0xFF ? 1 : iterationLimit <= 0xFFFF ? 2 : 4;
+		allocate();
+	}
+
+	/**
+	 * Instantiates a new result that holds the counts of another result, at a higher iteration limit; the width of the counts grows if the limit needs it.
+	 *
+	 * @param counts the result whose counts are copied
+	 * @param iterationLimit the iteration limit of the new result, which is at least that of the copied result
+	 */
+	MandelbrotSetResult(MandelbrotSetResult counts, int iterationLimit){
+		this(counts.numSquares, iterationLimit);
+		if(width == counts.width){
+			switch(width){
+			case 1:
+				System.arraycopy(counts.byteCounts, 0, byteCounts, 0, byteCounts.length);
+				break;
+			case 2:
+				System.arraycopy(counts.shortCounts, 0, shortCounts, 0, shortCounts.length);
+				break;
+			default:
+				System.arraycopy(counts.intCounts, 0, intCounts, 0, intCounts.length);
+			}
+			return;
+		}
+		int size = numSquares * numSquares;
+		for(int index = 0; index < size; index++){
+			set(index, counts.get(index));
+		}
+	}
+
+	/**
+	 * Allocates the array of counts for the width.
+	 */
+	private void allocate(){
+		int size = numSquares * numSquares;
+		switch(width){
+		case 1:
+			byteCounts = new byte[size];
+			break;
+		case 2:
+			shortCounts = new short[size];
+			break;
+		default:
+			intCounts = new int[size];
+		}
+	}
+
+	/**
+	 * Gets the number of pixels along one edge of the square region.
+	 *
+	 * @return the number of pixels
+	 */
+	public int getNumSquares(){
+		return numSquares;
+	}
+
+	/**
+	 * Gets the iteration limit of the task.
+	 *
+	 * @return the iteration limit
+	 */
+	public int getIterationLimit(){
+		return iterationLimit;
+	}
+
+	/**
+	 * Gets the count of the representative point in the region[i][j].
+	 *
+	 * @param i the i
+	 * @param j the j
+	 * @return k
+	 */
+	@Override
+	public int getCount(int i, int j){
+		return get(i * numSquares + j);
+	}
+
+	/**
+	 * Sets the count of the representative point in the region[i][j].
+	 *
+	 * @param i the i
+	 * @param j the j
+	 * @param k the count
+	 */
+	@Override
+	public void setCount(int i, int j, int k){
+		set(i * numSquares + j, k);
+	}
+
+	/**
+	 * Copies the counts of a row of regions, region[i][0] to region[i][numSquares - 1], into an array.
+	 *
+	 * @param i the i
+	 * @param row the array of at least numSquares elements that receives the counts
+	 */
+	public void getRow(int i, int[] row){
+		int base = i * numSquares;
+		switch(width){
+		case 1:
+			for(int j = 0; j < numSquares; j++){
+				row[j] = byteCounts[base + j] & 0xFF;
+			}
+			break;
+		case 2:
+			for(int j = 0; j < numSquares; j++){
+				row[j] = shortCounts[base + j] & 0xFFFF;
+			}
+			break;
+		default:
+			System.arraycopy(intCounts, base, row, 0, numSquares);
+		}
+	}
+
+	/**
+	 * Copies the counts into an array of the shape returned by MandelbrotSetTask.execute.
+	 *
+	 * @return count array, where count[i][j] = k
+	 */
+	public int[][] toArray(){
+		int[][] count = new int[numSquares][numSquares];
+		for(int i = 0; i < numSquares; i++){
+			for(int j = 0; j < numSquares; j++){
+				count[i][j] = getCount(i, j);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the size of the array of counts.
+	 *
+	 * @return the size in bytes
+	 */
+	long getCountBytes(){
+		return (long) width * numSquares * numSquares;
+	}
+
+	/**
+	 * Gets the count at an index of the flat array, where the count of pixel (i, j) is at i * numSquares + j.
+	 *
+	 * @param index the index
+	 * @return the count
+	 */
+	int get(int index){
+		switch(width){
+		case 1:
+			return byteCounts[index] & 0xFF;
+		case 2:
+			return shortCounts[index] & 0xFFFF;
+		default:
+			return intCounts[index];
+		}
+	}
+
+	/**
+	 * Sets the count at an index of the flat array. Threads may set the counts of different indexes at the same time.
+	 *
+	 * @param index the index
+	 * @param k the count
+	 */
+	void set(int index, int k){
+		switch(width){
+		case 1:
+			byteCounts[index] = (byte) k;
+			break;
+		case 2:
+			shortCounts[index] = (short) k;
+			break;
+		default:
+			intCounts[index] = k;
+		}
+	}
+
+	/**
+	 * Writes the dimensions, followed by the deflated differences between consecutive counts.
+	 *
+	 * @param out the output
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(numSquares);
+		out.writeInt(iterationLimit);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		byte[] raw = new byte[CHUNK_SIZE * width];
+		byte[] buffer = new byte[CHUNK_SIZE];
+		int size = numSquares * numSquares;
+		int previous = 0;
+		try{
+			for(int start = 0; start < size; start += CHUNK_SIZE){
+				int end = Math.min(size, start + CHUNK_SIZE);
+				int length = 0;
+				for(int index = start; index < end; index++){
+					int k = get(index);
+					int delta = k - previous;
+					previous = k;
+					for(int shift = (width - 1) * 8; shift >= 0; shift -= 8){
+						raw[length++] = (byte) (delta >>> shift);
+					}
+				}
+				deflater.setInput(raw, 0, length);
+				while(!deflater.needsInput()){
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+				}
+			}
+			deflater.finish();
+			while(!deflater.finished()){
+				compressed.write(buffer, 0, deflater.deflate(buffer));
+			}
+		}
+		finally{
+			deflater.end();
+		}
+		out.writeInt(compressed.size());
+		compressed.writeTo(new ObjectOutputAdapter(out));
+	}
+
+	/**
+	 * Reads the dimensions and inflates the counts directly into the array of counts.
+	 *
+	 * @param in the input
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		numSquares = in.readInt();
+		iterationLimit = in.readInt();
+		width = iterationLimit <= 0xFF ? 1 : iterationLimit <= 0xFFFF ? 2 : 4;
+		allocate();
+		byte[] compressed = new byte[in.readInt()];
+		in.readFully(compressed);
+		Inflater inflater = new Inflater();
+		inflater.setInput(compressed);
+		byte[] raw = new byte[CHUNK_SIZE * width];
+		int size = numSquares * numSquares;
+		int previous = 0;
+		try{
+			for(int start = 0; start < size; start += CHUNK_SIZE){
+				int end = Math.min(size, start + CHUNK_SIZE);
+				int length = (end - start) * width;
+				for(int filled = 0; filled < length; ){
+					int read = inflater.inflate(raw, filled, length - filled);
+					if(read == 0 && (inflater.finished() || inflater.needsInput())){
+						throw new InvalidObjectException("The counts are truncated");
+					}
+					filled += read;
+				}
+				int position = 0;
+				for(int index = start; index < end; index++){
+					int delta = 0;
+					for(int b = 0; b < width; b++){
+						delta = (delta << 8) | (raw[position++] & 0xFF);
+					}
+					previous += delta;
+					set(index, previous);
+				}
+			}
+		}
+		catch(DataFormatException e){
+			throw new InvalidObjectException("The counts are corrupt: " + e.getMessage());
+		}
+		finally{
+			inflater.end();
+		}
+	}
+
+	/**
+	 * An output stream that writes to an ObjectOutput, so that the compressed counts can be copied to it without another buffer.
+	 */
+	private static final class ObjectOutputAdapter extends OutputStream {
+
+		/** The output. */
+		private final ObjectOutput out;
+
+		/**
+		 * Instantiates a new adapter.
+		 *
+		 * @param out the output
+		 */
+		ObjectOutputAdapter(ObjectOutput out){
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+	}
+}
@@ -1,16 +1,60 @@
 package tasks;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import api.Cancellation;
+import api.PartialResultSink;
+import api.SplittableTask;
 import api.Task;
+import api.TaskCancelledException;
 
 /**
  * This class helps to produce a visualization of the some part of the Mandelbrot set which is probably one of the most well known fractals, and probably one of the most widely implemented fractal in fractal plotting programs.
+ * The dispatcher can split the task into bands of whole rows, which are rendered with the tiling of the task and have exactly the counts of execute(). All the tilings give the same counts, except ADAPTIVE, which is approximate.
  */
-public final class MandelbrotSetTask implements Task<int [][]>, Serializable{
+public final class MandelbrotSetTask implements SplittableTask<int [][]>, Serializable{
 
 	/** The Constant serialVersionUID. */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
+
+	/**
+	 * The shape of the tiles that the pixel grid is split into when the task is executed in parallel.
+	 */
+	public enum Tiling {
+		/** The pixels are computed one after the other on the calling thread. */
+		NONE,
+		/** Each tile is a band of whole rows of the grid. */
+		ROWS,
+		/** Each tile is a square block of the grid. */
+		SQUARES,
+		/**
+		 * The grid is split recursively into rectangles, and a rectangle whose border has a single count is filled with it without computing its inside; the tile size is the edge length below which a rectangle is computed pixel by pixel.
+		 * The counts are approximate: a detail of the set thinner than a pixel that crosses the border of a rectangle between two of its pixels is missed, and the rectangle is filled over it, so a few pixels can differ from those of the other tilings; larger tile sizes make this rarer.
+		 * It pays off with the SCALAR kernel, which iterates the whole inside of the set; the FAST kernel already skips most of it, so with FAST the adaptive tiling is seldom faster than SQUARES.
+		 */
+		ADAPTIVE
+	}
+
+	/**
+	 * The method that computes the counts of the pixels; both give exactly the same counts, with any tiling but ADAPTIVE.
+	 */
+	public enum Kernel {
+		/** Iterates the orbit of one pixel at a time, up to the iteration limit. */
+		SCALAR,
+		/** Iterates the orbits of four pixels in lock step, skips the points in the main cardioid and the period-2 bulb, and stops the orbits that become periodic. */
+		FAST
+	}
+
+	/** The edge length of the tiles of a tile file when the task does not have square tiles. */
+	private static final int DEFAULT_FILE_TILE_SIZE = 256;
+
+	/** The number of pixels in a band of rows that is streamed when the task has no tiling. */
+	private static final int STREAMED_TILE_PIXELS = 4096;
 
 	/** The left corner coordinates of the square in the complex plane. */
 	private double[] leftCornerCoordinates;
@@ -24,6 +68,18 @@ public final class MandelbrotSetTask implements Task<int [][]>, Serializable{
 	/** The iteration limit that defines when the representative point of a region is considered to be in the Mandelbrot set. */
 	private int iterationLimit;
 	
+	/** The shape of the tiles used when the grid is rendered in parallel. */
+	private Tiling tiling;
+	
+	/** The edge length of a tile in pixels. */
+	private int tileSize;
+	
+	/** The method that computes the counts of the pixels. */
+	private Kernel kernel;
+	
+	/** The last execution of a task on each thread, which holds the number of pixels it iterated; it is kept per thread, since an instance can be executed by several threads at once. */
+	private static final ThreadLocal<LastExecution> lastExecution = new ThreadLocal<LastExecution>();
+	
 	
 	/**
 	 * Instantiates a new Mandelbrot set task.
@@ -34,10 +90,42 @@ public final class MandelbrotSetTask implements Task<int [][]>, Serializable{
 	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
 	 */
 	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit){
+		this(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, Tiling.NONE, numSquares);
+	}
+	
+	/**
+	 * Instantiates a new Mandelbrot set task that is rendered in tiles on a fork-join pool.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param tiling the shape of the tiles; NONE computes the pixels sequentially
+	 * @param tileSize the edge length of a tile in pixels
+	 */
+	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, Tiling tiling, int tileSize){
+		this(leftCornerCoordinates, edgeLength, numSquares, iterationLimit, tiling, tileSize, Kernel.FAST);
+	}
+	
+	/**
+	 * Instantiates a new Mandelbrot set task that computes its counts with the given kernel.
+	 *
+	 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+	 * @param edgeLength the edge length of the square in the complex plane
+	 * @param numSquares the number denoting the number of pixels (n x n squares) inside the square region in the complex plane
+	 * @param iterationLimit the iteration limit that denotes the number of iterations to do before deciding that the representative point of a region is considered to be in the Mandelbrot set
+	 * @param tiling the shape of the tiles; NONE computes the pixels sequentially
+	 * @param tileSize the edge length of a tile in pixels
+	 * @param kernel the method that computes the counts of the pixels
+	 */
+	public MandelbrotSetTask(double[] leftCornerCoordinates, double edgeLength, int numSquares, int iterationLimit, Tiling tiling, int tileSize, Kernel kernel){
 		this.leftCornerCoordinates = leftCornerCoordinates;
 		this.edgeLength = edgeLength;
 		this.numSquares = numSquares;
 		this.iterationLimit = iterationLimit;
+		this.tiling = tiling;
+		this.tileSize = tileSize;
+		this.kernel = kernel;
 	}
 
 	/**
@@ -50,15 +138,226 @@ public final class MandelbrotSetTask implements Task<int [][]>, Serializable{
 	 */
 	@Override
 	public int[][] execute() {
+		if(tiling != Tiling.NONE){
+			return execute(SharedPool.get());
+		}
+		Cancellation cancellation = Cancellation.current();
 		int[][] count = new int[numSquares][numSquares];
 		for(int i = 0; i < numSquares; i++){
+			computeRun(i, 0, numSquares, count[i], cancellation);
+		}
+		recordIteratedPixels((long) numSquares * numSquares);
+		return count;
+	}
+	
+	/**
+	 * Executes the task like execute, but writes the counts into a compact result, which holds them in one flat array of the narrowest primitive type that fits the iteration limit.
+	 *
+	 * @return the counts, where getCount(i, j) = k for the representative point in the region[i][j]
+	 */
+	public MandelbrotSetResult executeCompact() {
+		MandelbrotSetResult result = new MandelbrotSetResult(numSquares, iterationLimit);
+		if(tiling == Tiling.ADAPTIVE){
+			MandelbrotSubdivisionEngine engine = new MandelbrotSubdivisionEngine(this, numSquares, tileSize);
+			engine.render(SharedPool.get(), result);
+			recordIteratedPixels(engine.getIteratedPixels());
+			return result;
+		}
+		if(tiling != Tiling.NONE){
+			new MandelbrotTileEngine(this, numSquares, tiling, tileSize).render(SharedPool.get(), result);
+			recordIteratedPixels((long) numSquares * numSquares);
+			return result;
+		}
+		Cancellation cancellation = Cancellation.current();
+		int[] run = new int[numSquares];
+		for(int i = 0; i < numSquares; i++){
+			computeRun(i, 0, numSquares, run, cancellation);
 			for(int j = 0; j < numSquares; j++){
-				count[i][j] = getK(i, j);
+				result.setCount(i, j, run[j]);
 			}
 		}
+		recordIteratedPixels((long) numSquares * numSquares);
+		return result;
+	}
+	
+	/**
+	 * Executes the task in tiles on the given fork-join pool. 
+	 * The tiles are split recursively so that the workers that finish the cheap tiles outside the set steal the expensive ones near its boundary.
+	 * If the task was created without a tiling, the grid is split into bands of rows.
+	 * With the adaptive tiling, the rectangles of the subdivision are executed on the pool.
+	 *
+	 * @param pool the fork-join pool on which the tiles are executed
+	 * @return count array, where count[i][j] = k, where k defines whether the representative point in the region[i][j] is part of the Mandelbrot set or not.
+	 */
+	public int[][] execute(ForkJoinPool pool) {
+		if(tiling == Tiling.ADAPTIVE){
+			int[][] count = new int[numSquares][numSquares];
+			MandelbrotSubdivisionEngine engine = new MandelbrotSubdivisionEngine(this, numSquares, tileSize);
+			engine.render(pool, new MandelbrotTileEngine.ArraySink(count));
+			recordIteratedPixels(engine.getIteratedPixels());
+			return count;
+		}
+		Tiling shape = tiling == Tiling.NONE ? Tiling.ROWS : tiling;
+		int size = tiling == Tiling.NONE ? 1 : tileSize;
+		int[][] count = new MandelbrotTileEngine(this, numSquares, shape, size).render(pool);
+		recordIteratedPixels((long) numSquares * numSquares);
 		return count;
 	}
 	
+	/**
+	 * Executes the task like executeCompact, but continues from the orbits of the last execution of a task of the same viewport in this JVM, which is the same region and the same number of pixels at any iteration limit.
+	 * Only the pixels that had not escaped by the last limit are iterated again, from the point where their orbits stopped; the counts are the same as those of execute.
+	 * The orbits of each viewport are kept in the orbit store, which evicts the least recently used viewports; a viewport that was evicted is rendered from the start.
+	 *
+	 * @return the counts, where getCount(i, j) = k for the representative point in the region[i][j]
+	 */
+	public MandelbrotSetResult executeIncremental() {
+		MandelbrotSetResult result = new MandelbrotSetResult(numSquares, iterationLimit);
+		MandelbrotRefiner refiner = new MandelbrotRefiner(leftCornerCoordinates, edgeLength, numSquares, iterationLimit);
+		refiner.render(SharedPool.get(), result);
+		recordIteratedPixels(refiner.getIteratedPixels());
+		return result;
+	}
+	
+	/**
+	 * Executes the task in tiles, handing each tile to the sink as soon as it is complete, so that no grid of all the counts is kept.
+	 * The tiles are computed on the shared fork-join pool; without a tiling, the task is computed in bands of rows, from the first row to the last, on the calling thread.
+	 * The adaptive tiling needs the whole grid to check the borders of its rectangles, so it streams square tiles of the tile size instead.
+	 *
+	 * @param tiles the sink that takes the tiles
+	 */
+	public void executeTiles(PartialResultSink<MandelbrotTile> tiles) {
+		if(tiling == Tiling.NONE){
+			MandelbrotTileEngine engine = new MandelbrotTileEngine(this, numSquares, Tiling.ROWS, Math.max(1, STREAMED_TILE_PIXELS / Math.max(1, numSquares)));
+			for(int tile = 0; tile < engine.getNumTiles(); tile++){
+				tiles.accept(engine.computeTile(tile));
+			}
+		}
+		else{
+			Tiling shape = tiling == Tiling.ADAPTIVE ? Tiling.SQUARES : tiling;
+			new MandelbrotTileEngine(this, numSquares, shape, tileSize).renderTiles(SharedPool.get(), tiles);
+		}
+		recordIteratedPixels((long) numSquares * numSquares);
+	}
+	
+	/**
+	 * Executes the task in square tiles on the shared fork-join pool, writing each tile into a memory-mapped tile file instead of a grid on the heap.
+	 * With square tiles, the tile size of the task is the tile size of the file; otherwise the tiles are 256 pixels.
+	 *
+	 * @param file the file that the tiles are written to; it is replaced if it exists
+	 * @return the tile file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	MandelbrotTileFile executeToFile(File file) throws IOException {
+		int size = tiling == Tiling.SQUARES ? tileSize : DEFAULT_FILE_TILE_SIZE;
+		MandelbrotTileFile tiles = new MandelbrotTileFile(file, numSquares, iterationLimit, size);
+		new MandelbrotTileEngine(this, numSquares, Tiling.SQUARES, tiles.getTileSize()).renderTiles(SharedPool.get(), tiles);
+		tiles.force();
+		recordIteratedPixels((long) numSquares * numSquares);
+		return tiles;
+	}
+	
+	/**
+	 * Computes the counts of a band of rows with the tiling of the task: the tiles of the band are rendered on the shared fork-join pool, and without a tiling the rows are computed one after the other on the calling thread.
+	 * The adaptive tiling is never split into bands.
+	 *
+	 * @param from the first row of the band
+	 * @param to the row after the last row of the band
+	 * @return count array, where count[i - from][j] = k for the representative point in the region[i][j]
+	 */
+	int[][] executeRows(int from, int to) {
+		int[][] count = new int[to - from][numSquares];
+		if(tiling == Tiling.NONE){
+			Cancellation cancellation = Cancellation.current();
+			for(int i = from; i < to; i++){
+				computeRun(i, 0, numSquares, count[i - from], cancellation);
+			}
+			return count;
+		}
+		new MandelbrotTileEngine(this, numSquares, tiling, tileSize, from, to).render(SharedPool.get(), new MandelbrotTileEngine.ArraySink(count, from));
+		return count;
+	}
+	
+	/**
+	 * Records the number of pixels that an execution of this task iterated, as the last execution on the calling thread.
+	 *
+	 * @param pixels the number of iterated pixels
+	 */
+	private void recordIteratedPixels(long pixels) {
+		lastExecution.set(new LastExecution(this, pixels));
+	}
+	
+	/**
+	 * Gets the number of pixels whose orbit was iterated by the last execution of this task on the calling thread; the executions on other threads do not change it.
+	 * It is the number of pixels of the grid, except with the adaptive tiling, which fills the uniform rectangles without iterating them, and the incremental execution, which only iterates the unresolved orbits.
+	 *
+	 * @return the number of iterated pixels, or -1 if the last execution of a Mandelbrot set task on the calling thread was not of this task
+	 */
+	public long getIteratedPixels() {
+		LastExecution last = lastExecution.get();
+		return last != null && last.task == this ? last.iteratedPixels : -1;
+	}
+	
+	/**
+	 * Estimates the work of the task by its number of pixels.
+	 *
+	 * @return the number of pixels
+	 */
+	@Override
+	public long estimateSize() {
+		return (long) numSquares * numSquares;
+	}
+	
+	/**
+	 * Splits the grid into two bands of whole rows.
+	 * The adaptive tiling is not split, since its rectangles depend on the whole grid and a band would fill other pixels than the whole task does.
+	 *
+	 * @return the two bands, or none if the task has the adaptive tiling or a single row
+	 */
+	@Override
+	public List<? extends Task<int[][]>> split() {
+		if(tiling == Tiling.ADAPTIVE){
+			return Collections.emptyList();
+		}
+		return MandelbrotBandTask.halves(this, numSquares, 0, numSquares);
+	}
+	
+	/**
+	 * Concatenates the rows of the bands.
+	 *
+	 * @param results the counts of the bands
+	 * @return the counts of the grid
+	 */
+	@Override
+	public int[][] merge(List<int[][]> results) {
+		return MandelbrotBandTask.concatenate(results);
+	}
+	
+	/**
+	 * Computes the values of k for the representative points in the regions[i][jStart] to [i][jEnd - 1] with the kernel of the task.
+	 * A Mandelbrot set has no partial result to return, so a run of a cancelled execution throws a TaskCancelledException; the check is a volatile read or two per run of pixels.
+	 * The cancellation is that of the execution, which the engines capture on the thread that starts it, since an instance can be executed by several threads at once.
+	 *
+	 * @param i the i
+	 * @param jStart the first j of the run
+	 * @param jEnd the j after the last j of the run
+	 * @param counts the array that receives the k of the region[i][j] at j - jStart
+	 * @param cancellation the cancellation of the execution
+	 */
+	void computeRun(int i, int jStart, int jEnd, int[] counts, Cancellation cancellation){
+		if(cancellation.isCancelled()){
+			throw new TaskCancelledException("The Mandelbrot set was cancelled before all of its pixels were computed");
+		}
+		if(kernel == Kernel.SCALAR){
+			for(int j = jStart; j < jEnd; j++){
+				counts[j - jStart] = getK(i, j);
+			}
+			return;
+		}
+		double c_real = leftCornerCoordinates[0] + (i * edgeLength / numSquares);
+		MandelbrotKernel.compute(c_real, leftCornerCoordinates[1], edgeLength, numSquares, jStart, jEnd, iterationLimit, counts);
+	}
+	
 	/**
 	 * Gets the value of k for the representative point in the region[i][j].
 	 *
@@ -66,7 +365,7 @@ public final class MandelbrotSetTask implements Task<int [][]>, Serializable{
 	 * @param j the j
 	 * @return k
 	 */
-	private int getK(int i, int j){
+	int getK(int i, int j){
 		int k = 1;
 		
 		double c_real = leftCornerCoordinates[0] + (i * edgeLength / numSquares);
@@ -82,6 +381,29 @@ public final class MandelbrotSetTask implements Task<int [][]>, Serializable{
 		return k;
 	}
 		
+	/**
+	 * The number of pixels that an execution of a task iterated.
+	 */
+	private static final class LastExecution {
+
+		/** The task. */
+		private final MandelbrotSetTask task;
+
+		/** The number of iterated pixels. */
+		private final long iteratedPixels;
+
+		/**
+		 * Instantiates a new last execution.
+		 *
+		 * @param task the task
+		 * @param iteratedPixels the number of iterated pixels
+		 */
+		LastExecution(MandelbrotSetTask task, long iteratedPixels){
+			this.task = task;
+			this.iteratedPixels = iteratedPixels;
+		}
+	}
+	
 	/**
 	 * The main method.
 	 *
@@ -0,0 +1,215 @@
+package tasks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.Cancellation;
+
+/**
+ * This class renders the pixel grid of a Mandelbrot set task by the Mariani-Silver subdivision.
+ * The Mandelbrot set and the bands of equal count around it are connected, so a rectangle whose border has a single count is, as a rule, filled with that count; such a rectangle is filled without iterating its inside.
+ * A rectangle whose border is not uniform is split in two across its longer side; the line that splits it is computed, so that each half again has a computed border, and the halves are rendered in parallel on a fork-join pool.
+ * Every pixel is computed at most once: a rectangle only computes the inside of its border, and the two halves share the line that splits them.
+ * Rectangles smaller than the minimum size are computed pixel by pixel, which bounds the cost of the checks and keeps the thin filaments of the set, which a border can miss, in small rectangles.
+ * The rendering is approximate: the border is sampled at its pixels, so a filament or a band that passes between two of them is filled over, at any minimum size. The counts it does compute are those of the kernel of the task.
+ */
+final class MandelbrotSubdivisionEngine {
+
+	/** The number of pixels inside of which a rectangle is rendered on the current worker instead of being forked. */
+	private static final int FORK_AREA = 4096;
+
+	/** The task whose pixels are being rendered. */
+	private final MandelbrotSetTask task;
+
+	/** The number of pixels along one edge of the square region. */
+	private final int numSquares;
+
+	/** The edge length in pixels below which a rectangle is computed pixel by pixel. */
+	private final int minSize;
+
+	/** The number of pixels whose orbit was iterated. */
+	private final AtomicLong iteratedPixels = new AtomicLong();
+
+	/** The cancellation of the execution that created the engine, which the workers of the pool check. */
+	private final Cancellation cancellation = Cancellation.current();
+
+	/**
+	 * Instantiates a new subdivision engine.
+	 *
+	 * @param task the task whose pixels are being rendered
+	 * @param numSquares the number of pixels along one edge of the square region
+	 * @param minSize the edge length in pixels below which a rectangle is computed pixel by pixel
+	 */
+	MandelbrotSubdivisionEngine(MandelbrotSetTask task, int numSquares, int minSize){
+		this.task = task;
+		this.numSquares = numSquares;
+		this.minSize = Math.max(3, minSize);
+	}
+
+	/**
+	 * Renders the grid on the given pool into the given grid.
+	 *
+	 * @param pool the fork-join pool
+	 * @param sink the grid that the counts are written into and read back from
+	 */
+	void render(ForkJoinPool pool, CountSink sink){
+		if(numSquares <= 0){
+			return;
+		}
+		int last = numSquares - 1;
+		computeRow(sink, 0, 0, last);
+		if(last > 0){
+			computeRow(sink, last, 0, last);
+			computeColumn(sink, 0, 1, last - 1);
+			computeColumn(sink, last, 1, last - 1);
+		}
+		pool.invoke(new Rectangle(sink, 0, last, 0, last));
+	}
+
+	/**
+	 * Gets the number of pixels whose orbit was iterated; the other pixels were filled from the border of their rectangle.
+	 *
+	 * @return the number of iterated pixels
+	 */
+	long getIteratedPixels(){
+		return iteratedPixels.get();
+	}
+
+	/**
+	 * Computes the pixels (i, jFrom) to (i, jTo) of a row.
+	 *
+	 * @param sink the grid of counts
+	 * @param i the i
+	 * @param jFrom the first j
+	 * @param jTo the last j
+	 */
+	private void computeRow(CountSink sink, int i, int jFrom, int jTo){
+		if(jTo < jFrom){
+			return;
+		}
+		int[] run = new int[jTo - jFrom + 1];
+		task.computeRun(i, jFrom, jTo + 1, run, cancellation);
+		for(int j = jFrom; j <= jTo; j++){
+			sink.setCount(i, j, run[j - jFrom]);
+		}
+		iteratedPixels.addAndGet(run.length);
+	}
+
+	/**
+	 * Computes the pixels (iFrom, j) to (iTo, j) of a column.
+	 *
+	 * @param sink the grid of counts
+	 * @param j the j
+	 * @param iFrom the first i
+	 * @param iTo the last i
+	 */
+	private void computeColumn(CountSink sink, int j, int iFrom, int iTo){
+		if(iTo < iFrom){
+			return;
+		}
+		int[] run = new int[1];
+		for(int i = iFrom; i <= iTo; i++){
+			task.computeRun(i, j, j + 1, run, cancellation);
+			sink.setCount(i, j, run[0]);
+		}
+		iteratedPixels.addAndGet(iTo - iFrom + 1);
+	}
+
+	/**
+	 * A rectangle of the grid, given by its first and last rows and columns, whose border has been computed.
+	 */
+	private final class Rectangle extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The grid of counts. */
+		private final CountSink sink;
+
+		/** The first and the last i of the rectangle. */
+		private final int iFrom, iTo;
+
+		/** The first and the last j of the rectangle. */
+		private final int jFrom, jTo;
+
+		/**
+		 * Instantiates a new rectangle.
+		 *
+		 * @param sink the grid of counts
+		 * @param iFrom the first i
+		 * @param iTo the last i
+		 * @param jFrom the first j
+		 * @param jTo the last j
+		 */
+		Rectangle(CountSink sink, int iFrom, int iTo, int jFrom, int jTo){
+			this.sink = sink;
+			this.iFrom = iFrom;
+			this.iTo = iTo;
+			this.jFrom = jFrom;
+			this.jTo = jTo;
+		}
+
+		@Override
+		protected void compute() {
+			if(iTo - iFrom < 2 || jTo - jFrom < 2){ // the border is the whole rectangle
+				return;
+			}
+			int k = uniformBorderCount();
+			if(k >= 0){
+				for(int i = iFrom + 1; i < iTo; i++){
+					for(int j = jFrom + 1; j < jTo; j++){
+						sink.setCount(i, j, k);
+					}
+				}
+				return;
+			}
+			if(iTo - iFrom + 1 < minSize || jTo - jFrom + 1 < minSize){
+				for(int i = iFrom + 1; i < iTo; i++){
+					computeRow(sink, i, jFrom + 1, jTo - 1);
+				}
+				return;
+			}
+			Rectangle first, second;
+			if(iTo - iFrom >= jTo - jFrom){
+				int mid = (iFrom + iTo) >>> 1;
+				computeRow(sink, mid, jFrom + 1, jTo - 1);
+				first = new Rectangle(sink, iFrom, mid, jFrom, jTo);
+				second = new Rectangle(sink, mid, iTo, jFrom, jTo);
+			}
+			else{
+				int mid = (jFrom + jTo) >>> 1;
+				computeColumn(sink, mid, iFrom + 1, iTo - 1);
+				first = new Rectangle(sink, iFrom, iTo, jFrom, mid);
+				second = new Rectangle(sink, iFrom, iTo, mid, jTo);
+			}
+			if((long) (iTo - iFrom + 1) * (jTo - jFrom + 1) <= FORK_AREA){
+				first.compute();
+				second.compute();
+			}
+			else{
+				invokeAll(first, second);
+			}
+		}
+
+		/**
+		 * Gets the count that the whole border of the rectangle has.
+		 *
+		 * @return the count, or -1 if the border has more than one count
+		 */
+		private int uniformBorderCount(){
+			int k = sink.getCount(iFrom, jFrom);
+			for(int j = jFrom; j <= jTo; j++){
+				if(sink.getCount(iFrom, j) != k || sink.getCount(iTo, j) != k){
+					return -1;
+				}
+			}
+			for(int i = iFrom + 1; i < iTo; i++){
+				if(sink.getCount(i, jFrom) != k || sink.getCount(i, jTo) != k){
+					return -1;
+				}
+			}
+			return k;
+		}
+	}
+}
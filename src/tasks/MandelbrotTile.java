@@ -0,0 +1,99 @@
+package tasks;
+
+import java.io.Serializable;
+
+/**
+ * This class holds the counts of a rectangular tile of the pixel grid of a Mandelbrot set task; it is the part in which a streaming Mandelbrot set task sends its counts.
+ */
+public final class MandelbrotTile implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The first i of the tile. */
+	private final int iStart;
+
+	/** The first j of the tile. */
+	private final int jStart;
+
+	/** The number of values of i in the tile. */
+	private final int height;
+
+	/** The number of values of j in the tile. */
+	private final int width;
+
+	/** The counts of the tile; the count of pixel (i, j) is at (i - iStart) * width + (j - jStart). */
+	private final int[] counts;
+
+	/**
+	 * Instantiates a new tile in which all the counts are 0.
+	 *
+	 * @param iStart the first i of the tile
+	 * @param jStart the first j of the tile
+	 * @param height the number of values of i in the tile
+	 * @param width the number of values of j in the tile
+	 */
+	MandelbrotTile(int iStart, int jStart, int height, int width){
+		this.iStart = iStart;
+		this.jStart = jStart;
+		this.height = height;
+		this.width = width;
+		this.counts = new int[height * width];
+	}
+
+	/**
+	 * Gets the first i of the tile.
+	 *
+	 * @return the first i
+	 */
+	public int getIStart(){
+		return iStart;
+	}
+
+	/**
+	 * Gets the first j of the tile.
+	 *
+	 * @return the first j
+	 */
+	public int getJStart(){
+		return jStart;
+	}
+
+	/**
+	 * Gets the number of values of i in the tile.
+	 *
+	 * @return the height
+	 */
+	public int getHeight(){
+		return height;
+	}
+
+	/**
+	 * Gets the number of values of j in the tile.
+	 *
+	 * @return the width
+	 */
+	public int getWidth(){
+		return width;
+	}
+
+	/**
+	 * Gets the count of the representative point in the region[i][j] of the grid, which must be in the tile.
+	 *
+	 * @param i the i
+	 * @param j the j
+	 * @return k
+	 */
+	public int getCount(int i, int j){
+		return counts[(i - iStart) * width + (j - jStart)];
+	}
+
+	/**
+	 * Gets the array of counts, into which the renderer writes the tile.
+	 *
+	 * @return the counts
+	 */
+	int[] counts(){
+		return counts;
+	}
+}
@@ -0,0 +1,264 @@
+package tasks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import api.Cancellation;
+import api.PartialResultSink;
+
+/**
+ * This class renders the pixel grid of a Mandelbrot set task, or a band of its rows, in tiles on a fork-join pool.
+ * Tiles close to the boundary of the set take far longer than the ones outside of it, so the range of tiles is split recursively and idle workers steal the halves that are still pending.
+ * All the tiles write into the same grid of counts; since the tiles are disjoint, no synchronization is needed.
+ */
+final class MandelbrotTileEngine {
+
+	/** The task whose pixels are being rendered. */
+	private final MandelbrotSetTask task;
+
+	/** The number of pixels along one edge of the square region. */
+	private final int numSquares;
+
+	/** The edge length of a tile in pixels. */
+	private final int tileSize;
+
+	/** The shape of the tiles. */
+	private final MandelbrotSetTask.Tiling tiling;
+
+	/** The number of tiles along one edge of the region. */
+	private final int tilesPerSide;
+
+	/** The first row that is rendered. */
+	private final int rowFrom;
+
+	/** The row after the last row that is rendered. */
+	private final int rowTo;
+
+	/** The cancellation of the execution that created the engine, which the workers of the pool check. */
+	private final Cancellation cancellation = Cancellation.current();
+
+	/**
+	 * Instantiates a new tile engine.
+	 *
+	 * @param task the task whose pixels are being rendered
+	 * @param numSquares the number of pixels along one edge of the square region
+	 * @param tiling the shape of the tiles
+	 * @param tileSize the edge length of a tile in pixels
+	 */
+	MandelbrotTileEngine(MandelbrotSetTask task, int numSquares, MandelbrotSetTask.Tiling tiling, int tileSize){
+		this(task, numSquares, tiling, tileSize, 0, numSquares);
+	}
+
+	/**
+	 * Instantiates a new tile engine that renders a band of rows of the grid; the tiles are those of the whole grid, cut at the edges of the band.
+	 *
+	 * @param task the task whose pixels are being rendered
+	 * @param numSquares the number of pixels along one edge of the square region
+	 * @param tiling the shape of the tiles
+	 * @param tileSize the edge length of a tile in pixels
+	 * @param rowFrom the first row of the band
+	 * @param rowTo the row after the last row of the band
+	 */
+	MandelbrotTileEngine(MandelbrotSetTask task, int numSquares, MandelbrotSetTask.Tiling tiling, int tileSize, int rowFrom, int rowTo){
+		this.task = task;
+		this.numSquares = numSquares;
+		this.tiling = tiling;
+		this.tileSize = Math.max(1, Math.min(tileSize, Math.max(1, numSquares)));
+		this.tilesPerSide = (numSquares + this.tileSize - 1) / this.tileSize;
+		this.rowFrom = rowFrom;
+		this.rowTo = rowTo;
+	}
+
+	/**
+	 * Renders all the tiles on the given pool.
+	 *
+	 * @param pool the fork-join pool
+	 * @return count array, where count[i][j] = k for the representative point in the region[i][j]
+	 */
+	int[][] render(ForkJoinPool pool){
+		final int[][] count = new int[numSquares][numSquares];
+		render(pool, new ArraySink(count));
+		return count;
+	}
+
+	/**
+	 * Renders all the tiles on the given pool into the given grid.
+	 *
+	 * @param pool the fork-join pool
+	 * @param sink the grid that the counts are written into
+	 */
+	void render(ForkJoinPool pool, CountSink sink){
+		pool.invoke(new TileRange(sink, null, 0, getNumTiles()));
+	}
+
+	/**
+	 * Renders all the tiles on the given pool, handing each tile to the sink as soon as it is complete.
+	 *
+	 * @param pool the fork-join pool
+	 * @param tiles the sink that takes the tiles
+	 */
+	void renderTiles(ForkJoinPool pool, PartialResultSink<MandelbrotTile> tiles){
+		pool.invoke(new TileRange(null, tiles, 0, getNumTiles()));
+	}
+
+	/**
+	 * Gets the total number of tiles.
+	 *
+	 * @return the number of tiles
+	 */
+	int getNumTiles(){
+		int tileRows = rowTo <= rowFrom ? 0 : (rowTo - 1) / tileSize - rowFrom / tileSize + 1;
+		return tiling == MandelbrotSetTask.Tiling.ROWS ? tileRows : tileRows * tilesPerSide;
+	}
+
+	/**
+	 * Computes the counts of all the pixels of a single tile.
+	 *
+	 * @param sink the shared grid of counts
+	 * @param tile the index of the tile
+	 */
+	void renderTile(CountSink sink, int tile){
+		int[] bounds = boundsOf(tile);
+		int[] run = new int[bounds[3] - bounds[2]];
+		for(int i = bounds[0]; i < bounds[1]; i++){
+			task.computeRun(i, bounds[2], bounds[3], run, cancellation);
+			for(int j = bounds[2]; j < bounds[3]; j++){
+				sink.setCount(i, j, run[j - bounds[2]]);
+			}
+		}
+	}
+
+	/**
+	 * Computes the counts of all the pixels of a single tile into a tile of its own.
+	 *
+	 * @param tile the index of the tile
+	 * @return the tile
+	 */
+	MandelbrotTile computeTile(int tile){
+		int[] bounds = boundsOf(tile);
+		MandelbrotTile result = new MandelbrotTile(bounds[0], bounds[2], bounds[1] - bounds[0], bounds[3] - bounds[2]);
+		int[] counts = result.counts();
+		int[] run = new int[bounds[3] - bounds[2]];
+		for(int i = bounds[0]; i < bounds[1]; i++){
+			task.computeRun(i, bounds[2], bounds[3], run, cancellation);
+			System.arraycopy(run, 0, counts, (i - bounds[0]) * run.length, run.length);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the bounds of a tile.
+	 *
+	 * @param tile the index of the tile
+	 * @return the first i, the i after the last i, the first j and the j after the last j of the tile
+	 */
+	private int[] boundsOf(int tile){
+		int iStart, jStart, jEnd;
+		if(tiling == MandelbrotSetTask.Tiling.ROWS){ // a row tile spans the whole of the second dimension
+			iStart = (rowFrom / tileSize + tile) * tileSize;
+			jStart = 0;
+			jEnd = numSquares;
+		}
+		else{
+			iStart = (rowFrom / tileSize + tile / tilesPerSide) * tileSize;
+			jStart = (tile % tilesPerSide) * tileSize;
+			jEnd = Math.min(numSquares, jStart + tileSize);
+		}
+		int iEnd = Math.min(rowTo, iStart + tileSize);
+		iStart = Math.max(rowFrom, iStart);
+		return new int[] { iStart, iEnd, jStart, jEnd };
+	}
+
+	/**
+	 * A grid of counts that is an array of the shape returned by MandelbrotSetTask.execute, or of a band of its rows.
+	 */
+	static final class ArraySink implements CountSink {
+
+		/** The counts. */
+		private final int[][] count;
+
+		/** The row of the grid that is the first row of the array. */
+		private final int firstRow;
+
+		/**
+		 * Instantiates a new array sink.
+		 *
+		 * @param count the counts
+		 */
+		ArraySink(int[][] count){
+			this(count, 0);
+		}
+
+		/**
+		 * Instantiates a new array sink of a band of rows.
+		 *
+		 * @param count the counts, where count[i - firstRow][j] is the count of the region[i][j]
+		 * @param firstRow the row of the grid that is the first row of the array
+		 */
+		ArraySink(int[][] count, int firstRow){
+			this.count = count;
+			this.firstRow = firstRow;
+		}
+
+		@Override
+		public int getCount(int i, int j) {
+			return count[i - firstRow][j];
+		}
+
+		@Override
+		public void setCount(int i, int j, int k) {
+			count[i - firstRow][j] = k;
+		}
+	}
+
+	/**
+	 * A range of tiles that is split in halves until a single tile is left.
+	 */
+	private final class TileRange extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The shared grid of counts, or null if the tiles are handed to a tile sink. */
+		private final CountSink sink;
+
+		/** The sink that takes the tiles, or null if they are written to the grid of counts. */
+		private final PartialResultSink<MandelbrotTile> tiles;
+
+		/** The first tile of the range. */
+		private final int from;
+
+		/** The tile after the last tile of the range. */
+		private final int to;
+
+		/**
+		 * Instantiates a new tile range.
+		 *
+		 * @param sink the shared grid of counts, or null
+		 * @param tiles the sink that takes the tiles, or null
+		 * @param from the first tile of the range
+		 * @param to the tile after the last tile of the range
+		 */
+		TileRange(CountSink sink, PartialResultSink<MandelbrotTile> tiles, int from, int to){
+			this.sink = sink;
+			this.tiles = tiles;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= 1){
+				if(to > from && tiles != null){
+					tiles.accept(computeTile(from));
+				}
+				else if(to > from){
+					renderTile(sink, from);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new TileRange(sink, tiles, from, mid), new TileRange(sink, tiles, mid, to));
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import api.PartialResultSink;
+
+/**
+ * This class holds the counts of a Mandelbrot set task in a memory-mapped file instead of on the heap, so that a grid far larger than the heap can be rendered.
+ * The file starts with a header of the number of pixels along one edge, the iteration limit, the tile size and the width of a count, followed by the square tiles.
+ * The counts are kept in the narrowest primitive type that fits the iteration limit: one byte up to 255, two bytes up to 65535 and four bytes beyond, in big-endian order.
+ * The tiles that share the same range of j are stored next to each other, in the order of i, and within a tile the counts are stored by j and then by i; a band of tiles thus holds whole lines of constant j, which are the rows of the image, one after the other.
+ * Each band of tiles is mapped separately, since a mapping cannot exceed 2 GB.
+ */
+final class MandelbrotTileFile implements PartialResultSink<MandelbrotTile> {
+
+	/** The number of bytes of the header. */
+	static final int HEADER_BYTES = 16;
+
+	/** The number of pixels along one edge of the grid. */
+	private final int numSquares;
+
+	/** The iteration limit. */
+	private final int iterationLimit;
+
+	/** The edge length of a tile in pixels. */
+	private final int tileSize;
+
+	/** The number of tiles along one edge of the grid. */
+	private final int tilesPerSide;
+
+	/** The number of bytes of a count. */
+	private final int width;
+
+	/** The mapped bands of tiles, by the index of the range of j. */
+	private final MappedByteBuffer[] bands;
+
+	/**
+	 * Creates a tile file, or replaces it, and maps it for writing.
+	 *
+	 * @param file the file
+	 * @param numSquares the number of pixels along one edge of the grid
+	 * @param iterationLimit the iteration limit
+	 * @param tileSize the edge length of a tile in pixels
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	MandelbrotTileFile(File file, int numSquares, int iterationLimit, int tileSize) throws IOException{
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		this.tileSize = Math.max(1, Math.min(tileSize, Math.max(1, numSquares)));
+		this.tilesPerSide = (numSquares + this.tileSize - 1) / this.tileSize;
+		this.width = iterationLimit <= 0xFF ? 1 : iterationLimit <= 0xFFFF ? 2 : 4;
+		this.bands = new MappedByteBuffer[tilesPerSide];
+		long bandBytes = getBandBytes();
+		if(bandBytes > Integer.MAX_VALUE){
+			throw new IOException("A band of " + tilesPerSide + " tiles of " + this.tileSize + " pixels is larger than 2 GB; use smaller tiles");
+		}
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try{
+			out.setLength(0);
+			out.setLength(HEADER_BYTES + bandBytes * tilesPerSide);
+			out.writeInt(numSquares);
+			out.writeInt(iterationLimit);
+			out.writeInt(this.tileSize);
+			out.writeInt(width);
+			FileChannel channel = out.getChannel();
+			for(int band = 0; band < tilesPerSide; band++){
+				bands[band] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + bandBytes * band, bandBytes);
+			}
+		}
+		finally{
+			out.close(); // the mappings stay valid after the channel is closed
+		}
+	}
+
+	/**
+	 * Gets the number of bytes of a band of tiles.
+	 *
+	 * @return the number of bytes
+	 */
+	private long getBandBytes(){
+		return (long) tilesPerSide * tileSize * tileSize * width;
+	}
+
+	/**
+	 * Gets the number of pixels along one edge of the grid.
+	 *
+	 * @return the number of pixels
+	 */
+	int getNumSquares(){
+		return numSquares;
+	}
+
+	/**
+	 * Gets the iteration limit.
+	 *
+	 * @return the iteration limit
+	 */
+	int getIterationLimit(){
+		return iterationLimit;
+	}
+
+	/**
+	 * Gets the edge length of a tile.
+	 *
+	 * @return the tile size in pixels
+	 */
+	int getTileSize(){
+		return tileSize;
+	}
+
+	/**
+	 * Writes the counts of a tile into its place in the file. Tiles may be written from several threads at once, since they do not overlap.
+	 *
+	 * @param tile the tile, which must be one of the square tiles of the tile size
+	 */
+	@Override
+	public void accept(MandelbrotTile tile) {
+		MappedByteBuffer band = bands[tile.getJStart() / tileSize];
+		int base = (tile.getIStart() / tileSize) * tileSize * tileSize;
+		for(int j = tile.getJStart(); j < tile.getJStart() + tile.getWidth(); j++){
+			int lineBase = base + (j - tile.getJStart()) * tileSize;
+			for(int i = tile.getIStart(); i < tile.getIStart() + tile.getHeight(); i++){
+				put(band, lineBase + (i - tile.getIStart()), tile.getCount(i, j));
+			}
+		}
+	}
+
+	/**
+	 * Reads the counts of the line of constant j, for all i, which is a row of the image.
+	 *
+	 * @param j the j
+	 * @param counts the array that receives the count of pixel (i, j) at i
+	 */
+	void readLine(int j, int[] counts){
+		ByteBuffer band = bands[j / tileSize];
+		int lineInTile = (j % tileSize) * tileSize;
+		for(int tile = 0; tile < tilesPerSide; tile++){
+			int base = tile * tileSize * tileSize + lineInTile;
+			int iStart = tile * tileSize;
+			int iEnd = Math.min(numSquares, iStart + tileSize);
+			for(int i = iStart; i < iEnd; i++){
+				counts[i] = get(band, base + (i - iStart));
+			}
+		}
+	}
+
+	/**
+	 * Writes a count at an index of counts in a band.
+	 *
+	 * @param band the band
+	 * @param index the index of the count in the band
+	 * @param k the count
+	 */
+	private void put(ByteBuffer band, int index, int k){
+		switch(width){
+		case 1:
+			band.put(index, (byte) k);
+			break;
+		case 2:
+			band.putShort(index * 2, (short) k);
+			break;
+		default:
+			band.putInt(index * 4, k);
+		}
+	}
+
+	/**
+	 * Reads a count at an index of counts in a band.
+	 *
+	 * @param band the band
+	 * @param index the index of the count in the band
+	 * @return the count
+	 */
+	private int get(ByteBuffer band, int index){
+		switch(width){
+		case 1:
+			return band.get(index) & 0xFF;
+		case 2:
+			return band.getShort(index * 2) & 0xFFFF;
+		default:
+			return band.getInt(index * 4);
+		}
+	}
+
+	/**
+	 * Writes the mapped bands to the file.
+	 */
+	void force(){
+		for(MappedByteBuffer band : bands){
+			band.force();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package tasks;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * This class keeps the state of the orbits of the last render of each viewport of the Mandelbrot set, so that a render of the same viewport at a higher iteration limit only continues the orbits of the pixels that had not escaped.
+ * Like the shared pool, the store belongs to the JVM that executes the tasks; it is bounded by the estimated size of the states and evicts the least recently used viewports first.
+ * Its capacity in bytes is set by the system property tasks.orbitStoreBytes; 0 disables the store.
+ * A state holds the counts of all the pixels in the narrowest primitive type that fits the iteration limit, as a MandelbrotSetResult does, and the last points of the orbits of only the pixels that have neither escaped nor been found to be in the set; a state larger than the whole store is not stored, which is reported on the standard error.
+ */
+final class OrbitStore {
+
+	/** The system property that sets the capacity of the store in bytes. */
+	static final String CAPACITY_PROPERTY = "tasks.orbitStoreBytes";
+
+	/** The default capacity of the store, in bytes. */
+	private static final long DEFAULT_CAPACITY_BYTES = 64L << 20;
+
+	/** The capacity of the store, in bytes. */
+	private static final long capacityBytes = Long.getLong(CAPACITY_PROPERTY, DEFAULT_CAPACITY_BYTES);
+
+	/** The states by viewport, in the order from least to most recently used. */
+	private static final LinkedHashMap<Viewport, State> states = new LinkedHashMap<Viewport, State>(16, 0.75f, true);
+
+	/** The estimated size of the states, in bytes. */
+	private static long bytes;
+
+	/** The number of states that were not stored because they are larger than the store. */
+	private static long rejected;
+
+	/**
+	 * Instantiates a new orbit store; it is never instantiated.
+	 */
+	private OrbitStore(){
+	}
+
+	/**
+	 * Gets the state of a viewport.
+	 *
+	 * @param viewport the viewport
+	 * @return the state, or null if the viewport has not been rendered or its state was evicted
+	 */
+	static synchronized State get(Viewport viewport){
+		return states.get(viewport);
+	}
+
+	/**
+	 * Stores the state of a viewport, unless the store already holds a state of the viewport at a higher iteration limit, and evicts the least recently used states until the store is within its capacity.
+	 *
+	 * @param viewport the viewport
+	 * @param state the state
+	 */
+	static synchronized void put(Viewport viewport, State state){
+		long size = state.estimateSize();
+		if(size > capacityBytes){
+			if(capacityBytes > 0){
+				rejected++;
+				System.err.println("The orbits of a viewport of " + viewport.numSquares + " x " + viewport.numSquares + " pixels take " + size + " bytes, more than the "
+						+ capacityBytes + " bytes of the orbit store (" + CAPACITY_PROPERTY + "), so the viewport is rendered from the start; " + rejected + " states rejected so far.");
+			}
+			return;
+		}
+		State previous = states.get(viewport);
+		if(previous != null){
+			if(previous.iterationLimit >= state.iterationLimit){
+				return;
+			}
+			bytes -= previous.estimateSize();
+		}
+		states.put(viewport, state);
+		bytes += size;
+		Iterator<State> iterator = states.values().iterator();
+		while(bytes > capacityBytes && iterator.hasNext()){
+			bytes -= iterator.next().estimateSize();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * The region of the complex plane and the number of pixels of a render.
+	 */
+	static final class Viewport {
+
+		/** The left corner coordinates and the edge length. */
+		private final double[] region;
+
+		/** The number of pixels along one edge of the region. */
+		private final int numSquares;
+
+		/**
+		 * Instantiates a new viewport.
+		 *
+		 * @param leftCornerCoordinates the left corner coordinates of the square in the complex plane
+		 * @param edgeLength the edge length of the square in the complex plane
+		 * @param numSquares the number of pixels along one edge of the region
+		 */
+		Viewport(double[] leftCornerCoordinates, double edgeLength, int numSquares){
+			this.region = new double[] { leftCornerCoordinates[0], leftCornerCoordinates[1], edgeLength };
+			this.numSquares = numSquares;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Viewport && numSquares == ((Viewport) obj).numSquares && Arrays.equals(region, ((Viewport) obj).region);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(region) + numSquares;
+		}
+	}
+
+	/**
+	 * The state of the orbits of a viewport after a render at some iteration limit.
+	 * The states are never changed after they are stored, so they are read without a lock.
+	 */
+	static final class State {
+
+		/** The iteration limit of the render. */
+		final int iterationLimit;
+
+		/** The counts of the pixels, at the iteration limit of the render; the unresolved pixels have the iteration limit, and the pixels that are known to be in the set have 0. */
+		final MandelbrotSetResult counts;
+
+		/** The indexes of the pixels that have neither escaped nor been found to be in the set, in increasing order. */
+		final int[] unresolved;
+
+		/** The real parts of the last points of the orbits of the unresolved pixels. */
+		final double[] real;
+
+		/** The imaginary parts of the last points of the orbits of the unresolved pixels. */
+		final double[] imag;
+
+		/**
+		 * Instantiates a new state.
+		 *
+		 * @param iterationLimit the iteration limit of the render
+		 * @param counts the counts of the pixels
+		 * @param unresolved the indexes of the pixels that have not escaped
+		 * @param real the real parts of the last points of their orbits
+		 * @param imag the imaginary parts of the last points of their orbits
+		 */
+		State(int iterationLimit, MandelbrotSetResult counts, int[] unresolved, double[] real, double[] imag){
+			this.iterationLimit = iterationLimit;
+			this.counts = counts;
+			this.unresolved = unresolved;
+			this.real = real;
+			this.imag = imag;
+		}
+
+		/**
+		 * Estimates the heap size of the state.
+		 *
+		 * @return the estimated size in bytes
+		 */
+		long estimateSize(){
+			return counts.getCountBytes() + 20L * unresolved.length + 128;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package tasks;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class renders a deep zoom of the Mandelbrot set by perturbation.
+ * The orbit of one reference point is computed once with BigDecimal arithmetic, at a precision that resolves the pixels, and is rounded to doubles.
+ * The orbit of every pixel is then followed as the difference from the reference orbit, which is small enough to be computed in double arithmetic: with z = Z + d and c = C + dc, the difference evolves as d' = (2Z + d)d + dc.
+ * When the orbit of a pixel comes closer to 0 than its difference from the reference, the difference loses the precision of the pixel (a glitch); the orbit is then rebased onto the start of the reference orbit, by taking its current point as the new difference, and the same happens when the reference orbit ends before the orbit of the pixel escapes.
+ * The reference point is the centre of the region, unless its orbit escapes early, in which case the pixel of a coarse grid whose orbit lasts longest is used instead.
+ * Since the differences are doubles, the edge length of a pixel has to stay above the smallest double, around 1e-300.
+ */
+final class PerturbationRenderer {
+
+	/** The number of significant digits of the reference orbit beyond those needed to tell the pixels apart. */
+	private static final int GUARD_DIGITS = 20;
+
+	/** The number of pixels along one edge of the coarse grid from which a longer reference orbit is picked. */
+	private static final int PROBE_GRID = 16;
+
+	/** The real part of the left corner of the region. */
+	private final BigDecimal cornerReal;
+
+	/** The imaginary part of the left corner of the region. */
+	private final BigDecimal cornerImag;
+
+	/** The edge length of the region. */
+	private final double edgeLength;
+
+	/** The number of pixels along one edge of the region. */
+	private final int numSquares;
+
+	/** The iteration limit. */
+	private final int iterationLimit;
+
+	/** The precision of the reference orbit. */
+	private final MathContext precision;
+
+	/** The real parts of the points of the reference orbit. */
+	private double[] referenceReal;
+
+	/** The imaginary parts of the points of the reference orbit. */
+	private double[] referenceImag;
+
+	/** The offset of the reference point from the left corner, in the real direction. */
+	private double referenceOffsetReal;
+
+	/** The offset of the reference point from the left corner, in the imaginary direction. */
+	private double referenceOffsetImag;
+
+	/** The number of times the orbits of the pixels were rebased. */
+	private final AtomicLong rebases = new AtomicLong();
+
+	/**
+	 * Instantiates a new perturbation renderer.
+	 *
+	 * @param cornerReal the real part of the left corner of the region
+	 * @param cornerImag the imaginary part of the left corner of the region
+	 * @param edgeLength the edge length of the region
+	 * @param numSquares the number of pixels along one edge of the region
+	 * @param iterationLimit the iteration limit
+	 */
+	PerturbationRenderer(BigDecimal cornerReal, BigDecimal cornerImag, double edgeLength, int numSquares, int iterationLimit){
+		this.cornerReal = cornerReal;
+		this.cornerImag = cornerImag;
+		this.edgeLength = edgeLength;
+		this.numSquares = numSquares;
+		this.iterationLimit = iterationLimit;
+		int pixelDigits = (int) Math.ceil(-Math.log10(edgeLength / Math.max(1, numSquares)));
+		this.precision = new MathContext(Math.max(pixelDigits, 0) + GUARD_DIGITS);
+	}
+
+	/**
+	 * Renders the region on the given pool.
+	 *
+	 * @param pool the fork-join pool on which the rows are rendered
+	 * @return count array, where count[i][j] = k for the representative point in the region[i][j]
+	 */
+	int[][] render(ForkJoinPool pool){
+		setReference(edgeLength / 2, edgeLength / 2);
+		if(referenceReal.length < iterationLimit){
+			// the orbit of the centre escapes; the pixel of the coarse grid that lasts longest is a better reference
+			int bestCount = 0;
+			double bestReal = 0, bestImag = 0;
+			for(int i = 0; i < PROBE_GRID; i++){
+				for(int j = 0; j < PROBE_GRID; j++){
+					double offsetReal = (i + 0.5) * edgeLength / PROBE_GRID, offsetImag = (j + 0.5) * edgeLength / PROBE_GRID;
+					int k = iterate(offsetReal - referenceOffsetReal, offsetImag - referenceOffsetImag, new long[1]);
+					if(k > bestCount){
+						bestCount = k;
+						bestReal = offsetReal;
+						bestImag = offsetImag;
+					}
+				}
+			}
+			if(bestCount > referenceReal.length){
+				setReference(bestReal, bestImag);
+			}
+		}
+		int[][] count = new int[numSquares][numSquares];
+		pool.invoke(new RowRange(count, 0, numSquares));
+		return count;
+	}
+
+	/**
+	 * Gets the number of times the orbits of the pixels were rebased.
+	 *
+	 * @return the number of rebases
+	 */
+	long getRebases(){
+		return rebases.get();
+	}
+
+	/**
+	 * Gets the number of points of the reference orbit.
+	 *
+	 * @return the length of the reference orbit
+	 */
+	int getReferenceLength(){
+		return referenceReal.length;
+	}
+
+	/**
+	 * Computes the orbit of the reference point at the given offset from the left corner, up to the iteration limit or until it escapes.
+	 *
+	 * @param offsetReal the offset of the reference point in the real direction
+	 * @param offsetImag the offset of the reference point in the imaginary direction
+	 */
+	private void setReference(double offsetReal, double offsetImag){
+		BigDecimal c_real = cornerReal.add(new BigDecimal(offsetReal), precision);
+		BigDecimal c_imag = cornerImag.add(new BigDecimal(offsetImag), precision);
+		BigDecimal two = BigDecimal.valueOf(2);
+		double[] real = new double[Math.max(1, iterationLimit)];
+		double[] imag = new double[real.length];
+		BigDecimal zReal = BigDecimal.ZERO, zImag = BigDecimal.ZERO;
+		int length = 1; // the first point is 0
+		while(length < real.length){
+			BigDecimal temp = zReal.multiply(zReal, precision).subtract(zImag.multiply(zImag, precision), precision).add(c_real, precision);
+			zImag = two.multiply(zReal, precision).multiply(zImag, precision).add(c_imag, precision);
+			zReal = temp;
+			real[length] = zReal.doubleValue();
+			imag[length] = zImag.doubleValue();
+			length++;
+			if(!(real[length - 1] * real[length - 1] + imag[length - 1] * imag[length - 1] < 4)){
+				break;
+			}
+		}
+		referenceReal = new double[length];
+		referenceImag = new double[length];
+		System.arraycopy(real, 0, referenceReal, 0, length);
+		System.arraycopy(imag, 0, referenceImag, 0, length);
+		referenceOffsetReal = offsetReal;
+		referenceOffsetImag = offsetImag;
+	}
+
+	/**
+	 * Computes the count of a point from its offset from the reference point, with the same escape test and the same count as getK.
+	 *
+	 * @param dcReal the offset of the point from the reference point, in the real direction
+	 * @param dcImag the offset of the point from the reference point, in the imaginary direction
+	 * @param rebaseCount the counter of the rebases, which is kept by each row so that the rows do not contend for it
+	 * @return k
+	 */
+	private int iterate(double dcReal, double dcImag, long[] rebaseCount){
+		double[] zr = referenceReal, zi = referenceImag;
+		int last = zr.length - 1;
+		double dReal = 0, dImag = 0;
+		int n = 0; // the point of the reference orbit that the difference is taken from
+		int k = 1;
+		while(k < iterationLimit){
+			double real = zr[n] + dReal, imag = zi[n] + dImag;
+			double magnitude = real * real + imag * imag;
+			if(!(magnitude < 4)){
+				break;
+			}
+			if(magnitude < dReal * dReal + dImag * dImag || n == last){ // a glitch, or the end of the reference orbit
+				dReal = real;
+				dImag = imag;
+				n = 0;
+				rebaseCount[0]++;
+			}
+			double aReal = 2 * zr[n] + dReal, aImag = 2 * zi[n] + dImag;
+			double temp = aReal * dReal - aImag * dImag + dcReal;
+			dImag = aReal * dImag + aImag * dReal + dcImag;
+			dReal = temp;
+			n++;
+			k++;
+		}
+		return k;
+	}
+
+	/**
+	 * A range of rows that is split in halves until a single row is left.
+	 */
+	private final class RowRange extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The grid of counts. */
+		private final int[][] count;
+
+		/** The first row of the range. */
+		private final int from;
+
+		/** The row after the last row of the range. */
+		private final int to;
+
+		/**
+		 * Instantiates a new row range.
+		 *
+		 * @param count the grid of counts
+		 * @param from the first row of the range
+		 * @param to the row after the last row of the range
+		 */
+		RowRange(int[][] count, int from, int to){
+			this.count = count;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= 1){
+				long[] rebaseCount = new long[1];
+				for(int i = from; i < to; i++){
+					double dcReal = i * edgeLength / numSquares - referenceOffsetReal;
+					for(int j = 0; j < numSquares; j++){
+						count[i][j] = iterate(dcReal, j * edgeLength / numSquares - referenceOffsetImag, rebaseCount);
+					}
+				}
+				rebases.addAndGet(rebaseCount[0]);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new RowRange(count, from, mid), new RowRange(count, mid, to));
+		}
+	}
+}
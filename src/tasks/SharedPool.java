@@ -0,0 +1,31 @@
+package tasks;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class holds the fork-join pool that is shared by the parallel tasks which are not given a pool of their own.
+ * The pool is created lazily, the first time a parallel task runs in the JVM, with one worker per available processor.
+ */
+final class SharedPool {
+
+	/** The shared pool. */
+	private static ForkJoinPool pool;
+
+	/**
+	 * Instantiates a new shared pool holder; it is never instantiated.
+	 */
+	private SharedPool(){
+	}
+
+	/**
+	 * Gets the shared pool.
+	 *
+	 * @return the shared pool
+	 */
+	static synchronized ForkJoinPool get(){
+		if(pool == null){
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+		return pool;
+	}
+}
@@ -0,0 +1,50 @@
+package tasks;
+
+import java.io.Serializable;
+
+import api.PartialResultSink;
+import api.StreamingTask;
+
+/**
+ * This class is a Mandelbrot set task whose counts are streamed to the client in tiles as they are computed, so that the client can show the first tiles long before the last one is computed.
+ * Executed without streaming, it returns all of its counts as a compact MandelbrotSetResult.
+ */
+public final class StreamingMandelbrotSetTask implements StreamingTask<MandelbrotSetResult, MandelbrotTile>, Serializable{
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task that computes the counts. */
+	private MandelbrotSetTask task;
+
+	/**
+	 * Instantiates a new streaming Mandelbrot set task.
+	 *
+	 * @param task the task that computes the counts; its tiling sets the tiles that are streamed
+	 */
+	public StreamingMandelbrotSetTask(MandelbrotSetTask task){
+		this.task = task;
+	}
+
+	/**
+	 * Executes the Mandelbrot set task into a compact result.
+	 *
+	 * @return the counts, where getCount(i, j) = k for the representative point in the region[i][j]
+	 */
+	@Override
+	public MandelbrotSetResult execute() {
+		return task.executeCompact();
+	}
+
+	/**
+	 * Executes the Mandelbrot set task in tiles, handing each tile to the sink as soon as it is complete.
+	 *
+	 * @param sink the sink that takes the tiles
+	 * @return null, since the tiles hold all the counts
+	 */
+	@Override
+	public MandelbrotSetResult execute(PartialResultSink<MandelbrotTile> sink) {
+		task.executeTiles(sink);
+		return null;
+	}
+}
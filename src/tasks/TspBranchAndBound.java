@@ -0,0 +1,343 @@
+package tasks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import api.Cancellation;
+
+/**
+ * This class finds a minimal distance tour of a TSP instance with a parallel branch-and-bound search.
+ * Every tour starts at city 0, which removes the rotations of a tour from the search. A partial tour is extended one city at a time and is pruned as soon as its length plus a lower bound on the rest of the tour is no shorter than the best tour found so far.
+ * The lower bound is the weight of a minimum spanning tree over the unvisited cities, the last city of the partial tour and city 0, because the rest of the tour is a path through exactly these cities.
+ * The subtrees of the short prefixes are searched as fork-join tasks that share the best bound; the deeper levels are searched sequentially.
+ * The search can be restricted to the tours with a given prefix, which is how a computer splits a TSP task.
+ * The search stops when the cancellation of the task that created it is cancelled, and returns the best tour found so far.
+ */
+final class TspBranchAndBound {
+
+	/** The prefix length up to which subtrees are forked as separate tasks. */
+	private static final int SPLIT_DEPTH = 3;
+
+	/** The number of partial tours that a sequential search extends between two checks of the cancellation. */
+	private static final int CANCELLATION_CHECK_NODES = 256;
+
+	/** The number of cities. */
+	private final int n;
+
+	/** The distance matrix; dist[i * n + j] is the distance between city i and city j. */
+	private final double[] dist;
+
+	/** The length of the best tour found so far; it is read without locking to prune the search. */
+	private volatile double bestDistance;
+
+	/** The best tour found so far. */
+	private int[] bestTour;
+
+	/** The cancellation of the task that created the search, which the workers of the pool check. */
+	private final Cancellation cancellation = Cancellation.current();
+
+	/**
+	 * Instantiates a new branch-and-bound search.
+	 *
+	 * @param dist the distance matrix of n cities as a flat array
+	 * @param n the number of cities
+	 */
+	TspBranchAndBound(double[] dist, int n){
+		this.dist = dist;
+		this.n = n;
+	}
+
+	/**
+	 * Searches for a minimal distance tour on the given pool.
+	 *
+	 * @param pool the fork-join pool
+	 * @return the tour that lists the order of the cities of a minimal distance tour, starting with city 0
+	 */
+	int[] solve(ForkJoinPool pool){
+		return solve(pool, new int[] { 0 }, Double.MAX_VALUE);
+	}
+
+	/**
+	 * Searches for a minimal distance tour among the tours that start with a given prefix on the given pool, pruning the partial tours that are no shorter than a given bound.
+	 * If no tour with the prefix is shorter than the bound, the tour that is returned is a tour with the prefix but not necessarily a minimal one.
+	 *
+	 * @param pool the fork-join pool
+	 * @param prefix the first cities of the tour, starting with city 0
+	 * @param bound the length below which tours are searched, such as the length of a known tour of all the cities; Double.MAX_VALUE searches all the tours
+	 * @return the tour that lists the order of the cities of a minimal distance tour with the prefix, if it is shorter than the bound; the best tour found so far if the search was cancelled; an empty tour if there are no cities
+	 */
+	int[] solve(ForkJoinPool pool, int[] prefix, double bound){
+		if(n == 0){ // there is no city 0 to start the tour at
+			return new int[0];
+		}
+		int[] path = new int[n];
+		boolean[] visited = new boolean[n];
+		double distance = 0;
+		for(int k = 0; k < prefix.length; k++){
+			path[k] = prefix[k];
+			visited[prefix[k]] = true;
+			if(k > 0){
+				distance += dist[prefix[k - 1] * n + prefix[k]];
+			}
+		}
+		if(n - prefix.length <= 1 || n <= 3){ // there is one order of the remaining cities, since every order of three or fewer cities is the same tour
+			int k = prefix.length;
+			for(int c = 1; c < n; c++){
+				if(!visited[c]){
+					path[k++] = c;
+				}
+			}
+			return path;
+		}
+		// a nearest neighbour tour gives the search an upper bound to prune against from the start
+		bestTour = nearestNeighbourTour(path, visited.clone(), prefix.length);
+		bestDistance = Math.min(tourDistance(bestTour), bound);
+		pool.invoke(new Subtree(path, visited, prefix.length, distance, Math.max(SPLIT_DEPTH, prefix.length + 2)));
+		return bestTour;
+	}
+
+	/**
+	 * Extends a partial tour by always moving to the nearest unvisited city.
+	 *
+	 * @param path the partial tour; only the first depth cities are set
+	 * @param visited the cities of the partial tour; it is updated
+	 * @param depth the number of cities in the partial tour
+	 * @return the nearest neighbour tour that extends the partial tour
+	 */
+	private int[] nearestNeighbourTour(int[] path, boolean[] visited, int depth){
+		int[] tour = path.clone();
+		for(int k = depth; k < n; k++){
+			int last = tour[k - 1];
+			int next = -1;
+			for(int c = 1; c < n; c++){
+				if(!visited[c] && (next == -1 || dist[last * n + c] < dist[last * n + next])){
+					next = c;
+				}
+			}
+			tour[k] = next;
+			visited[next] = true;
+		}
+		return tour;
+	}
+
+	/**
+	 * Calculates the length of a complete tour.
+	 *
+	 * @param tour the tour
+	 * @return the length of the tour
+	 */
+	private double tourDistance(int[] tour){
+		double distance = 0;
+		for(int k = 0; k < n; k++){
+			distance += dist[tour[k] * n + tour[(k + 1) % n]];
+		}
+		return distance;
+	}
+
+	/**
+	 * Offers a complete tour as a new best tour.
+	 *
+	 * @param path the tour
+	 * @param distance the length of the tour
+	 */
+	private synchronized void offer(int[] path, double distance){
+		if(distance < bestDistance){
+			bestDistance = distance;
+			bestTour = path.clone();
+		}
+	}
+
+	/**
+	 * Calculates a lower bound on the length of the path that leaves the last city of a partial tour, visits all the unvisited cities and returns to city 0.
+	 * The bound is the weight of a minimum spanning tree over these cities, computed with Prim's algorithm.
+	 *
+	 * @param visited the cities of the partial tour
+	 * @param last the last city of the partial tour
+	 * @param key the scratch array for the distances of the cities to the tree
+	 * @param nodes the scratch array for the cities of the tree
+	 * @return the lower bound
+	 */
+	private double spanningTreeBound(boolean[] visited, int last, double[] key, int[] nodes){
+		int m = 0;
+		nodes[m++] = last;
+		for(int c = 1; c < n; c++){
+			if(!visited[c]){
+				nodes[m++] = c;
+			}
+		}
+		nodes[m++] = 0;
+		for(int k = 1; k < m; k++){
+			key[k] = dist[last * n + nodes[k]];
+		}
+		double weight = 0;
+		// nodes[0..added) are in the tree; the remaining ones are kept after them
+		for(int added = 1; added < m; added++){
+			int best = added;
+			for(int k = added + 1; k < m; k++){
+				if(key[k] < key[best]){
+					best = k;
+				}
+			}
+			weight += key[best];
+			swapNodes(nodes, key, added, best);
+			int row = nodes[added] * n;
+			for(int k = added + 1; k < m; k++){
+				double d = dist[row + nodes[k]];
+				if(d < key[k]){
+					key[k] = d;
+				}
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Swaps two cities together with their keys.
+	 *
+	 * @param nodes the cities
+	 * @param key the keys
+	 * @param i the ith position
+	 * @param j the jth position
+	 */
+	private static void swapNodes(int[] nodes, double[] key, int i, int j){
+		int tempNode = nodes[i];
+		nodes[i] = nodes[j];
+		nodes[j] = tempNode;
+		double tempKey = key[i];
+		key[i] = key[j];
+		key[j] = tempKey;
+	}
+
+	/**
+	 * Orders the unvisited cities by their distance from the last city, so that the promising branches are searched first.
+	 *
+	 * @param visited the cities of the partial tour
+	 * @param last the last city of the partial tour
+	 * @param cities the array that receives the unvisited cities, nearest first, from the offset on
+	 * @param offset the position of the nearest unvisited city in the array
+	 * @return the number of unvisited cities
+	 */
+	private int candidates(boolean[] visited, int last, int[] cities, int offset){
+		int count = 0;
+		for(int c = 1; c < n; c++){
+			if(!visited[c]){
+				// insertion sort; there are at most n cities
+				int k = offset + count++;
+				while(k > offset && dist[last * n + cities[k - 1]] > dist[last * n + c]){
+					cities[k] = cities[k - 1];
+					k--;
+				}
+				cities[k] = c;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The subtree of all the tours that extend a given prefix.
+	 */
+	private final class Subtree extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The partial tour; only the first depth cities are set. */
+		private final int[] path;
+
+		/** The cities of the partial tour. */
+		private final boolean[] visited;
+
+		/** The number of cities in the partial tour. */
+		private final int depth;
+
+		/** The length of the partial tour. */
+		private final double distance;
+
+		/** The prefix length up to which subtrees are forked as separate tasks. */
+		private final int splitDepth;
+
+		/** The number of partial tours that the sequential search extends until it checks the cancellation again. */
+		private int untilCheck = CANCELLATION_CHECK_NODES;
+
+		/** Whether the sequential search found the search cancelled. */
+		private boolean stopped;
+
+		/**
+		 * Instantiates a new subtree.
+		 *
+		 * @param path the partial tour
+		 * @param visited the cities of the partial tour
+		 * @param depth the number of cities in the partial tour
+		 * @param distance the length of the partial tour
+		 * @param splitDepth the prefix length up to which subtrees are forked as separate tasks
+		 */
+		Subtree(int[] path, boolean[] visited, int depth, double distance, int splitDepth){
+			this.path = path;
+			this.visited = visited;
+			this.depth = depth;
+			this.distance = distance;
+			this.splitDepth = splitDepth;
+		}
+
+		@Override
+		protected void compute() {
+			if(cancellation.isCancelled()){
+				return;
+			}
+			int last = path[depth - 1];
+			if(depth >= splitDepth || depth >= n - 1){
+				search(path, visited, depth, distance, new double[n + 1], new int[n + 1], new int[(n - depth) * n]);
+				return;
+			}
+			int[] next = new int[n];
+			Subtree[] subtrees = new Subtree[candidates(visited, last, next, 0)];
+			for(int k = 0; k < subtrees.length; k++){
+				int[] childPath = path.clone();
+				boolean[] childVisited = visited.clone();
+				childPath[depth] = next[k];
+				childVisited[next[k]] = true;
+				subtrees[k] = new Subtree(childPath, childVisited, depth + 1, distance + dist[last * n + next[k]], splitDepth);
+			}
+			invokeAll(subtrees);
+		}
+
+		/**
+		 * Searches the subtree of a partial tour sequentially, depth first.
+		 *
+		 * @param path the partial tour
+		 * @param visited the cities of the partial tour
+		 * @param depth the number of cities in the partial tour
+		 * @param distance the length of the partial tour
+		 * @param key the scratch array for the spanning tree bound
+		 * @param nodes the scratch array for the spanning tree bound
+		 * @param order the scratch array for the unvisited cities of each depth, in rows of n cities
+		 */
+		private void search(int[] path, boolean[] visited, int depth, double distance, double[] key, int[] nodes, int[] order){
+			int last = path[depth - 1];
+			if(depth == n){
+				offer(path, distance + dist[last * n]);
+				return;
+			}
+			if(--untilCheck <= 0){
+				untilCheck = CANCELLATION_CHECK_NODES;
+				stopped = cancellation.isCancelled();
+			}
+			if(stopped || distance + spanningTreeBound(visited, last, key, nodes) >= bestDistance){
+				return;
+			}
+			int offset = (n - 1 - depth) * n; // the row of this depth; the deeper levels use the rows before it
+			int end = offset + candidates(visited, last, order, offset);
+			for(int k = offset; k < end; k++){
+				int c = order[k];
+				double extended = distance + dist[last * n + c];
+				if(extended >= bestDistance || stopped){
+					continue;
+				}
+				path[depth] = c;
+				visited[c] = true;
+				search(path, visited, depth + 1, extended, key, nodes, order);
+				visited[c] = false;
+			}
+		}
+	}
+}
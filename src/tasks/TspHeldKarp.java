@@ -0,0 +1,189 @@
+package tasks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import api.Cancellation;
+
+/**
+ * This class finds a minimal distance tour of a TSP instance with the Held-Karp dynamic program, which takes O(n^2 2^n) time.
+ * Every tour starts at city 0, so the table is indexed by the subsets of the other m = n - 1 cities: the entry for subset S and city j in S is the length of the shortest path that leaves city 0, visits all the cities of S and ends at city j.
+ * The lengths are kept in a flat double array, since float sums cannot tell apart tours whose lengths differ by less than their rounding error, and the predecessors in a flat byte array.
+ * The 2^m * m lengths take 168 MB at 21 cities, which bounds the number of cities.
+ * The subsets of each cardinality depend only on the subsets that are one city smaller, so each cardinality layer is filled in parallel.
+ * The table holds no tour until it is full, so a cancelled solver stops filling it and returns no tour.
+ */
+final class TspHeldKarp {
+
+	/** The largest number of cities that the tables are allocated for. */
+	static final int MAX_CITIES = 21;
+
+	/** The number of subsets that a fork-join task fills without splitting further. */
+	private static final int CHUNK_SIZE = 1 << 12;
+
+	/** The number of cities. */
+	private final int n;
+
+	/** The number of cities other than city 0. */
+	private final int m;
+
+	/** The distance matrix; dist[i * n + j] is the distance between city i and city j. */
+	private final double[] dist;
+
+	/** The path lengths; cost[S * m + j] is the length of the shortest path from city 0 through the cities of S that ends at city j + 1. */
+	private double[] cost;
+
+	/** The predecessors; pred[S * m + j] is the city before city j + 1 on that path, as an index into the m cities, or -1 for city 0. */
+	private byte[] pred;
+
+	/** The cancellation of the task that created the solver, which the workers of the pool check. */
+	private final Cancellation cancellation = Cancellation.current();
+
+	/**
+	 * Instantiates a new Held-Karp solver.
+	 *
+	 * @param dist the distance matrix of n cities as a flat array
+	 * @param n the number of cities
+	 */
+	TspHeldKarp(double[] dist, int n){
+		if(n > MAX_CITIES){
+			throw new IllegalArgumentException("Held-Karp is limited to " + MAX_CITIES + " cities: " + n);
+		}
+		this.n = n;
+		this.m = n - 1;
+		this.dist = dist;
+	}
+
+	/**
+	 * Fills the table on the given pool and reconstructs a minimal distance tour from it.
+	 *
+	 * @param pool the fork-join pool
+	 * @return the tour that lists the order of the cities of a minimal distance tour, starting with city 0, or null if the solver was cancelled
+	 */
+	int[] solve(ForkJoinPool pool){
+		if(n <= 3){ // every order of three or fewer cities is the same tour
+			int[] tour = new int[n];
+			for(int i = 0; i < n; i++){
+				tour[i] = i;
+			}
+			return tour;
+		}
+		int subsets = 1 << m;
+		cost = new double[subsets * m];
+		pred = new byte[subsets * m];
+		for(int j = 0; j < m; j++){
+			cost[(1 << j) * m + j] = dist[j + 1];
+			pred[(1 << j) * m + j] = -1;
+		}
+		for(int cardinality = 2; cardinality <= m; cardinality++){
+			pool.invoke(new Layer(cardinality, 0, subsets));
+			if(cancellation.isCancelled()){
+				return null;
+			}
+		}
+		return reconstruct();
+	}
+
+	/**
+	 * Fills the entries of all the subsets of the given cardinality within a range of subsets.
+	 *
+	 * @param cardinality the number of cities in the subsets to fill
+	 * @param from the first subset of the range
+	 * @param to the subset after the last subset of the range
+	 */
+	private void fill(int cardinality, int from, int to){
+		for(int subset = from; subset < to; subset++){
+			if(Integer.bitCount(subset) != cardinality){
+				continue;
+			}
+			int row = subset * m;
+			for(int bits = subset; bits != 0; bits &= bits - 1){
+				int j = Integer.numberOfTrailingZeros(bits);
+				int previous = (subset ^ (1 << j)) * m;
+				int to1 = (j + 1) * n + 1;
+				double best = Double.MAX_VALUE;
+				int bestPred = 0;
+				for(int others = subset ^ (1 << j); others != 0; others &= others - 1){
+					int i = Integer.numberOfTrailingZeros(others);
+					double length = cost[previous + i] + dist[to1 + i];
+					if(length < best){
+						best = length;
+						bestPred = i;
+					}
+				}
+				cost[row + j] = best;
+				pred[row + j] = (byte) bestPred;
+			}
+		}
+	}
+
+	/**
+	 * Closes the cheapest full path back to city 0 and follows the predecessors back to city 0.
+	 *
+	 * @return the tour starting with city 0
+	 */
+	private int[] reconstruct(){
+		int full = (1 << m) - 1;
+		double best = Double.MAX_VALUE;
+		int last = 0;
+		for(int j = 0; j < m; j++){
+			double length = cost[full * m + j] + dist[(j + 1) * n];
+			if(length < best){
+				best = length;
+				last = j;
+			}
+		}
+		int[] tour = new int[n];
+		int subset = full;
+		for(int k = n - 1; k >= 1; k--){
+			tour[k] = last + 1;
+			int previous = pred[subset * m + last];
+			subset ^= 1 << last;
+			last = previous;
+		}
+		return tour;
+	}
+
+	/**
+	 * A range of subsets of one cardinality layer that is split in halves until it is small enough to fill sequentially.
+	 */
+	private final class Layer extends RecursiveAction {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The number of cities in the subsets to fill. */
+		private final int cardinality;
+
+		/** The first subset of the range. */
+		private final int from;
+
+		/** The subset after the last subset of the range. */
+		private final int to;
+
+		/**
+		 * Instantiates a new layer range.
+		 *
+		 * @param cardinality the number of cities in the subsets to fill
+		 * @param from the first subset of the range
+		 * @param to the subset after the last subset of the range
+		 */
+		Layer(int cardinality, int from, int to){
+			this.cardinality = cardinality;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= CHUNK_SIZE){
+				if(!cancellation.isCancelled()){
+					fill(cardinality, from, to);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new Layer(cardinality, from, mid), new Layer(cardinality, mid, to));
+		}
+	}
+}
@@ -0,0 +1,706 @@
+package tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import api.Cancellation;
+
+/**
+ * This class finds a short tour of a large TSP instance, of thousands to hundreds of thousands of cities, within a time budget; the tour is not guaranteed to be minimal.
+ * <ul>
+ * <li>The k nearest neighbors of every city are found on a grid of cells of about two cities each, and only the edges to them are tried as new edges, so a move is found in constant time instead of O(n).</li>
+ * <li>The start tour visits the cities in the order of a Hilbert curve through the plane.</li>
+ * <li>The tour is improved with 2-opt and Or-opt moves until no move improves it. Each city has a don't-look bit: only the cities in a queue, which starts with all the cities and receives the end points of every changed edge, are tried.</li>
+ * <li>Until the time budget runs out, or until 100 n perturbations in a row have failed, the tour is perturbed by a double bridge between nearby positions and improved again from the end points of the perturbation. The new tour is kept if it is shorter; otherwise the moves since the perturbation are undone from a log, so that a step costs about as much as the moves it makes.</li>
+ * </ul>
+ * The tour is kept as an array of cities with the position of every city, and every move is made of reversals of the shorter side of the tour.
+ * One search runs on every worker of the pool, each from a start tour through a randomly rotated plane, and the shortest tour of all is returned.
+ * The searches also stop when the cancellation of the task that created the local search is cancelled, as if the time budget had run out.
+ */
+final class TspLocalSearch {
+
+	/** The number of nearest neighbors of every city that are tried as new edges. */
+	static final int NEIGHBORS = 8;
+
+	/** The longest segment that an Or-opt move moves. */
+	private static final int MAX_SEGMENT = 3;
+
+	/** The largest number of cities of each of the two paths that a double bridge swaps. */
+	private static final int KICK_SPAN = 30;
+
+	/** The number of bits per coordinate of the Hilbert curve. */
+	private static final int HILBERT_ORDER = 15;
+
+	/** The smallest gain that is an improvement, relative to the mean distance between neighbors; it keeps rounding errors from cycling. */
+	private static final double EPSILON = 1e-9;
+
+	/** The number of cities. */
+	private final int n;
+
+	/** The x-coordinates of the cities. */
+	private final double[] x;
+
+	/** The y-coordinates of the cities. */
+	private final double[] y;
+
+	/** The nearest neighbors of the cities, nearest first; the neighbors of city i are at neighbors[i * k] to neighbors[i * k + k - 1]. */
+	private int[] neighbors;
+
+	/** The number of neighbors per city. */
+	private int k;
+
+	/** The length of the shortest tour of the last search. */
+	private volatile double length;
+
+	/** The cancellation of the task that created the local search, which the workers of the pool check. */
+	private final Cancellation cancellation = Cancellation.current();
+
+	/**
+	 * Instantiates a new local search.
+	 *
+	 * @param cities the cities; cities[i][0] is the x-coordinate of city i and cities[i][1] is its y-coordinate
+	 */
+	TspLocalSearch(double[][] cities){
+		n = cities.length;
+		x = new double[n];
+		y = new double[n];
+		for(int i = 0; i < n; i++){
+			x[i] = cities[i][0];
+			y[i] = cities[i][1];
+		}
+	}
+
+	/**
+	 * Searches for a short tour on every worker of the given pool until the time budget runs out.
+	 *
+	 * @param pool the fork-join pool
+	 * @param timeBudgetMillis the time budget in milliseconds, which includes the search of the nearest neighbors
+	 * @return the shortest tour found, starting with city 0
+	 */
+	int[] solve(ForkJoinPool pool, long timeBudgetMillis){
+		final long deadline = System.nanoTime() + timeBudgetMillis * 1000000L;
+		if(n <= 3){ // every order of three or fewer cities is the same tour
+			int[] tour = new int[n];
+			for(int i = 0; i < n; i++){
+				tour[i] = i;
+			}
+			length = tourLength(tour);
+			return tour;
+		}
+		findNeighbors();
+		final int searches = Math.max(1, pool.getParallelism());
+		int[] best = pool.invoke(new RecursiveTask<int[]>() {
+
+			/** The Constant serialVersionUID. */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected int[] compute() {
+				List<Search> tasks = new ArrayList<Search>();
+				for(int s = 0; s < searches; s++){
+					tasks.add(new Search(s, deadline));
+				}
+				invokeAll(tasks);
+				int[] best = null;
+				double bestLength = Double.MAX_VALUE;
+				for(Search task : tasks){
+					int[] tour = task.join();
+					double tourLength = tourLength(tour);
+					if(tourLength < bestLength){
+						bestLength = tourLength;
+						best = tour;
+					}
+				}
+				return best;
+			}
+		});
+		length = tourLength(best);
+		return startAtZero(best);
+	}
+
+	/**
+	 * Gets the length of the tour that the last call to solve returned.
+	 *
+	 * @return the length of the tour
+	 */
+	double getLength(){
+		return length;
+	}
+
+	/**
+	 * Computes the length of a tour.
+	 *
+	 * @param tour the tour
+	 * @return the length of the tour
+	 */
+	double tourLength(int[] tour){
+		double sum = 0;
+		for(int i = 0; i < tour.length; i++){
+			sum += distance(tour[i], tour[(i + 1) % tour.length]);
+		}
+		return sum;
+	}
+
+	/**
+	 * Computes the distance between two cities.
+	 *
+	 * @param a the first city
+	 * @param b the second city
+	 * @return the distance
+	 */
+	private double distance(int a, int b){
+		double dx = x[a] - x[b];
+		double dy = y[a] - y[b];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Rotates a tour so that it starts with city 0, as the tours of the exact solvers do.
+	 *
+	 * @param tour the tour
+	 * @return the rotated tour
+	 */
+	private static int[] startAtZero(int[] tour){
+		int start = 0;
+		while(tour[start] != 0){
+			start++;
+		}
+		int[] rotated = new int[tour.length];
+		for(int i = 0; i < tour.length; i++){
+			rotated[i] = tour[(start + i) % tour.length];
+		}
+		return rotated;
+	}
+
+	/**
+	 * Finds the nearest neighbors of every city.
+	 * The cities are sorted into square cells, and the rings of cells around the cell of a city are searched outwards until no city in the next ring can be nearer than the k-th neighbor found.
+	 */
+	private void findNeighbors(){
+		k = Math.min(NEIGHBORS, n - 1);
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for(int i = 0; i < n; i++){
+			minX = Math.min(minX, x[i]);
+			maxX = Math.max(maxX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		int cellsPerEdge = (int) Math.ceil(Math.sqrt(n / 2.0));
+		double cellSize = Math.max(maxX - minX, maxY - minY) / cellsPerEdge;
+		if(!(cellSize > 0)){ // all the cities are at the same point
+			cellSize = 1;
+		}
+		int width = (int) ((maxX - minX) / cellSize) + 1;
+		int height = (int) ((maxY - minY) / cellSize) + 1;
+		int[] cellOf = new int[n];
+		int[] cellStart = new int[width * height + 1];
+		for(int i = 0; i < n; i++){
+			cellOf[i] = (int) ((y[i] - minY) / cellSize) * width + (int) ((x[i] - minX) / cellSize);
+			cellStart[cellOf[i] + 1]++;
+		}
+		for(int c = 0; c < width * height; c++){
+			cellStart[c + 1] += cellStart[c];
+		}
+		int[] cellCities = new int[n];
+		int[] fill = Arrays.copyOf(cellStart, width * height);
+		for(int i = 0; i < n; i++){
+			cellCities[fill[cellOf[i]]++] = i;
+		}
+
+		neighbors = new int[n * k];
+		double[] nearest = new double[k];
+		int[] nearestCities = new int[k];
+		for(int i = 0; i < n; i++){
+			int cx = cellOf[i] % width, cy = cellOf[i] / width;
+			int found = 0;
+			for(int ring = 0; ; ring++){
+				for(int gy = cy - ring; gy <= cy + ring; gy++){
+					if(gy < 0 || gy >= height){
+						continue;
+					}
+					// the inner cells of the ring were searched in the previous rings
+					int step = gy == cy - ring || gy == cy + ring ? 1 : 2 * ring;
+					for(int gx = cx - ring; gx <= cx + ring; gx += Math.max(1, step)){
+						if(gx < 0 || gx >= width){
+							continue;
+						}
+						int cell = gy * width + gx;
+						for(int c = cellStart[cell]; c < cellStart[cell + 1]; c++){
+							int j = cellCities[c];
+							if(j == i){
+								continue;
+							}
+							double d = distance(i, j);
+							if(found == k && d >= nearest[k - 1]){
+								continue;
+							}
+							int p = found < k ? found++ : k - 1;
+							while(p > 0 && nearest[p - 1] > d){ // insertion into the sorted neighbors
+								nearest[p] = nearest[p - 1];
+								nearestCities[p] = nearestCities[p - 1];
+								p--;
+							}
+							nearest[p] = d;
+							nearestCities[p] = j;
+						}
+					}
+				}
+				boolean covered = ring >= width && ring >= height;
+				if(covered || (found == k && nearest[k - 1] <= ring * cellSize)){
+					break;
+				}
+			}
+			System.arraycopy(nearestCities, 0, neighbors, i * k, k);
+		}
+	}
+
+	/**
+	 * Computes the start tour, which visits the cities in the order of a Hilbert curve through the plane rotated by the given angle.
+	 *
+	 * @param angle the angle of rotation in radians
+	 * @return the start tour
+	 */
+	private int[] hilbertTour(double angle){
+		double cos = Math.cos(angle), sin = Math.sin(angle);
+		double[] u = new double[n];
+		double[] v = new double[n];
+		double minU = Double.MAX_VALUE, minV = Double.MAX_VALUE, maxU = -Double.MAX_VALUE, maxV = -Double.MAX_VALUE;
+		for(int i = 0; i < n; i++){
+			u[i] = x[i] * cos - y[i] * sin;
+			v[i] = x[i] * sin + y[i] * cos;
+			minU = Math.min(minU, u[i]);
+			maxU = Math.max(maxU, u[i]);
+			minV = Math.min(minV, v[i]);
+			maxV = Math.max(maxV, v[i]);
+		}
+		int side = 1 << HILBERT_ORDER;
+		double scale = (side - 1) / Math.max(Math.max(maxU - minU, maxV - minV), Double.MIN_VALUE);
+		long[] keys = new long[n];
+		for(int i = 0; i < n; i++){
+			long index = hilbertIndex(side, (int) ((u[i] - minU) * scale), (int) ((v[i] - minV) * scale));
+			keys[i] = index << 32 | i;
+		}
+		Arrays.sort(keys);
+		int[] tour = new int[n];
+		for(int i = 0; i < n; i++){
+			tour[i] = (int) keys[i];
+		}
+		return tour;
+	}
+
+	/**
+	 * Computes the distance of a point along the Hilbert curve that fills a square.
+	 *
+	 * @param side the edge length of the square, a power of 2
+	 * @param px the x-coordinate of the point
+	 * @param py the y-coordinate of the point
+	 * @return the index of the point on the curve
+	 */
+	private static long hilbertIndex(int side, int px, int py){
+		long index = 0;
+		for(int s = side >> 1; s > 0; s >>= 1){
+			int rx = (px & s) > 0 ? 1 : 0;
+			int ry = (py & s) > 0 ? 1 : 0;
+			index += (long) s * s * ((3 * rx) ^ ry);
+			if(ry == 0){ // rotates the quadrant
+				if(rx == 1){
+					px = s - 1 - px;
+					py = s - 1 - py;
+				}
+				int temp = px;
+				px = py;
+				py = temp;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * One search, which improves its own tour until the deadline and returns it.
+	 */
+	private final class Search extends RecursiveTask<int[]> {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The number of the search; search 0 starts from the Hilbert curve through the plane as it is. */
+		private final int index;
+
+		/** The deadline, in the time of System.nanoTime. */
+		private final long deadline;
+
+		/** The tour; tour[p] is the city at position p. */
+		private int[] tour;
+
+		/** The positions of the cities in the tour. */
+		private int[] position;
+
+		/** The queue of the cities whose don't-look bit is off, as a ring buffer. */
+		private int[] queue;
+
+		/** Whether each city is in the queue. */
+		private boolean[] queued;
+
+		/** The index of the head of the queue. */
+		private int head;
+
+		/** The number of cities in the queue. */
+		private int queueSize;
+
+		/** The reversals since the last perturbation, as pairs of positions, so that they can be undone. */
+		private int[] log = new int[64];
+
+		/** The number of entries in the log. */
+		private int logSize;
+
+		/** Whether the reversals are logged. */
+		private boolean logging;
+
+		/** The smallest gain that is an improvement. */
+		private double epsilon;
+
+		/** The number of moves until the deadline is checked again. */
+		private int untilCheck;
+
+		/** Whether the deadline has passed or the search was cancelled. */
+		private boolean expired;
+
+		/**
+		 * Instantiates a new search.
+		 *
+		 * @param index the number of the search
+		 * @param deadline the deadline, in the time of System.nanoTime
+		 */
+		Search(int index, long deadline){
+			this.index = index;
+			this.deadline = deadline;
+		}
+
+		@Override
+		protected int[] compute() {
+			Random random = new Random(index);
+			tour = hilbertTour(index == 0 ? 0 : random.nextDouble() * 2 * Math.PI);
+			position = new int[n];
+			for(int p = 0; p < n; p++){
+				position[tour[p]] = p;
+			}
+			queue = new int[n];
+			queued = new boolean[n];
+			double meanNeighbor = 0;
+			for(int i = 0; i < n; i++){
+				meanNeighbor += distance(i, neighbors[i * k]);
+				push(tour[i]);
+			}
+			epsilon = EPSILON * Math.max(meanNeighbor / n, Double.MIN_NORMAL);
+			improve();
+			if(n < 8){ // too few cities for a double bridge
+				return tour;
+			}
+			// a small instance reaches its best tour long before the budget runs out
+			int patience = Math.max(10000, 100 * n);
+			int failures = 0;
+			logging = true;
+			while(!expired() && failures < patience){
+				logSize = 0;
+				double gain = kick(random);
+				gain += improve();
+				if(gain > epsilon){
+					failures = 0;
+				}
+				else{
+					undo();
+					failures++;
+				}
+			}
+			return tour;
+		}
+
+		/**
+		 * Tells whether the deadline has passed or the search was cancelled, looking only every few hundred moves.
+		 *
+		 * @return true if the deadline has passed or the search was cancelled
+		 */
+		private boolean expired(){
+			if(!expired && --untilCheck <= 0){
+				untilCheck = 256;
+				expired = System.nanoTime() - deadline >= 0 || cancellation.isCancelled();
+			}
+			return expired;
+		}
+
+		/**
+		 * Makes improving moves from the cities in the queue until the queue is empty or the deadline has passed.
+		 *
+		 * @return the total gain of the moves
+		 */
+		private double improve(){
+			double total = 0;
+			while(queueSize > 0 && !expired()){
+				int a = queue[head];
+				head = (head + 1) % n;
+				queueSize--;
+				queued[a] = false;
+				double gain = twoOpt(a);
+				if(gain <= 0){
+					gain = orOpt(a);
+				}
+				if(gain > 0){
+					total += gain;
+					push(a);
+				}
+			}
+			return total;
+		}
+
+		/**
+		 * Adds a city to the queue, unless it is already in it.
+		 *
+		 * @param city the city
+		 */
+		private void push(int city){
+			if(!queued[city]){
+				queued[city] = true;
+				queue[(head + queueSize) % n] = city;
+				queueSize++;
+			}
+		}
+
+		/**
+		 * Gets the city after a city in the tour.
+		 *
+		 * @param city the city
+		 * @return the next city
+		 */
+		private int next(int city){
+			int p = position[city] + 1;
+			return tour[p == n ? 0 : p];
+		}
+
+		/**
+		 * Gets the city before a city in the tour.
+		 *
+		 * @param city the city
+		 * @return the previous city
+		 */
+		private int previous(int city){
+			int p = position[city] - 1;
+			return tour[p < 0 ? n - 1 : p];
+		}
+
+		/**
+		 * Tries the 2-opt moves that replace an edge of a city by an edge to one of its neighbors, and makes the first one that improves the tour.
+		 *
+		 * @param a the city
+		 * @return the gain of the move, or 0 if no move improves the tour
+		 */
+		private double twoOpt(int a){
+			for(int direction = 0; direction < 2; direction++){
+				int b = direction == 0 ? next(a) : previous(a);
+				double ab = distance(a, b);
+				for(int i = a * k; i < a * k + k; i++){
+					int c = neighbors[i];
+					double g1 = ab - distance(a, c);
+					if(g1 <= epsilon){
+						break; // the neighbors are sorted, so no farther neighbor gains
+					}
+					int d = direction == 0 ? next(c) : previous(c);
+					if(c == b || d == a){
+						continue;
+					}
+					double gain = g1 + distance(c, d) - distance(b, d);
+					if(gain > epsilon){
+						if(direction == 0){
+							move(a, b, c, d);
+						}
+						else{
+							move(b, a, d, c);
+						}
+						push(b);
+						push(c);
+						push(d);
+						return gain;
+					}
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Tries the Or-opt moves that move the segment of one to three cities that starts at a city between two other cities, next to a neighbor of one of the ends of the segment, in either direction, and makes the first one that improves the tour.
+		 *
+		 * @param s1 the first city of the segment
+		 * @return the gain of the move, or 0 if no move improves the tour
+		 */
+		private double orOpt(int s1){
+			int s2 = s1;
+			for(int length = 1; length <= MAX_SEGMENT && length <= n - 5; length++, s2 = next(s2)){
+				int p = previous(s1);
+				int nx = next(s2);
+				double removed = distance(p, s1) + distance(s2, nx) - distance(p, nx);
+				if(removed <= epsilon){
+					continue;
+				}
+				for(int end = 0; end < 2; end++){
+					int s = end == 0 ? s1 : s2;
+					for(int i = s * k; i < s * k + k; i++){
+						int c = neighbors[i];
+						if(distance(s, c) >= removed){
+							break;
+						}
+						for(int side = 0; side < 2; side++){
+							int from = side == 0 ? c : previous(c);
+							int to = side == 0 ? next(c) : c;
+							if(inSegment(from, s1, length) || inSegment(to, s1, length) || from == p || to == p || from == nx || to == nx){
+								continue;
+							}
+							double edge = distance(from, to);
+							// the segment is inserted either as it is or reversed
+							double forward = removed - distance(from, s1) - distance(s2, to) + edge;
+							double reversed = removed - distance(from, s2) - distance(s1, to) + edge;
+							if(forward > epsilon || reversed > epsilon){
+								move(p, s1, from, to);
+								move(p, from, nx, s2);
+								if(forward >= reversed){
+									move(from, s2, s1, to);
+								}
+								push(p);
+								push(nx);
+								push(from);
+								push(to);
+								push(s1);
+								push(s2);
+								return Math.max(forward, reversed);
+							}
+						}
+					}
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Tells whether a city is in the segment of the given length that starts at the given city.
+		 *
+		 * @param city the city
+		 * @param s1 the first city of the segment
+		 * @param length the number of cities of the segment
+		 * @return true if the city is in the segment
+		 */
+		private boolean inSegment(int city, int s1, int length){
+			int offset = position[city] - position[s1];
+			if(offset < 0){
+				offset += n;
+			}
+			return offset < length;
+		}
+
+		/**
+		 * Replaces the edges (a, b) and (c, d) of the tour by the edges (a, c) and (b, d), by reversing the path between b and c.
+		 * The edges must have the same direction: either b follows a and d follows c, or a follows b and c follows d.
+		 *
+		 * @param a the first end of the first edge
+		 * @param b the second end of the first edge
+		 * @param c the first end of the second edge
+		 * @param d the second end of the second edge
+		 */
+		private void move(int a, int b, int c, int d){
+			if(next(a) == b){
+				reverse(position[b], position[c]);
+			}
+			else{
+				reverse(position[a], position[d]);
+			}
+		}
+
+		/**
+		 * Reverses the cities from position i to position j, wrapping around the end of the tour; when that is more than half of the tour, the other cities are reversed instead, which gives the same tour in the other direction.
+		 * Reversing the same positions again restores the tour, which is how a reversal is undone.
+		 *
+		 * @param i the first position
+		 * @param j the last position
+		 */
+		private void reverse(int i, int j){
+			if(logging){
+				if(logSize == log.length){
+					log = Arrays.copyOf(log, 2 * logSize);
+				}
+				log[logSize++] = i;
+				log[logSize++] = j;
+			}
+			int length = j - i;
+			if(length < 0){
+				length += n;
+			}
+			length++;
+			if(2 * length > n){ // reverses the complement
+				int temp = i;
+				i = j + 1 == n ? 0 : j + 1;
+				j = temp == 0 ? n - 1 : temp - 1;
+				length = n - length;
+			}
+			for(int s = length / 2; s > 0; s--){
+				int ci = tour[i], cj = tour[j];
+				tour[i] = cj;
+				position[cj] = i;
+				tour[j] = ci;
+				position[ci] = j;
+				if(++i == n){
+					i = 0;
+				}
+				if(--j < 0){
+					j = n - 1;
+				}
+			}
+		}
+
+		/**
+		 * Undoes the reversals since the last perturbation, newest first, and empties the queue.
+		 */
+		private void undo(){
+			logging = false;
+			for(int e = logSize - 2; e >= 0; e -= 2){
+				reverse(log[e], log[e + 1]);
+			}
+			logging = true;
+			logSize = 0;
+			while(queueSize > 0){
+				queued[queue[head]] = false;
+				head = (head + 1) % n;
+				queueSize--;
+			}
+		}
+
+		/**
+		 * Perturbs the tour with a double bridge: the two consecutive paths that follow a random city, each of at most a few cities, swap places, and the end points of the three changed edges are queued.
+		 *
+		 * @param random the random number generator
+		 * @return the gain of the perturbation, which is usually negative
+		 */
+		private double kick(Random random){
+			int span = Math.min(KICK_SPAN, (n - 2) / 2);
+			int p0 = random.nextInt(n);
+			int p1 = p0 + 1 + random.nextInt(span);
+			int p2 = p1 + 1 + random.nextInt(span);
+			// the edges (a1, a2), (b1, b2) and (c1, c2) are cut, and the paths a2..b1 and b2..c1 swap places
+			int a1 = tour[p0], a2 = tour[(p0 + 1) % n];
+			int b1 = tour[p1 % n], b2 = tour[(p1 + 1) % n];
+			int c1 = tour[p2 % n], c2 = tour[(p2 + 1) % n];
+			double gain = distance(a1, a2) + distance(b1, b2) + distance(c1, c2)
+					- distance(a1, b2) - distance(c1, a2) - distance(b1, c2);
+			move(a1, a2, c1, c2);
+			move(a1, c1, b2, b1);
+			move(c1, b1, a2, c2);
+			push(a1);
+			push(a2);
+			push(b1);
+			push(b2);
+			push(c1);
+			push(c2);
+			return gain;
+		}
+	}
+}
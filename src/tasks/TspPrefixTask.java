@@ -0,0 +1,142 @@
+package tasks;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import api.SplittableTask;
+import api.Task;
+
+/**
+ * This class is the part of a TSP task that searches the tours with a given prefix, which is what a TSP task is split into.
+ * The prefix task is solved with the branch-and-bound search; it is split by extending its prefix with each of the unvisited cities in turn.
+ * Since the prefix tasks do not share the best tour found so far, each of them starts from the length of a short tour of all the cities, found heuristically before the split, and only searches the tours that are shorter.
+ */
+final class TspPrefixTask implements SplittableTask<int[]>, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The number of unvisited cities below which a prefix task is not split, since its search is trivial. */
+	private static final int MIN_SPLIT_CITIES = 3;
+
+	/** The TSP task, which holds or refers to the cities. */
+	private final EuclideanTspTask task;
+
+	/** The first cities of the tours, starting with city 0. */
+	private final int[] prefix;
+
+	/** The length below which the tours are searched. */
+	private final double bound;
+
+	/**
+	 * Instantiates a new prefix task.
+	 *
+	 * @param task the TSP task
+	 * @param prefix the first cities of the tours, starting with city 0
+	 * @param bound the length below which the tours are searched
+	 */
+	TspPrefixTask(EuclideanTspTask task, int[] prefix, double bound){
+		this.task = task;
+		this.prefix = prefix;
+		this.bound = bound;
+	}
+
+	/**
+	 * Splits the tours with a prefix by the city that follows the prefix.
+	 *
+	 * @param task the TSP task
+	 * @param prefix the first cities of the tours, starting with city 0
+	 * @param bound the length below which the tours are searched
+	 * @return a prefix task for every unvisited city, or none if fewer than three cities are unvisited
+	 */
+	static List<TspPrefixTask> extensions(EuclideanTspTask task, int[] prefix, double bound){
+		int n = task.getCities().length;
+		if(n - prefix.length < MIN_SPLIT_CITIES){
+			return Collections.emptyList();
+		}
+		boolean[] visited = new boolean[n];
+		for(int city : prefix){
+			visited[city] = true;
+		}
+		List<TspPrefixTask> tasks = new ArrayList<TspPrefixTask>();
+		for(int c = 1; c < n; c++){
+			if(!visited[c]){
+				int[] extended = new int[prefix.length + 1];
+				System.arraycopy(prefix, 0, extended, 0, prefix.length);
+				extended[prefix.length] = c;
+				tasks.add(new TspPrefixTask(task, extended, bound));
+			}
+		}
+		return tasks;
+	}
+
+	/**
+	 * Estimates the work of searching the orders of the unvisited cities by their number, which is the factorial of the number of unvisited cities.
+	 *
+	 * @param remaining the number of unvisited cities
+	 * @return the number of orders, or Long.MAX_VALUE if it does not fit into a long
+	 */
+	static long orders(int remaining){
+		long orders = 1;
+		for(int k = 2; k <= remaining; k++){
+			if(orders > Long.MAX_VALUE / k){
+				return Long.MAX_VALUE;
+			}
+			orders *= k;
+		}
+		return orders;
+	}
+
+	/**
+	 * Picks the shortest of several tours.
+	 *
+	 * @param cities the cities of the TSP task
+	 * @param tours the tours
+	 * @return the shortest tour; the first one of several equally short tours
+	 */
+	static int[] shortest(double[][] cities, List<int[]> tours){
+		int[] best = null;
+		double bestDistance = Double.MAX_VALUE;
+		for(int[] tour : tours){
+			double distance = 0;
+			for(int k = 0; k < tour.length; k++){
+				double[] from = cities[tour[k]];
+				double[] to = cities[tour[(k + 1) % tour.length]];
+				distance += Math.hypot(from[0] - to[0], from[1] - to[1]);
+			}
+			if(distance < bestDistance){
+				bestDistance = distance;
+				best = tour;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Searches for a minimal distance tour with the prefix that is shorter than the bound.
+	 *
+	 * @return the tour that lists the order of the cities of a minimal distance tour with the prefix, or some tour with the prefix if none is shorter than the bound
+	 */
+	@Override
+	public int[] execute() {
+		double[][] cities = task.getCities();
+		return new TspBranchAndBound(EuclideanTspTask.distanceMatrix(cities), cities.length).solve(SharedPool.get(), prefix, bound);
+	}
+
+	@Override
+	public long estimateSize() {
+		return orders(task.getCities().length - prefix.length);
+	}
+
+	@Override
+	public List<? extends Task<int[]>> split() {
+		return extensions(task, prefix, bound);
+	}
+
+	@Override
+	public int[] merge(List<int[]> results) {
+		return shortest(task.getCities(), results);
+	}
+}
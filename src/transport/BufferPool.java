@@ -0,0 +1,64 @@
+package transport;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps direct buffers of one size for the socket I/O of the transport, since direct buffers are expensive to allocate and are what the socket reads and writes without another copy.
+ * A connection holds a buffer for reading while it is open and one for writing only while it has frames to write, so idle connections hold a single buffer.
+ */
+final class BufferPool {
+
+	/** The size of the buffers, in bytes. */
+	private final int bufferSize;
+
+	/** The largest number of buffers that are kept in the pool; the buffers released beyond it are left to the garbage collector. */
+	private final int maxPooled;
+
+	/** The buffers that are free. */
+	private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/** The number of buffers that are free. */
+	private final AtomicInteger freeCount = new AtomicInteger();
+
+	/**
+	 * Instantiates a new buffer pool.
+	 *
+	 * @param bufferSize the size of the buffers, in bytes
+	 * @param maxPooled the largest number of free buffers that are kept
+	 */
+	BufferPool(int bufferSize, int maxPooled){
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * Takes a free buffer, or allocates one if there is none.
+	 *
+	 * @return the buffer, cleared
+	 */
+	ByteBuffer acquire(){
+		ByteBuffer buffer = free.poll();
+		if(buffer == null){
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		freeCount.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Gives a buffer back to the pool.
+	 *
+	 * @param buffer the buffer, which must not be used any more by the caller
+	 */
+	void release(ByteBuffer buffer){
+		if(freeCount.incrementAndGet() <= maxPooled){
+			free.offer(buffer);
+		}
+		else{
+			freeCount.decrementAndGet();
+		}
+	}
+}
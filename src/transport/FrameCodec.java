@@ -0,0 +1,362 @@
+package transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.rmi.server.RMIClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class defines the frames of the transport and converts them from and to bytes.
+ * A frame is the length of the rest of the frame as an int, the id of the call as a long, the type of the frame as a byte, and the payload, which is a serialized object.
+ * The calls of a connection are told apart by their ids, so any number of them can be in flight at once and their replies can come back in any order.
+ * Like RMI, the serialized classes are annotated with their codebase, so a computer can load the classes of the tasks of a client from the codebase of the client.
+ */
+final class FrameCodec {
+
+	/** The size of the header of a frame after the length: the id and the type. */
+	static final int HEADER_BYTES = 9;
+
+	/** The default largest length of a frame: the largest chunk of a fetch, with room to spare for the results of the other calls. */
+	private static final int DEFAULT_MAX_FRAME_BYTES = 64 << 20;
+
+	/** The largest length of a frame, set by the system property transport.maxFrameBytes; a peer that announces a longer frame is disconnected. */
+	static final int MAX_FRAME_BYTES = Math.max(HEADER_BYTES, Integer.getInteger(NioComputerServer.MAX_FRAME_BYTES_PROPERTY, DEFAULT_MAX_FRAME_BYTES));
+
+	/** The size of the array a frame is first read into; it grows with the bytes that arrive, so a frame costs no more memory than the peer has sent of it. */
+	private static final int INITIAL_FRAME_BYTES = 64 << 10;
+
+	/** The frame of a call to Computer.execute; the payload is the arguments. */
+	static final byte EXECUTE = 1;
+
+	/** The frame of a call to Computer.executeStreaming; the payload is the task, and the parts come back in PARTIAL frames before the reply. */
+	static final byte EXECUTE_STREAMING = 2;
+
+	/** The frame of a call to Computer.submit. */
+	static final byte SUBMIT = 3;
+
+	/** The frame of a call to Computer.poll. */
+	static final byte POLL = 4;
+
+	/** The frame of a call to Computer.take. */
+	static final byte TAKE = 5;
+
+	/** The frame of a call to Computer.fetch. */
+	static final byte FETCH = 6;
+
+	/** The frame of a call to Computer.findMissingInputs. */
+	static final byte FIND_MISSING_INPUTS = 7;
+
+	/** The frame of a call to Computer.storeInputs. */
+	static final byte STORE_INPUTS = 8;
+
+	/** The frame of a call to Computer.getCacheStats. */
+	static final byte GET_CACHE_STATS = 9;
+
+	/** The frame of a call to Computer.getStats. */
+	static final byte GET_STATS = 10;
+
+	/** The frame of a call to Computer.cancel. */
+	static final byte CANCEL = 11;
+
+	/** The frame of the return value of a call. */
+	static final byte RESULT = 64;
+
+	/** The frame of the exception thrown by a call. */
+	static final byte ERROR = 65;
+
+	/** The frame of a batch of parts of a streaming task. */
+	static final byte PARTIAL = 66;
+
+	/**
+	 * Instantiates a new frame codec; it is never instantiated.
+	 */
+	private FrameCodec(){
+	}
+
+	/**
+	 * Encodes a frame into direct buffers from a pool, so it is written to the socket without another copy.
+	 *
+	 * @param id the id of the call
+	 * @param type the type of the frame
+	 * @param payload the payload
+	 * @param buffers the pool of the buffers
+	 * @return the buffers of the frame, including its length, ready to be written; they are given back to the pool with release once written
+	 * @throws IOException if the payload cannot be serialized
+	 */
+	static ByteBuffer[] encode(long id, byte type, Object payload, BufferPool buffers) throws IOException{
+		FrameOutput bytes = new FrameOutput(buffers);
+		boolean encoded = false;
+		try{
+			bytes.write(new byte[4 + HEADER_BYTES]);
+			ObjectOutputStream out = new CodebaseOutputStream(bytes);
+			out.writeObject(payload);
+			out.close();
+			ByteBuffer[] frame = bytes.finish();
+			long length = -4;
+			for(ByteBuffer buffer : frame){
+				length += buffer.remaining();
+			}
+			if(length > MAX_FRAME_BYTES){
+				throw new IOException("The frame of " + length + " bytes is too long");
+			}
+			frame[0].putInt(0, (int) length);
+			frame[0].putLong(4, id);
+			frame[0].put(12, type);
+			encoded = true;
+			return frame;
+		}
+		finally{
+			if(!encoded){
+				release(bytes.finish(), buffers);
+			}
+		}
+	}
+
+	/**
+	 * Gives the buffers of a frame back to their pool.
+	 *
+	 * @param frame the buffers of the frame
+	 * @param buffers the pool
+	 */
+	static void release(ByteBuffer[] frame, BufferPool buffers){
+		for(ByteBuffer buffer : frame){
+			buffers.release(buffer);
+		}
+	}
+
+	/**
+	 * Gets the id of the call of a frame.
+	 *
+	 * @param frame the frame, without its length
+	 * @return the id
+	 */
+	static long id(byte[] frame){
+		return ByteBuffer.wrap(frame).getLong(0);
+	}
+
+	/**
+	 * Gets the type of a frame.
+	 *
+	 * @param frame the frame, without its length
+	 * @return the type
+	 */
+	static byte type(byte[] frame){
+		return frame[8];
+	}
+
+	/**
+	 * Decodes the payload of a frame.
+	 *
+	 * @param frame the frame, without its length
+	 * @return the payload
+	 * @throws IOException if the payload cannot be deserialized
+	 * @throws ClassNotFoundException if a class of the payload cannot be loaded
+	 */
+	static Object payload(byte[] frame) throws IOException, ClassNotFoundException{
+		ObjectInputStream in = new CodebaseInputStream(new ByteArrayInputStream(frame, HEADER_BYTES, frame.length - HEADER_BYTES));
+		try{
+			return in.readObject();
+		}
+		finally{
+			in.close();
+		}
+	}
+
+	/**
+	 * The reader of the frames from the bytes that arrive on a connection, in whatever pieces they arrive.
+	 */
+	static final class FrameReader {
+
+		/** The bytes of the frame that is being read, without its length, or null if its length has not been read yet. */
+		private byte[] frame;
+
+		/** The length of the frame that is being read. */
+		private int length;
+
+		/** The number of bytes of the frame that have been read. */
+		private int position;
+
+		/**
+		 * Reads the next frame from a buffer.
+		 * The bytes that are read are consumed from the buffer; the bytes of a frame that is not complete yet are kept until the next call.
+		 * The length of a frame is checked before anything is allocated for it, and the frame grows only as its bytes arrive.
+		 *
+		 * @param buffer the buffer, ready to be read from
+		 * @return the frame without its length, or null if the buffer does not complete one
+		 * @throws IOException if the length of the frame is not valid or longer than MAX_FRAME_BYTES
+		 */
+		byte[] next(ByteBuffer buffer) throws IOException{
+			if(frame == null){
+				if(buffer.remaining() < 4){
+					return null;
+				}
+				length = buffer.getInt();
+				if(length < HEADER_BYTES || length > MAX_FRAME_BYTES){
+					throw new IOException("Invalid frame length " + length + ", the largest is " + MAX_FRAME_BYTES);
+				}
+				frame = new byte[Math.min(length, INITIAL_FRAME_BYTES)];
+				position = 0;
+			}
+			while(buffer.hasRemaining() && position < length){
+				if(position == frame.length){
+					frame = Arrays.copyOf(frame, (int) Math.min(length, 2L * frame.length));
+				}
+				int count = Math.min(buffer.remaining(), frame.length - position);
+				buffer.get(frame, position, count);
+				position += count;
+			}
+			if(position < length){
+				return null;
+			}
+			byte[] complete = frame;
+			frame = null;
+			return complete;
+		}
+	}
+
+	/**
+	 * An output stream into a list of buffers from a pool.
+	 */
+	private static final class FrameOutput extends OutputStream {
+
+		/** The pool of the buffers. */
+		private final BufferPool buffers;
+
+		/** The buffers that have been written into. */
+		private final List<ByteBuffer> written = new ArrayList<ByteBuffer>();
+
+		/** The buffer that is being written into. */
+		private ByteBuffer current;
+
+		/**
+		 * Instantiates a new frame output.
+		 *
+		 * @param buffers the pool of the buffers
+		 */
+		FrameOutput(BufferPool buffers){
+			this.buffers = buffers;
+			this.current = buffers.acquire();
+			written.add(current);
+		}
+
+		@Override
+		public void write(int b) {
+			if(!current.hasRemaining()){
+				next();
+			}
+			current.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			while(len > 0){
+				if(!current.hasRemaining()){
+					next();
+				}
+				int count = Math.min(len, current.remaining());
+				current.put(b, off, count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		/**
+		 * Starts writing into a new buffer.
+		 */
+		private void next(){
+			current = buffers.acquire();
+			written.add(current);
+		}
+
+		/**
+		 * Flips the buffers that have been written into, once; the buffers are ready to be read from.
+		 *
+		 * @return the buffers
+		 */
+		ByteBuffer[] finish(){
+			if(current != null){
+				for(ByteBuffer buffer : written){
+					buffer.flip();
+				}
+				current = null;
+			}
+			return written.toArray(new ByteBuffer[written.size()]);
+		}
+	}
+
+	/**
+	 * An object output stream that annotates the classes with their codebase, as RMI does.
+	 */
+	private static final class CodebaseOutputStream extends ObjectOutputStream {
+
+		/**
+		 * Instantiates a new codebase output stream.
+		 *
+		 * @param out the output stream
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		CodebaseOutputStream(OutputStream out) throws IOException{
+			super(out);
+		}
+
+		@Override
+		protected void annotateClass(Class<?> cl) throws IOException {
+			writeObject(RMIClassLoader.getClassAnnotation(cl));
+		}
+
+		@Override
+		protected void annotateProxyClass(Class<?> cl) throws IOException {
+			annotateClass(cl);
+		}
+	}
+
+	/**
+	 * An object input stream that loads the classes from the codebase they are annotated with, as RMI does.
+	 */
+	private static final class CodebaseInputStream extends ObjectInputStream {
+
+		/**
+		 * Instantiates a new codebase input stream.
+		 *
+		 * @param in the input stream
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		CodebaseInputStream(InputStream in) throws IOException{
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			String codebase = (String) readObject();
+			try{
+				return RMIClassLoader.loadClass(codebase, desc.getName(), Thread.currentThread().getContextClassLoader());
+			}
+			catch(MalformedURLException e){
+				throw new ClassNotFoundException(desc.getName(), e);
+			}
+			catch(ClassNotFoundException e){ // the primitive types
+				return super.resolveClass(desc);
+			}
+		}
+
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			String codebase = (String) readObject();
+			try{
+				return RMIClassLoader.loadProxyClass(codebase, interfaces, Thread.currentThread().getContextClassLoader());
+			}
+			catch(MalformedURLException e){
+				throw new ClassNotFoundException(Arrays.toString(interfaces), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,368 @@
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.MarshalException;
+import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.CacheStats;
+import api.Computer;
+import api.InputBlob;
+import api.PartialResultListener;
+import api.ServerStats;
+import api.StreamingTask;
+import api.Task;
+
+/**
+ * This class is the client stub of a computer that is served by NioComputerServer; it can be used wherever the RMI stub of a computer is.
+ * All the calls of the stub share one connection: every call is written as a frame with an id and waits for the reply with that id, so any number of threads can have calls in flight at once without a connection each.
+ * A reader thread reads the replies and hands them to the waiting calls, which unmarshal them; it also delivers the parts of streaming tasks to their listeners, in order.
+ * As with RMI, the exceptions thrown by the computer are rethrown by the stub, and a RemoteException is thrown if the connection fails.
+ */
+public class NioComputer implements Computer, Closeable {
+
+	/** The largest number of free buffers that are kept in the pool. */
+	private static final int MAX_POOLED_BUFFERS = 64;
+
+	/** The channel of the connection. */
+	private final SocketChannel channel;
+
+	/** The pool of the buffers of the connection. */
+	private final BufferPool buffers = new BufferPool(NioComputerServer.BUFFER_BYTES, MAX_POOLED_BUFFERS);
+
+	/** The lock that keeps the frames of concurrent calls from interleaving. */
+	private final Object writeLock = new Object();
+
+	/** The id of the last call. */
+	private final AtomicLong lastId = new AtomicLong();
+
+	/** The calls that wait for their replies, by id. */
+	private final Map<Long, Call> pending = new ConcurrentHashMap<Long, Call>();
+
+	/** The reason the connection failed, or null while it works. */
+	private volatile RemoteException failure;
+
+	/**
+	 * Connects to a computer.
+	 *
+	 * @param host the host of the computer
+	 * @param port the port of its NIO server
+	 * @throws RemoteException if the connection cannot be made
+	 */
+	public NioComputer(String host, int port) throws RemoteException{
+		try{
+			channel = SocketChannel.open(new InetSocketAddress(host, port));
+			channel.socket().setTcpNoDelay(true);
+		}
+		catch(IOException e){
+			throw new ConnectException("Cannot connect to " + host + ":" + port, e);
+		}
+		Thread reader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				read();
+			}
+		}, "nio-reader-" + host + ":" + port);
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Closes the connection; the calls in flight throw a RemoteException.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Reads the replies until the connection is closed.
+	 */
+	private void read(){
+		ByteBuffer buffer = buffers.acquire();
+		FrameCodec.FrameReader reader = new FrameCodec.FrameReader();
+		RemoteException reason;
+		try{
+			while(channel.read(buffer) >= 0){
+				buffer.flip();
+				byte[] frame;
+				while((frame = reader.next(buffer)) != null){
+					receive(frame);
+				}
+				buffer.compact();
+			}
+			reason = new RemoteException("The connection was closed by the computer");
+		}
+		catch(IOException e){
+			reason = new RemoteException("The connection to the computer failed", e);
+		}
+		finally{
+			buffers.release(buffer);
+		}
+		failure = reason;
+		for(Call call : pending.values()){
+			call.fail(reason);
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Hands a reply to the call that waits for it, which unmarshals it, so that the replies of concurrent calls are unmarshalled concurrently.
+	 * The parts of a streaming task are unmarshalled and delivered here, in order.
+	 *
+	 * @param frame the frame of the reply
+	 */
+	@SuppressWarnings("unchecked")
+	private void receive(byte[] frame){
+		long id = FrameCodec.id(frame);
+		byte type = FrameCodec.type(frame);
+		if(type != FrameCodec.PARTIAL){
+			Call call = pending.remove(id);
+			if(call != null){
+				call.complete(frame);
+			}
+			return;
+		}
+		Call call = pending.get(id);
+		if(call == null || call.listener == null){
+			return;
+		}
+		try{
+			call.listener.partialResults((List<Object>) FrameCodec.payload(frame));
+		}
+		catch(RemoteException e){
+			// the call throws it instead of its result, as it would if the computer could not call back an RMI listener
+			call.listenerFailure = e;
+		}
+		catch(ClassNotFoundException e){
+			call.listenerFailure = new UnmarshalException("The parts cannot be unmarshalled", e);
+		}
+		catch(IOException e){
+			call.listenerFailure = new UnmarshalException("The parts cannot be unmarshalled", e);
+		}
+		catch(RuntimeException e){
+			call.listenerFailure = new RemoteException("The listener failed", e);
+		}
+	}
+
+	/**
+	 * Makes a call and waits for its reply.
+	 *
+	 * @param type the type of the frame of the call
+	 * @param listener the listener of the parts of a streaming task, or null
+	 * @param args the arguments of the call
+	 * @return the return value of the call
+	 * @throws RemoteException the exception thrown by the call, or the failure of the connection
+	 */
+	private Object call(byte type, PartialResultListener<?> listener, Object... args) throws RemoteException{
+		long id = lastId.incrementAndGet();
+		ByteBuffer[] frame;
+		try{
+			frame = FrameCodec.encode(id, type, args, buffers);
+		}
+		catch(IOException e){
+			throw new MarshalException("The arguments of the call cannot be marshalled", e);
+		}
+		Call call = new Call(listener);
+		pending.put(id, call);
+		if(failure != null){ // the reader may have failed the pending calls before this one was added
+			pending.remove(id);
+			FrameCodec.release(frame, buffers);
+			throw failure;
+		}
+		try{
+			write(frame);
+		}
+		catch(IOException e){
+			pending.remove(id);
+			throw new RemoteException("The call cannot be sent to the computer", e);
+		}
+		return call.await();
+	}
+
+	/**
+	 * Writes a frame with gathering writes and gives its buffers back to the pool.
+	 *
+	 * @param frame the buffers of the frame
+	 * @throws IOException if the connection fails
+	 */
+	private void write(ByteBuffer[] frame) throws IOException{
+		try{
+			synchronized(writeLock){
+				while(frame[frame.length - 1].hasRemaining()){
+					channel.write(frame);
+				}
+			}
+		}
+		finally{
+			FrameCodec.release(frame, buffers);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T execute(Task<T> t) throws RemoteException {
+		return (T) call(FrameCodec.EXECUTE, null, t);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T, P> T executeStreaming(StreamingTask<T, P> task, PartialResultListener<P> listener) throws RemoteException {
+		return (T) call(FrameCodec.EXECUTE_STREAMING, listener, task);
+	}
+
+	@Override
+	public long[] submit(List<? extends Task<?>> tasks) throws RemoteException {
+		return (long[]) call(FrameCodec.SUBMIT, null, tasks);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Map<Long, Object> poll(long[] tickets) throws RemoteException {
+		return (Map<Long, Object>) call(FrameCodec.POLL, null, tickets);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Map<Long, Object> take(long[] tickets, long timeoutMillis) throws RemoteException {
+		return (Map<Long, Object>) call(FrameCodec.TAKE, null, tickets, timeoutMillis);
+	}
+
+	@Override
+	public void cancel(long[] tickets) throws RemoteException {
+		call(FrameCodec.CANCEL, null, tickets);
+	}
+
+	@Override
+	public byte[] fetch(String name, long offset, int length) throws RemoteException {
+		return (byte[]) call(FrameCodec.FETCH, null, name, offset, length);
+	}
+
+	@Override
+	public String[] findMissingInputs(String[] hashes) throws RemoteException {
+		return (String[]) call(FrameCodec.FIND_MISSING_INPUTS, null, (Object) hashes);
+	}
+
+	@Override
+	public void storeInputs(List<InputBlob> inputs) throws RemoteException {
+		call(FrameCodec.STORE_INPUTS, null, inputs);
+	}
+
+	@Override
+	public CacheStats getCacheStats() throws RemoteException {
+		return (CacheStats) call(FrameCodec.GET_CACHE_STATS, null);
+	}
+
+	@Override
+	public ServerStats getStats() throws RemoteException {
+		return (ServerStats) call(FrameCodec.GET_STATS, null);
+	}
+
+	/**
+	 * A call that waits for its reply.
+	 */
+	private static final class Call {
+
+		/** The listener of the parts of a streaming task, or null. */
+		private final PartialResultListener<Object> listener;
+
+		/** The latch that is released by the reply. */
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		/** The frame of the reply. */
+		private byte[] reply;
+
+		/** The exception thrown by the call. */
+		private Throwable error;
+
+		/** The exception thrown by the listener, which is thrown by the call instead of its result. */
+		private RemoteException listenerFailure;
+
+		/**
+		 * Instantiates a new call.
+		 *
+		 * @param listener the listener of the parts of a streaming task, or null
+		 */
+		@SuppressWarnings("unchecked")
+		Call(PartialResultListener<?> listener){
+			this.listener = (PartialResultListener<Object>) listener;
+		}
+
+		/**
+		 * Completes the call with its reply.
+		 *
+		 * @param reply the frame of the reply
+		 */
+		void complete(byte[] reply){
+			this.reply = reply;
+			done.countDown();
+		}
+
+		/**
+		 * Completes the call with an exception.
+		 *
+		 * @param error the exception
+		 */
+		void fail(Throwable error){
+			this.error = error;
+			done.countDown();
+		}
+
+		/**
+		 * Waits for the reply, unmarshals it and rethrows the exception of the call.
+		 *
+		 * @return the return value of the call
+		 * @throws RemoteException the remote exception
+		 */
+		Object await() throws RemoteException{
+			try{
+				done.await();
+			}
+			catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new RemoteException("Interrupted while waiting for the computer", e);
+			}
+			Object result = null;
+			if(reply != null){
+				try{
+					result = FrameCodec.payload(reply);
+				}
+				catch(ClassNotFoundException e){
+					throw new UnmarshalException("The reply cannot be unmarshalled", e);
+				}
+				catch(IOException e){
+					throw new UnmarshalException("The reply cannot be unmarshalled", e);
+				}
+				if(FrameCodec.type(reply) == FrameCodec.ERROR){
+					error = (Throwable) result;
+				}
+			}
+			if(error instanceof RemoteException){
+				throw (RemoteException) error;
+			}
+			if(error instanceof RuntimeException){
+				throw (RuntimeException) error;
+			}
+			if(error instanceof Error){
+				throw (Error) error;
+			}
+			if(error != null){
+				throw new RemoteException("The call failed", error);
+			}
+			if(listenerFailure != null){
+				throw listenerFailure;
+			}
+			return result;
+		}
+	}
+}
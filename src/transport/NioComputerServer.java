@@ -0,0 +1,566 @@
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.MarshalException;
+import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.Computer;
+import api.InputBlob;
+import api.PartialResultListener;
+import api.RejectedTaskException;
+import api.StreamingTask;
+import api.Task;
+
+/**
+ * This class serves a computer over the binary transport of FrameCodec, as an alternative to RMI for clients that use NioComputer.
+ * One selector thread accepts the connections and reads and writes all of them without blocking; the calls are decoded and executed on a bounded pool of threads, so the calls of a connection run concurrently and are answered in the order they complete.
+ * A call that arrives while all the threads are busy is answered with a RejectedTaskException, as a task is when the queue of the computer is full.
+ * A connection holds a direct buffer from a pool for reading; the replies are serialized into direct buffers from the same pool, which are written with gathering writes and given back once written.
+ * The parts of a streaming task are sent to the client as PARTIAL frames of the call, before its reply; while a connection has more than a few MB waiting to be written, the listener waits, so a slow client slows the task down as it does over RMI.
+ */
+public class NioComputerServer implements Closeable {
+
+	/** The system property that sets the largest length of a frame in bytes, on both ends of a connection; 64 MB by default. */
+	public static final String MAX_FRAME_BYTES_PROPERTY = "transport.maxFrameBytes";
+
+	/** The system property that sets the largest number of calls that are executed at once; a call beyond them is answered with a RejectedTaskException. */
+	public static final String MAX_CALLS_PROPERTY = "transport.maxCalls";
+	
+	/** The default largest number of calls that are executed at once, as many as the default queue of a computer holds and then some for the calls that wait for results. */
+	private static final int DEFAULT_MAX_CALLS = 512;
+	
+	/** The time after which an idle thread of the calls exits, in seconds. */
+	private static final long CALLER_KEEP_ALIVE_SECONDS = 60;
+
+	/** The size of the buffers of the connections, in bytes. */
+	static final int BUFFER_BYTES = 64 << 10;
+
+	/** The largest number of free buffers that are kept in the pool, enough for a result of 16 MB. */
+	private static final int MAX_POOLED_BUFFERS = 256;
+
+	/** The number of bytes a connection may have waiting to be written before a streaming task that sends it parts waits for the client to read them. */
+	private static final long MAX_UNWRITTEN_BYTES = 4 << 20;
+
+	/** The computer that executes the calls. */
+	private final Computer computer;
+
+	/** The channel on which the connections are accepted. */
+	private final ServerSocketChannel serverChannel;
+
+	/** The selector of the connections. */
+	private final Selector selector;
+
+	/** The threads that execute the calls. */
+	private final ThreadPoolExecutor callers;
+
+	/** The pool of the buffers of the connections. */
+	private final BufferPool buffers = new BufferPool(BUFFER_BYTES, MAX_POOLED_BUFFERS);
+
+	/** The connections that have replies to write and are not selected for writing yet. */
+	private final Queue<Connection> writeRequests = new ConcurrentLinkedQueue<Connection>();
+
+	/** The selector thread. */
+	private final Thread selectorThread;
+
+	/**
+	 * Starts serving a computer on a port.
+	 *
+	 * @param computer the computer
+	 * @param port the port, or 0 for any free port
+	 * @throws IOException if the port cannot be bound
+	 */
+	public NioComputerServer(Computer computer, int port) throws IOException{
+		this.computer = computer;
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		// like a cached thread pool, but with at most maxCalls threads; the selector thread is never blocked by a full pool
+		callers = new ThreadPoolExecutor(0, Math.max(1, Integer.getInteger(MAX_CALLS_PROPERTY, DEFAULT_MAX_CALLS)), CALLER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "nio-call-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		selectorThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				select();
+			}
+		}, "nio-selector-" + getPort());
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+
+	/**
+	 * Gets the port on which the server accepts connections.
+	 *
+	 * @return the port
+	 */
+	public int getPort(){
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones; the calls that are executing are not answered.
+	 */
+	@Override
+	public void close() throws IOException {
+		try{
+			for(SelectionKey key : selector.keys()){
+				key.channel().close();
+			}
+		}
+		catch(ClosedSelectorException e){
+			// already closed
+		}
+		selector.close();
+		serverChannel.close();
+		callers.shutdown();
+	}
+
+	/**
+	 * Runs the selector loop until the server is closed.
+	 */
+	private void select(){
+		try{
+			while(selector.isOpen()){
+				selector.select();
+				Connection requested;
+				while((requested = writeRequests.poll()) != null){
+					if(requested.key.isValid()){
+						requested.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					}
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					try{
+						if(key.isAcceptable()){
+							accept();
+						}
+						else{
+							Connection connection = (Connection) key.attachment();
+							if(key.isReadable()){
+								connection.read();
+							}
+							if(key.isValid() && key.isWritable()){
+								connection.write();
+							}
+						}
+					}
+					catch(IOException e){
+						if(key.attachment() != null){
+							((Connection) key.attachment()).close();
+						}
+					}
+				}
+			}
+		}
+		catch(ClosedSelectorException e){
+			// the server was closed
+		}
+		catch(IOException e){
+			System.err.println("The NIO server stopped: " + e);
+		}
+	}
+
+	/**
+	 * Accepts a connection.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void accept() throws IOException{
+		SocketChannel channel = serverChannel.accept();
+		if(channel == null){
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Connection connection = new Connection(channel);
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+
+	/**
+	 * Executes a call of a client.
+	 *
+	 * @param connection the connection of the client
+	 * @param frame the frame of the call
+	 */
+	private void call(Connection connection, byte[] frame){
+		long id = FrameCodec.id(frame);
+		Object result;
+		byte type = FrameCodec.RESULT;
+		try{
+			result = invoke(connection, id, FrameCodec.type(frame), FrameCodec.payload(frame));
+		}
+		catch(ClassNotFoundException e){
+			result = new UnmarshalException("The arguments of the call cannot be unmarshalled", e);
+			type = FrameCodec.ERROR;
+		}
+		catch(IOException e){
+			result = e instanceof RemoteException ? e : new UnmarshalException("The arguments of the call cannot be unmarshalled", e);
+			type = FrameCodec.ERROR;
+		}
+		catch(RuntimeException e){
+			result = e;
+			type = FrameCodec.ERROR;
+		}
+		catch(Error e){
+			result = e;
+			type = FrameCodec.ERROR;
+		}
+		try{
+			connection.send(FrameCodec.encode(id, type, result, buffers));
+		}
+		catch(IOException e){
+			try{
+				connection.send(FrameCodec.encode(id, FrameCodec.ERROR, new MarshalException("The result of the call cannot be marshalled", e), buffers));
+			}
+			catch(IOException unmarshallable){ // the client would wait for the reply forever
+				connection.abort();
+			}
+		}
+	}
+
+	/**
+	 * Calls the method of the computer that a frame is for.
+	 *
+	 * @param connection the connection of the client
+	 * @param id the id of the call
+	 * @param type the type of the frame
+	 * @param payload the arguments of the call
+	 * @return the return value of the method
+	 * @throws RemoteException the exception thrown by the method
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object invoke(Connection connection, long id, byte type, Object payload) throws RemoteException{
+		Object[] args = (Object[]) payload;
+		switch(type){
+		case FrameCodec.EXECUTE:
+			return computer.execute((Task) args[0]);
+		case FrameCodec.EXECUTE_STREAMING:
+			return computer.executeStreaming((StreamingTask) args[0], new PartialSender(connection, id));
+		case FrameCodec.SUBMIT:
+			return computer.submit((List<? extends Task<?>>) args[0]);
+		case FrameCodec.POLL:
+			return computer.poll((long[]) args[0]);
+		case FrameCodec.TAKE:
+			return computer.take((long[]) args[0], (Long) args[1]);
+		case FrameCodec.FETCH:
+			return computer.fetch((String) args[0], (Long) args[1], (Integer) args[2]);
+		case FrameCodec.FIND_MISSING_INPUTS:
+			return computer.findMissingInputs((String[]) args[0]);
+		case FrameCodec.STORE_INPUTS:
+			computer.storeInputs((List<InputBlob>) args[0]);
+			return null;
+		case FrameCodec.GET_CACHE_STATS:
+			return computer.getCacheStats();
+		case FrameCodec.GET_STATS:
+			return computer.getStats();
+		case FrameCodec.CANCEL:
+			computer.cancel((long[]) args[0]);
+			return null;
+		default:
+			throw new UnmarshalException("Unknown frame type " + type);
+		}
+	}
+
+	/**
+	 * The listener of a streaming call, which sends the parts to the client as PARTIAL frames of the call.
+	 *
+	 * @param <P> the type of the parts
+	 */
+	private static final class PartialSender<P> implements PartialResultListener<P> {
+
+		/** The connection of the client. */
+		private final Connection connection;
+
+		/** The id of the call. */
+		private final long id;
+
+		/**
+		 * Instantiates a new partial sender.
+		 *
+		 * @param connection the connection of the client
+		 * @param id the id of the call
+		 */
+		PartialSender(Connection connection, long id){
+			this.connection = connection;
+			this.id = id;
+		}
+
+		@Override
+		public void partialResults(List<P> parts) throws RemoteException {
+			if(connection.closed.get()){
+				throw new RemoteException("The connection of the client is closed");
+			}
+			try{
+				connection.send(FrameCodec.encode(id, FrameCodec.PARTIAL, parts, connection.buffers()));
+			}
+			catch(IOException e){
+				throw new MarshalException("The parts cannot be marshalled", e);
+			}
+			try{
+				connection.awaitWritten();
+			}
+			catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new RemoteException("Interrupted while waiting for the client to read the parts", e);
+			}
+		}
+	}
+
+	/**
+	 * A connection of a client.
+	 * The replies are written by the thread of the call that completes them if no other reply is being written and the socket takes them whole; otherwise they are queued and the selector thread writes them when the socket is ready.
+	 */
+	private final class Connection {
+
+		/** The channel. */
+		private final SocketChannel channel;
+
+		/** The key of the channel in the selector. */
+		private SelectionKey key;
+
+		/** The buffer into which the channel is read. */
+		private final ByteBuffer readBuffer;
+
+		/** The reader of the frames of the calls. */
+		private final FrameCodec.FrameReader reader = new FrameCodec.FrameReader();
+
+		/** The frames that are waiting to be written. */
+		private final Queue<ByteBuffer[]> outbox = new ConcurrentLinkedQueue<ByteBuffer[]>();
+
+		/** Whether a thread is writing the frames; only that thread touches the frame that is being written. */
+		private final AtomicBoolean writing = new AtomicBoolean();
+
+		/** The frame that is being written. */
+		private ByteBuffer[] current;
+
+		/** The index of the first buffer of the current frame that is not written yet. */
+		private int currentIndex;
+
+		/** Whether the connection is closed. */
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		/** The number of bytes of the queued frames that are not written yet. */
+		private final AtomicLong unwrittenBytes = new AtomicLong();
+
+		/**
+		 * Instantiates a new connection.
+		 *
+		 * @param channel the channel
+		 */
+		Connection(SocketChannel channel){
+			this.channel = channel;
+			this.readBuffer = buffers.acquire();
+		}
+
+		/**
+		 * Gets the pool of the buffers of the connection.
+		 *
+		 * @return the pool
+		 */
+		BufferPool buffers(){
+			return buffers;
+		}
+
+		/**
+		 * Reads what the channel has and starts the calls whose frames are complete. Called by the selector thread.
+		 *
+		 * @throws IOException if the channel is closed or a frame is not valid
+		 */
+		void read() throws IOException{
+			if(channel.read(readBuffer) < 0){
+				close();
+				return;
+			}
+			readBuffer.flip();
+			byte[] frame;
+			while((frame = reader.next(readBuffer)) != null){
+				final byte[] call = frame;
+				try{
+					callers.execute(new Runnable() {
+						@Override
+						public void run() {
+							call(Connection.this, call);
+						}
+					});
+				}
+				catch(RejectedExecutionException e){ // the client backs off as it does when the queue of the computer is full
+					send(FrameCodec.encode(FrameCodec.id(call), FrameCodec.ERROR, new RejectedTaskException("The server is executing " + callers.getMaximumPoolSize() + " calls already"), buffers));
+				}
+			}
+			readBuffer.compact();
+		}
+
+		/**
+		 * Writes a frame, or queues it to be written by the selector thread.
+		 *
+		 * @param frame the buffers of the frame, which are given back to the pool once written
+		 */
+		void send(ByteBuffer[] frame){
+			if(closed.get()){
+				FrameCodec.release(frame, buffers);
+				return;
+			}
+			long bytes = 0;
+			for(ByteBuffer buffer : frame){
+				bytes += buffer.remaining();
+			}
+			unwrittenBytes.addAndGet(bytes);
+			outbox.add(frame);
+			try{
+				while(writing.compareAndSet(false, true)){
+					if(!flush()){ // the socket is full; the selector thread writes the rest when it is not
+						writeRequests.add(this);
+						selector.wakeup();
+						return;
+					}
+					writing.set(false);
+					if(outbox.isEmpty()){ // otherwise a frame was queued while the flag was held, and its thread may have given up
+						return;
+					}
+				}
+			}
+			catch(IOException e){
+				abort();
+			}
+		}
+
+		/**
+		 * Writes the rest of the queued frames. Called by the selector thread when the socket is ready, after a thread that could not write them all asked it to.
+		 *
+		 * @throws IOException if the channel is closed
+		 */
+		void write() throws IOException{
+			if(!flush()){
+				return;
+			}
+			key.interestOps(SelectionKey.OP_READ);
+			writing.set(false);
+			while(!outbox.isEmpty() && writing.compareAndSet(false, true)){
+				if(!flush()){
+					key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+				writing.set(false);
+			}
+		}
+
+		/**
+		 * Writes as many of the queued frames as the socket takes without blocking. Called only by the thread that holds the writing flag.
+		 *
+		 * @return whether all of the frames were written
+		 * @throws IOException if the channel is closed
+		 */
+		private boolean flush() throws IOException{
+			while(true){
+				if(current == null){
+					current = outbox.poll();
+					currentIndex = 0;
+					if(current == null){
+						return true;
+					}
+				}
+				channel.write(current, currentIndex, current.length - currentIndex);
+				while(currentIndex < current.length && !current[currentIndex].hasRemaining()){
+					written(current[currentIndex].limit());
+					buffers.release(current[currentIndex++]);
+				}
+				if(currentIndex < current.length){
+					return false;
+				}
+				current = null;
+			}
+		}
+
+		/**
+		 * Counts bytes as written, and wakes the threads that wait for the unwritten bytes to drop to MAX_UNWRITTEN_BYTES once they have.
+		 *
+		 * @param bytes the number of bytes written
+		 */
+		private void written(long bytes){
+			long unwritten = unwrittenBytes.addAndGet(-bytes);
+			if(unwritten <= MAX_UNWRITTEN_BYTES && unwritten + bytes > MAX_UNWRITTEN_BYTES){
+				synchronized(this){
+					notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Waits until the connection has at most MAX_UNWRITTEN_BYTES waiting to be written, or is closed.
+		 *
+		 * @throws InterruptedException if the thread is interrupted while waiting
+		 */
+		synchronized void awaitWritten() throws InterruptedException{
+			while(!closed.get() && unwrittenBytes.get() > MAX_UNWRITTEN_BYTES){
+				wait();
+			}
+		}
+
+		/**
+		 * Closes the channel from a thread other than the selector thread. The buffers of the connection are left to the garbage collector, since the selector thread may still use them.
+		 */
+		void abort(){
+			closed.set(true);
+			synchronized(this){
+				notifyAll();
+			}
+			try{
+				channel.close();
+			}
+			catch(IOException e){
+				// closed anyway
+			}
+		}
+
+		/**
+		 * Closes the connection and gives its read buffer back to the pool. Called by the selector thread; the frames that are not written are left to the garbage collector.
+		 */
+		void close(){
+			if(!closed.compareAndSet(false, true)){
+				return;
+			}
+			synchronized(this){
+				notifyAll();
+			}
+			key.cancel();
+			try{
+				channel.close();
+			}
+			catch(IOException e){
+				// closed anyway
+			}
+			buffers.release(readBuffer);
+		}
+	}
+}